@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.binary;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes requests against model endpoints which speak the {@link BinaryProtocol}.
+ *
+ * Each endpoint (host and port) is given its own pool of persistent connections which are shared
+ * by all threads.  A connection is used by one request at a time and returned to the pool when
+ * the response has been read.  The pool of an endpoint that is no longer used, as happens when
+ * models are redeployed, is closed.
+ */
+public enum BinaryModelClient {
+  INSTANCE;
+
+  /**
+   * The maximum number of idle connections held open to a single endpoint.
+   */
+  public static final int MAX_CONNECTIONS_PER_ENDPOINT = 32;
+
+  /**
+   * The timeout in milliseconds to connect to an endpoint and wait for data from an endpoint.
+   */
+  public static final int TIMEOUT_MILLIS = 10000;
+
+  /**
+   * The maximum number of endpoints whose connections are kept open.
+   */
+  public static final int MAX_ENDPOINTS = 100;
+
+  /**
+   * The time in minutes after which the connections to an endpoint that has not been used are closed.
+   */
+  public static final int IDLE_ENDPOINT_MINUTES = 10;
+
+  private final Cache<String, BlockingQueue<Connection>> pools = CacheBuilder.newBuilder()
+          .maximumSize(MAX_ENDPOINTS)
+          .expireAfterAccess(IDLE_ENDPOINT_MINUTES, TimeUnit.MINUTES)
+          .removalListener((RemovalListener<String, BlockingQueue<Connection>>) notification -> close(notification.getValue()))
+          .build();
+
+  /**
+   * Score a batch of feature vectors.
+   * @param binaryUrl The binary URL of the endpoint; e.g. tcp://host:port
+   * @param features The features to score.
+   * @return The scores, one row for each row of features.
+   */
+  public FeatureFrame score(String binaryUrl, FeatureFrame features) throws IOException {
+    URI uri = URI.create(binaryUrl);
+    if(uri.getHost() == null || uri.getPort() < 0) {
+      throw new IllegalArgumentException("Binary endpoint must have a host and port: " + binaryUrl);
+    }
+    String endpoint = uri.getHost() + ":" + uri.getPort();
+    BlockingQueue<Connection> pool;
+    try {
+      pool = pools.get(endpoint, () -> new ArrayBlockingQueue<>(MAX_CONNECTIONS_PER_ENDPOINT));
+    }
+    catch(ExecutionException e) {
+      throw new IllegalStateException("Unable to create a connection pool for " + binaryUrl, e.getCause());
+    }
+    Connection connection = pool.poll();
+    if(connection == null) {
+      connection = new Connection(uri.getHost(), uri.getPort());
+    }
+    FeatureFrame ret;
+    try {
+      ret = connection.score(features);
+    }
+    catch(IOException | RuntimeException e) {
+      //the state of the connection is unknown, so it is not returned to the pool
+      connection.close();
+      throw e;
+    }
+    if(ret.getRows() != features.getRows()) {
+      connection.close();
+      throw new IllegalStateException("Expected " + features.getRows() + " scores, but received " + ret.getRows());
+    }
+    if(!pool.offer(connection)) {
+      connection.close();
+    }
+    if(pools.getIfPresent(endpoint) != pool) {
+      //the pool was closed while the connection was in use
+      close(pool);
+    }
+    return ret;
+  }
+
+  private static void close(BlockingQueue<Connection> pool) {
+    Connection connection;
+    while((connection = pool.poll()) != null) {
+      connection.close();
+    }
+  }
+
+  private static class Connection implements Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+
+    Connection(String host, int port) throws IOException {
+      socket = new Socket();
+      try {
+        socket.setTcpNoDelay(true);
+        socket.setKeepAlive(true);
+        socket.setSoTimeout(TIMEOUT_MILLIS);
+        socket.connect(new InetSocketAddress(host, port), TIMEOUT_MILLIS);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new BufferedOutputStream(socket.getOutputStream());
+      }
+      catch(IOException e) {
+        socket.close();
+        throw e;
+      }
+    }
+
+    FeatureFrame score(FeatureFrame features) throws IOException {
+      BinaryProtocol.writeRequest(out, features);
+      return BinaryProtocol.readResponse(in);
+    }
+
+    @Override
+    public void close() {
+      try {
+        socket.close();
+      }
+      catch(IOException e) {
+        //nothing more can be done with the connection
+      }
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.binary;
+
+import org.apache.curator.utils.CloseableUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * A reference server for models which speak the {@link BinaryProtocol}.
+ *
+ * Each connection is served by its own thread, which reads requests, scores them with the model
+ * and writes the responses until the client closes the connection.  A model written in Java may
+ * use this server directly; it is also used to stand in for models in tests.
+ */
+public class BinaryModelServer implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private final Function<FeatureFrame, FeatureFrame> model;
+  private final ServerSocket serverSocket;
+  private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+  private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+    Thread t = new Thread(r, "binary-model-server");
+    t.setDaemon(true);
+    return t;
+  });
+
+  /**
+   * @param port The port to listen on; 0 to choose any free port.
+   * @param model Scores a batch of features, returning one row of scores for each row of features.
+   */
+  public BinaryModelServer(int port, Function<FeatureFrame, FeatureFrame> model) throws IOException {
+    this.model = model;
+    this.serverSocket = new ServerSocket(port);
+  }
+
+  /**
+   * Start accepting connections.
+   */
+  public BinaryModelServer start() {
+    executor.submit(this::accept);
+    return this;
+  }
+
+  /**
+   * The port the server is listening on.
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * The binary URL of the server, suitable for {@link org.apache.metron.maas.config.Endpoint#setBinaryUrl(String)}.
+   */
+  public String getBinaryUrl() {
+    return "tcp://localhost:" + getPort();
+  }
+
+  private void accept() {
+    while(!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        executor.submit(() -> serve(socket));
+      }
+      catch(SocketException e) {
+        //the server socket was closed
+      }
+      catch(IOException e) {
+        LOG.error("Unable to accept connection: {}", e.getMessage(), e);
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    connections.add(socket);
+    try(Socket s = socket) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+      OutputStream out = new BufferedOutputStream(s.getOutputStream());
+      FeatureFrame features;
+      while((features = BinaryProtocol.readRequest(in)) != null) {
+        FeatureFrame scores;
+        try {
+          scores = model.apply(features);
+        }
+        catch(RuntimeException e) {
+          LOG.error("Unable to score {}: {}", features, e.getMessage(), e);
+          BinaryProtocol.writeError(out, e.getMessage());
+          continue;
+        }
+        BinaryProtocol.writeResponse(out, scores);
+      }
+    }
+    catch(IOException e) {
+      LOG.debug("Closing connection: {}", e.getMessage(), e);
+    }
+    finally {
+      connections.remove(socket);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      serverSocket.close();
+    }
+    finally {
+      for(Socket socket : connections) {
+        CloseableUtils.closeQuietly(socket);
+      }
+      executor.shutdownNow();
+    }
+  }
+}
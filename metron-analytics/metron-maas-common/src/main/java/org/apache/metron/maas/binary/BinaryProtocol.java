@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.binary;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The binary protocol for scoring models.
+ *
+ * Every message is framed by a 4 byte length followed by that many bytes of body.  All numbers
+ * are big-endian.  A request body is
+ * <pre>
+ *   version:byte frame
+ * </pre>
+ * and a response body is
+ * <pre>
+ *   version:byte status:byte (frame | message_length:int message:utf-8)
+ * </pre>
+ * where a frame is
+ * <pre>
+ *   columns:int (name_length:short name:utf-8)* rows:int value:double*
+ * </pre>
+ * with the values in row-major order.  A connection carries any number of requests, each of
+ * which is answered in order before the next is sent.
+ */
+public enum BinaryProtocol {
+  ;
+
+  public static final byte VERSION = 1;
+  public static final byte STATUS_OK = 0;
+  public static final byte STATUS_ERROR = 1;
+
+  /**
+   * The largest message body, in bytes, which will be read.
+   */
+  public static final int MAX_MESSAGE_BYTES = 64 * 1024 * 1024;
+
+  /**
+   * Write a request to score a frame.
+   */
+  public static void writeRequest(OutputStream out, FeatureFrame features) throws IOException {
+    ByteBuffer buffer = allocate(1 + size(features));
+    buffer.put(VERSION);
+    putFrame(buffer, features);
+    write(out, buffer);
+  }
+
+  /**
+   * Read a request to score a frame.
+   * @return The frame or null, if the connection was closed before a request began.
+   */
+  public static FeatureFrame readRequest(DataInputStream in) throws IOException {
+    ByteBuffer buffer = read(in);
+    if(buffer == null) {
+      return null;
+    }
+    checkVersion(buffer.get());
+    return getFrame(buffer);
+  }
+
+  /**
+   * Write a successful response.
+   */
+  public static void writeResponse(OutputStream out, FeatureFrame scores) throws IOException {
+    ByteBuffer buffer = allocate(2 + size(scores));
+    buffer.put(VERSION);
+    buffer.put(STATUS_OK);
+    putFrame(buffer, scores);
+    write(out, buffer);
+  }
+
+  /**
+   * Write a response indicating the request could not be scored.
+   */
+  public static void writeError(OutputStream out, String message) throws IOException {
+    byte[] bytes = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = allocate(2 + 4 + bytes.length);
+    buffer.put(VERSION);
+    buffer.put(STATUS_ERROR);
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+    write(out, buffer);
+  }
+
+  /**
+   * Read a response.
+   * @return The scores.
+   * @throws IllegalStateException If the model could not score the request.
+   */
+  public static FeatureFrame readResponse(DataInputStream in) throws IOException {
+    ByteBuffer buffer = read(in);
+    if(buffer == null) {
+      throw new EOFException("Connection closed before a response was received");
+    }
+    checkVersion(buffer.get());
+    byte status = buffer.get();
+    if(status != STATUS_OK) {
+      byte[] message = new byte[buffer.getInt()];
+      buffer.get(message);
+      throw new IllegalStateException("Unable to score: " + new String(message, StandardCharsets.UTF_8));
+    }
+    return getFrame(buffer);
+  }
+
+  private static int size(FeatureFrame frame) {
+    int size = 4 + 4 + 8 * frame.getValues().length;
+    for(String name : frame.getSchema()) {
+      size += 2 + name.getBytes(StandardCharsets.UTF_8).length;
+    }
+    return size;
+  }
+
+  private static ByteBuffer allocate(int bodySize) {
+    if(bodySize > MAX_MESSAGE_BYTES) {
+      throw new IllegalArgumentException("Message of " + bodySize + " bytes exceeds the maximum of " + MAX_MESSAGE_BYTES);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(4 + bodySize);
+    buffer.putInt(bodySize);
+    return buffer;
+  }
+
+  private static void putFrame(ByteBuffer buffer, FeatureFrame frame) {
+    buffer.putInt(frame.getColumns());
+    for(String name : frame.getSchema()) {
+      byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+      buffer.putShort((short) bytes.length);
+      buffer.put(bytes);
+    }
+    buffer.putInt(frame.getRows());
+    buffer.asDoubleBuffer().put(frame.getValues());
+  }
+
+  private static FeatureFrame getFrame(ByteBuffer buffer) {
+    int columns = buffer.getInt();
+    List<String> schema = new ArrayList<>(columns);
+    for(int i = 0;i < columns;++i) {
+      byte[] name = new byte[buffer.getShort() & 0xFFFF];
+      buffer.get(name);
+      schema.add(new String(name, StandardCharsets.UTF_8));
+    }
+    int rows = buffer.getInt();
+    double[] values = new double[columns * rows];
+    buffer.asDoubleBuffer().get(values);
+    return new FeatureFrame(schema, rows, values);
+  }
+
+  private static void write(OutputStream out, ByteBuffer buffer) throws IOException {
+    out.write(buffer.array(), 0, buffer.capacity());
+    out.flush();
+  }
+
+  private static ByteBuffer read(DataInputStream in) throws IOException {
+    int length;
+    try {
+      length = in.readInt();
+    }
+    catch(EOFException eof) {
+      return null;
+    }
+    if(length < 0 || length > MAX_MESSAGE_BYTES) {
+      throw new IOException("Invalid message length " + length);
+    }
+    byte[] body = new byte[length];
+    in.readFully(body);
+    return ByteBuffer.wrap(body);
+  }
+
+  private static void checkVersion(byte version) throws IOException {
+    if(version != VERSION) {
+      throw new IOException("Unsupported protocol version " + version);
+    }
+  }
+}
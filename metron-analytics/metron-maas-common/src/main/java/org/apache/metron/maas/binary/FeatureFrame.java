@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.binary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of numeric feature vectors sharing a schema; the name of each column.
+ *
+ * The values are held in a single row-major array of doubles, so a batch can be written to and
+ * read from the binary protocol without boxing.  Missing values are NaN.
+ */
+public class FeatureFrame {
+  private final List<String> schema;
+  private final int rows;
+  private final double[] values;
+
+  /**
+   * Create a frame of missing values.
+   * @param schema The name of each column.
+   * @param rows The number of rows.
+   */
+  public FeatureFrame(List<String> schema, int rows) {
+    this(schema, rows, nan(schema.size() * rows));
+  }
+
+  /**
+   * Create a frame over existing values.
+   * @param schema The name of each column.
+   * @param rows The number of rows.
+   * @param values The values in row-major order.
+   */
+  public FeatureFrame(List<String> schema, int rows, double[] values) {
+    if(values.length != schema.size() * rows) {
+      throw new IllegalArgumentException("Expected " + schema.size() * rows + " values, but got " + values.length);
+    }
+    this.schema = Collections.unmodifiableList(new ArrayList<>(schema));
+    this.rows = rows;
+    this.values = values;
+  }
+
+  /**
+   * Create a frame from maps of feature name to value.  The schema is the union of the names in the
+   * order first seen.  Values must be numbers or strings which parse as numbers.
+   * @param features The features of each row.
+   * @throws IllegalArgumentException If a value is not numeric.
+   */
+  public static FeatureFrame fromMaps(List<? extends Map<String, ?>> features) {
+    Map<String, Integer> columns = new LinkedHashMap<>();
+    for(Map<String, ?> row : features) {
+      for(String name : row.keySet()) {
+        columns.putIfAbsent(name, columns.size());
+      }
+    }
+    FeatureFrame ret = new FeatureFrame(new ArrayList<>(columns.keySet()), features.size());
+    for(int row = 0;row < features.size();++row) {
+      for(Map.Entry<String, ?> kv : features.get(row).entrySet()) {
+        ret.set(row, columns.get(kv.getKey()), toDouble(kv.getKey(), kv.getValue()));
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Convert the rows to maps of column name to value.
+   */
+  public List<Map<String, Object>> toMaps() {
+    List<Map<String, Object>> ret = new ArrayList<>(rows);
+    for(int row = 0;row < rows;++row) {
+      Map<String, Object> m = new HashMap<>();
+      for(int col = 0;col < schema.size();++col) {
+        m.put(schema.get(col), get(row, col));
+      }
+      ret.add(m);
+    }
+    return ret;
+  }
+
+  public List<String> getSchema() {
+    return schema;
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  public int getColumns() {
+    return schema.size();
+  }
+
+  public double get(int row, int col) {
+    return values[row * schema.size() + col];
+  }
+
+  public void set(int row, int col, double value) {
+    values[row * schema.size() + col] = value;
+  }
+
+  /**
+   * The values in row-major order.
+   */
+  double[] getValues() {
+    return values;
+  }
+
+  private static double toDouble(String name, Object value) {
+    if(value == null) {
+      return Double.NaN;
+    }
+    if(value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    try {
+      return Double.parseDouble(value.toString());
+    }
+    catch(NumberFormatException nfe) {
+      throw new IllegalArgumentException("Feature " + name + " is not numeric: " + value, nfe);
+    }
+  }
+
+  private static double[] nan(int size) {
+    double[] ret = new double[size];
+    Arrays.fill(ret, Double.NaN);
+    return ret;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    FeatureFrame that = (FeatureFrame) o;
+
+    if (rows != that.rows) return false;
+    if (!schema.equals(that.schema)) return false;
+    return Arrays.equals(values, that.values);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = schema.hashCode();
+    result = 31 * result + rows;
+    result = 31 * result + Arrays.hashCode(values);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "FeatureFrame{" +
+            "schema=" + schema +
+            ", rows=" + rows +
+            '}';
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.config;
+
+/**
+ * The configuration for the circuit breaker which the discovery service keeps for each model endpoint.
+ * An endpoint's circuit is opened, taking it out of rotation, when its latency or error rate is
+ * sustained above these thresholds.
+ */
+public class CircuitBreakerConfig {
+  private double latencyThresholdMs = 1000;
+  private double errorRateThreshold = 0.5;
+  private int minRequests = 5;
+  private long openDurationMs = 30000;
+  private double smoothing = 0.2;
+
+  /**
+   * The smoothed latency (in milliseconds) above which an endpoint's circuit is opened.  This is defaulted to 1000.
+   * @return
+   */
+  public double getLatencyThresholdMs() {
+    return latencyThresholdMs;
+  }
+
+  public void setLatencyThresholdMs(double latencyThresholdMs) {
+    this.latencyThresholdMs = latencyThresholdMs;
+  }
+
+  /**
+   * The smoothed fraction of requests which fail, above which an endpoint's circuit is opened.  This is defaulted to 0.5.
+   * @return
+   */
+  public double getErrorRateThreshold() {
+    return errorRateThreshold;
+  }
+
+  public void setErrorRateThreshold(double errorRateThreshold) {
+    this.errorRateThreshold = errorRateThreshold;
+  }
+
+  /**
+   * The number of requests an endpoint must complete before its circuit can be opened.  This is defaulted to 5.
+   * @return
+   */
+  public int getMinRequests() {
+    return minRequests;
+  }
+
+  public void setMinRequests(int minRequests) {
+    this.minRequests = minRequests;
+  }
+
+  /**
+   * The amount of time (in milliseconds) that a circuit is held open before a single trial request
+   * is let through.  This is defaulted to 30000.
+   * @return
+   */
+  public long getOpenDurationMs() {
+    return openDurationMs;
+  }
+
+  public void setOpenDurationMs(long openDurationMs) {
+    this.openDurationMs = openDurationMs;
+  }
+
+  /**
+   * The weight given to the latest request in the exponentially weighted moving averages of
+   * latency and error rate.  This is defaulted to 0.2.
+   * @return
+   */
+  public double getSmoothing() {
+    return smoothing;
+  }
+
+  public void setSmoothing(double smoothing) {
+    this.smoothing = smoothing;
+  }
+
+  @Override
+  public String toString() {
+    return "CircuitBreakerConfig{" +
+            "latencyThresholdMs=" + latencyThresholdMs +
+            ", errorRateThreshold=" + errorRateThreshold +
+            ", minRequests=" + minRequests +
+            ", openDurationMs=" + openDurationMs +
+            ", smoothing=" + smoothing +
+            '}';
+  }
+}
@@ -26,6 +26,7 @@ import java.util.Map;
  */
 public class Endpoint {
   String url;
+  String binaryUrl;
   Map<String, String> functions = new HashMap<String, String>(){{
     put("apply", "apply");
   }};
@@ -42,6 +43,19 @@ public class Endpoint {
     this.url = url;
   }
 
+  /**
+   * Retrieve the optional URL (e.g. tcp://host:port) at which the model also accepts the binary
+   * protocol.  If this is not set, the model is only reachable via REST.
+   * @return a URL or null
+   */
+  public String getBinaryUrl() {
+    return binaryUrl;
+  }
+
+  public void setBinaryUrl(String binaryUrl) {
+    this.binaryUrl = binaryUrl;
+  }
+
   /**
    * Retrieve the functions (or functions) exposed.  The key of the map is the logical alias
    * for an endpoint function that you can use across multiple services (i.e. 'apply')
@@ -67,6 +81,7 @@ public class Endpoint {
   public String toString() {
     return "Endpoint{" +
             "url='" + url + '\'' +
+            ", binaryUrl='" + binaryUrl + '\'' +
             ", functions=" + functions +
             '}';
   }
@@ -79,6 +94,7 @@ public class Endpoint {
     Endpoint endpoint = (Endpoint) o;
 
     if (getUrl() != null ? !getUrl().equals(endpoint.getUrl()) : endpoint.getUrl() != null) return false;
+    if (getBinaryUrl() != null ? !getBinaryUrl().equals(endpoint.getBinaryUrl()) : endpoint.getBinaryUrl() != null) return false;
     return getFunctions() != null ? getFunctions().equals(endpoint.getFunctions()) : endpoint.getFunctions() == null;
 
   }
@@ -86,6 +102,7 @@ public class Endpoint {
   @Override
   public int hashCode() {
     int result = getUrl() != null ? getUrl().hashCode() : 0;
+    result = 31 * result + (getBinaryUrl() != null ? getBinaryUrl().hashCode() : 0);
     result = 31 * result + (getFunctions() != null ? getFunctions().hashCode() : 0);
     return result;
   }
@@ -33,6 +33,7 @@ public class MaaSConfig {
     put(ZKQueue.ZK_PATH, "/maas/queue");
   }};
   private String serviceRoot = "/maas/service";
+  private CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig();
 
   /**
    * Return the zookeeper path for the discovery service.  This is defaulted to /maas/service
@@ -46,6 +47,17 @@ public class MaaSConfig {
     this.serviceRoot = serviceRoot;
   }
 
+  /**
+   * Return the configuration of the circuit breakers which take slow or failing model endpoints out of rotation.
+   * @return
+   */
+  public CircuitBreakerConfig getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public void setCircuitBreaker(CircuitBreakerConfig circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
 
   /**
    * Get the distributed queue implementation handler.  By default, we use a queue in zookeeper
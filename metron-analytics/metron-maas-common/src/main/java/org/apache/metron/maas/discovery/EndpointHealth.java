@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.discovery;
+
+import org.apache.metron.maas.config.CircuitBreakerConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The health of a single model endpoint, as fed back from the requests made to it.
+ *
+ * The latency and error rate are tracked as exponentially weighted moving averages, so a single slow or
+ * failed request does not take an endpoint out of rotation, but sustained slowness or failure does.  When
+ * either average crosses its threshold, the endpoint's circuit is opened and it receives no requests until
+ * the open duration has elapsed.  A single trial request is then let through; if it succeeds the circuit is
+ * closed, otherwise it is opened again.  The trial is claimed by the first caller of {@link #tryAcquire(long)},
+ * and a trial which never reports back is given up on after the open duration.
+ *
+ * Each request is identified by the token returned from {@link #onRequest(long)}.  Only the completion of
+ * the trial request decides a half open circuit; other requests that complete meanwhile, such as those sent
+ * before the circuit opened, still count towards the averages.
+ */
+public class EndpointHealth {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  /**
+   * The token of a trial request which has been claimed, but not yet sent.
+   */
+  private static final long NO_REQUEST = 0;
+
+  private final CircuitBreakerConfig config;
+  private State state = State.CLOSED;
+  private long requests = 0;
+  private long failures = 0;
+  private double latencyMs = 0;
+  private double errorRate = 0;
+  private long openedAt = 0;
+  private boolean trialInFlight = false;
+  private long trialStartedAt = 0;
+  private long trialRequest = NO_REQUEST;
+  private long lastRequest = NO_REQUEST;
+
+  public EndpointHealth(CircuitBreakerConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Record a request which completed successfully.
+   * @param request The token of the request, as returned by {@link #onRequest(long)}.
+   * @param latencyNanos The latency of the request in nanoseconds.
+   * @param now The current time in milliseconds.
+   */
+  public synchronized void recordSuccess(long request, long latencyNanos, long now) {
+    record(request, latencyNanos, false, now);
+  }
+
+  /**
+   * Record a request which failed.
+   * @param request The token of the request, as returned by {@link #onRequest(long)}.
+   * @param latencyNanos The latency of the request in nanoseconds.
+   * @param now The current time in milliseconds.
+   */
+  public synchronized void recordFailure(long request, long latencyNanos, long now) {
+    record(request, latencyNanos, true, now);
+  }
+
+  private void record(long request, long latencyNanos, boolean failed, long now) {
+    double latency = Math.max(0, latencyNanos) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    double alpha = config.getSmoothing();
+    if(requests == 0) {
+      latencyMs = latency;
+      errorRate = failed ? 1 : 0;
+    }
+    else {
+      latencyMs += alpha * (latency - latencyMs);
+      errorRate += alpha * ((failed ? 1 : 0) - errorRate);
+    }
+    requests++;
+    if(failed) {
+      failures++;
+    }
+
+    if(state == State.HALF_OPEN) {
+      if(!trialInFlight || request != trialRequest) {
+        //only the outcome of the trial request decides the circuit
+        return;
+      }
+      trialInFlight = false;
+      trialRequest = NO_REQUEST;
+      if(failed || latency > config.getLatencyThresholdMs()) {
+        open(now);
+      }
+      else {
+        state = State.CLOSED;
+        latencyMs = latency;
+        errorRate = 0;
+      }
+    }
+    else if(state == State.CLOSED && requests >= config.getMinRequests() && isUnhealthy()) {
+      open(now);
+    }
+  }
+
+  private boolean isUnhealthy() {
+    return latencyMs > config.getLatencyThresholdMs() || errorRate > config.getErrorRateThreshold();
+  }
+
+  private void open(long now) {
+    state = State.OPEN;
+    openedAt = now;
+  }
+
+  /**
+   * Whether the endpoint may be sent a request.  An open circuit becomes half open once the open
+   * duration has elapsed, after which a single trial request is allowed.  This does not claim the
+   * trial request; see {@link #tryAcquire(long)}.
+   * @param now The current time in milliseconds.
+   */
+  public synchronized boolean isAvailable(long now) {
+    if(state == State.OPEN && now - openedAt >= config.getOpenDurationMs()) {
+      state = State.HALF_OPEN;
+      trialInFlight = false;
+      trialRequest = NO_REQUEST;
+    }
+    switch(state) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        return !isTrialInFlight(now);
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Claims the endpoint for a request.  If the circuit is half open, only the one caller that claims
+   * the trial request succeeds.
+   * @param now The current time in milliseconds.
+   * @return True if the endpoint may be sent the request.
+   */
+  public synchronized boolean tryAcquire(long now) {
+    if(!isAvailable(now)) {
+      return false;
+    }
+    if(state == State.HALF_OPEN) {
+      startTrial(now);
+    }
+    return true;
+  }
+
+  /**
+   * Record that a request has been sent to the endpoint.  If the circuit is half open and the trial
+   * request has been claimed, but not sent, or has not been claimed at all, this is the trial request.
+   * @param now The current time in milliseconds.
+   * @return The token which identifies the request when it completes.
+   */
+  public synchronized long onRequest(long now) {
+    long request = ++lastRequest;
+    if(state == State.HALF_OPEN) {
+      if(!isTrialInFlight(now)) {
+        startTrial(now);
+      }
+      if(trialRequest == NO_REQUEST) {
+        trialRequest = request;
+      }
+    }
+    return request;
+  }
+
+  private void startTrial(long now) {
+    trialInFlight = true;
+    trialStartedAt = now;
+    trialRequest = NO_REQUEST;
+  }
+
+  private boolean isTrialInFlight(long now) {
+    //a trial which never reports back, as when its request is never made, does not keep the circuit half open forever
+    return trialInFlight && now - trialStartedAt < config.getOpenDurationMs();
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  public synchronized long getRequests() {
+    return requests;
+  }
+
+  /**
+   * The smoothed latency in milliseconds or NaN, if no requests have completed.
+   */
+  public synchronized double getLatencyMs() {
+    return requests == 0 ? Double.NaN : latencyMs;
+  }
+
+  /**
+   * The smoothed fraction of requests which failed.
+   */
+  public synchronized double getErrorRate() {
+    return errorRate;
+  }
+
+  /**
+   * Summarizes the health; the circuit state, request and failure counts, smoothed latency (ms) and error rate.
+   */
+  public synchronized Map<String, Object> toMap() {
+    Map<String, Object> ret = new HashMap<>();
+    ret.put("state", state.toString());
+    ret.put("requests", requests);
+    ret.put("failures", failures);
+    ret.put("latency", requests == 0 ? null : latencyMs);
+    ret.put("errorRate", errorRate);
+    return ret;
+  }
+}
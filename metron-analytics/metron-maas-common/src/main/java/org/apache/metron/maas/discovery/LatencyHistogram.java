@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.discovery;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of the latency of requests to a model.
+ *
+ * Latencies are counted in buckets whose bounds double in size, starting at 1 microsecond, so
+ * recording a latency is cheap and lock-free.  Percentiles are estimated as the upper bound of
+ * the bucket in which they fall.
+ */
+public class LatencyHistogram {
+
+  /**
+   * The number of buckets; the last bucket holds all latencies of roughly 35 minutes or more.
+   */
+  private static final int BUCKETS = 32;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+
+  /**
+   * Record the latency of a request.
+   * @param latencyNanos The latency in nanoseconds.
+   */
+  public void record(long latencyNanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    counts.incrementAndGet(bucket);
+    count.increment();
+    totalMicros.add(micros);
+  }
+
+  /**
+   * The number of requests recorded.
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * The mean latency in milliseconds.
+   */
+  public double getMeanMillis() {
+    long n = count.sum();
+    return n == 0 ? 0 : totalMicros.sum() / 1000.0 / n;
+  }
+
+  /**
+   * Estimates a percentile of the latency.
+   * @param percentile The percentile; between 0 and 100.
+   * @return The estimated latency in milliseconds.
+   */
+  public double getPercentileMillis(double percentile) {
+    long n = count.sum();
+    if(n == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100.0);
+    long seen = 0;
+    for(int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += counts.get(bucket);
+      if(seen >= Math.max(1, rank)) {
+        return upperBoundMicros(bucket) / 1000.0;
+      }
+    }
+    return upperBoundMicros(BUCKETS - 1) / 1000.0;
+  }
+
+  /**
+   * Summarizes the histogram; the count, mean and common percentiles in milliseconds.
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> ret = new HashMap<>();
+    ret.put("count", getCount());
+    ret.put("mean", getMeanMillis());
+    ret.put("p50", getPercentileMillis(50));
+    ret.put("p90", getPercentileMillis(90));
+    ret.put("p99", getPercentileMillis(99));
+    return ret;
+  }
+
+  /**
+   * The upper bound of a bucket in microseconds.  Bucket 0 holds latencies under 1 microsecond
+   * and bucket i holds latencies in [2^(i-1), 2^i) microseconds.
+   */
+  private static long upperBoundMicros(int bucket) {
+    return 1L << bucket;
+  }
+}
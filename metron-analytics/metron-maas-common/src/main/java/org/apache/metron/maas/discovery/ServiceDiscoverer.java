@@ -29,6 +29,7 @@ import org.apache.curator.framework.recipes.cache.TreeCache;
 import org.apache.curator.utils.CloseableUtils;
 import org.apache.curator.x.discovery.*;
 import org.apache.curator.x.discovery.details.JsonInstanceSerializer;
+import org.apache.metron.maas.config.CircuitBreakerConfig;
 import org.apache.metron.maas.config.Model;
 import org.apache.metron.maas.config.ModelEndpoint;
 import org.apache.zookeeper.data.Stat;
@@ -40,7 +41,9 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -57,10 +60,18 @@ public class ServiceDiscoverer implements Closeable{
   private Map<String, ServiceInstance<ModelEndpoint>> containerToEndpoint = new HashMap<>();
   private Map<String, String> modelToCurrentVersion = new HashMap<>();
   private Cache<URL, Boolean> blacklist;
+  private Map<String, AtomicInteger> outstandingRequests = new ConcurrentHashMap<>();
+  private Map<Model, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+  private Map<String, EndpointHealth> health = new ConcurrentHashMap<>();
+  private CircuitBreakerConfig circuitBreakerConfig;
   public ServiceDiscoverer(CuratorFramework client, String root) {
     this(client, root, BLACKLIST_EXPIRATION_DEFAULT);
   }
 
+  public ServiceDiscoverer(CuratorFramework client, String root, int blacklistExpirationMin) {
+    this(client, root, blacklistExpirationMin, new CircuitBreakerConfig());
+  }
+
   /**
    * This class listens to zookeeper and updates its internal state when new model endpoints are
    * added via the MaaS service.
@@ -68,8 +79,10 @@ public class ServiceDiscoverer implements Closeable{
    * @param client The zookeeper client
    * @param root The discovery root
    * @param blacklistExpirationMin The amount of time (in minutes) that a blacklisted URL can be held in the blacklist before retrying.
+   * @param circuitBreakerConfig The thresholds at which a slow or failing endpoint is taken out of rotation.
    */
-  public ServiceDiscoverer(CuratorFramework client, String root, int blacklistExpirationMin) {
+  public ServiceDiscoverer(CuratorFramework client, String root, int blacklistExpirationMin, CircuitBreakerConfig circuitBreakerConfig) {
+    this.circuitBreakerConfig = circuitBreakerConfig;
     blacklist = CacheBuilder.newBuilder()
                             .concurrencyLevel(4)
                             .weakKeys()
@@ -160,6 +173,16 @@ public class ServiceDiscoverer implements Closeable{
         this.modelToCurrentVersion = modelToVersion;
         this.state = state;
         this.containerToEndpoint = containerToEndpoint;
+        //forget the health, outstanding requests and latencies of endpoints which are no longer registered
+        Set<String> urls = new HashSet<>();
+        for(List<ModelEndpoint> endpoints : state.values()) {
+          for(ModelEndpoint ep : endpoints) {
+            urls.add(ep.getEndpoint().getUrl());
+          }
+        }
+        health.keySet().retainAll(urls);
+        outstandingRequests.keySet().retainAll(urls);
+        latencies.keySet().retainAll(state.keySet());
         if(LOG.isDebugEnabled()) {
           LOG.debug("Containers found: " + containerToEndpoint);
         }
@@ -278,7 +301,7 @@ public class ServiceDiscoverer implements Closeable{
 
   /**
    * Retrieve an endpoint based on name and version of a model.
-   * This will retrieve one endpoint at random for a given model.
+   * This will retrieve the endpoint with the lower expected cost of two chosen at random.
    * @param modelName
    * @param modelVersion can be null
    * @return
@@ -288,7 +311,11 @@ public class ServiceDiscoverer implements Closeable{
   }
 
   /**
-   * Retrieve an endpoint at random of a given model
+   * Retrieve an endpoint of a given model by the power of two choices: two available endpoints are
+   * chosen at random and the one with the lower expected cost is returned.  The cost of an endpoint is
+   * its smoothed latency, scaled by its outstanding requests and its error rate.  Endpoints which are
+   * blacklisted or whose circuit is open are not available, unless no endpoint is.  An endpoint whose
+   * circuit is half open is only returned to the one caller that claims its trial request.
    * @param model
    * @return
    */
@@ -296,35 +323,175 @@ public class ServiceDiscoverer implements Closeable{
     rwLock.readLock().lock();
     try {
       List<ModelEndpoint> endpoints = state.get(model);
-      ModelEndpoint ret = null;
-      if(endpoints != null) {
-        for(int j = 0;j < 10;++j) {
-          int i = ThreadLocalRandom.current().nextInt(endpoints.size());
-          ret = endpoints.get(i);
-          try {
-            if (blacklist.asMap().containsKey(toUrl(ret.getEndpoint().getUrl()))) {
-              continue;
-            }
-            else {
-              return ret;
-            }
-          }
-          catch(IllegalStateException ise) {
-            /*
-             If an exception happens on an attempt then we move on.
-             Frankly this is an excess of caution since we parse the
-             URLs in the Runner before they go into zookeeper, so they are valid.
-             */
+      if(endpoints == null || endpoints.isEmpty()) {
+        return null;
+      }
+      long now = System.currentTimeMillis();
+      List<ModelEndpoint> available = new ArrayList<>(endpoints.size());
+      for(ModelEndpoint ep : endpoints) {
+        try {
+          if (blacklist.asMap().containsKey(toUrl(ep.getEndpoint().getUrl()))) {
+            continue;
           }
         }
+        catch(IllegalStateException ise) {
+          /*
+           If an exception happens on an attempt then we move on.
+           Frankly this is an excess of caution since we parse the
+           URLs in the Runner before they go into zookeeper, so they are valid.
+           */
+          continue;
+        }
+        EndpointHealth h = health.get(ep.getEndpoint().getUrl());
+        if(h == null || h.isAvailable(now)) {
+          available.add(ep);
+        }
       }
-      return ret;
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      while(!available.isEmpty()) {
+        ModelEndpoint chosen = choose(available, random);
+        EndpointHealth h = health.get(chosen.getEndpoint().getUrl());
+        if(h == null || h.tryAcquire(now)) {
+          return chosen;
+        }
+        //another caller claimed the trial request of a half open endpoint
+        available.remove(chosen);
+      }
+      return endpoints.get(random.nextInt(endpoints.size()));
     }
     finally {
       rwLock.readLock().unlock();
     }
   }
 
+  /**
+   * Chooses the endpoint with the lower expected cost of two available endpoints chosen at random.
+   */
+  private ModelEndpoint choose(List<ModelEndpoint> available, ThreadLocalRandom random) {
+    if(available.size() == 1) {
+      return available.get(0);
+    }
+
+    //endpoints which have not completed a request are assumed to be as fast as their peers
+    double latencySum = 0;
+    int latencyCount = 0;
+    for(ModelEndpoint ep : available) {
+      EndpointHealth h = health.get(ep.getEndpoint().getUrl());
+      if(h != null && h.getRequests() > 0) {
+        latencySum += h.getLatencyMs();
+        latencyCount++;
+      }
+    }
+    double defaultLatency = latencyCount == 0 ? 1 : latencySum / latencyCount;
+
+    int i = random.nextInt(available.size());
+    int j = random.nextInt(available.size() - 1);
+    if(j >= i) {
+      j++;
+    }
+    ModelEndpoint first = available.get(i);
+    ModelEndpoint second = available.get(j);
+    return cost(second, defaultLatency) < cost(first, defaultLatency) ? second : first;
+  }
+
+  private double cost(ModelEndpoint ep, double defaultLatency) {
+    String url = ep.getEndpoint().getUrl();
+    EndpointHealth h = health.get(url);
+    double latency = defaultLatency;
+    double errorRate = 0;
+    if(h != null && h.getRequests() > 0) {
+      latency = h.getLatencyMs();
+      errorRate = h.getErrorRate();
+    }
+    return latency * (getOutstandingRequests(url) + 1) / Math.max(0.01, 1 - errorRate);
+  }
+
+  /**
+   * Record that a request to an endpoint has started.  Every started request must be completed.
+   * @param url The URL of the endpoint.
+   * @return The token which identifies the request when it completes.
+   */
+  public long startRequest(String url) {
+    outstandingRequests.computeIfAbsent(url, k -> new AtomicInteger()).incrementAndGet();
+    return getHealth(url).onRequest(System.currentTimeMillis());
+  }
+
+  /**
+   * Record that a request to an endpoint has completed successfully.
+   * @param model The model; its name and version.
+   * @param url The URL of the endpoint.
+   * @param request The token of the request, as returned by {@link #startRequest(String)}.
+   * @param latencyNanos The latency of the request in nanoseconds.
+   */
+  public void completeRequest(Model model, String url, long request, long latencyNanos) {
+    endRequest(model, url, latencyNanos);
+    getHealth(url).recordSuccess(request, latencyNanos, System.currentTimeMillis());
+  }
+
+  /**
+   * Record that a request to an endpoint has failed.
+   * @param model The model; its name and version.
+   * @param url The URL of the endpoint.
+   * @param request The token of the request, as returned by {@link #startRequest(String)}.
+   * @param latencyNanos The latency of the request in nanoseconds.
+   */
+  public void failRequest(Model model, String url, long request, long latencyNanos) {
+    endRequest(model, url, latencyNanos);
+    getHealth(url).recordFailure(request, latencyNanos, System.currentTimeMillis());
+  }
+
+  private void endRequest(Model model, String url, long latencyNanos) {
+    AtomicInteger outstanding = outstandingRequests.get(url);
+    if(outstanding != null) {
+      outstanding.decrementAndGet();
+    }
+    latencies.computeIfAbsent(model, k -> new LatencyHistogram()).record(latencyNanos);
+  }
+
+  private EndpointHealth getHealth(String url) {
+    return health.computeIfAbsent(url, k -> new EndpointHealth(circuitBreakerConfig));
+  }
+
+  /**
+   * The number of requests to an endpoint that have started, but not completed.
+   * @param url The URL of the endpoint.
+   */
+  public int getOutstandingRequests(String url) {
+    AtomicInteger outstanding = outstandingRequests.get(url);
+    return outstanding == null ? 0 : outstanding.get();
+  }
+
+  /**
+   * The latency of requests to a model.
+   * @param model The model; its name and version.
+   * @return The latency histogram or null, if no requests have completed.
+   */
+  public LatencyHistogram getLatencies(Model model) {
+    return latencies.get(model);
+  }
+
+  /**
+   * Summarize the health of the endpoints of a given model; their circuit state, smoothed latency and
+   * error rate and outstanding requests.  A model may or may not have a version associated with it.
+   * @param model
+   * @return A map of endpoint URL to its health.
+   */
+  public Map<String, Map<String, Object>> getEndpointHealth(Model model) {
+    Map<String, Map<String, Object>> ret = new HashMap<>();
+    for(Map.Entry<Model, List<ModelEndpoint>> kv : listEndpoints(model).entrySet()) {
+      for(ModelEndpoint ep : kv.getValue()) {
+        String url = ep.getEndpoint().getUrl();
+        EndpointHealth h = health.get(url);
+        Map<String, Object> summary = h == null ? new EndpointHealth(circuitBreakerConfig).toMap() : h.toMap();
+        summary.put("name", kv.getKey().getName());
+        summary.put("version", kv.getKey().getVersion());
+        summary.put("outstanding", getOutstandingRequests(url));
+        ret.put(url, summary);
+      }
+    }
+    return ret;
+  }
+
   /**
    * List all endpoints for a given model.
    *
@@ -23,14 +23,20 @@ import com.google.common.cache.CacheBuilder;
 import java.lang.invoke.MethodHandles;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import org.apache.curator.framework.CuratorFramework;
+import org.apache.metron.maas.binary.BinaryModelClient;
+import org.apache.metron.maas.binary.FeatureFrame;
 import org.apache.metron.maas.config.Endpoint;
 import org.apache.metron.maas.config.MaaSConfig;
+import org.apache.metron.maas.config.Model;
 import org.apache.metron.maas.config.ModelEndpoint;
 import org.apache.metron.maas.discovery.ServiceDiscoverer;
 import org.apache.metron.maas.util.ConfigUtil;
@@ -45,6 +51,7 @@ import org.slf4j.LoggerFactory;
 
 public class MaaSFunctions {
  protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int BLACKLIST_EXPIRATION_MIN = 10;
   private static class ModelCacheKey {
     String name;
     String version;
@@ -86,9 +93,12 @@ public class MaaSFunctions {
           , description = "Returns the output of a model deployed via Model as a Service. NOTE: Results are cached locally for 10 minutes."
           , params = { "endpoint - A map containing the name, version, and url for the REST endpoint"
                      , "function - The optional endpoint path; default is 'apply'"
-                     , "model_args - A Dictionary of arguments for the model (these become request params)"
+                     , "model_args - A Dictionary of arguments for the model (these become request params)." +
+                       " Or, a list of Dictionaries to score as a batch in a single request."
                      }
-          , returns = "The output of the model deployed as a REST endpoint in Map form.  Assumes REST endpoint returns a JSON Map."
+          , returns = "The output of the model deployed as a REST endpoint in Map form.  Assumes REST endpoint returns a JSON Map." +
+                      " If a list of model_args is given, a list of outputs in the same order." +
+                      " If the endpoint has a binary URL, the function is the default and the model_args are numeric, they are scored via the binary protocol instead."
           )
   public static class ModelApply implements StellarFunction {
     private boolean isInitialized = false;
@@ -123,16 +133,21 @@ public class MaaSFunctions {
       String modelName;
       String modelVersion;
       String modelUrl;
+      String binaryUrl = null;
       if(endpointObj instanceof Map) {
         endpoint = (Map)endpointObj;
         modelName = endpoint.get("name") + "";
         modelVersion = endpoint.get("version") + "";
         modelUrl = endpoint.get("url") + "";
+        if(endpoint.get("binary") != null) {
+          binaryUrl = endpoint.get("binary") + "";
+        }
       }
       else {
         return null;
       }
-      String modelFunction = "apply";
+      String applyFunction = endpoint.containsKey("endpoint:apply") ? "" + endpoint.get("endpoint:apply") : "apply";
+      String modelFunction = applyFunction;
       Map<String, String> modelArgs = new HashMap<>();
       if(args.get(i) instanceof String) {
         String func = (String)args.get(i);
@@ -145,53 +160,176 @@ public class MaaSFunctions {
         i++;
       }
 
+      List<Object> batchArgs = null;
       if(args.get(i) instanceof Map) {
-        if(endpoint.containsKey("endpoint:apply")) {
-          modelFunction = "" + endpoint.get("endpoint:apply");
-        }
         modelArgs = (Map)args.get(i);
       }
+      else if(args.get(i) instanceof List) {
+        batchArgs = (List)args.get(i);
+      }
+      if(!applyFunction.equals(modelFunction)) {
+        // the binary protocol only serves the model's apply function
+        binaryUrl = null;
+      }
       if( modelName == null
        || modelVersion == null
        || modelFunction == null
         ) {
         return null;
       }
+      if(batchArgs != null) {
+        return applyBatch(modelName, modelVersion, modelUrl, modelFunction, binaryUrl, batchArgs);
+      }
       ModelCacheKey cacheKey = new ModelCacheKey(modelName, modelVersion, modelFunction, modelArgs);
       Map<String, Object> ret = resultCache.getIfPresent(cacheKey);
       if(ret != null) {
         return ret;
       }
       else {
-        String url = modelUrl;
-        if (url.endsWith("/")) {
-          url = url.substring(0, url.length() - 1);
-        }
-        if (modelFunction.startsWith("/")) {
-          modelFunction = modelFunction.substring(1);
-        }
         try {
-          URL u = new URL(url + "/" + modelFunction);
-
-          String results = RESTUtil.INSTANCE.getRESTJSONResults(u, modelArgs);
-          ret = JSONUtils.INSTANCE.load(results, new TypeReference<Map<String, Object>>() {
-          });
+          // inputs that cannot be sent over the binary protocol are sent as a REST GET
+          FeatureFrame features = binaryUrl == null ? null : toFeatures(Collections.singletonList(modelArgs));
+          if(features != null) {
+            ret = scoreBinary(modelName, modelVersion, modelUrl, binaryUrl, features).get(0);
+          }
+          else {
+            URL u = toFunctionUrl(modelUrl, modelFunction);
+            Map<String, String> requestArgs = modelArgs;
+            String results = request(modelName, modelVersion, modelUrl, () -> RESTUtil.INSTANCE.getRESTJSONResults(u, requestArgs));
+            ret = JSONUtils.INSTANCE.load(results, new TypeReference<Map<String, Object>>() {
+            });
+          }
           resultCache.put(cacheKey, ret);
           return ret;
         } catch (Exception e) {
           LOG.error(e.getMessage(), e);
-          if (discoverer != null) {
-            try {
-              URL u = new URL(modelUrl);
-              discoverer.blacklist(u);
-            } catch (MalformedURLException e1) {
-            }
-          }
         }
       }
       return null;
     }
 
+    /**
+     * Scores a batch of model inputs in a single request.  The list of model inputs, less any whose
+     * output is cached, is POSTed as JSON to the endpoint function, which is expected to return a JSON
+     * list of outputs in the same order.  If the endpoint has a binary URL, the inputs are instead sent
+     * as a single frame of feature vectors over the binary protocol.
+     */
+    private List<Map<String, Object>> applyBatch( String modelName
+                                                , String modelVersion
+                                                , String modelUrl
+                                                , String modelFunction
+                                                , String binaryUrl
+                                                , List<Object> batchArgs
+                                                ) {
+      List<Map<String, Object>> ret = new ArrayList<>(Collections.nCopies(batchArgs.size(), null));
+      List<Integer> uncached = new ArrayList<>();
+      List<Map<String, String>> requestArgs = new ArrayList<>();
+      for(int j = 0;j < batchArgs.size();++j) {
+        Object modelArgs = batchArgs.get(j);
+        if(modelArgs instanceof Map) {
+          Map<String, Object> cached = resultCache.getIfPresent(new ModelCacheKey(modelName, modelVersion, modelFunction, (Map)modelArgs));
+          if(cached != null) {
+            ret.set(j, cached);
+          }
+          else {
+            uncached.add(j);
+            requestArgs.add((Map)modelArgs);
+          }
+        }
+      }
+      if(requestArgs.isEmpty()) {
+        return ret;
+      }
+
+      try {
+        FeatureFrame features = binaryUrl == null ? null : toFeatures(requestArgs);
+        List<Map<String, Object>> outputs = features == null
+                ? scoreREST(modelName, modelVersion, modelUrl, modelFunction, requestArgs)
+                : scoreBinary(modelName, modelVersion, modelUrl, binaryUrl, features);
+        if(outputs.size() != requestArgs.size()) {
+          throw new IllegalStateException("Expected " + requestArgs.size() + " outputs from the batch, but received " + outputs.size());
+        }
+        for(int k = 0;k < outputs.size();++k) {
+          ret.set(uncached.get(k), outputs.get(k));
+          resultCache.put(new ModelCacheKey(modelName, modelVersion, modelFunction, requestArgs.get(k)), outputs.get(k));
+        }
+      } catch (Exception e) {
+        LOG.error(e.getMessage(), e);
+      }
+      return ret;
+    }
+
+    private List<Map<String, Object>> scoreREST( String modelName
+                                               , String modelVersion
+                                               , String modelUrl
+                                               , String modelFunction
+                                               , List<Map<String, String>> requestArgs
+                                               ) throws Exception {
+      URL u = toFunctionUrl(modelUrl, modelFunction);
+      String json = JSONUtils.INSTANCE.toJSON(requestArgs, false);
+      String results = request(modelName, modelVersion, modelUrl, () -> RESTUtil.INSTANCE.postRESTJSONResults(u, json));
+      return JSONUtils.INSTANCE.load(results, new TypeReference<List<Map<String, Object>>>() {
+      });
+    }
+
+    private List<Map<String, Object>> scoreBinary( String modelName
+                                                 , String modelVersion
+                                                 , String modelUrl
+                                                 , String binaryUrl
+                                                 , FeatureFrame features
+                                                 ) throws Exception {
+      FeatureFrame scores = request(modelName, modelVersion, modelUrl, () -> BinaryModelClient.INSTANCE.score(binaryUrl, features));
+      return scores.toMaps();
+    }
+
+    /**
+     * Converts model inputs to feature vectors for the binary protocol.
+     * @return The feature vectors or null, if the inputs are not numeric and must be sent via REST.
+     */
+    private static FeatureFrame toFeatures(List<Map<String, String>> requestArgs) {
+      try {
+        return FeatureFrame.fromMaps(requestArgs);
+      }
+      catch(IllegalArgumentException e) {
+        LOG.debug("Scoring via REST: {}", e.getMessage());
+        return null;
+      }
+    }
+
+    /**
+     * Executes a request to a model, feeding the outstanding requests, latency and any failure back to the
+     * discoverer, which uses them to select endpoints and to take slow or failing endpoints out of rotation.
+     */
+    private <T> T request(String modelName, String modelVersion, String modelUrl, Callable<T> request) throws Exception {
+      if(discoverer == null) {
+        return request.call();
+      }
+      Model model = new Model(modelName, modelVersion);
+      long start = System.nanoTime();
+      long token = discoverer.startRequest(modelUrl);
+      T ret;
+      try {
+        ret = request.call();
+      }
+      catch(Exception e) {
+        discoverer.failRequest(model, modelUrl, token, System.nanoTime() - start);
+        throw e;
+      }
+      discoverer.completeRequest(model, modelUrl, token, System.nanoTime() - start);
+      return ret;
+    }
+
+    private static URL toFunctionUrl(String modelUrl, String modelFunction) throws MalformedURLException {
+      String url = modelUrl;
+      if (url.endsWith("/")) {
+        url = url.substring(0, url.length() - 1);
+      }
+      if (modelFunction.startsWith("/")) {
+        modelFunction = modelFunction.substring(1);
+      }
+      return new URL(url + "/" + modelFunction);
+    }
+
     @Override
     public synchronized void initialize(Context context) {
 
@@ -228,7 +366,7 @@ public class MaaSFunctions {
 
   private static ServiceDiscoverer createDiscoverer(CuratorFramework client) throws Exception {
     MaaSConfig config = ConfigUtil.INSTANCE.read(client, "/metron/maas/config", new MaaSConfig(), MaaSConfig.class);
-    ServiceDiscoverer discoverer = new ServiceDiscoverer(client, config.getServiceRoot());
+    ServiceDiscoverer discoverer = new ServiceDiscoverer(client, config.getServiceRoot(), BLACKLIST_EXPIRATION_MIN, config.getCircuitBreaker());
     discoverer.start();
     return discoverer;
   }
@@ -286,6 +424,9 @@ public class MaaSFunctions {
       ret.put("url", ep.getUrl());
       ret.put("name", name);
       ret.put("version", version);
+      if(ep.getBinaryUrl() != null) {
+        ret.put("binary", ep.getBinaryUrl());
+      }
       for(Map.Entry<String, String> kv : ep.getFunctions().entrySet()) {
         ret.put("endpoint:" + kv.getKey(), kv.getValue());
       }
@@ -321,4 +462,66 @@ public class MaaSFunctions {
       return isInitialized;
     }
   }
+
+  @Stellar(name="ENDPOINT_HEALTH"
+          , namespace="MAAS"
+          , description="Returns the health of the endpoints of a model, as observed from the requests made by MAAS_MODEL_APPLY."
+          , params = {
+                      "model_name - The name of the model"
+                     ,"model_version - The optional version of the model.  If the model version is not specified, the endpoints of all versions are returned."
+                     }
+          , returns = "A map of endpoint URL to a map containing the name, version, state of the circuit (CLOSED, OPEN or HALF_OPEN), " +
+                      "requests, failures, smoothed latency in milliseconds, smoothed errorRate and outstanding requests."
+          )
+  public static class GetEndpointHealth implements StellarFunction {
+    private ServiceDiscoverer discoverer;
+    private boolean isInitialized = false;
+
+    @Override
+    public Object apply(List<Object> args, Context context) throws ParseException {
+      if(discoverer == null) {
+        LOG.error("Invalid state: Unable to find ServiceDiscoverer service.");
+        return null;
+      }
+      if(args.size() < 1 || args.get(0) == null) {
+        return null;
+      }
+      String modelName = args.get(0).toString();
+      String modelVersion = null;
+      if(args.size() >= 2 && args.get(1) != null) {
+        modelVersion = args.get(1).toString();
+      }
+      return discoverer.getEndpointHealth(new Model(modelName, modelVersion));
+    }
+
+    @Override
+    public synchronized void initialize(Context context) {
+      try {
+        Optional<ServiceDiscoverer> discovererOpt = (Optional) (context.getCapability(Context.Capabilities.SERVICE_DISCOVERER));
+        if (discovererOpt.isPresent()) {
+          discoverer = discovererOpt.get();
+        }
+        else {
+          Optional<Object> clientOptional = context.getCapability(Context.Capabilities.ZOOKEEPER_CLIENT);
+          if (clientOptional.isPresent() && clientOptional.get() instanceof CuratorFramework) {
+            discoverer = createDiscoverer((CuratorFramework) clientOptional.get());
+            context.addCapability(Context.Capabilities.SERVICE_DISCOVERER, () -> discoverer);
+          } else {
+            throw new IllegalStateException("Unable to initialize function: Cannot find zookeeper client.");
+          }
+        }
+      }
+      catch(Exception ex) {
+        LOG.error(ex.getMessage(), ex);
+      }
+      finally {
+        isInitialized = true;
+      }
+    }
+
+    @Override
+    public boolean isInitialized() {
+      return isInitialized;
+    }
+  }
 }
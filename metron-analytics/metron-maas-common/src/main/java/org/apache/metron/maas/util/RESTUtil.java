@@ -17,56 +17,104 @@
  */
 package org.apache.metron.maas.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
 import com.google.common.collect.Iterables;
-import com.google.common.io.CharStreams;
-import org.apache.http.HttpResponse;
+import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Executes requests against model REST endpoints.
+ *
+ * Each endpoint (protocol, host and port) is given its own HTTP client with a pool of
+ * persistent, keep-alive connections which are shared by all threads.  The client of an
+ * endpoint that is no longer used, as happens when models are redeployed, is closed.
+ */
 public enum RESTUtil {
   INSTANCE;
-  public static ThreadLocal<HttpClient> CLIENT = new ThreadLocal<HttpClient>() {
 
-    @Override
-    protected HttpClient initialValue() {
-      //TODO: Figure out connection management
-      return new DefaultHttpClient();
-    }
-  };
+  /**
+   * The maximum number of connections held open to a single endpoint.
+   */
+  public static final int MAX_CONNECTIONS_PER_ENDPOINT = 32;
+
+  /**
+   * The timeout in milliseconds to connect to an endpoint, wait for a pooled connection
+   * and wait for data from an endpoint.
+   */
+  public static final int TIMEOUT_MILLIS = 10000;
+
+  /**
+   * The maximum number of endpoints whose clients are kept open.
+   */
+  public static final int MAX_ENDPOINTS = 100;
 
-  public String getRESTJSONResults(URL endpointUrl, Map<String, String> getArgs) throws IOException, URISyntaxException { String encodedParams = encodeParams(getArgs);
+  /**
+   * The time in minutes after which the client of an endpoint that has not been used is closed.
+   */
+  public static final int IDLE_ENDPOINT_MINUTES = 10;
+
+  private final Cache<String, CloseableHttpClient> clients = CacheBuilder.newBuilder()
+          .maximumSize(MAX_ENDPOINTS)
+          .expireAfterAccess(IDLE_ENDPOINT_MINUTES, TimeUnit.MINUTES)
+          .removalListener((RemovalListener<String, CloseableHttpClient>) notification -> close(notification.getValue()))
+          .build();
+
+  /**
+   * Retrieves the results of a GET request whose arguments become request params.
+   * @param endpointUrl The URL of the endpoint function.
+   * @param getArgs The request params.
+   * @return The JSON response.
+   */
+  public String getRESTJSONResults(URL endpointUrl, Map<String, String> getArgs) throws IOException, URISyntaxException {
+    String encodedParams = encodeParams(getArgs);
     HttpGet get = new HttpGet(appendToUrl(endpointUrl, encodedParams).toURI());
     get.addHeader("accept", "application/json");
-    HttpResponse response = CLIENT.get().execute(get);
-
-    if (response.getStatusLine().getStatusCode() != 200) {
-      throw new IllegalStateException("Failed : HTTP error code : "
-              + response.getStatusLine().getStatusCode());
-    }
+    return execute(endpointUrl, get);
+  }
 
-    return new BufferedReader(new InputStreamReader(response.getEntity().getContent()))
-            .lines().collect(Collectors.joining("\n"));
+  /**
+   * Retrieves the results of a POST request whose body is JSON.  This is used to score a
+   * batch of model inputs in a single request.
+   * @param endpointUrl The URL of the endpoint function.
+   * @param json The JSON request body.
+   * @return The JSON response.
+   */
+  public String postRESTJSONResults(URL endpointUrl, String json) throws IOException, URISyntaxException {
+    HttpPost post = new HttpPost(endpointUrl.toURI());
+    post.addHeader("accept", "application/json");
+    post.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+    return execute(endpointUrl, post);
   }
+
   public URL appendToUrl(URL endpointUrl, String params) throws MalformedURLException {
     return new URL(endpointUrl.toString() + "?" + params);
   }
+
   public String encodeParams(Map<String, String> params) {
     Iterable<NameValuePair> nvp = Iterables.transform(params.entrySet()
             , kv -> new BasicNameValuePair(kv.getKey(), kv.getValue())
@@ -74,4 +122,54 @@ public enum RESTUtil {
 
     return URLEncodedUtils.format(nvp, Charset.defaultCharset());
   }
+
+  /**
+   * Executes a request.  The response is always fully consumed so that the connection is
+   * returned to the pool.
+   */
+  private String execute(URL endpointUrl, HttpUriRequest request) throws IOException {
+    try(CloseableHttpResponse response = getClient(endpointUrl).execute(request)) {
+      HttpEntity entity = response.getEntity();
+      String body = entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+      if (response.getStatusLine().getStatusCode() != 200) {
+        throw new IllegalStateException("Failed : HTTP error code : "
+                + response.getStatusLine().getStatusCode());
+      }
+      return body;
+    }
+  }
+
+  /**
+   * Returns the pooled HTTP client for an endpoint, creating one if needed.
+   * @param endpointUrl The URL of the endpoint.
+   */
+  private CloseableHttpClient getClient(URL endpointUrl) {
+    String endpoint = endpointUrl.getProtocol() + "://" + endpointUrl.getAuthority();
+    try {
+      return clients.get(endpoint, () -> {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS_PER_ENDPOINT);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ENDPOINT);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(TIMEOUT_MILLIS)
+                .setConnectionRequestTimeout(TIMEOUT_MILLIS)
+                .setSocketTimeout(TIMEOUT_MILLIS)
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+      });
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to create a client for " + endpoint, e.getCause());
+    }
+  }
+
+  private static void close(CloseableHttpClient client) {
+    try {
+      client.close();
+    } catch (IOException e) {
+      //nothing more can be done with the client
+    }
+  }
 }
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.binary;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BinaryModelServerTest {
+  private BinaryModelServer server;
+
+  /**
+   * Sums the features of each row.
+   */
+  private static FeatureFrame sum(FeatureFrame features) {
+    if(features.getSchema().contains("fail")) {
+      throw new IllegalArgumentException("fail is not a feature");
+    }
+    FeatureFrame ret = new FeatureFrame(ImmutableList.of("sum"), features.getRows());
+    for(int row = 0;row < features.getRows();++row) {
+      double sum = 0;
+      for(int col = 0;col < features.getColumns();++col) {
+        sum += features.get(row, col);
+      }
+      ret.set(row, 0, sum);
+    }
+    return ret;
+  }
+
+  @Before
+  public void setup() throws Exception {
+    server = new BinaryModelServer(0, BinaryModelServerTest::sum).start();
+  }
+
+  @After
+  public void teardown() throws Exception {
+    server.close();
+  }
+
+  @Test
+  public void testScore() throws Exception {
+    FeatureFrame features = new FeatureFrame(ImmutableList.of("x", "y"), 2, new double[] { 1, 2, 3, 4 });
+    for(int i = 0;i < 3;++i) {
+      FeatureFrame scores = BinaryModelClient.INSTANCE.score(server.getBinaryUrl(), features);
+      Assert.assertEquals(ImmutableList.of("sum"), scores.getSchema());
+      Assert.assertEquals(3.0, scores.get(0, 0), 0.0);
+      Assert.assertEquals(7.0, scores.get(1, 0), 0.0);
+    }
+  }
+
+  @Test
+  public void testConcurrentScore() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<FeatureFrame>> futures = new ArrayList<>();
+      for (int i = 0; i < 100; ++i) {
+        FeatureFrame features = new FeatureFrame(ImmutableList.of("x"), 1, new double[]{i});
+        futures.add(executor.submit(() -> BinaryModelClient.INSTANCE.score(server.getBinaryUrl(), features)));
+      }
+      for (int i = 0; i < 100; ++i) {
+        Assert.assertEquals(i, futures.get(i).get().get(0, 0), 0.0);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testModelError() throws Exception {
+    FeatureFrame features = new FeatureFrame(ImmutableList.of("fail"), 1, new double[] { 1 });
+    try {
+      BinaryModelClient.INSTANCE.score(server.getBinaryUrl(), features);
+      Assert.fail("Expected an error");
+    }
+    catch(IllegalStateException e) {
+      Assert.assertTrue(e.getMessage().contains("fail is not a feature"));
+    }
+    //the server keeps serving after a model error
+    FeatureFrame scores = BinaryModelClient.INSTANCE.score(server.getBinaryUrl(), new FeatureFrame(ImmutableList.of("x"), 1, new double[] { 5 }));
+    Assert.assertEquals(5.0, scores.get(0, 0), 0.0);
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.binary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.util.List;
+import java.util.Map;
+
+public class BinaryProtocolTest {
+
+  @Test
+  public void testFromMaps() {
+    FeatureFrame frame = FeatureFrame.fromMaps(ImmutableList.of( ImmutableMap.of("x", 1, "y", "2.5")
+                                                               , ImmutableMap.of("z", 3.0)
+                                                               )
+                                              );
+    Assert.assertEquals(ImmutableList.of("x", "y", "z"), frame.getSchema());
+    Assert.assertEquals(2, frame.getRows());
+    Assert.assertEquals(2.5, frame.get(0, 1), 0.0);
+    Assert.assertTrue(Double.isNaN(frame.get(0, 2)));
+    Assert.assertTrue(Double.isNaN(frame.get(1, 0)));
+    Assert.assertEquals(3.0, frame.get(1, 2), 0.0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFromMapsNotNumeric() {
+    FeatureFrame.fromMaps(ImmutableList.of(ImmutableMap.of("host", "badguy.com")));
+  }
+
+  @Test
+  public void testRequestRoundTrip() throws Exception {
+    FeatureFrame frame = new FeatureFrame(ImmutableList.of("x", "y"), 2, new double[] { 1, 2, 3, 4 });
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryProtocol.writeRequest(out, frame);
+    BinaryProtocol.writeRequest(out, frame);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+    Assert.assertEquals(frame, BinaryProtocol.readRequest(in));
+    Assert.assertEquals(frame, BinaryProtocol.readRequest(in));
+    Assert.assertNull(BinaryProtocol.readRequest(in));
+  }
+
+  @Test
+  public void testResponseRoundTrip() throws Exception {
+    FeatureFrame frame = new FeatureFrame(ImmutableList.of("score"), 3, new double[] { 0.1, 0.2, 0.3 });
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryProtocol.writeResponse(out, frame);
+    FeatureFrame actual = BinaryProtocol.readResponse(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+    Assert.assertEquals(frame, actual);
+    List<Map<String, Object>> maps = actual.toMaps();
+    Assert.assertEquals(3, maps.size());
+    Assert.assertEquals(0.2, maps.get(1).get("score"));
+  }
+
+  @Test
+  public void testError() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryProtocol.writeError(out, "bad model");
+    try {
+      BinaryProtocol.readResponse(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+      Assert.fail("Expected an error");
+    }
+    catch(IllegalStateException e) {
+      Assert.assertTrue(e.getMessage().contains("bad model"));
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.discovery;
+
+import org.apache.metron.maas.config.CircuitBreakerConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class EndpointHealthTest {
+
+  private static CircuitBreakerConfig config() {
+    CircuitBreakerConfig config = new CircuitBreakerConfig();
+    config.setLatencyThresholdMs(100);
+    config.setErrorRateThreshold(0.5);
+    config.setMinRequests(3);
+    config.setOpenDurationMs(1000);
+    config.setSmoothing(0.5);
+    return config;
+  }
+
+  @Test
+  public void testSingleSlowRequestDoesNotOpen() {
+    EndpointHealth health = new EndpointHealth(config());
+    for(int i = 0;i < 5;++i) {
+      health.recordSuccess(health.onRequest(0), TimeUnit.MILLISECONDS.toNanos(10), 0);
+    }
+    health.recordSuccess(health.onRequest(0), TimeUnit.MILLISECONDS.toNanos(150), 0);
+    Assert.assertEquals(EndpointHealth.State.CLOSED, health.getState());
+    Assert.assertEquals(80, health.getLatencyMs(), 1e-6);
+    Assert.assertTrue(health.isAvailable(0));
+  }
+
+  @Test
+  public void testSustainedSlownessOpens() {
+    EndpointHealth health = new EndpointHealth(config());
+    for(int i = 0;i < 3;++i) {
+      health.recordSuccess(health.onRequest(10), TimeUnit.MILLISECONDS.toNanos(500), 10);
+    }
+    Assert.assertEquals(EndpointHealth.State.OPEN, health.getState());
+    Assert.assertFalse(health.isAvailable(500));
+
+    //after the open duration, a single trial request is let through
+    Assert.assertTrue(health.isAvailable(1010));
+    Assert.assertEquals(EndpointHealth.State.HALF_OPEN, health.getState());
+    long trial = health.onRequest(1010);
+    Assert.assertFalse(health.isAvailable(1010));
+
+    //a fast trial closes the circuit
+    health.recordSuccess(trial, TimeUnit.MILLISECONDS.toNanos(10), 1020);
+    Assert.assertEquals(EndpointHealth.State.CLOSED, health.getState());
+    Assert.assertTrue(health.isAvailable(1020));
+  }
+
+  @Test
+  public void testFailuresOpen() {
+    EndpointHealth health = new EndpointHealth(config());
+    health.recordSuccess(health.onRequest(0), TimeUnit.MILLISECONDS.toNanos(10), 0);
+    health.recordFailure(health.onRequest(0), TimeUnit.MILLISECONDS.toNanos(10), 0);
+    Assert.assertEquals(EndpointHealth.State.CLOSED, health.getState());
+    health.recordFailure(health.onRequest(0), TimeUnit.MILLISECONDS.toNanos(10), 0);
+    Assert.assertEquals(0.75, health.getErrorRate(), 1e-6);
+    Assert.assertEquals(EndpointHealth.State.OPEN, health.getState());
+
+    //a failed trial opens the circuit again
+    Assert.assertTrue(health.isAvailable(1000));
+    long trial = health.onRequest(1000);
+    health.recordFailure(trial, TimeUnit.MILLISECONDS.toNanos(10), 1000);
+    Assert.assertEquals(EndpointHealth.State.OPEN, health.getState());
+    Assert.assertFalse(health.isAvailable(1500));
+    Assert.assertEquals(3L, health.toMap().get("failures"));
+  }
+
+  @Test
+  public void testOnlyOneTrialIsClaimed() {
+    EndpointHealth health = new EndpointHealth(config());
+    for(int i = 0;i < 3;++i) {
+      health.recordSuccess(health.onRequest(10), TimeUnit.MILLISECONDS.toNanos(500), 10);
+    }
+    Assert.assertEquals(EndpointHealth.State.OPEN, health.getState());
+    Assert.assertFalse(health.tryAcquire(500));
+
+    //only the first caller claims the trial request
+    Assert.assertTrue(health.tryAcquire(1010));
+    Assert.assertFalse(health.tryAcquire(1010));
+    Assert.assertFalse(health.isAvailable(1010));
+
+    //a trial which never reports back is given up on after the open duration
+    Assert.assertTrue(health.tryAcquire(2010));
+    Assert.assertFalse(health.tryAcquire(2010));
+  }
+
+  @Test
+  public void testOnlyTrialDecidesHalfOpen() {
+    EndpointHealth health = new EndpointHealth(config());
+    long[] requests = new long[3];
+    for(int i = 0;i < requests.length;++i) {
+      requests[i] = health.onRequest(0);
+    }
+    for(int i = 0;i < 2;++i) {
+      health.recordFailure(requests[i], TimeUnit.MILLISECONDS.toNanos(10), 10);
+    }
+    health.recordSuccess(health.onRequest(10), TimeUnit.MILLISECONDS.toNanos(10), 10);
+    health.recordFailure(health.onRequest(10), TimeUnit.MILLISECONDS.toNanos(10), 10);
+    Assert.assertEquals(EndpointHealth.State.OPEN, health.getState());
+
+    //the trial request is claimed, then sent
+    Assert.assertTrue(health.tryAcquire(1010));
+    long trial = health.onRequest(1010);
+
+    //a request sent before the circuit opened completes, but does not decide the circuit
+    health.recordSuccess(requests[2], TimeUnit.MILLISECONDS.toNanos(10), 1015);
+    Assert.assertEquals(EndpointHealth.State.HALF_OPEN, health.getState());
+    Assert.assertEquals(5, health.getRequests());
+
+    //the trial fails, which opens the circuit again
+    health.recordFailure(trial, TimeUnit.MILLISECONDS.toNanos(10), 1020);
+    Assert.assertEquals(EndpointHealth.State.OPEN, health.getState());
+  }
+}
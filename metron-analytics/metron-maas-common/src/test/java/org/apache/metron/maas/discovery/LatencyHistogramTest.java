@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.maas.discovery;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Assert.assertEquals(0, histogram.getCount());
+    Assert.assertEquals(0, histogram.getMeanMillis(), 0.0);
+    Assert.assertEquals(0, histogram.getPercentileMillis(99), 0.0);
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for(int i = 0;i < 90;++i) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    for(int i = 0;i < 10;++i) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+    Assert.assertEquals(100, histogram.getCount());
+    Assert.assertEquals(10.9, histogram.getMeanMillis(), 1e-6);
+
+    // percentiles are estimated as the upper bound of the bucket; 1 ms falls in [512, 1024) micros
+    Assert.assertEquals(1.024, histogram.getPercentileMillis(50), 1e-6);
+    Assert.assertEquals(1.024, histogram.getPercentileMillis(90), 1e-6);
+    Assert.assertEquals(131.072, histogram.getPercentileMillis(99), 1e-6);
+    Assert.assertEquals(100L, histogram.toMap().get("count"));
+  }
+}
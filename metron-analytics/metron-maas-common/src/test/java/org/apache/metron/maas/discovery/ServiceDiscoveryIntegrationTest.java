@@ -35,6 +35,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.net.URL;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ServiceDiscoveryIntegrationTest {
@@ -117,6 +118,64 @@ public class ServiceDiscoveryIntegrationTest {
     Assert.assertEquals(0, discoverer.listEndpoints(new Model("dummy", null)).keySet().size());
 
   }
+
+  @Test
+  public void testLeastOutstandingRequests() throws Exception {
+    for(int i = 1;i <= 2;++i) {
+      ModelEndpoint ep = new ModelEndpoint();
+      ep.setName("casey");
+      ep.setVersion("3.14159");
+      ep.setContainerId("" + i);
+      Endpoint endpoint = new Endpoint();
+      endpoint.setUrl("http://localhost:908" + i + "/ep" + i);
+      ep.setEndpoint(endpoint);
+      registerService(ep);
+    }
+    //wait for zk to percolate the changes.
+    Thread.sleep(2000);
+
+    Model model = new Model("casey", "3.14159");
+    discoverer.startRequest("http://localhost:9081/ep1");
+    for(int i = 0;i < 10;++i) {
+      Assert.assertEquals("http://localhost:9082/ep2", discoverer.getEndpoint(model).getEndpoint().getUrl());
+    }
+
+    discoverer.startRequest("http://localhost:9082/ep2");
+    discoverer.startRequest("http://localhost:9082/ep2");
+    discoverer.completeRequest(model, "http://localhost:9081/ep1", TimeUnit.MILLISECONDS.toNanos(5));
+    Assert.assertEquals(0, discoverer.getOutstandingRequests("http://localhost:9081/ep1"));
+    Assert.assertEquals(2, discoverer.getOutstandingRequests("http://localhost:9082/ep2"));
+    Assert.assertEquals("http://localhost:9081/ep1", discoverer.getEndpoint(model).getEndpoint().getUrl());
+    Assert.assertEquals(1, discoverer.getLatencies(model).getCount());
+  }
+
+  @Test
+  public void testOpenCircuitIsSkipped() throws Exception {
+    for(int i = 1;i <= 2;++i) {
+      ModelEndpoint ep = new ModelEndpoint();
+      ep.setName("casey");
+      ep.setVersion("3.14159");
+      ep.setContainerId("" + i);
+      Endpoint endpoint = new Endpoint();
+      endpoint.setUrl("http://localhost:908" + i + "/ep" + i);
+      ep.setEndpoint(endpoint);
+      registerService(ep);
+    }
+    //wait for zk to percolate the changes.
+    Thread.sleep(2000);
+
+    Model model = new Model("casey", "3.14159");
+    for(int i = 0;i < 5;++i) {
+      discoverer.startRequest("http://localhost:9081/ep1");
+      discoverer.failRequest(model, "http://localhost:9081/ep1", TimeUnit.MILLISECONDS.toNanos(5));
+    }
+    for(int i = 0;i < 10;++i) {
+      Assert.assertEquals("http://localhost:9082/ep2", discoverer.getEndpoint(model).getEndpoint().getUrl());
+    }
+    Assert.assertEquals("OPEN", discoverer.getEndpointHealth(model).get("http://localhost:9081/ep1").get("state"));
+    Assert.assertEquals("CLOSED", discoverer.getEndpointHealth(new Model("casey", null)).get("http://localhost:9082/ep2").get("state"));
+  }
+
   @After
   public void teardown() throws Exception {
 
@@ -41,6 +41,8 @@ import org.apache.metron.maas.config.ModelEndpoint;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.AbstractMap;
@@ -224,6 +226,9 @@ public class Runner {
         Endpoint ep = readEndpoint(cwd);
         URL endpointUrl =correctLocalUrl(hostname, ep.getUrl());
         ep.setUrl(endpointUrl.toString());
+        if(ep.getBinaryUrl() != null) {
+          ep.setBinaryUrl(correctLocalBinaryUrl(hostname, ep.getBinaryUrl()));
+        }
         LOG.info("Read endpoint " + ep);
         ModelEndpoint endpoint = new ModelEndpoint();
         {
@@ -302,6 +307,18 @@ public class Runner {
     return tmp;
   }
 
+  private static String correctLocalBinaryUrl(String hostname, String tmpUrl) {
+    URI tmp = URI.create(tmpUrl);
+    if(hostname != null && hostname.length() > 0 && localAddresses.contains(tmp.getHost())) {
+      try {
+        return new URI(tmp.getScheme(), null, hostname, tmp.getPort(), tmp.getPath(), null, null).toString();
+      } catch (URISyntaxException e) {
+        LOG.error("Unable to process " + hostname + " as a valid hostname", e);
+      }
+    }
+    return tmpUrl;
+  }
+
   private static Endpoint readEndpoint(File cwd) throws Exception {
     String content = "";
     File f = new File(cwd, Constants.ENDPOINT_DAT);
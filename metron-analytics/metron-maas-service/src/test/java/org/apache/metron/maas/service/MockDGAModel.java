@@ -18,6 +18,7 @@
 package org.apache.metron.maas.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.ImmutableMap;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
@@ -52,6 +53,22 @@ public class MockDGAModel {
     return Response.ok(resp, MediaType.APPLICATION_JSON_TYPE).build();
   }
 
+  @POST
+  @Path("/apply")
+  @Consumes("application/json")
+  @Produces("application/json")
+  public Response applyBatch(String body) throws IOException {
+    List<Map<String, String>> inputs = JSONUtils.INSTANCE.load(body, new TypeReference<List<Map<String, String>>>() {
+    });
+    List<Map<String, Boolean>> ret = new ArrayList<>();
+    for(Map<String, String> input : inputs) {
+      Boolean b = isMalicious.get(input.get("host"));
+      ret.add(ImmutableMap.of("is_malicious", b != null && b));
+    }
+    String resp = JSONUtils.INSTANCE.toJSON(ret, true);
+    return Response.ok(resp, MediaType.APPLICATION_JSON_TYPE).build();
+  }
+
   @ApplicationPath("rs")
   public static class ApplicationConfig extends Application {
     private final Set<Class<?>> classes;
@@ -17,6 +17,7 @@
  */
 package org.apache.metron.maas.service;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.sun.jersey.server.impl.application.WebApplicationImpl;
 import org.apache.curator.RetryPolicy;
@@ -28,6 +29,8 @@ import org.apache.curator.utils.CloseableUtils;
 import org.apache.curator.x.discovery.ServiceInstance;
 import org.apache.curator.x.discovery.ServiceInstanceBuilder;
 import org.apache.curator.x.discovery.ServiceType;
+import org.apache.metron.maas.binary.BinaryModelServer;
+import org.apache.metron.maas.binary.FeatureFrame;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.maas.config.Endpoint;
 import org.apache.metron.maas.config.MaaSConfig;
@@ -39,6 +42,7 @@ import org.junit.*;
 
 import java.net.URL;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 
@@ -51,11 +55,13 @@ public class StellarMaaSIntegrationTest {
   private static CuratorFramework client;
   private static ServiceDiscoverer discoverer;
   private static URL endpointUrl;
+  private static BinaryModelServer binaryModel;
 
   @BeforeClass
   public static void setup() throws Exception {
     UnitTestHelper.setJavaLoggingLevel(WebApplicationImpl.class, Level.WARNING);
     MockDGAModel.start(8282);
+    binaryModel = new BinaryModelServer(0, StellarMaaSIntegrationTest::sum).start();
     testZkServer = new TestingServer(true);
     zookeeperUrl = testZkServer.getConnectString();
     RetryPolicy retryPolicy = new ExponentialBackoffRetry(1000, 3);
@@ -68,12 +74,20 @@ public class StellarMaaSIntegrationTest {
     discoverer = new ServiceDiscoverer(client, config.getServiceRoot());
     discoverer.start();
     endpointUrl = new URL("http://localhost:8282");
+    Endpoint dga = new Endpoint();
+    dga.setUrl(endpointUrl.toString());
+    register("dga", "0", dga);
+    Endpoint summer = new Endpoint();
+    summer.setUrl(endpointUrl.toString());
+    summer.setBinaryUrl(binaryModel.getBinaryUrl());
+    register("sum", "1", summer);
+  }
+
+  private static void register(String name, String containerId, Endpoint ep) throws Exception {
     ModelEndpoint endpoint = new ModelEndpoint();
     {
-      endpoint.setName("dga");
-      endpoint.setContainerId("0");
-      Endpoint ep = new Endpoint();
-      ep.setUrl(endpointUrl.toString());
+      endpoint.setName(name);
+      endpoint.setContainerId(containerId);
       endpoint.setEndpoint(ep);
       endpoint.setVersion("1.0");
     }
@@ -81,8 +95,8 @@ public class StellarMaaSIntegrationTest {
 
     ServiceInstanceBuilder<ModelEndpoint> builder = ServiceInstance.<ModelEndpoint>builder()
             .address(endpointUrl.getHost())
-            .id("0")
-            .name("dga")
+            .id(containerId)
+            .name(name)
             .port(endpointUrl.getPort())
             .registrationTimeUTC(System.currentTimeMillis())
             .serviceType(ServiceType.STATIC)
@@ -92,7 +106,7 @@ public class StellarMaaSIntegrationTest {
     //wait til the endpoint is installed...
     for(int i = 0;i < 10;++i) {
       try {
-        Object o = discoverer.getEndpoint("dga");
+        Object o = discoverer.getEndpoint(name);
         if(o != null) {
           break;
         }
@@ -104,6 +118,24 @@ public class StellarMaaSIntegrationTest {
     }
   }
 
+  /**
+   * A model served via the binary protocol which sums the features of each row, skipping missing features.
+   */
+  private static FeatureFrame sum(FeatureFrame features) {
+    FeatureFrame ret = new FeatureFrame(ImmutableList.of("sum"), features.getRows());
+    for(int row = 0;row < features.getRows();++row) {
+      double sum = 0;
+      for(int col = 0;col < features.getColumns();++col) {
+        double value = features.get(row, col);
+        if(!Double.isNaN(value)) {
+          sum += value;
+        }
+      }
+      ret.set(row, 0, sum);
+    }
+    return ret;
+  }
+
   @Test
   public void testGetEndpointWithoutVersion() throws Exception {
     String stellar = "MAAS_GET_ENDPOINT('dga')";
@@ -156,6 +188,55 @@ public class StellarMaaSIntegrationTest {
 
   }
 
+  @Test
+  public void testModelApplyBatch() throws Exception {
+    String stellar = "MAAS_MODEL_APPLY(MAAS_GET_ENDPOINT('dga'), [{'host': 'badguy.com'}, {'host': host}, {'host': 'badguy.com'}])";
+    Object result = run(stellar, ImmutableMap.of("host", "youtube.com"), context);
+    Assert.assertTrue(result instanceof List);
+    List<Map<String, Object>> results = (List<Map<String, Object>>)result;
+    Assert.assertEquals(3, results.size());
+    Assert.assertTrue((Boolean) results.get(0).get("is_malicious"));
+    Assert.assertFalse((Boolean) results.get(1).get("is_malicious"));
+    Assert.assertTrue((Boolean) results.get(2).get("is_malicious"));
+  }
+
+  @Test
+  public void testModelApplyBinary() throws Exception {
+    {
+      String stellar = "MAAS_GET_ENDPOINT('sum')";
+      Map<String, String> result = (Map<String, String>) run(stellar, new HashMap<>(), context);
+      Assert.assertEquals(binaryModel.getBinaryUrl(), result.get("binary"));
+    }
+    {
+      String stellar = "MAP_GET('sum', MAAS_MODEL_APPLY(MAAS_GET_ENDPOINT('sum'), {'x': x, 'y': 2}))";
+      Object result = run(stellar, ImmutableMap.of("x", 1.5), context);
+      Assert.assertEquals(3.5, (Double) result, 1e-6);
+    }
+    {
+      String stellar = "MAAS_MODEL_APPLY(MAAS_GET_ENDPOINT('sum'), [{'x': 1}, {'x': x, 'y': 2}])";
+      List<Map<String, Object>> results = (List<Map<String, Object>>) run(stellar, ImmutableMap.of("x", 4), context);
+      Assert.assertEquals(2, results.size());
+      Assert.assertEquals(1.0, (Double) results.get(0).get("sum"), 1e-6);
+      Assert.assertEquals(6.0, (Double) results.get(1).get("sum"), 1e-6);
+    }
+  }
+
+  @Test
+  public void testModelApplyBinaryOnlyServesApply() throws Exception {
+    {
+      // a function other than apply is not served by the binary protocol nor the mock REST model
+      String stellar = "MAAS_MODEL_APPLY(MAAS_GET_ENDPOINT('sum'), 'other_fn', {'x': x, 'y': 3})";
+      Object result = run(stellar, ImmutableMap.of("x", 1.5), context);
+      Assert.assertNull(result);
+    }
+    {
+      // the same inputs to apply should still be scored by the binary model
+      String stellar = "MAP_GET('sum', MAAS_MODEL_APPLY(MAAS_GET_ENDPOINT('sum'), 'apply', {'x': x, 'y': 3}))";
+      Object result = run(stellar, ImmutableMap.of("x", 1.5), context);
+      Assert.assertEquals(4.5, (Double) result, 1e-6);
+    }
+  }
+
   @Test
   public void testModelApplyNegative() {
     {
@@ -168,6 +249,9 @@ public class StellarMaaSIntegrationTest {
   @AfterClass
   public static void teardown() {
     MockDGAModel.shutdown();
+    if(binaryModel != null) {
+      CloseableUtils.closeQuietly(binaryModel);
+    }
     if(discoverer != null) {
       CloseableUtils.closeQuietly(discoverer);
     }
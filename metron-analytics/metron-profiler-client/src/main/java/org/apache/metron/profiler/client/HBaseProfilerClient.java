@@ -20,24 +20,52 @@
 
 package org.apache.metron.profiler.client;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.metron.profiler.ProfilePeriod;
+import org.apache.metron.profiler.ProfileRollups;
 import org.apache.metron.profiler.hbase.ColumnBuilder;
 import org.apache.metron.profiler.hbase.RowKeyBuilder;
 import org.apache.metron.common.utils.SerDeUtils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * The default implementation of a ProfilerClient that fetches profile data persisted in HBase.
+ *
+ * When fetching a set of profile periods, the client can cache the values of periods that
+ * are no longer changing.  A period is assumed to have been flushed by the Profiler, and
+ * its value is immutable, once a grace period has elapsed since it ended.  Only the values
+ * that were found are cached; periods that are still open or have no measurement are read
+ * from HBase on every request.  Concurrent requests for the same period are coalesced so
+ * that each is only read once.
+ *
+ * If the Profiler maintains rollups, the client can fetch a single rollup in place of the
+ * many profile periods that it covers.  A rollup is only used if it records that it summarizes
+ * every one of those periods.
  */
 public class HBaseProfilerClient implements ProfilerClient {
 
@@ -56,10 +84,46 @@ public class HBaseProfilerClient implements ProfilerClient {
    */
   private ColumnBuilder columnBuilder;
 
+  /**
+   * Caches the value of each immutable profile period, keyed by row key.  If null, no
+   * values are cached.
+   */
+  private Cache<ByteBuffer, Optional<byte[]>> cache;
+
+  /**
+   * The time in milliseconds after a period ends before its value is assumed to be immutable.
+   * If null, the duration of the period itself is used.
+   */
+  private Long cacheGracePeriodMillis;
+
+  /**
+   * The reads from HBase that are in progress, keyed by row key.
+   */
+  private ConcurrentMap<ByteBuffer, CompletableFuture<Optional<byte[]>>> inFlight;
+
+  /**
+   * The duration of each rollup maintained by the Profiler in milliseconds, coarsest first.
+   * If empty, rollups are not used.
+   */
+  private List<Long> rollupDurations;
+
   public HBaseProfilerClient(HTableInterface table, RowKeyBuilder rowKeyBuilder, ColumnBuilder columnBuilder) {
+    this(table, rowKeyBuilder, columnBuilder, 0);
+  }
+
+  /**
+   * @param table Used to access the profile data stored in HBase.
+   * @param rowKeyBuilder Generates the row keys necessary to scan HBase.
+   * @param columnBuilder Knows how profiles are organized in HBase.
+   * @param cacheSize The maximum number of profile periods to cache.  If 0, no periods are cached.
+   */
+  public HBaseProfilerClient(HTableInterface table, RowKeyBuilder rowKeyBuilder, ColumnBuilder columnBuilder, long cacheSize) {
     setTable(table);
     setRowKeyBuilder(rowKeyBuilder);
     setColumnBuilder(columnBuilder);
+    setCacheSize(cacheSize);
+    this.inFlight = new ConcurrentHashMap<>();
+    this.rollupDurations = new ArrayList<>();
   }
 
   /**
@@ -114,6 +178,10 @@ public class HBaseProfilerClient implements ProfilerClient {
   /**
    * Fetch the values stored in a profile based on a set of timestamps.
    *
+   * If rollups are defined, a rollup is fetched in place of the profile periods that it
+   * covers whenever all of those periods were requested.  The values are then returned
+   * in chronological order.
+   *
    * @param clazz      The type of values stored by the profile.
    * @param profile    The name of the profile.
    * @param entity     The name of the entity.
@@ -123,20 +191,258 @@ public class HBaseProfilerClient implements ProfilerClient {
    */
   @Override
   public <T> List<T> fetch(Class<T> clazz, String profile, String entity, List<Object> groups, Iterable<ProfilePeriod> periods) {
+    List<ProfilePeriod> periodList = new ArrayList<>();
+    periods.forEach(periodList::add);
+
+    List<Optional<byte[]>> results = rollupDurations.isEmpty()
+            ? read(profile, entity, groups, periodList, 0)
+            : readWithRollups(profile, entity, groups, periodList);
+
+    List<T> values = new ArrayList<>();
+    results.forEach(result -> result.ifPresent(val -> values.add(SerDeUtils.fromBytes(val, clazz))));
+    return values;
+  }
+
+  /**
+   * Reads the value of each profile period, substituting the coarsest available rollup for
+   * the periods that it covers.
+   *
+   * @param profile    The name of the profile.
+   * @param entity     The name of the entity.
+   * @param groups     The groups used to sort the profile data.
+   * @param periods    The profile measurement periods.
+   * @return The value of each rollup and remaining period, in chronological order.
+   */
+  private List<Optional<byte[]>> readWithRollups(String profile, String entity, List<Object> groups, List<ProfilePeriod> periods) {
+    if(periods.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    // the values of the rollups and periods, keyed by start time
+    TreeMap<Long, List<Optional<byte[]>>> values = new TreeMap<>();
+    long periodDurationMillis = periods.get(0).getDurationMillis();
+    List<ProfilePeriod> remaining = periods;
+
+    for(long duration : rollupDurations) {
+      if(!ProfileRollups.isCompatible(duration, periodDurationMillis)) {
+        continue;
+      }
+
+      // group the remaining periods by the rollup period that contains them
+      Map<ProfilePeriod, Set<ProfilePeriod>> byRollup = new LinkedHashMap<>();
+      for(ProfilePeriod period : remaining) {
+        ProfilePeriod rollup = new ProfilePeriod(period.getStartTimeMillis(), duration, TimeUnit.MILLISECONDS);
+        byRollup.computeIfAbsent(rollup, k -> new LinkedHashSet<>()).add(period);
+      }
+
+      // a rollup can only be used if every period that it covers was requested
+      long periodsPerRollup = duration / periodDurationMillis;
+      List<ProfilePeriod> covered = byRollup.entrySet()
+              .stream()
+              .filter(e -> e.getValue().size() == periodsPerRollup)
+              .map(Map.Entry::getKey)
+              .collect(Collectors.toList());
+      if(covered.isEmpty()) {
+        continue;
+      }
+
+      // a rollup that does not exist, or is incomplete, falls back to the finer periods
+      List<Optional<byte[]>> rollups = read(profile, entity, ProfileRollups.rollupGroups(groups, duration), covered, periodsPerRollup);
+      for(int i=0; i<covered.size(); i++) {
+        if(rollups.get(i).isPresent()) {
+          values.computeIfAbsent(covered.get(i).getStartTimeMillis(), k -> new ArrayList<>()).add(rollups.get(i));
+          byRollup.remove(covered.get(i));
+        }
+      }
+
+      remaining = new ArrayList<>();
+      for(Set<ProfilePeriod> uncovered : byRollup.values()) {
+        remaining.addAll(uncovered);
+      }
+    }
+
+    List<Optional<byte[]>> results = read(profile, entity, groups, remaining, 0);
+    for(int i=0; i<remaining.size(); i++) {
+      values.computeIfAbsent(remaining.get(i).getStartTimeMillis(), k -> new ArrayList<>()).add(results.get(i));
+    }
+
+    List<Optional<byte[]>> ordered = new ArrayList<>();
+    values.values().forEach(ordered::addAll);
+    return ordered;
+  }
+
+  /**
+   * Reads the value of each profile period.  The values of immutable periods are served
+   * from the cache when possible.
+   *
+   * @param profile    The name of the profile.
+   * @param entity     The name of the entity.
+   * @param groups     The groups used to sort the profile data.
+   * @param periods    The profile measurement periods.
+   * @param requiredPeriods If greater than 0, the periods are rollups that must summarize this many profile periods.
+   * @return The value of each period, in the same order.  Empty if the period has no measurement.
+   */
+  private List<Optional<byte[]>> read(String profile, String entity, List<Object> groups, List<ProfilePeriod> periods, long requiredPeriods) {
+    List<byte[]> rowKeys = rowKeyBuilder.rowKeys(profile, entity, groups, periods);
+    if(cache == null) {
+      return read(rowKeys, requiredPeriods);
+    }
+
+    long now = System.currentTimeMillis();
+
+    // the value of each period, in order
+    List<CompletableFuture<Optional<byte[]>>> results = new ArrayList<>();
+
+    // the periods that this request is responsible for reading from HBase
+    Map<ByteBuffer, CompletableFuture<Optional<byte[]>>> toRead = new LinkedHashMap<>();
+    Set<ByteBuffer> immutable = new HashSet<>();
+
+    Iterator<byte[]> rowKeyIterator = rowKeys.iterator();
+    for(ProfilePeriod period : periods) {
+      ByteBuffer key = ByteBuffer.wrap(rowKeyIterator.next());
+
+      Optional<byte[]> cached = cache.getIfPresent(key);
+      if(cached != null) {
+        results.add(CompletableFuture.completedFuture(cached));
+        continue;
+      }
+
+      // if another request is already reading the period, wait for its result
+      CompletableFuture<Optional<byte[]>> read = new CompletableFuture<>();
+      CompletableFuture<Optional<byte[]>> existing = inFlight.putIfAbsent(key, read);
+      if(existing != null) {
+        results.add(existing);
+        continue;
+      }
+
+      toRead.put(key, read);
+      results.add(read);
+      if(isImmutable(period, now, cacheGracePeriodMillis)) {
+        immutable.add(key);
+      }
+    }
+
+    if(!toRead.isEmpty()) {
+      readInFlight(toRead, immutable, requiredPeriods);
+    }
+
+    List<Optional<byte[]>> values = new ArrayList<>();
+    for(CompletableFuture<Optional<byte[]>> result : results) {
+      try {
+        values.add(result.join());
+
+      } catch(CompletionException e) {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+
+    return values;
+  }
+
+  /**
+   * Reads a set of profile periods from HBase with a single multi-get.  The values of
+   * immutable periods are cached, unless the period has no measurement; it may simply
+   * not have been written yet.
+   *
+   * @param toRead The periods to read, keyed by row key.
+   * @param immutable The row keys of the periods that are immutable.
+   * @param requiredPeriods If greater than 0, the periods are rollups that must summarize this many profile periods.
+   */
+  private void readInFlight(Map<ByteBuffer, CompletableFuture<Optional<byte[]>>> toRead, Set<ByteBuffer> immutable, long requiredPeriods) {
+    try {
+      List<byte[]> rowKeys = toRead.keySet()
+              .stream()
+              .map(ByteBuffer::array)
+              .collect(Collectors.toList());
+      Iterator<Optional<byte[]>> values = read(rowKeys, requiredPeriods).iterator();
+
+      for(Map.Entry<ByteBuffer, CompletableFuture<Optional<byte[]>>> entry : toRead.entrySet()) {
+        Optional<byte[]> value = values.next();
+
+        // cache the value before it is no longer in-flight
+        if(value.isPresent() && immutable.contains(entry.getKey())) {
+          cache.put(entry.getKey(), value);
+        }
+        inFlight.remove(entry.getKey());
+        entry.getValue().complete(value);
+      }
+
+    } catch(Throwable e) {
+      // any request waiting on these periods must not wait forever
+      toRead.forEach((key, read) -> {
+        inFlight.remove(key, read);
+        read.completeExceptionally(e);
+      });
+    }
+  }
+
+  /**
+   * Reads a set of rows from HBase with a single multi-get.
+   *
+   * @param rowKeys The row keys to read.
+   * @param requiredPeriods If greater than 0, the rows are rollups that must summarize this many profile periods.
+   * @return The value of each row, in the same order.  Empty if the row has no value.
+   */
+  private List<Optional<byte[]>> read(List<byte[]> rowKeys, long requiredPeriods) {
     byte[] columnFamily = Bytes.toBytes(columnBuilder.getColumnFamily());
     byte[] columnQualifier = columnBuilder.getColumnQualifier("value");
+    byte[] periodsQualifier = (requiredPeriods > 0) ? columnBuilder.getColumnQualifier("periods") : null;
 
-    // find all the row keys that satisfy this fetch
-    List<byte[]> keysToFetch = rowKeyBuilder.rowKeys(profile, entity, groups, periods);
-
-    // create a Get for each of the row keys
-    List<Get> gets = keysToFetch
+    List<Get> gets = rowKeys
             .stream()
-            .map(k -> new Get(k).addColumn(columnFamily, columnQualifier))
+            .map(k -> {
+              Get get = new Get(k).addColumn(columnFamily, columnQualifier);
+              return (periodsQualifier != null) ? get.addColumn(columnFamily, periodsQualifier) : get;
+            })
             .collect(Collectors.toList());
 
-    // get the 'gets'
-    return get(gets, columnQualifier, columnFamily, clazz);
+    try {
+      return Arrays.stream(table.get(gets))
+              .map(r -> value(r, columnFamily, columnQualifier, periodsQualifier, requiredPeriods))
+              .collect(Collectors.toList());
+
+    } catch(IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns the value of a row.  A rollup only has a value if it is known to summarize every
+   * profile period that it covers; a rollup written by the Profiler after a restart may not.
+   *
+   * @param result The row.
+   * @param columnFamily The column family.
+   * @param columnQualifier The column qualifier of the value.
+   * @param periodsQualifier The column qualifier of the number of periods summarized by a rollup, or null.
+   * @param requiredPeriods The number of periods that a rollup must summarize.
+   */
+  private static Optional<byte[]> value(Result result, byte[] columnFamily, byte[] columnQualifier,
+                                        byte[] periodsQualifier, long requiredPeriods) {
+    if(!result.containsColumn(columnFamily, columnQualifier)) {
+      return Optional.empty();
+    }
+
+    if(periodsQualifier != null) {
+      byte[] periods = result.getValue(columnFamily, periodsQualifier);
+      if(periods == null || periods.length != Bytes.SIZEOF_LONG || Bytes.toLong(periods) != requiredPeriods) {
+        return Optional.empty();
+      }
+    }
+
+    return Optional.of(result.getValue(columnFamily, columnQualifier));
+  }
+
+  /**
+   * Is the value of a profile period immutable?  A period is assumed to have been flushed
+   * by the Profiler once the grace period has elapsed since it ended.
+   *
+   * @param period The profile period.
+   * @param now The current time in epoch milliseconds.
+   * @param gracePeriodMillis The grace period in milliseconds.  If null, the duration of the period.
+   */
+  private static boolean isImmutable(ProfilePeriod period, long now, Long gracePeriodMillis) {
+    long grace = (gracePeriodMillis != null) ? gracePeriodMillis : period.getDurationMillis();
+    return period.getEndTimeMillis() + grace <= now;
   }
 
   /**
@@ -177,4 +483,27 @@ public class HBaseProfilerClient implements ProfilerClient {
   public void setColumnBuilder(ColumnBuilder columnBuilder) {
     this.columnBuilder = columnBuilder;
   }
+
+  /**
+   * @param rollupDurations The duration of each rollup maintained by the Profiler in milliseconds.
+   */
+  public void setRollupDurations(List<Long> rollupDurations) {
+    this.rollupDurations = new ArrayList<>(rollupDurations);
+    this.rollupDurations.sort(Collections.reverseOrder());
+  }
+
+  /**
+   * @param cacheSize The maximum number of profile periods to cache.  If 0, no periods are cached.
+   */
+  public void setCacheSize(long cacheSize) {
+    this.cache = (cacheSize > 0) ? CacheBuilder.newBuilder().maximumSize(cacheSize).build() : null;
+  }
+
+  /**
+   * @param cacheGracePeriodMillis The time in milliseconds after a period ends before its
+   *                               value is cached.  If null, the duration of the period.
+   */
+  public void setCacheGracePeriodMillis(Long cacheGracePeriodMillis) {
+    this.cacheGracePeriodMillis = cacheGracePeriodMillis;
+  }
 }
@@ -20,11 +20,15 @@
 
 package org.apache.metron.profiler.client.stellar;
 
+import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_CACHE_GRACE_PERIOD;
+import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_CACHE_GRACE_PERIOD_UNITS;
+import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_CACHE_SIZE;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_COLUMN_FAMILY;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_HBASE_TABLE;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_HBASE_TABLE_PROVIDER;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_PERIOD;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_PERIOD_UNITS;
+import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_ROLLUPS;
 import static org.apache.metron.profiler.client.stellar.ProfilerClientConfig.PROFILER_SALT_DIVISOR;
 import static org.apache.metron.profiler.client.stellar.Util.getArg;
 import static org.apache.metron.profiler.client.stellar.Util.getEffectiveConfig;
@@ -46,6 +50,7 @@ import org.apache.metron.stellar.dsl.StellarFunction;
 import org.apache.metron.hbase.HTableProvider;
 import org.apache.metron.hbase.TableProvider;
 import org.apache.metron.profiler.ProfilePeriod;
+import org.apache.metron.profiler.ProfileRollups;
 import org.apache.metron.profiler.client.HBaseProfilerClient;
 import org.apache.metron.profiler.client.ProfilerClient;
 import org.apache.metron.profiler.hbase.ColumnBuilder;
@@ -169,7 +174,11 @@ public class GetProfile implements StellarFunction {
       RowKeyBuilder rowKeyBuilder = getRowKeyBuilder(effectiveConfig);
       ColumnBuilder columnBuilder = getColumnBuilder(effectiveConfig);
       HTableInterface table = getTable(effectiveConfig);
-      client = new HBaseProfilerClient(table, rowKeyBuilder, columnBuilder);
+      long cacheSize = PROFILER_CACHE_SIZE.get(effectiveConfig, Long.class);
+      HBaseProfilerClient hbaseClient = new HBaseProfilerClient(table, rowKeyBuilder, columnBuilder, cacheSize);
+      hbaseClient.setCacheGracePeriodMillis(getCacheGracePeriodMillis(effectiveConfig));
+      hbaseClient.setRollupDurations(ProfileRollups.parseDurations(PROFILER_ROLLUPS.get(effectiveConfig, String.class)));
+      client = hbaseClient;
       cachedConfigMap = effectiveConfig;
     }
 
@@ -235,6 +244,18 @@ public class GetProfile implements StellarFunction {
     return new SaltyRowKeyBuilder(saltDivisor, duration, units);
   }
 
+  /**
+   * Determines how long after a profile period ends before its value is cached.
+   * @param global The global configuration.
+   */
+  private long getCacheGracePeriodMillis(Map<String, Object> global) {
+    long gracePeriod = PROFILER_CACHE_GRACE_PERIOD.get(global, Long.class);
+    TimeUnit units = TimeUnit.valueOf(PROFILER_CACHE_GRACE_PERIOD_UNITS.get(global, String.class));
+    LOG.debug("profiler client: {}={} {}", PROFILER_CACHE_GRACE_PERIOD, gracePeriod, units);
+
+    return units.toMillis(gracePeriod);
+  }
+
   /**
    * Create an HBase table used when accessing HBase.
    * @param global The global configuration.
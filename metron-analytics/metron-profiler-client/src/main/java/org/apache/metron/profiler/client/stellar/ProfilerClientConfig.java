@@ -56,7 +56,33 @@ public enum ProfilerClientConfig {
   /**
    * A global property that defines the salt divisor used to store profile data.
    */
-  PROFILER_SALT_DIVISOR("profiler.client.salt.divisor", 1000L, Long.class);
+  PROFILER_SALT_DIVISOR("profiler.client.salt.divisor", 1000L, Long.class),
+
+  /**
+   * A global property that defines the maximum number of immutable profile periods cached
+   * by the client.  If 0, no profile periods are cached.
+   */
+  PROFILER_CACHE_SIZE("profiler.client.cache.size", 10000L, Long.class),
+
+  /**
+   * A global property that defines how long after a profile period ends before its value is
+   * cached by the client.  This should allow for the Profiler's flush frequency and any lag
+   * in the telemetry.  This value should be defined along with 'profiler.client.cache.grace.period.units'.
+   */
+  PROFILER_CACHE_GRACE_PERIOD("profiler.client.cache.grace.period", 15L, Long.class),
+
+  /**
+   * A global property that defines the units of the cache grace period.  This value
+   * should be defined along with 'profiler.client.cache.grace.period'.
+   */
+  PROFILER_CACHE_GRACE_PERIOD_UNITS("profiler.client.cache.grace.period.units", "MINUTES", String.class),
+
+  /**
+   * A global property that defines the rollups maintained by the Profiler; for example
+   * '1 HOURS, 1 DAYS'.  This value should match the Profiler's 'profiler.rollups'.  If
+   * blank, rollups are not used.
+   */
+  PROFILER_ROLLUPS("profiler.client.rollups", "", String.class);
 
   String key;
   Object defaultValue;
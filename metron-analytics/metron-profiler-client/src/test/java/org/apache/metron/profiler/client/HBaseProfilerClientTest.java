@@ -22,6 +22,8 @@ package org.apache.metron.profiler.client;
 
 import org.apache.metron.hbase.mock.MockHTable;
 import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfilePeriod;
+import org.apache.metron.profiler.ProfileRollups;
 import org.apache.metron.profiler.hbase.ColumnBuilder;
 import org.apache.metron.profiler.hbase.RowKeyBuilder;
 import org.apache.metron.profiler.hbase.SaltyRowKeyBuilder;
@@ -32,8 +34,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
@@ -243,4 +247,154 @@ public class HBaseProfilerClientTest {
     // validate - there should NOT be any results from just 2 milliseconds ago
     assertEquals(0, results.size());
   }
-}
\ No newline at end of file
+
+  /**
+   * The values of periods that can no longer change should be cached.  The periods that
+   * are still open should always be read from HBase.
+   */
+  @Test
+  public void testFetchWithPeriodsAndCache() throws Exception {
+    final int hours = 2;
+    final int count = hours * periodsPerHour;
+    final List<Object> group = Arrays.asList("weekends");
+    final long startTime = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+    HBaseProfilerClient cachingClient = new HBaseProfilerClient(table, new SaltyRowKeyBuilder(), new ValueOnlyColumnBuilder(columnFamily), 100);
+
+    // setup - write values to periods that ended long ago
+    ProfileMeasurement m = new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("entity1")
+            .withPeriod(startTime, periodDuration, periodUnits);
+    profileWriter.write(m, count, group, val -> 1000);
+
+    // setup - write a value to the current period
+    ProfileMeasurement previous = new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("entity1")
+            .withPeriod(System.currentTimeMillis() - periodUnits.toMillis(periodDuration), periodDuration, periodUnits);
+    profileWriter.write(previous, 1, group, val -> 2000);
+
+    List<ProfilePeriod> periods = new ArrayList<>();
+    ProfilePeriod period = m.getPeriod();
+    for(int i=0; i<count; i++) {
+      period = period.next();
+      periods.add(period);
+    }
+    periods.add(previous.getPeriod().next());
+
+    // execute - all values are read from HBase
+    List<Integer> results = cachingClient.fetch(Integer.class, "profile1", "entity1", group, periods);
+    assertEquals(count + 1, results.size());
+
+    // execute - remove everything from HBase
+    table.clear();
+    results = cachingClient.fetch(Integer.class, "profile1", "entity1", group, periods);
+
+    // validate - only the values of the old periods were cached
+    assertEquals(count, results.size());
+    results.forEach(actual -> assertEquals(1000, (int) actual));
+  }
+
+  /**
+   * A period that has no measurement should not be cached; it may not have been written yet.
+   */
+  @Test
+  public void testFetchWithPeriodsAndCacheDoesNotCacheAbsentValues() throws Exception {
+    final List<Object> group = Arrays.asList("weekends");
+    final long startTime = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+    HBaseProfilerClient cachingClient = new HBaseProfilerClient(table, new SaltyRowKeyBuilder(), new ValueOnlyColumnBuilder(columnFamily), 100);
+
+    ProfileMeasurement m = new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("entity1")
+            .withPeriod(startTime, periodDuration, periodUnits);
+    List<ProfilePeriod> periods = Arrays.asList(m.getPeriod().next());
+
+    // execute - nothing has been written yet
+    List<Integer> results = cachingClient.fetch(Integer.class, "profile1", "entity1", group, periods);
+    assertEquals(0, results.size());
+
+    // execute - the period is written late
+    profileWriter.write(m, 1, group, val -> 1000);
+    results = cachingClient.fetch(Integer.class, "profile1", "entity1", group, periods);
+
+    // validate - the late value is found
+    assertEquals(1, results.size());
+    assertEquals(1000, (int) results.get(0));
+  }
+
+  /**
+   * A period should not be cached until the grace period has elapsed since it ended.
+   */
+  @Test
+  public void testFetchWithPeriodsAndCacheGracePeriod() throws Exception {
+    final List<Object> group = Arrays.asList("weekends");
+    final long startTime = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+    HBaseProfilerClient cachingClient = new HBaseProfilerClient(table, new SaltyRowKeyBuilder(), new ValueOnlyColumnBuilder(columnFamily), 100);
+    cachingClient.setCacheGracePeriodMillis(TimeUnit.DAYS.toMillis(1));
+
+    // setup - write a value to a period that ended well before the last full period
+    ProfileMeasurement m = new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("entity1")
+            .withPeriod(startTime, periodDuration, periodUnits);
+    profileWriter.write(m, 1, group, val -> 1000);
+    List<ProfilePeriod> periods = Arrays.asList(m.getPeriod().next());
+
+    List<Integer> results = cachingClient.fetch(Integer.class, "profile1", "entity1", group, periods);
+    assertEquals(1, results.size());
+
+    // execute - remove everything from HBase
+    table.clear();
+    results = cachingClient.fetch(Integer.class, "profile1", "entity1", group, periods);
+
+    // validate - the period is still within the grace period, so was not cached
+    assertEquals(0, results.size());
+  }
+
+  /**
+   * A rollup should be fetched in place of the profile periods that it covers.  If a rollup
+   * does not exist, or does not summarize every period that it covers, the profile periods
+   * themselves should be fetched.
+   */
+  @Test
+  public void testFetchWithPeriodsAndRollups() throws Exception {
+    final long hourMillis = TimeUnit.HOURS.toMillis(1);
+    final long startTime = ((System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)) / hourMillis) * hourMillis;
+    final List<Object> group = Arrays.asList("weekends");
+    client.setRollupDurations(Arrays.asList(hourMillis));
+
+    // setup - write two hours of profile periods
+    ProfileMeasurement m = new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("entity1")
+            .withPeriod(startTime - periodUnits.toMillis(periodDuration), periodDuration, periodUnits);
+    profileWriter.write(m, 2 * periodsPerHour, group, val -> 1);
+
+    // setup - write a complete rollup for the first hour
+    ProfileMeasurement rollup = new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("entity1")
+            .withPeriod(startTime - hourMillis, 1, TimeUnit.HOURS)
+            .withRolledUpPeriods((long) periodsPerHour);
+    profileWriter.write(rollup, 1, ProfileRollups.rollupGroups(group, hourMillis), val -> 100);
+
+    // setup - write a rollup for the second hour that only summarizes some of its periods
+    ProfileMeasurement partialRollup = new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("entity1")
+            .withPeriod(startTime, 1, TimeUnit.HOURS)
+            .withRolledUpPeriods((long) periodsPerHour - 1);
+    profileWriter.write(partialRollup, 1, ProfileRollups.rollupGroups(group, hourMillis), val -> 200);
+
+    List<ProfilePeriod> periods = ProfilePeriod.visitPeriods(startTime, startTime + 2 * hourMillis - 1,
+            periodDuration, periodUnits, Optional.empty(), period -> period);
+    assertEquals(2 * periodsPerHour, periods.size());
+
+    // execute
+    List<Integer> results = client.fetch(Integer.class, "profile1", "entity1", group, periods);
+
+    // validate - the rollup replaces the first hour, but the second hour has no complete rollup
+    assertEquals(Arrays.asList(100, 1, 1, 1, 1), results);
+  }
+}
@@ -80,7 +80,8 @@ public class ProfileWriter {
               .withEntity(prototype.getEntity())
               .withPeriod(next.getStartTimeMillis(), prototype.getPeriod().getDurationMillis(), TimeUnit.MILLISECONDS)
               .withGroups(group)
-              .withProfileValue(nextValue);
+              .withProfileValue(nextValue)
+              .withRolledUpPeriods(prototype.getRolledUpPeriods());
 
       write(m);
     }
@@ -22,16 +22,35 @@ package org.apache.metron.profiler;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.Hashing;
 import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.apache.metron.profiler.clock.Clock;
+import org.apache.metron.profiler.clock.FixedClock;
 import org.apache.metron.profiler.clock.WallClock;
+import org.apache.metron.profiler.columnar.ColumnarProfile;
+import org.apache.metron.profiler.state.ProfileState;
+import org.apache.metron.profiler.state.ProfileStateStore;
 import org.apache.metron.stellar.dsl.Context;
 import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandles;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 
@@ -43,25 +62,137 @@ import static java.lang.String.format;
  * for a single entity.  There will be one ProfileBuilder for each (profile, entity) pair.
  * This class ensures that each ProfileBuilder receives the telemetry messages that
  * it needs.
+ *
+ * Messages can be distributed in either processing time or event time.  In event time,
+ * there is one ProfileBuilder for each (profile, entity, period) so that the periods
+ * of a profile can remain open while waiting on late arriving messages.  These periods
+ * are flushed once the watermark has passed the end of the period, plus any allowed
+ * lateness.
+ *
+ * In processing time, the state of the profiles can be kept in a ProfileStateStore.  If
+ * there are more active profiles than can be held in memory, the least recently used
+ * are spilled to the store and transparently restored when next needed.  The state of
+ * all profiles can also be periodically checkpointed to the store, so that it can be
+ * recovered after a restart.  The state is saved along with its period.  Restored state that
+ * belongs to an earlier period is flushed as that period's measurement, rather than being
+ * merged into the current period.
+ *
+ * In processing time, profiles can optionally be maintained as a ColumnarProfile, which holds
+ * the state of all entities in primitive columns and updates them without executing Stellar for
+ * every message.  Profiles that are not supported by a ColumnarProfile use a ProfileBuilder.  The
+ * state of a ColumnarProfile is not spilled or checkpointed.  The partial state of a profile that
+ * was combined upstream is always merged into a ColumnarProfile.  Any ProfileBuilder that already
+ * holds state for the same profile and entity is folded into the ColumnarProfile at that time.
  */
 public class DefaultMessageDistributor implements MessageDistributor {
 
+  protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
   /**
    * The duration of each profile period in milliseconds.
    */
   private long periodDurationMillis;
 
+  /**
+   * In event time, the amount of time in milliseconds that a period remains open after
+   * the watermark has passed its end.
+   */
+  private long allowedLatenessMillis;
+
+  /**
+   * In event time, any message belonging to a period that ended on or before this time
+   * has arrived too late and is dropped.
+   */
+  private long closedThroughMillis;
+
+  /**
+   * In event time, the earliest end of all periods that remain open.
+   */
+  private long earliestPeriodEndMillis;
+
+  /**
+   * The number of messages that have been dropped because they arrived too late.
+   */
+  private long lateMessages;
+
   /**
    * Maintains the state of a profile which is unique to a profile/entity pair.
    */
   private transient Cache<String, ProfileBuilder> profileCache;
 
+  /**
+   * In event time, maintains the state of a profile which is unique to a profile/entity/period.
+   * These never expire by wall clock time; each is only removed once the watermark flushes it.
+   */
+  private transient Cache<PeriodKey, ProfileBuilder> eventTimeCache;
+
+  /**
+   * Stores the state of profiles that are spilled or checkpointed.  If null, the state of
+   * all profiles is held in memory only.
+   */
+  private transient ProfileStateStore stateStore;
+
+  /**
+   * The profiles restored from the state store whose state belongs to an earlier period.  These
+   * are flushed as the measurement of that period.
+   */
+  private transient List<ProfileBuilder> pastPeriods;
+
+  /**
+   * Tells the time in processing time.
+   */
+  private transient Clock clock;
+
+  /**
+   * The Stellar execution context used to restore profiles from the state store.
+   */
+  private transient Context context;
+
+  /**
+   * The number of profiles that have been spilled to the state store.
+   */
+  private long spilledProfiles;
+
+  /**
+   * The TTL of a profile in milliseconds.
+   */
+  private long profileTimeToLiveMillis;
+
+  /**
+   * Should profiles that are supported be maintained as a ColumnarProfile?
+   */
+  private boolean columnarEnabled;
+
+  /**
+   * The ColumnarProfile for each profile definition; empty, if the profile is not supported.
+   */
+  private transient Map<ProfileConfig, Optional<ColumnarProfile>> columnarProfiles;
+
   /**
    * Create a new message distributor.
    * @param periodDurationMillis The period duration in milliseconds.
    * @param profileTimeToLiveMillis The TTL of a profile in milliseconds.
    */
   public DefaultMessageDistributor(long periodDurationMillis, long profileTimeToLiveMillis) {
+    this(periodDurationMillis, profileTimeToLiveMillis, 0, null);
+  }
+
+  /**
+   * Create a new message distributor.
+   * @param periodDurationMillis The period duration in milliseconds.
+   * @param profileTimeToLiveMillis The TTL of a profile in milliseconds.
+   * @param maxActiveProfiles The maximum number of profiles held in memory.  If 0, there is no maximum.
+   * @param stateStore Stores the state of profiles that are spilled or checkpointed.  May be null.
+   */
+  public DefaultMessageDistributor(long periodDurationMillis,
+                                   long profileTimeToLiveMillis,
+                                   long maxActiveProfiles,
+                                   ProfileStateStore stateStore) {
+    if(maxActiveProfiles > 0 && stateStore == null) {
+      throw new IllegalStateException(format(
+              "invalid configuration: expect a state store to spill to when max active profiles (%d) is defined",
+              maxActiveProfiles));
+    }
     if(profileTimeToLiveMillis < periodDurationMillis) {
       throw new IllegalStateException(format(
               "invalid configuration: expect profile TTL (%d) to be greater than period duration (%d)",
@@ -69,9 +200,28 @@ public class DefaultMessageDistributor implements MessageDistributor {
               periodDurationMillis));
     }
     this.periodDurationMillis = periodDurationMillis;
-    this.profileCache = CacheBuilder
+    this.profileTimeToLiveMillis = profileTimeToLiveMillis;
+    this.allowedLatenessMillis = 0;
+    this.closedThroughMillis = Long.MIN_VALUE;
+    this.earliestPeriodEndMillis = Long.MAX_VALUE;
+    this.stateStore = stateStore;
+    this.context = Context.EMPTY_CONTEXT();
+    this.columnarEnabled = false;
+    this.columnarProfiles = new HashMap<>();
+    this.pastPeriods = new ArrayList<>();
+    this.clock = new WallClock();
+
+    CacheBuilder<Object, Object> cacheBuilder = CacheBuilder
+            .newBuilder()
+            .expireAfterAccess(profileTimeToLiveMillis, TimeUnit.MILLISECONDS);
+    if(maxActiveProfiles > 0) {
+      cacheBuilder.maximumSize(maxActiveProfiles);
+    }
+    this.profileCache = cacheBuilder
+            .removalListener((RemovalListener<String, ProfileBuilder>) this::onRemoval)
+            .build();
+    this.eventTimeCache = CacheBuilder
             .newBuilder()
-            .expireAfterAccess(profileTimeToLiveMillis, TimeUnit.MILLISECONDS)
             .build();
   }
 
@@ -85,9 +235,66 @@ public class DefaultMessageDistributor implements MessageDistributor {
    */
   @Override
   public void distribute(JSONObject message, MessageRoute route, Context context) throws ExecutionException {
+    if(columnarEnabled || columnarProfiles.containsKey(route.getProfileDefinition())) {
+      Optional<ColumnarProfile> columnar = getColumnarProfile(route, context);
+      if(columnar.isPresent()) {
+        columnar.get().apply(route.getEntity(), message, context);
+        return;
+      }
+    }
+
     getBuilder(route, context).apply(message);
   }
 
+  /**
+   * Merges the partial state of a profile, which was combined upstream, along a MessageRoute.
+   *
+   * @param partial The partial value of each profile variable.
+   * @param route The message route.
+   * @param context The Stellar execution context.
+   * @return True, if the state was merged.  False, if the profile cannot be merged.
+   */
+  public boolean merge(Map<String, Object> partial, MessageRoute route, Context context) {
+    Optional<ColumnarProfile> columnar = getColumnarProfile(route, context);
+    if(!columnar.isPresent() || !columnar.get().isMergeable()) {
+      if(!columnarEnabled) {
+        // raw messages for this profile must continue to use a ProfileBuilder
+        columnarProfiles.remove(route.getProfileDefinition());
+      }
+      return false;
+    }
+
+    // raw messages may have already been applied to a ProfileBuilder in this period
+    foldBuilder(columnar.get(), route, context);
+    columnar.get().merge(route.getEntity(), partial, context);
+    return true;
+  }
+
+  /**
+   * Distribute a message along a MessageRoute using event time.
+   *
+   * The message is applied to the period that its timestamp falls within.  If that period
+   * has already been flushed, the message arrived too late and is dropped.
+   *
+   * @param message The message that needs distributed.
+   * @param timestamp The timestamp of the message in epoch milliseconds.
+   * @param route The message route.
+   * @param context The Stellar execution context.
+   * @return True, if the message was applied.  False, if the message arrived too late.
+   * @throws ExecutionException
+   */
+  public boolean distribute(JSONObject message, long timestamp, MessageRoute route, Context context) throws ExecutionException {
+    ProfilePeriod period = new ProfilePeriod(timestamp, periodDurationMillis, TimeUnit.MILLISECONDS);
+    if(period.getEndTimeMillis() <= closedThroughMillis) {
+      lateMessages++;
+      return false;
+    }
+
+    getBuilder(route, period, context).apply(message);
+    earliestPeriodEndMillis = Math.min(earliestPeriodEndMillis, period.getEndTimeMillis());
+    return true;
+  }
+
   /**
    * Flushes all profiles.  Flushes all ProfileBuilders that this distributor is responsible for.
    *
@@ -97,6 +304,10 @@ public class DefaultMessageDistributor implements MessageDistributor {
   public List<ProfileMeasurement> flush() {
     List<ProfileMeasurement> measurements = new ArrayList<>();
 
+    // flush any restored state that belongs to an earlier period
+    pastPeriods.forEach(profileBuilder -> profileBuilder.flush().ifPresent(measurements::add));
+    pastPeriods.clear();
+
     profileCache.asMap().forEach((key, profileBuilder) -> {
       if(profileBuilder.isInitialized()) {
         Optional<ProfileMeasurement> measurement = profileBuilder.flush();
@@ -104,7 +315,108 @@ public class DefaultMessageDistributor implements MessageDistributor {
       }
     });
 
+    eventTimeCache.asMap().forEach((key, profileBuilder) -> {
+      if(profileBuilder.isInitialized()) {
+        Optional<ProfileMeasurement> measurement = profileBuilder.flush();
+        measurement.ifPresent(measurements::add);
+      }
+    });
+
+    // flush any profiles whose state is only in the state store
+    if(stateStore != null) {
+      Set<String> active = profileCache.asMap().keySet().stream()
+              .map(this::stateKey)
+              .collect(Collectors.toSet());
+      for(String key : stateStore.keys()) {
+        if(!active.contains(key)) {
+          try {
+            stateStore.get(key).ifPresent(state -> restore(ProfileState.fromBytes(state))
+                    .flatMap(ProfileBuilder::flush)
+                    .ifPresent(measurements::add));
+
+          } catch(Throwable e) {
+            LOG.error(format("Unable to restore profile state: error=%s", e.getMessage()), e);
+          }
+        }
+      }
+
+      // all of the stored state has now been flushed
+      stateStore.clear();
+    }
+
+    // flush the columnar profiles and forget those with no remaining entities
+    Iterator<Optional<ColumnarProfile>> iterator = columnarProfiles.values().iterator();
+    while(iterator.hasNext()) {
+      Optional<ColumnarProfile> columnar = iterator.next();
+      columnar.ifPresent(profile -> measurements.addAll(profile.flush(profileTimeToLiveMillis)));
+      if(!columnar.isPresent() || columnar.get().size() == 0) {
+        iterator.remove();
+      }
+    }
+
     profileCache.cleanUp();
+    eventTimeCache.invalidateAll();
+    earliestPeriodEndMillis = Long.MAX_VALUE;
+    return measurements;
+  }
+
+  /**
+   * Checkpoints the state of all active profiles to the state store, so that the state can be
+   * recovered after a restart.  Only profiles distributed in processing time are checkpointed.
+   */
+  public void checkpoint() {
+    if(stateStore == null) {
+      return;
+    }
+
+    ProfilePeriod period = currentPeriod();
+    profileCache.asMap().forEach((key, profileBuilder) -> {
+      if(profileBuilder.isInitialized()) {
+        stateStore.put(stateKey(key), new ProfileState(profileBuilder, period).toBytes());
+      }
+    });
+    stateStore.sync();
+  }
+
+  /**
+   * Flushes all profiles whose period has been passed by the watermark, plus any allowed
+   * lateness.  Used when distributing messages in event time.
+   *
+   * @param watermarkMillis The watermark in epoch milliseconds.
+   * @return The profile measurements; one for each (profile, entity, period) that was flushed.
+   */
+  public List<ProfileMeasurement> flush(long watermarkMillis) {
+    List<ProfileMeasurement> measurements = new ArrayList<>();
+
+    long closeThrough = watermarkMillis - allowedLatenessMillis;
+    if(closeThrough <= closedThroughMillis) {
+      return measurements;
+    }
+    closedThroughMillis = closeThrough;
+
+    // nothing to do until the watermark passes the end of the earliest open period
+    if(earliestPeriodEndMillis > closeThrough) {
+      return measurements;
+    }
+
+    long earliest = Long.MAX_VALUE;
+    for(Map.Entry<PeriodKey, ProfileBuilder> entry : eventTimeCache.asMap().entrySet()) {
+      long periodEnd = entry.getKey().period.getEndTimeMillis();
+      if(periodEnd <= closeThrough) {
+        ProfileBuilder profileBuilder = entry.getValue();
+        if(profileBuilder.isInitialized()) {
+          Optional<ProfileMeasurement> measurement = profileBuilder.flush();
+          measurement.ifPresent(measurements::add);
+        }
+        eventTimeCache.invalidate(entry.getKey());
+
+      } else {
+        earliest = Math.min(earliest, periodEnd);
+      }
+    }
+
+    earliestPeriodEndMillis = earliest;
+    eventTimeCache.cleanUp();
     return measurements;
   }
 
@@ -117,15 +429,173 @@ public class DefaultMessageDistributor implements MessageDistributor {
   public ProfileBuilder getBuilder(MessageRoute route, Context context) throws ExecutionException {
     ProfileConfig profile = route.getProfileDefinition();
     String entity = route.getEntity();
-    return profileCache.get(
-            cacheKey(profile, entity),
-            () -> new DefaultProfileBuilder.Builder()
-                    .withDefinition(profile)
-                    .withEntity(entity)
-                    .withPeriodDurationMillis(periodDurationMillis)
-                    .withContext(context)
-                    .withClock(new WallClock())
-                    .build());
+    String key = cacheKey(profile, entity);
+    this.context = context;
+    return profileCache.get(key, () -> {
+
+      // restore the profile, if its state was spilled or checkpointed in the current period
+      if(stateStore != null) {
+        Optional<ProfileState> state = removeState(stateKey(key));
+        if(state.isPresent()) {
+          Optional<ProfileBuilder> restored = restore(state.get());
+          if(state.get().getPeriod().equals(Optional.of(currentPeriod()))) {
+            if(restored.isPresent()) {
+              return restored.get();
+            }
+          } else {
+            restored.ifPresent(pastPeriods::add);
+          }
+        }
+      }
+
+      return new DefaultProfileBuilder.Builder()
+              .withDefinition(profile)
+              .withEntity(entity)
+              .withPeriodDurationMillis(periodDurationMillis)
+              .withContext(context)
+              .withClock(clock)
+              .build();
+    });
+  }
+
+  /**
+   * Retrieves the ColumnarProfile that maintains the state of a profile for all entities.  If none
+   * exists, one will be created if the profile is supported.
+   * @param route The message route.
+   * @param context The Stellar execution context.
+   * @return The ColumnarProfile or empty, if the profile is not supported.
+   */
+  public Optional<ColumnarProfile> getColumnarProfile(MessageRoute route, Context context) {
+    return columnarProfiles.computeIfAbsent(route.getProfileDefinition(), definition ->
+            ColumnarProfile.of(definition, periodDurationMillis, clock, context));
+  }
+
+  /**
+   * Folds the state of an existing ProfileBuilder into a ColumnarProfile, so that the raw messages
+   * and the partial state of a profile are maintained by only one of the two.  Otherwise, each
+   * would flush a measurement for the same profile, entity and period.
+   * @param columnar The ColumnarProfile that now maintains the profile.
+   * @param route The message route.
+   * @param context The Stellar execution context.
+   */
+  private void foldBuilder(ColumnarProfile columnar, MessageRoute route, Context context) {
+    String key = cacheKey(route.getProfileDefinition(), route.getEntity());
+    ProfileBuilder profileBuilder = profileCache.getIfPresent(key);
+    if(profileBuilder != null) {
+      if(profileBuilder.isInitialized()) {
+        columnar.merge(route.getEntity(), profileBuilder.getState(), context);
+      }
+      profileCache.invalidate(key);
+    }
+
+    // the builder may have been spilled to the state store
+    if(stateStore != null) {
+      Optional<ProfileState> state = removeState(stateKey(key));
+      if(state.isPresent()) {
+        if(state.get().getPeriod().equals(Optional.of(currentPeriod()))) {
+          columnar.merge(route.getEntity(), state.get().getState(), context);
+        } else {
+          restore(state.get()).ifPresent(pastPeriods::add);
+        }
+      }
+    }
+  }
+
+  /**
+   * Recreates a ProfileBuilder from its state.  If the state belongs to an earlier period, the
+   * builder will only ever flush that period.
+   * @param state The state of the profile.
+   * @return The ProfileBuilder or empty, if the period of the state is unknown.
+   */
+  private Optional<ProfileBuilder> restore(ProfileState state) {
+    Optional<ProfilePeriod> period = state.getPeriod();
+    if(!period.isPresent() || period.get().getDurationMillis() != periodDurationMillis) {
+      LOG.warn("Profile state dropped as its period is unknown: profile='{}', entity='{}'",
+              state.getDefinition() == null ? null : state.getDefinition().getProfile(), state.getEntity());
+      return Optional.empty();
+    }
+
+    Clock builderClock = clock;
+    if(!period.get().equals(currentPeriod())) {
+      FixedClock fixed = new FixedClock();
+      fixed.setTime(period.get().getStartTimeMillis());
+      builderClock = fixed;
+    }
+
+    return Optional.of(new DefaultProfileBuilder.Builder()
+            .withDefinition(state.getDefinition())
+            .withEntity(state.getEntity())
+            .withPeriodDurationMillis(periodDurationMillis)
+            .withContext(context)
+            .withClock(builderClock)
+            .withState(state.getState())
+            .build());
+  }
+
+  /**
+   * Removes the state of a profile from the state store.
+   * @param stateKey The key of the profile in the state store.
+   * @return The state of the profile or empty, if there is none or it cannot be read.
+   */
+  private Optional<ProfileState> removeState(String stateKey) {
+    Optional<byte[]> bytes = stateStore.get(stateKey);
+    if(!bytes.isPresent()) {
+      return Optional.empty();
+    }
+
+    stateStore.remove(stateKey);
+    try {
+      return Optional.of(ProfileState.fromBytes(bytes.get()));
+
+    } catch(Throwable e) {
+      LOG.error(format("Unable to restore profile state: error=%s", e.getMessage()), e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * @return The current period in processing time.
+   */
+  private ProfilePeriod currentPeriod() {
+    return new ProfilePeriod(clock.currentTimeMillis(), periodDurationMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Spills the state of a profile that was evicted from memory to the state store.
+   */
+  private void onRemoval(RemovalNotification<String, ProfileBuilder> notification) {
+    ProfileBuilder profileBuilder = notification.getValue();
+    if(notification.getCause() == RemovalCause.SIZE && profileBuilder != null && profileBuilder.isInitialized()) {
+      stateStore.put(stateKey(notification.getKey()), new ProfileState(profileBuilder, currentPeriod()).toBytes());
+      spilledProfiles++;
+    }
+  }
+
+  /**
+   * Retrieves the cached ProfileBuilder that is used to build and maintain a single period of
+   * the Profile in event time.  If none exists, one will be created and returned.
+   * @param route The message route.
+   * @param period The profile period.
+   * @param context The Stellar execution context.
+   */
+  public ProfileBuilder getBuilder(MessageRoute route, ProfilePeriod period, Context context) throws ExecutionException {
+    ProfileConfig profile = route.getProfileDefinition();
+    String entity = route.getEntity();
+    return eventTimeCache.get(
+            new PeriodKey(cacheKey(profile, entity), period),
+            () -> {
+              // the builder will always flush the period that it was created for
+              FixedClock clock = new FixedClock();
+              clock.setTime(period.getStartTimeMillis());
+
+              return new DefaultProfileBuilder.Builder()
+                      .withDefinition(profile)
+                      .withEntity(entity)
+                      .withPeriodDurationMillis(periodDurationMillis)
+                      .withContext(context)
+                      .withClock(clock)
+                      .build();
+            });
   }
 
   /**
@@ -137,6 +607,14 @@ public class DefaultMessageDistributor implements MessageDistributor {
     return format("%s:%s", profile, entity);
   }
 
+  /**
+   * Builds the key that is used to store the state of a profile in the state store.
+   * @param cacheKey The key used to lookup the profile within the cache.
+   */
+  private String stateKey(String cacheKey) {
+    return Hashing.murmur3_128().hashString(cacheKey, StandardCharsets.UTF_8).toString();
+  }
+
   public DefaultMessageDistributor withPeriodDurationMillis(long periodDurationMillis) {
     this.periodDurationMillis = periodDurationMillis;
     return this;
@@ -145,4 +623,67 @@ public class DefaultMessageDistributor implements MessageDistributor {
   public DefaultMessageDistributor withPeriodDuration(int duration, TimeUnit units) {
     return withPeriodDurationMillis(units.toMillis(duration));
   }
+
+  public DefaultMessageDistributor withAllowedLatenessMillis(long allowedLatenessMillis) {
+    this.allowedLatenessMillis = allowedLatenessMillis;
+    return this;
+  }
+
+  public DefaultMessageDistributor withAllowedLateness(int duration, TimeUnit units) {
+    return withAllowedLatenessMillis(units.toMillis(duration));
+  }
+
+  /**
+   * @param clock Tells the time in processing time.
+   */
+  public DefaultMessageDistributor withClock(Clock clock) {
+    this.clock = clock;
+    return this;
+  }
+
+  public DefaultMessageDistributor withColumnarProfiles(boolean columnarEnabled) {
+    this.columnarEnabled = columnarEnabled;
+    return this;
+  }
+
+  /**
+   * The number of messages that have been dropped because they arrived too late.
+   */
+  public long getLateMessages() {
+    return lateMessages;
+  }
+
+  /**
+   * The number of profiles that have been spilled to the state store.
+   */
+  public long getSpilledProfiles() {
+    return spilledProfiles;
+  }
+
+  /**
+   * The key used to lookup the state of a single profile period in event time.
+   */
+  private static class PeriodKey {
+
+    private final String key;
+    private final ProfilePeriod period;
+
+    private PeriodKey(String key, ProfilePeriod period) {
+      this.key = key;
+      this.period = period;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      PeriodKey that = (PeriodKey) o;
+      return key.equals(that.key) && period.equals(that.period);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(key, period);
+    }
+  }
 }
@@ -212,6 +212,26 @@ public class DefaultProfileBuilder implements ProfileBuilder, Serializable {
     return definition;
   }
 
+  @Override
+  public String getEntity() {
+    return entity;
+  }
+
+  @Override
+  public Map<String, Object> getState() {
+    return executor.getState();
+  }
+
+  /**
+   * Restores the value of the variables maintained by the builder.  A builder with restored
+   * state is initialized.
+   * @param state The value of each variable.
+   */
+  private void restore(Map<String, Object> state) {
+    state.forEach((var, value) -> executor.assign(var, value));
+    isInitialized = true;
+  }
+
   /**
    * Executes an expression contained within the profile definition.
    * @param expression The expression to execute.
@@ -315,6 +335,7 @@ public class DefaultProfileBuilder implements ProfileBuilder, Serializable {
     private long periodDurationMillis;
     private Clock clock = new WallClock();
     private Context context;
+    private Map<String, Object> state;
 
     public Builder withContext(Context context) {
       this.context = context;
@@ -359,6 +380,14 @@ public class DefaultProfileBuilder implements ProfileBuilder, Serializable {
       return this;
     }
 
+    /**
+     * @param state The state of a previous builder for the same profile and entity that should be restored.
+     */
+    public Builder withState(Map<String, Object> state) {
+      this.state = state;
+      return this;
+    }
+
     /**
      * Construct a ProfileBuilder.
      */
@@ -371,7 +400,12 @@ public class DefaultProfileBuilder implements ProfileBuilder, Serializable {
         throw new IllegalArgumentException(format("missing entity name; got '%s'", entity));
       }
 
-      return new DefaultProfileBuilder(definition, entity, clock, periodDurationMillis, context);
+      DefaultProfileBuilder builder = new DefaultProfileBuilder(definition, entity, clock, periodDurationMillis, context);
+      if(MapUtils.isNotEmpty(state)) {
+        builder.restore(state);
+      }
+
+      return builder;
     }
   }
 }
@@ -23,6 +23,7 @@ package org.apache.metron.profiler;
 import org.apache.metron.common.configuration.profiler.ProfileConfig;
 import org.json.simple.JSONObject;
 
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -65,6 +66,17 @@ public interface ProfileBuilder {
    */
   ProfileConfig getDefinition();
 
+  /**
+   * Returns the name of the entity whose profile is being built.
+   */
+  String getEntity();
+
+  /**
+   * Returns the value of all variables being maintained by the builder.  The state can be
+   * used to restore the builder, if it needs to be recreated.
+   */
+  Map<String, Object> getState();
+
   /**
    * Returns the value of a variable being maintained by the builder.
    * @param variable The variable name.
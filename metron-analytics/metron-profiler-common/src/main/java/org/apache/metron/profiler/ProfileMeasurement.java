@@ -74,6 +74,11 @@ public class ProfileMeasurement {
    */
   private Map<String, Object> triageValues;
 
+  /**
+   * The number of profile periods summarized by a rollup.  Null if the measurement is not a rollup.
+   */
+  private Long rolledUpPeriods;
+
   public ProfileMeasurement() {
     this.groups = Collections.emptyList();
   }
@@ -118,6 +123,11 @@ public class ProfileMeasurement {
     return this;
   }
 
+  public ProfileMeasurement withRolledUpPeriods(Long rolledUpPeriods) {
+    this.rolledUpPeriods = rolledUpPeriods;
+    return this;
+  }
+
   public String getProfileName() {
     return profileName;
   }
@@ -173,4 +183,12 @@ public class ProfileMeasurement {
   public void setTriageValues(Map<String, Object> triageValues) {
     this.triageValues = triageValues;
   }
+
+  public Long getRolledUpPeriods() {
+    return rolledUpPeriods;
+  }
+
+  public void setRolledUpPeriods(Long rolledUpPeriods) {
+    this.rolledUpPeriods = rolledUpPeriods;
+  }
 }
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * A rollup summarizes many consecutive profile periods with a single, coarser measurement.
+ *
+ * Rollups are only produced for profiles whose values can be merged, like statistics
+ * or cardinality estimates.  A rollup is stored alongside the profile's own measurements
+ * under an additional group that identifies the duration of the rollup.  This allows
+ * a client to fetch one rollup in place of the many periods that it covers.
+ */
+public class ProfileRollups {
+
+  /**
+   * The prefix of the group that identifies a rollup.
+   */
+  public static final String ROLLUP_GROUP_PREFIX = "__rollup_";
+
+  private ProfileRollups() {
+  }
+
+  /**
+   * Parses the durations of the rollups to maintain; for example '1 HOURS, 1 DAYS, 7 DAYS'.
+   *
+   * @param spec A comma-separated list of durations, each an amount followed by a TimeUnit.
+   * @return The rollup durations in milliseconds, coarsest first.
+   */
+  public static List<Long> parseDurations(String spec) {
+    List<Long> durations = new ArrayList<>();
+
+    for(String duration : StringUtils.split(StringUtils.defaultString(spec), ',')) {
+      String[] parts = StringUtils.split(duration.trim());
+      if(parts.length != 2) {
+        throw new IllegalArgumentException(format("invalid rollup duration; expected '<amount> <units>', got '%s'", duration));
+      }
+
+      long amount = Long.parseLong(parts[0]);
+      TimeUnit units = TimeUnit.valueOf(parts[1].toUpperCase());
+      if(amount <= 0) {
+        throw new IllegalArgumentException(format("rollup duration must be greater than 0; got '%s'", duration));
+      }
+      durations.add(units.toMillis(amount));
+    }
+
+    durations.sort(Collections.reverseOrder());
+    return durations;
+  }
+
+  /**
+   * Returns the groups under which a rollup is stored.
+   *
+   * @param groups The groups of the profile measurements that are rolled up.
+   * @param durationMillis The duration of the rollup in milliseconds.
+   */
+  public static List<Object> rollupGroups(List<Object> groups, long durationMillis) {
+    List<Object> rollupGroups = new ArrayList<>(groups);
+    rollupGroups.add(ROLLUP_GROUP_PREFIX + durationMillis);
+    return rollupGroups;
+  }
+
+  /**
+   * Can a rollup of the given duration summarize periods of the given duration?  The rollup
+   * must be coarser than the period and contain a whole number of periods.
+   *
+   * @param rollupDurationMillis The duration of the rollup in milliseconds.
+   * @param periodDurationMillis The duration of each profile period in milliseconds.
+   */
+  public static boolean isCompatible(long rollupDurationMillis, long periodDurationMillis) {
+    return rollupDurationMillis > periodDurationMillis && rollupDurationMillis % periodDurationMillis == 0;
+  }
+}
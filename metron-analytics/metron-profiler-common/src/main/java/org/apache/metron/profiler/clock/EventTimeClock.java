@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.clock;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A clock that tells time based on the timestamps contained within the telemetry; also
+ * known as event time.
+ *
+ * A separate watermark is maintained for each partition of the input.  The watermark of a
+ * partition is the largest timestamp that has been seen from that partition.  The time
+ * reported by this clock is the smallest watermark across all partitions, so the clock only
+ * advances once every partition has moved past a given time.
+ *
+ * A partition that has not advanced within the idle timeout, as measured by wall clock time,
+ * no longer holds back the clock.  This prevents an idle partition from stalling the clock
+ * indefinitely.  The time reported by this clock never moves backwards.
+ */
+public class EventTimeClock implements Clock, Serializable {
+
+  /**
+   * The watermark of a single partition.
+   */
+  private static class Watermark implements Serializable {
+
+    /**
+     * The largest timestamp seen from the partition.
+     */
+    private long eventTimeMillis;
+
+    /**
+     * The wall clock time when the partition last advanced.
+     */
+    private long lastAdvancedMillis;
+
+    private Watermark(long eventTimeMillis, long lastAdvancedMillis) {
+      this.eventTimeMillis = eventTimeMillis;
+      this.lastAdvancedMillis = lastAdvancedMillis;
+    }
+  }
+
+  /**
+   * The watermark of each partition.
+   */
+  private Map<Object, Watermark> watermarks;
+
+  /**
+   * A partition that has not advanced in this number of milliseconds is considered idle.
+   */
+  private long idleTimeoutMillis;
+
+  /**
+   * Used to determine which partitions are idle.
+   */
+  private Clock wallClock;
+
+  /**
+   * The last time reported by the clock.
+   */
+  private long currentTimeMillis;
+
+  /**
+   * @param idleTimeoutMillis A partition that has not advanced in this number of milliseconds is considered idle.
+   */
+  public EventTimeClock(long idleTimeoutMillis) {
+    this(idleTimeoutMillis, new WallClock());
+  }
+
+  /**
+   * @param idleTimeoutMillis A partition that has not advanced in this number of milliseconds is considered idle.
+   * @param wallClock The clock used to determine which partitions are idle.
+   */
+  public EventTimeClock(long idleTimeoutMillis, Clock wallClock) {
+    this.watermarks = new HashMap<>();
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.wallClock = wallClock;
+    this.currentTimeMillis = 0;
+  }
+
+  /**
+   * Advance the watermark of a partition.
+   *
+   * @param partition Identifies the partition that the timestamp was received from.
+   * @param eventTimeMillis The timestamp of a message in epoch milliseconds.
+   */
+  public void advance(Object partition, long eventTimeMillis) {
+    long now = wallClock.currentTimeMillis();
+    Watermark watermark = watermarks.get(partition);
+    if(watermark == null) {
+      watermarks.put(partition, new Watermark(eventTimeMillis, now));
+
+    } else if(eventTimeMillis > watermark.eventTimeMillis) {
+      watermark.eventTimeMillis = eventTimeMillis;
+      watermark.lastAdvancedMillis = now;
+    }
+  }
+
+  /**
+   * The current time in epoch milliseconds; the smallest watermark across all active partitions.
+   */
+  @Override
+  public long currentTimeMillis() {
+    long now = wallClock.currentTimeMillis();
+    long active = Long.MAX_VALUE;
+    long idle = Long.MIN_VALUE;
+
+    for(Watermark watermark : watermarks.values()) {
+      if(now - watermark.lastAdvancedMillis < idleTimeoutMillis) {
+        active = Math.min(active, watermark.eventTimeMillis);
+      } else {
+        idle = Math.max(idle, watermark.eventTimeMillis);
+      }
+    }
+
+    // if every partition is idle, there is nothing left to wait for
+    long candidate = (active != Long.MAX_VALUE) ? active : idle;
+    currentTimeMillis = Math.max(currentTimeMillis, candidate);
+    return currentTimeMillis;
+  }
+}
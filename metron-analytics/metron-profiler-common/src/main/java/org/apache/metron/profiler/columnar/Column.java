@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.columnar;
+
+import org.apache.metron.stellar.dsl.Context;
+import org.json.simple.JSONObject;
+
+/**
+ * Holds the value of a single profile variable for every entity of a ColumnarProfile.
+ *
+ * Each entity is assigned an integer id by the ColumnarProfile which is used to index
+ * into the column.
+ */
+interface Column {
+
+  /**
+   * Ensures that the column can hold values for ids less than the given capacity.
+   * @param capacity The number of ids the column must hold.
+   */
+  void ensureCapacity(int capacity);
+
+  /**
+   * Initializes the value for an entity; the equivalent of the 'init' expression.
+   * @param id The id of the entity.
+   * @param context The Stellar execution context.
+   */
+  void init(int id, Context context);
+
+  /**
+   * Updates the value for an entity; the equivalent of the 'update' expression.
+   * @param id The id of the entity.
+   * @param message The message being applied to the profile.
+   * @param context The Stellar execution context.
+   */
+  void update(int id, JSONObject message, Context context);
+
+  /**
+   * Can partial values, built separately from the same 'init' expression, be merged?
+   */
+  boolean isMergeable();
+
+  /**
+   * Merges a partial value into the value for an entity.
+   * @param id The id of the entity.
+   * @param partial The partial value.
+   * @param context The Stellar execution context.
+   */
+  void merge(int id, Object partial, Context context);
+
+  /**
+   * Returns the value for an entity.
+   * @param id The id of the entity.
+   */
+  Object get(int id);
+
+  /**
+   * Clears the value for an entity so that the id can be reused.
+   * @param id The id of the entity.
+   */
+  void clear(int id);
+}
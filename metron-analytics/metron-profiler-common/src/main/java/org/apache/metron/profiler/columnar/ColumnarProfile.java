@@ -0,0 +1,567 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.columnar;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.apache.metron.profiler.DefaultProfileBuilder;
+import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.clock.Clock;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.StellarFunction;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+
+/**
+ * Maintains the state of a single profile for all of its entities in columns; one column
+ * for each profile variable, indexed by an integer id assigned to each entity.
+ *
+ * Only profiles whose 'update' expressions are recognized aggregations are supported.  These
+ * are updated directly, without executing the Stellar expressions for each message.
+ * <ul>
+ *   <li>A count or sum; initialized to a numeric literal and updated with "x + 1" or "x + field".</li>
+ *   <li>A statistical summary; initialized with STATS_INIT and updated with "STATS_ADD(x, field)".</li>
+ *   <li>A cardinality estimate; initialized with HLLP_INIT and updated with "HLLP_ADD(x, field)".</li>
+ * </ul>
+ *
+ * When a profile is flushed, the 'result', 'triage' and 'groupBy' expressions are executed
+ * for each entity, exactly as they are for any other profile.  Use {@link #of} to create a
+ * ColumnarProfile; if a profile is not supported, the DefaultProfileBuilder should be used.
+ *
+ * If every variable of a profile can be merged, the partial state of a profile can be built
+ * separately, then drained and merged into another ColumnarProfile.  This allows messages to be
+ * combined before they are sent to the bolt that builds the profile.
+ */
+public class ColumnarProfile {
+
+  protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String IDENTIFIER = "[a-zA-Z_$](?:[a-zA-Z_.:0-9]*[a-zA-Z_.0-9])?";
+  private static final String NUMBER = "-?(?:0|[1-9][0-9]*)(?:\\.[0-9]+)?";
+  private static final String OPERAND = IDENTIFIER + "|" + NUMBER;
+
+  /**
+   * Matches an addition of two operands; "x + 1" or "x + field".
+   */
+  private static final Pattern ADD = Pattern.compile(
+          format("^\\s*(%s)\\s*\\+\\s*(%s)\\s*$", OPERAND, OPERAND));
+
+  /**
+   * Matches a function call passed a variable and a field; "STATS_ADD(x, field)".
+   */
+  private static final Pattern FUNCTION_UPDATE = Pattern.compile(
+          format("^\\s*([A-Z_]+)\\s*\\(\\s*(%s)\\s*,\\s*(%s)\\s*\\)\\s*$", IDENTIFIER, IDENTIFIER));
+
+  /**
+   * Matches a function call passed zero or more numeric literals; "STATS_INIT()".
+   */
+  private static final Pattern FUNCTION_INIT = Pattern.compile(
+          format("^\\s*([A-Z_]+)\\s*\\(\\s*((?:%s)(?:\\s*,\\s*(?:%s))*)?\\s*\\)\\s*$", NUMBER, NUMBER));
+
+  /**
+   * The update functions that are supported along with the function that must initialize them.
+   */
+  private static final Map<String, String> FUNCTIONS = ImmutableMap.of(
+          "STATS_ADD", "STATS_INIT",
+          "HLLP_ADD", "HLLP_INIT");
+
+  /**
+   * The update functions whose values can be merged along with the function that merges them.
+   */
+  private static final Map<String, String> MERGE_FUNCTIONS = ImmutableMap.of(
+          "STATS_ADD", "STATS_MERGE",
+          "HLLP_ADD", "HLLP_MERGE");
+
+  /**
+   * Reserved words that cannot be used as the name of a field.
+   */
+  private static final Set<String> RESERVED = ImmutableSet.of(
+          "in", "and", "or", "not", "true", "false", "if", "then", "else", "null", "exists");
+
+  /**
+   * The definition of the profile.
+   */
+  private final ProfileConfig definition;
+
+  /**
+   * The duration of each period in milliseconds.
+   */
+  private final long periodDurationMillis;
+
+  /**
+   * Tells time for flushing and expiring entities.
+   */
+  private final Clock clock;
+
+  /**
+   * The columns; one for each profile variable.
+   */
+  private final Map<String, Column> columns;
+
+  /**
+   * The id assigned to each entity.
+   */
+  private final Map<String, Integer> ids;
+
+  /**
+   * The entity assigned to each id.  Null, if the id is not in use.
+   */
+  private String[] entities;
+
+  /**
+   * The last time in epoch milliseconds that a message was applied to each entity.
+   */
+  private long[] lastAccess;
+
+  /**
+   * The ids of entities that have been initialized in the current period.
+   */
+  private final BitSet initialized;
+
+  /**
+   * Ids that have been released and can be reused.
+   */
+  private int[] freeIds;
+  private int freeCount;
+
+  /**
+   * The next id to assign, if there are no free ids.
+   */
+  private int nextId;
+
+  /**
+   * The Stellar execution context.
+   */
+  private Context context;
+
+  private ColumnarProfile(ProfileConfig definition,
+                          long periodDurationMillis,
+                          Clock clock,
+                          Map<String, Column> columns,
+                          Context context) {
+    this.definition = definition;
+    this.periodDurationMillis = periodDurationMillis;
+    this.clock = clock;
+    this.columns = columns;
+    this.context = context;
+    this.ids = new HashMap<>();
+    this.entities = new String[0];
+    this.lastAccess = new long[0];
+    this.initialized = new BitSet();
+    this.freeIds = new int[0];
+  }
+
+  /**
+   * Creates a ColumnarProfile, if the profile is supported.
+   *
+   * @param definition The profile definition.
+   * @param periodDurationMillis The duration of each period in milliseconds.
+   * @param clock Tells time for flushing and expiring entities.
+   * @param context The Stellar execution context.
+   * @return The ColumnarProfile or empty, if the profile is not supported.
+   */
+  public static Optional<ColumnarProfile> of(ProfileConfig definition,
+                                             long periodDurationMillis,
+                                             Clock clock,
+                                             Context context) {
+    Map<String, String> init = definition.getInit();
+    Map<String, String> update = definition.getUpdate();
+    if(init == null || update == null || update.isEmpty() || !init.keySet().equals(update.keySet())) {
+      return Optional.empty();
+    }
+
+    StellarFunctions.initialize(context);
+    Map<String, Column> columns = new LinkedHashMap<>();
+    for(Map.Entry<String, String> entry : update.entrySet()) {
+      String variable = entry.getKey();
+      Optional<Column> column = numericColumn(variable, init.get(variable), entry.getValue(), update.keySet());
+      if(!column.isPresent()) {
+        column = functionColumn(variable, init.get(variable), entry.getValue(), update.keySet());
+      }
+      if(!column.isPresent()) {
+        LOG.debug("Profile not supported by columnar state: profile={}, variable={}", definition.getProfile(), variable);
+        return Optional.empty();
+      }
+      columns.put(variable, column.get());
+    }
+
+    return Optional.of(new ColumnarProfile(definition, periodDurationMillis, clock, columns, context));
+  }
+
+  /**
+   * Apply a message to the profile.
+   *
+   * @param entity The entity that the message applies to.
+   * @param message The message to apply.
+   * @param context The Stellar execution context.
+   */
+  public void apply(String entity, JSONObject message, Context context) {
+    this.context = context;
+    int id = idOf(entity);
+    lastAccess[id] = clock.currentTimeMillis();
+
+    try {
+      if(!initialized.get(id)) {
+        for(Column column : columns.values()) {
+          column.init(id, context);
+        }
+        initialized.set(id);
+      }
+
+      for(Column column : columns.values()) {
+        column.update(id, message, context);
+      }
+
+    } catch(Throwable e) {
+      LOG.error(format("Unable to apply message to profile: %s", e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Flushes the profile for every entity that has been initialized in the current period.  Any
+   * entity that has not received a message within the time-to-live is forgotten.
+   *
+   * @param profileTimeToLiveMillis The time-to-live of an entity in milliseconds.
+   * @return The profile measurements; one for each entity.
+   */
+  public List<ProfileMeasurement> flush(long profileTimeToLiveMillis) {
+    List<ProfileMeasurement> measurements = new ArrayList<>();
+    long now = clock.currentTimeMillis();
+
+    for(int id = 0; id < nextId; id++) {
+      String entity = entities[id];
+      if(entity == null) {
+        continue;
+      }
+
+      if(initialized.get(id)) {
+        flush(id, entity).ifPresent(measurements::add);
+      }
+
+      if(now - lastAccess[id] >= profileTimeToLiveMillis) {
+        release(id);
+      }
+    }
+
+    return measurements;
+  }
+
+  /**
+   * Merges the partial state of an entity, drained from another ColumnarProfile, into this profile.
+   *
+   * @param entity The entity that the state applies to.
+   * @param partial The partial value of each variable.
+   * @param context The Stellar execution context.
+   */
+  public void merge(String entity, Map<String, Object> partial, Context context) {
+    this.context = context;
+    int id = idOf(entity);
+    lastAccess[id] = clock.currentTimeMillis();
+
+    try {
+      if(!initialized.get(id)) {
+        for(Column column : columns.values()) {
+          column.init(id, context);
+        }
+        initialized.set(id);
+      }
+
+      for(Map.Entry<String, Column> entry : columns.entrySet()) {
+        entry.getValue().merge(id, partial.get(entry.getKey()), context);
+      }
+
+    } catch(Throwable e) {
+      LOG.error(format("Unable to merge partial state into profile: %s", e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Removes and returns the partial state of every entity.
+   *
+   * @return The partial value of each variable, for each entity.
+   */
+  public Map<String, Map<String, Object>> drain() {
+    Map<String, Map<String, Object>> partials = new HashMap<>();
+    for(int id = 0; id < nextId; id++) {
+      String entity = entities[id];
+      if(entity == null) {
+        continue;
+      }
+
+      if(initialized.get(id)) {
+        Map<String, Object> state = new HashMap<>();
+        for(Map.Entry<String, Column> entry : columns.entrySet()) {
+          state.put(entry.getKey(), entry.getValue().get(id));
+        }
+        partials.put(entity, state);
+      }
+      release(id);
+    }
+
+    return partials;
+  }
+
+  /**
+   * Can the partial state of this profile be drained and merged into another?
+   */
+  public boolean isMergeable() {
+    return columns.values().stream().allMatch(Column::isMergeable);
+  }
+
+  /**
+   * Returns the current value of a variable for an entity.
+   *
+   * @param entity The entity.
+   * @param variable The name of the variable.
+   */
+  public Optional<Object> valueOf(String entity, String variable) {
+    Integer id = ids.get(entity);
+    Column column = columns.get(variable);
+    if(id == null || column == null || !initialized.get(id)) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(column.get(id));
+  }
+
+  /**
+   * The number of entities whose state is maintained.
+   */
+  public int size() {
+    return ids.size();
+  }
+
+  public ProfileConfig getDefinition() {
+    return definition;
+  }
+
+  /**
+   * Flushes the profile for a single entity and clears its state.
+   *
+   * The 'result', 'triage' and 'groupBy' expressions are executed by a DefaultProfileBuilder
+   * restored from the state of the entity.
+   *
+   * @param id The id of the entity.
+   * @param entity The entity.
+   */
+  private Optional<ProfileMeasurement> flush(int id, String entity) {
+    Map<String, Object> state = new HashMap<>();
+    for(Map.Entry<String, Column> entry : columns.entrySet()) {
+      state.put(entry.getKey(), entry.getValue().get(id));
+      entry.getValue().clear(id);
+    }
+    initialized.clear(id);
+
+    return new DefaultProfileBuilder.Builder()
+            .withDefinition(definition)
+            .withEntity(entity)
+            .withPeriodDurationMillis(periodDurationMillis)
+            .withContext(context)
+            .withClock(clock)
+            .withState(state)
+            .build()
+            .flush();
+  }
+
+  /**
+   * Returns the id of an entity, assigning one if needed.
+   * @param entity The entity.
+   */
+  private int idOf(String entity) {
+    Integer id = ids.get(entity);
+    if(id != null) {
+      return id;
+    }
+
+    int next = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+    if(next >= entities.length) {
+      int capacity = Math.max(16, entities.length * 2);
+      entities = Arrays.copyOf(entities, capacity);
+      lastAccess = Arrays.copyOf(lastAccess, capacity);
+      for(Column column : columns.values()) {
+        column.ensureCapacity(capacity);
+      }
+    }
+
+    entities[next] = entity;
+    ids.put(entity, next);
+    return next;
+  }
+
+  /**
+   * Forgets an entity so that its id can be reused.
+   * @param id The id of the entity.
+   */
+  private void release(int id) {
+    ids.remove(entities[id]);
+    entities[id] = null;
+    for(Column column : columns.values()) {
+      column.clear(id);
+    }
+    initialized.clear(id);
+
+    if(freeCount == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, Math.max(16, freeIds.length * 2));
+    }
+    freeIds[freeCount++] = id;
+  }
+
+  /**
+   * Creates a column for a count or sum, if the expressions are supported.
+   *
+   * @param variable The name of the variable.
+   * @param init The 'init' expression; for example "0".
+   * @param update The 'update' expression; for example "x + 1" or "x + field".
+   * @param variables The names of all profile variables.
+   */
+  private static Optional<Column> numericColumn(String variable, String init, String update, Set<String> variables) {
+    Optional<Number> initial = toNumber(init);
+    Matcher matcher = ADD.matcher(update);
+    if(!initial.isPresent() || !matcher.matches()) {
+      return Optional.empty();
+    }
+
+    // the variable can be on either side of the addition
+    String operand;
+    if(variable.equals(matcher.group(1))) {
+      operand = matcher.group(2);
+    } else if(variable.equals(matcher.group(2))) {
+      operand = matcher.group(1);
+    } else {
+      return Optional.empty();
+    }
+
+    Optional<Number> constant = toNumber(operand);
+    if(constant.isPresent()) {
+      return Optional.of(new NumericColumn(initial.get(), constant.get(), null));
+
+    } else if(isField(operand, variables)) {
+      return Optional.of(new NumericColumn(initial.get(), null, operand));
+
+    } else {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Creates a column for a function like STATS_ADD or HLLP_ADD, if the expressions are supported.
+   *
+   * @param variable The name of the variable.
+   * @param init The 'init' expression; for example "STATS_INIT()".
+   * @param update The 'update' expression; for example "STATS_ADD(x, field)".
+   * @param variables The names of all profile variables.
+   */
+  private static Optional<Column> functionColumn(String variable, String init, String update, Set<String> variables) {
+    Matcher updateMatcher = FUNCTION_UPDATE.matcher(update);
+    Matcher initMatcher = FUNCTION_INIT.matcher(init);
+    if(!updateMatcher.matches() || !initMatcher.matches()) {
+      return Optional.empty();
+    }
+
+    String updateName = updateMatcher.group(1);
+    String initName = initMatcher.group(1);
+    String field = updateMatcher.group(3);
+    if(!initName.equals(FUNCTIONS.get(updateName))
+            || !variable.equals(updateMatcher.group(2))
+            || !isField(field, variables)) {
+      return Optional.empty();
+    }
+
+    List<Object> initArgs = new ArrayList<>();
+    if(initMatcher.group(2) != null) {
+      for(String arg : initMatcher.group(2).split(",")) {
+        Optional<Number> number = toNumber(arg);
+        if(!number.isPresent()) {
+          return Optional.empty();
+        }
+        initArgs.add(number.get());
+      }
+    }
+
+    try {
+      StellarFunction initFunction = StellarFunctions.FUNCTION_RESOLVER().apply(initName);
+      StellarFunction updateFunction = StellarFunctions.FUNCTION_RESOLVER().apply(updateName);
+
+      // statistics that maintain a rolling window of values cannot be merged
+      StellarFunction mergeFunction = null;
+      boolean windowed = "STATS_INIT".equals(initName) && initArgs.size() > 0 && ((Number) initArgs.get(0)).intValue() > 0;
+      if(!windowed) {
+        mergeFunction = StellarFunctions.FUNCTION_RESOLVER().apply(MERGE_FUNCTIONS.get(updateName));
+      }
+
+      return Optional.of(new FunctionColumn(initFunction, initArgs, updateFunction, field, mergeFunction));
+
+    } catch(IllegalStateException e) {
+      // the functions are not available
+      LOG.debug("Unable to resolve function: {}", e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Is the operand a reference to a message field?
+   * @param operand The operand.
+   * @param variables The names of all profile variables, which would shadow the field.
+   */
+  private static boolean isField(String operand, Set<String> variables) {
+    return operand.matches(IDENTIFIER)
+            && !variables.contains(operand)
+            && !RESERVED.contains(operand.toLowerCase());
+  }
+
+  /**
+   * Parses a numeric literal the way that Stellar would.
+   * @param literal The literal.
+   * @return The number or empty, if the literal is not a supported numeric literal.
+   */
+  private static Optional<Number> toNumber(String literal) {
+    String value = literal.trim();
+    if(!value.matches(NUMBER)) {
+      return Optional.empty();
+    }
+
+    try {
+      if(value.contains(".")) {
+        return Optional.of(Double.parseDouble(value));
+      }
+      return Optional.of(Integer.parseInt(value));
+
+    } catch(NumberFormatException e) {
+      // for example, an integer literal that is too large
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.columnar;
+
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.StellarFunction;
+import org.json.simple.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A column for a variable that is initialized by one Stellar function and then updated by
+ * another, which is passed the current value and the value of a message field; for example,
+ * STATS_INIT and STATS_ADD or HLLP_INIT and HLLP_ADD.
+ *
+ * The functions are called directly, rather than by parsing and executing an expression for
+ * every message.
+ */
+class FunctionColumn implements Column {
+
+  /**
+   * The function that initializes the value.
+   */
+  private final StellarFunction initFunction;
+
+  /**
+   * The literal arguments passed to the init function.
+   */
+  private final List<Object> initArgs;
+
+  /**
+   * The function that updates the value.
+   */
+  private final StellarFunction updateFunction;
+
+  /**
+   * The name of the message field passed to the update function.
+   */
+  private final String field;
+
+  /**
+   * The function that merges a list of values.  Null, if the values cannot be merged.
+   */
+  private final StellarFunction mergeFunction;
+
+  /**
+   * The value of each entity.
+   */
+  private Object[] values;
+
+  /**
+   * @param initFunction The function that initializes the value.
+   * @param initArgs The literal arguments passed to the init function.
+   * @param updateFunction The function that updates the value.
+   * @param field The name of the message field passed to the update function.
+   * @param mergeFunction The function that merges a list of values; or null, if the values cannot be merged.
+   */
+  FunctionColumn(StellarFunction initFunction,
+                 List<Object> initArgs,
+                 StellarFunction updateFunction,
+                 String field,
+                 StellarFunction mergeFunction) {
+    this.initFunction = initFunction;
+    this.initArgs = initArgs;
+    this.updateFunction = updateFunction;
+    this.field = field;
+    this.mergeFunction = mergeFunction;
+    this.values = new Object[0];
+  }
+
+  @Override
+  public void ensureCapacity(int capacity) {
+    if(capacity > values.length) {
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  @Override
+  public void init(int id, Context context) {
+    values[id] = call(initFunction, new ArrayList<>(initArgs), context);
+  }
+
+  @Override
+  public void update(int id, JSONObject message, Context context) {
+    List<Object> args = new ArrayList<>(2);
+    args.add(values[id]);
+    args.add(message.get(field));
+    values[id] = call(updateFunction, args, context);
+  }
+
+  @Override
+  public boolean isMergeable() {
+    return mergeFunction != null;
+  }
+
+  @Override
+  public void merge(int id, Object partial, Context context) {
+    if(partial == null) {
+      return;
+    }
+    if(values[id] == null) {
+      values[id] = partial;
+      return;
+    }
+
+    List<Object> args = new ArrayList<>(1);
+    args.add(Arrays.asList(values[id], partial));
+    values[id] = call(mergeFunction, args, context);
+  }
+
+  @Override
+  public Object get(int id) {
+    return values[id];
+  }
+
+  @Override
+  public void clear(int id) {
+    values[id] = null;
+  }
+
+  private static Object call(StellarFunction function, List<Object> args, Context context) {
+    if(!function.isInitialized()) {
+      function.initialize(context);
+    }
+    return function.apply(args, context);
+  }
+}
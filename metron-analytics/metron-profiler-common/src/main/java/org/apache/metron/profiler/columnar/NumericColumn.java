@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.columnar;
+
+import org.apache.metron.stellar.dsl.Context;
+import org.json.simple.JSONObject;
+
+import java.util.Arrays;
+
+import static java.lang.String.format;
+
+/**
+ * A column for a variable that is initialized to a numeric literal and then incremented
+ * by either a numeric literal or the value of a message field; for example a count or a sum.
+ *
+ * The values are held in primitive arrays rather than as boxed numbers.  The type of each value
+ * follows the same promotion rules as Stellar's addition; Integer, Long, Float then Double.  Like
+ * Stellar, a missing field is treated as 0.
+ */
+class NumericColumn implements Column {
+
+  private static final byte INTEGER = 0;
+  private static final byte LONG = 1;
+  private static final byte FLOAT = 2;
+  private static final byte DOUBLE = 3;
+
+  /**
+   * The value that each entity is initialized to.
+   */
+  private final Number initial;
+
+  /**
+   * The constant to add on each update.  Null, if a field is added instead.
+   */
+  private final Number constant;
+
+  /**
+   * The name of the message field to add on each update.  Null, if a constant is added instead.
+   */
+  private final String field;
+
+  /**
+   * The numeric type of each value.
+   */
+  private byte[] types;
+
+  /**
+   * The value of each Integer or Long.
+   */
+  private long[] longs;
+
+  /**
+   * The value of each Float or Double.
+   */
+  private double[] doubles;
+
+  /**
+   * @param initial The value that each entity is initialized to.
+   * @param constant The constant to add on each update; or null.
+   * @param field The name of the message field to add on each update; or null.
+   */
+  NumericColumn(Number initial, Number constant, String field) {
+    this.initial = initial;
+    this.constant = constant;
+    this.field = field;
+    this.types = new byte[0];
+    this.longs = new long[0];
+    this.doubles = new double[0];
+  }
+
+  @Override
+  public void ensureCapacity(int capacity) {
+    if(capacity > types.length) {
+      types = Arrays.copyOf(types, capacity);
+      longs = Arrays.copyOf(longs, capacity);
+      doubles = Arrays.copyOf(doubles, capacity);
+    }
+  }
+
+  @Override
+  public void init(int id, Context context) {
+    byte type = typeOf(initial);
+    types[id] = type;
+    if(type >= FLOAT) {
+      doubles[id] = initial.doubleValue();
+    } else {
+      longs[id] = initial.longValue();
+    }
+  }
+
+  @Override
+  public void update(int id, JSONObject message, Context context) {
+    Number increment = constant;
+    if(increment == null) {
+      Object value = message.get(field);
+      if(value == null) {
+        increment = 0;
+
+      } else if(value instanceof Number) {
+        increment = (Number) value;
+
+      } else {
+        throw new IllegalArgumentException(format(
+                "Unable to add non-numeric value: field=%s, value=%s", field, value));
+      }
+    }
+
+    add(id, increment);
+  }
+
+  /**
+   * A count or sum can be merged, so long as it is initialized to 0.
+   */
+  @Override
+  public boolean isMergeable() {
+    return initial.doubleValue() == 0;
+  }
+
+  @Override
+  public void merge(int id, Object partial, Context context) {
+    if(partial != null) {
+      add(id, (Number) partial);
+    }
+  }
+
+  @Override
+  public Object get(int id) {
+    switch(types[id]) {
+      case DOUBLE:
+        return doubles[id];
+
+      case FLOAT:
+        return (float) doubles[id];
+
+      case LONG:
+        return longs[id];
+
+      default:
+        return (int) longs[id];
+    }
+  }
+
+  @Override
+  public void clear(int id) {
+    types[id] = INTEGER;
+    longs[id] = 0;
+    doubles[id] = 0;
+  }
+
+  /**
+   * Adds to the value of an entity.
+   * @param id The id of the entity.
+   * @param increment The number to add.
+   */
+  private void add(int id, Number increment) {
+    byte type = (byte) Math.max(types[id], typeOf(increment));
+    switch(type) {
+      case DOUBLE:
+        doubles[id] = current(id) + increment.doubleValue();
+        break;
+
+      case FLOAT:
+        doubles[id] = (types[id] == FLOAT ? (float) doubles[id] : (float) longs[id]) + increment.floatValue();
+        break;
+
+      case LONG:
+        longs[id] = longs[id] + increment.longValue();
+        break;
+
+      default:
+        longs[id] = (int) longs[id] + increment.intValue();
+        break;
+    }
+    types[id] = type;
+  }
+
+  /**
+   * Returns the current value of an entity as a double.
+   * @param id The id of the entity.
+   */
+  private double current(int id) {
+    return types[id] >= FLOAT ? doubles[id] : longs[id];
+  }
+
+  /**
+   * Returns the type of a number following Stellar's rules for addition.
+   * @param number The number.
+   */
+  private static byte typeOf(Number number) {
+    if(number instanceof Double) {
+      return DOUBLE;
+
+    } else if(number instanceof Float) {
+      return FLOAT;
+
+    } else if(number instanceof Long) {
+      return LONG;
+
+    } else {
+      return INTEGER;
+    }
+  }
+}
@@ -26,7 +26,8 @@ import org.apache.metron.profiler.ProfileMeasurement;
 import org.apache.metron.hbase.bolt.mapper.ColumnList;
 
 /**
- * A ColumnBuilder that writes only the value of a ProfileMeasurement.
+ * A ColumnBuilder that writes only the value of a ProfileMeasurement, along with the number
+ * of profile periods that it summarizes when the measurement is a rollup.
  */
 public class ValueOnlyColumnBuilder implements ColumnBuilder {
 
@@ -50,6 +51,9 @@ public class ValueOnlyColumnBuilder implements ColumnBuilder {
 
     ColumnList cols = new ColumnList();
     cols.addColumn(columnFamilyBytes, getColumnQualifier("value"), SerDeUtils.toBytes(measurement.getProfileValue()));
+    if(measurement.getRolledUpPeriods() != null) {
+      cols.addColumn(columnFamilyBytes, getColumnQualifier("periods"), Bytes.toBytes(measurement.getRolledUpPeriods()));
+    }
 
     return cols;
   }
@@ -69,6 +73,9 @@ public class ValueOnlyColumnBuilder implements ColumnBuilder {
 
     if("value".equals(fieldName)) {
       return Bytes.toBytes("value");
+
+    } else if("periods".equals(fieldName)) {
+      return Bytes.toBytes("periods");
     }
 
     throw new IllegalArgumentException(("unexpected field name: " + fieldName));
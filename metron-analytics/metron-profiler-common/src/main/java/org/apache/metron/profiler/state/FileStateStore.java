@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.state;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/**
+ * A ProfileStateStore that keeps the state of each profile in a local file.
+ *
+ * The file is an append-only log of records.  Only an index that maps each key to the position
+ * of its state within the file is kept on the heap.  The state itself is read back on demand,
+ * which is served by the operating system's page cache for recently written state.
+ *
+ * The index is rebuilt from the log when the store is opened, so any state that was written
+ * before a restart is recovered.  The log is compacted once most of it is no longer live.
+ */
+public class FileStateStore implements ProfileStateStore {
+
+  protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * The length of the state in a record that removes a key.
+   */
+  private static final int REMOVED = -1;
+
+  /**
+   * The log is not compacted until it is at least this large.
+   */
+  private static final long MIN_COMPACTION_BYTES = 64 * 1024 * 1024;
+
+  /**
+   * The position of a key's state within the log.
+   */
+  private static class Entry {
+
+    private final long position;
+    private final int length;
+    private final int recordLength;
+
+    private Entry(long position, int length, int recordLength) {
+      this.position = position;
+      this.length = length;
+      this.recordLength = recordLength;
+    }
+  }
+
+  /**
+   * The file containing the log.
+   */
+  private File file;
+
+  private FileChannel channel;
+
+  /**
+   * Maps each key to the position of its state within the log.
+   */
+  private Map<String, Entry> index;
+
+  /**
+   * The end of the log.
+   */
+  private long end;
+
+  /**
+   * The number of bytes in the log that belong to live records.
+   */
+  private long liveBytes;
+
+  /**
+   * @param file The file containing the log.  It is created, if it does not exist.
+   */
+  public FileStateStore(File file) {
+    this.file = file;
+    this.index = new HashMap<>();
+    try {
+      File parent = file.getAbsoluteFile().getParentFile();
+      if(parent != null) {
+        Files.createDirectories(parent.toPath());
+      }
+      this.channel = open(file);
+      recover();
+
+    } catch(IOException e) {
+      throw new IllegalStateException(format("Unable to open profile state: file=%s", file), e);
+    }
+  }
+
+  @Override
+  public void put(String key, byte[] state) {
+    try {
+      long position = end;
+      int recordLength = append(channel, position, key, state);
+      Entry previous = index.put(key, new Entry(valuePosition(position, key), state.length, recordLength));
+      if(previous != null) {
+        liveBytes -= previous.recordLength;
+      }
+      liveBytes += recordLength;
+      end += recordLength;
+      maybeCompact();
+
+    } catch(IOException e) {
+      throw new IllegalStateException(format("Unable to store profile state: file=%s", file), e);
+    }
+  }
+
+  @Override
+  public Optional<byte[]> get(String key) {
+    Entry entry = index.get(key);
+    if(entry == null) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(read(channel, entry));
+
+    } catch(IOException e) {
+      throw new IllegalStateException(format("Unable to read profile state: file=%s", file), e);
+    }
+  }
+
+  @Override
+  public void remove(String key) {
+    Entry previous = index.remove(key);
+    if(previous == null) {
+      return;
+    }
+
+    try {
+      liveBytes -= previous.recordLength;
+      end += append(channel, end, key, null);
+
+    } catch(IOException e) {
+      throw new IllegalStateException(format("Unable to remove profile state: file=%s", file), e);
+    }
+  }
+
+  @Override
+  public Set<String> keys() {
+    return new HashSet<>(index.keySet());
+  }
+
+  @Override
+  public void clear() {
+    try {
+      channel.truncate(0);
+      index.clear();
+      end = 0;
+      liveBytes = 0;
+
+    } catch(IOException e) {
+      throw new IllegalStateException(format("Unable to clear profile state: file=%s", file), e);
+    }
+  }
+
+  @Override
+  public void sync() {
+    try {
+      channel.force(false);
+
+    } catch(IOException e) {
+      throw new IllegalStateException(format("Unable to sync profile state: file=%s", file), e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * The number of profiles whose state has been stored.
+   */
+  public int size() {
+    return index.size();
+  }
+
+  /**
+   * Rebuilds the index from the log.  A record that was only partially written, because of
+   * a failure, is discarded.
+   */
+  private void recover() throws IOException {
+    long position = 0;
+    DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+    try {
+      while(position < channel.size()) {
+        byte[] key = new byte[input.readInt()];
+        input.readFully(key);
+        int length = input.readInt();
+        int recordLength = Integer.BYTES + key.length + Integer.BYTES + Math.max(length, 0);
+        skipFully(input, Math.max(length, 0));
+
+        String k = new String(key, StandardCharsets.UTF_8);
+        Entry previous = (length == REMOVED)
+                ? index.remove(k)
+                : index.put(k, new Entry(valuePosition(position, k), length, recordLength));
+        if(previous != null) {
+          liveBytes -= previous.recordLength;
+        }
+        if(length != REMOVED) {
+          liveBytes += recordLength;
+        }
+        position += recordLength;
+      }
+
+    } catch(EOFException | NegativeArraySizeException e) {
+      LOG.warn("Discarding incomplete profile state: file={}, position={}", file, position);
+      channel.truncate(position);
+    }
+
+    end = position;
+    LOG.debug("Recovered profile state: file={}, profiles={}", file, index.size());
+  }
+
+  /**
+   * Rewrites the log so that it contains only live records, once most of it is no longer live.
+   */
+  private void maybeCompact() throws IOException {
+    if(end < MIN_COMPACTION_BYTES || liveBytes * 2 > end) {
+      return;
+    }
+
+    File compacted = new File(file.getPath() + ".compact");
+    Map<String, Entry> compactedIndex = new HashMap<>();
+    long position = 0;
+    try(FileChannel out = open(compacted)) {
+      out.truncate(0);
+      for(Map.Entry<String, Entry> entry : index.entrySet()) {
+        String key = entry.getKey();
+        byte[] state = read(channel, entry.getValue());
+        int recordLength = append(out, position, key, state);
+        compactedIndex.put(key, new Entry(valuePosition(position, key), state.length, recordLength));
+        position += recordLength;
+      }
+      out.force(false);
+    }
+
+    channel.close();
+    Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    channel = open(file);
+    index = compactedIndex;
+    end = position;
+    liveBytes = position;
+    LOG.debug("Compacted profile state: file={}, profiles={}, bytes={}", file, index.size(), end);
+  }
+
+  private static FileChannel open(File file) throws IOException {
+    return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Appends a record to the log.
+   * @param channel The log.
+   * @param position The position of the record.
+   * @param key The key.
+   * @param state The state or null, if the key is being removed.
+   * @return The length of the record.
+   */
+  private static int append(FileChannel channel, long position, String key, byte[] state) throws IOException {
+    byte[] k = key.getBytes(StandardCharsets.UTF_8);
+    int length = (state == null) ? 0 : state.length;
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + k.length + Integer.BYTES + length);
+    buffer.putInt(k.length);
+    buffer.put(k);
+    buffer.putInt((state == null) ? REMOVED : state.length);
+    if(state != null) {
+      buffer.put(state);
+    }
+    buffer.flip();
+
+    while(buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+    return buffer.limit();
+  }
+
+  private static void skipFully(InputStream input, long n) throws IOException {
+    while(n > 0) {
+      long skipped = input.skip(n);
+      if(skipped <= 0) {
+        if(input.read() < 0) {
+          throw new EOFException();
+        }
+        skipped = 1;
+      }
+      n -= skipped;
+    }
+  }
+
+  private static byte[] read(FileChannel channel, Entry entry) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+    long position = entry.position;
+    while(buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if(read < 0) {
+        throw new EOFException();
+      }
+      position += read;
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Returns the position of the state within a record.
+   * @param position The position of the record.
+   * @param key The key.
+   */
+  private static long valuePosition(long position, String key) {
+    return position + Integer.BYTES + key.getBytes(StandardCharsets.UTF_8).length + Integer.BYTES;
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.state;
+
+import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.apache.metron.common.utils.SerDeUtils;
+import org.apache.metron.profiler.ProfileBuilder;
+import org.apache.metron.profiler.ProfilePeriod;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the state maintained by a ProfileBuilder.  This is all that is needed
+ * to recreate the ProfileBuilder, if its state is spilled or checkpointed to a
+ * ProfileStateStore.  The state only describes the period in which it was saved; it must
+ * never be merged into the state of a later period.
+ */
+public class ProfileState {
+
+  /**
+   * The definition of the profile.
+   */
+  private ProfileConfig definition;
+
+  /**
+   * The name of the entity.
+   */
+  private String entity;
+
+  /**
+   * The value of each variable maintained by the builder.
+   */
+  private Map<String, Object> state;
+
+  /**
+   * The start of the period that the state belongs to in epoch milliseconds.
+   */
+  private Long periodStartMillis;
+
+  /**
+   * The duration of the period that the state belongs to in milliseconds.
+   */
+  private Long periodDurationMillis;
+
+  public ProfileState() {
+    this.state = new HashMap<>();
+  }
+
+  /**
+   * @param builder The builder whose state is saved.
+   * @param period The period that the state belongs to.
+   */
+  public ProfileState(ProfileBuilder builder, ProfilePeriod period) {
+    this.definition = builder.getDefinition();
+    this.entity = builder.getEntity();
+    this.state = new HashMap<>(builder.getState());
+    this.periodStartMillis = period.getStartTimeMillis();
+    this.periodDurationMillis = period.getDurationMillis();
+  }
+
+  /**
+   * @return The period that the state belongs to or empty, if it is not known.
+   */
+  public Optional<ProfilePeriod> getPeriod() {
+    if(periodStartMillis == null || periodDurationMillis == null) {
+      return Optional.empty();
+    }
+    return Optional.of(new ProfilePeriod(periodStartMillis, periodDurationMillis, TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * Serializes the profile state.
+   */
+  public byte[] toBytes() {
+    return SerDeUtils.toBytes(this);
+  }
+
+  /**
+   * Deserializes the profile state.
+   * @param bytes The serialized profile state.
+   */
+  public static ProfileState fromBytes(byte[] bytes) {
+    return SerDeUtils.fromBytes(bytes, ProfileState.class);
+  }
+
+  public ProfileConfig getDefinition() {
+    return definition;
+  }
+
+  public void setDefinition(ProfileConfig definition) {
+    this.definition = definition;
+  }
+
+  public String getEntity() {
+    return entity;
+  }
+
+  public void setEntity(String entity) {
+    this.entity = entity;
+  }
+
+  public Map<String, Object> getState() {
+    return state;
+  }
+
+  public void setState(Map<String, Object> state) {
+    this.state = state;
+  }
+
+  public Long getPeriodStartMillis() {
+    return periodStartMillis;
+  }
+
+  public void setPeriodStartMillis(Long periodStartMillis) {
+    this.periodStartMillis = periodStartMillis;
+  }
+
+  public Long getPeriodDurationMillis() {
+    return periodDurationMillis;
+  }
+
+  public void setPeriodDurationMillis(Long periodDurationMillis) {
+    this.periodDurationMillis = periodDurationMillis;
+  }
+}
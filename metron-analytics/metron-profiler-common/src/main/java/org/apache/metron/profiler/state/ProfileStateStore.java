@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.state;
+
+import java.io.Closeable;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Stores the state of the profiles that are being built, outside of the heap.
+ *
+ * The state of a profile can be spilled to the store when there are too many profiles to
+ * hold in memory, or checkpointed to the store so that it can be recovered if the Profiler
+ * is restarted.
+ */
+public interface ProfileStateStore extends Closeable {
+
+  /**
+   * Stores the state of a profile, replacing any previous state stored with the same key.
+   * @param key The key.
+   * @param state The serialized profile state.
+   */
+  void put(String key, byte[] state);
+
+  /**
+   * Retrieves the state of a profile.
+   * @param key The key.
+   * @return The serialized profile state, if any has been stored.
+   */
+  Optional<byte[]> get(String key);
+
+  /**
+   * Removes the state of a profile.
+   * @param key The key.
+   */
+  void remove(String key);
+
+  /**
+   * @return The keys of all profiles whose state has been stored.
+   */
+  Set<String> keys();
+
+  /**
+   * Removes the state of all profiles.
+   */
+  void clear();
+
+  /**
+   * Ensures that all stored state is durable.
+   */
+  void sync();
+}
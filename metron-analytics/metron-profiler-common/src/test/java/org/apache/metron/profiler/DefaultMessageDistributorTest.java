@@ -23,17 +23,26 @@ package org.apache.metron.profiler;
 import org.adrianwalker.multilinestring.Multiline;
 import org.apache.metron.common.configuration.profiler.ProfileConfig;
 import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.profiler.clock.FixedClock;
+import org.apache.metron.profiler.state.FileStateStore;
 import org.apache.metron.stellar.dsl.Context;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import static org.apache.metron.stellar.common.utils.ConversionUtils.convert;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class DefaultMessageDistributorTest {
 
@@ -81,6 +90,18 @@ public class DefaultMessageDistributorTest {
   @Multiline
   private String profileTwo;
 
+  /**
+   * {
+   *   "profile": "profile-three",
+   *   "foreach": "ip_src_addr",
+   *   "init":   { "x": "0" },
+   *   "update": { "x": "x + 2 - 1" },
+   *   "result": "x"
+   * }
+   */
+  @Multiline
+  private String profileThree;
+
   private DefaultMessageDistributor distributor;
   private Context context;
 
@@ -154,4 +175,290 @@ public class DefaultMessageDistributorTest {
     assertEquals(2, measurements.size());
   }
 
+  /**
+   * Profiles that are supported should be maintained as a ColumnarProfile and all others by a ProfileBuilder.
+   */
+  @Test
+  public void testDistributeWithColumnarProfiles() throws Exception {
+    distributor.withColumnarProfiles(true);
+    String entityOne = (String) messageOne.get("ip_src_addr");
+    String entityTwo = (String) messageTwo.get("ip_src_addr");
+    MessageRoute columnarRoute = new MessageRoute(createDefinition(profileOne), entityOne);
+    MessageRoute builderRoute = new MessageRoute(createDefinition(profileThree), entityOne);
+
+    distributor.distribute(messageOne, columnarRoute, context);
+    distributor.distribute(messageOne, columnarRoute, context);
+    distributor.distribute(messageTwo, new MessageRoute(createDefinition(profileOne), entityTwo), context);
+    distributor.distribute(messageOne, builderRoute, context);
+
+    // the first profile is columnar, but the third is not supported
+    assertTrue(distributor.getColumnarProfile(columnarRoute, context).isPresent());
+    assertFalse(distributor.getColumnarProfile(builderRoute, context).isPresent());
+    assertEquals(2, distributor.getColumnarProfile(columnarRoute, context).get().size());
+    assertEquals(1, (int) convert(distributor.getBuilder(builderRoute, context).valueOf("x"), Integer.class));
+
+    // expect 3 measurements; 2 from the columnar profile and 1 from the profile builder
+    Map<String, Object> values = new HashMap<>();
+    for(ProfileMeasurement m : distributor.flush()) {
+      values.put(m.getProfileName() + ":" + m.getEntity(), m.getProfileValue());
+    }
+    assertEquals(3, values.size());
+    assertEquals(2, (int) convert(values.get("profile-one:" + entityOne), Integer.class));
+    assertEquals(1, (int) convert(values.get("profile-one:" + entityTwo), Integer.class));
+    assertEquals(1, (int) convert(values.get("profile-three:" + entityOne), Integer.class));
+  }
+
+  /**
+   * Raw messages and partial state for the same profile in one period should be maintained
+   * together, so that only one measurement is flushed.
+   */
+  @Test
+  public void testDistributeAndMergeInOnePeriod() throws Exception {
+    String entity = (String) messageOne.get("ip_src_addr");
+    MessageRoute route = new MessageRoute(createDefinition(profileOne), entity);
+
+    // raw messages arrive before any partial state
+    distributor.distribute(messageOne, route, context);
+    distributor.distribute(messageOne, route, context);
+
+    // merge the partial state that was combined upstream
+    Map<String, Object> partial = new HashMap<>();
+    partial.put("x", 3);
+    assertTrue(distributor.merge(partial, route, context));
+
+    // raw messages arrive after the partial state
+    distributor.distribute(messageOne, route, context);
+
+    // expect 1 measurement that includes all of the messages
+    List<ProfileMeasurement> measurements = distributor.flush();
+    assertEquals(1, measurements.size());
+    assertEquals(6, (int) convert(measurements.get(0).getProfileValue(), Integer.class));
+  }
+
+  /**
+   * A profile whose partial state cannot be merged should continue to use a ProfileBuilder.
+   */
+  @Test
+  public void testMergeNotSupported() throws Exception {
+    String entity = (String) messageOne.get("ip_src_addr");
+    MessageRoute route = new MessageRoute(createDefinition(profileThree), entity);
+
+    distributor.distribute(messageOne, route, context);
+    assertFalse(distributor.merge(new HashMap<>(), route, context));
+    distributor.distribute(messageOne, route, context);
+
+    List<ProfileMeasurement> measurements = distributor.flush();
+    assertEquals(1, measurements.size());
+    assertEquals(2, (int) convert(measurements.get(0).getProfileValue(), Integer.class));
+  }
+
+  /**
+   * In event time, a message should be applied to the period containing its timestamp and
+   * a period should only be flushed once the watermark has passed its end.
+   */
+  @Test
+  public void testDistributeWithEventTime() throws Exception {
+    ProfileConfig definition = createDefinition(profileOne);
+    String entity = (String) messageOne.get("ip_src_addr");
+    MessageRoute route = new MessageRoute(definition, entity);
+    long periodDurationMillis = TimeUnit.MINUTES.toMillis(15);
+
+    // two messages in the first period and one in the second
+    assertTrue(distributor.distribute(messageOne, 1000, route, context));
+    assertTrue(distributor.distribute(messageOne, 2000, route, context));
+    assertTrue(distributor.distribute(messageOne, periodDurationMillis + 1000, route, context));
+
+    // the watermark has not passed the end of the first period
+    assertEquals(0, distributor.flush(periodDurationMillis - 1).size());
+
+    // the watermark has passed the end of the first period, but not the second
+    List<ProfileMeasurement> measurements = distributor.flush(periodDurationMillis + 1000);
+    assertEquals(1, measurements.size());
+    ProfileMeasurement m = measurements.get(0);
+    assertEquals(0, m.getPeriod().getStartTimeMillis());
+    assertEquals(2, (int) convert(m.getProfileValue(), Integer.class));
+
+    // the second period is flushed once the watermark passes its end
+    measurements = distributor.flush(2 * periodDurationMillis);
+    assertEquals(1, measurements.size());
+    m = measurements.get(0);
+    assertEquals(periodDurationMillis, m.getPeriod().getStartTimeMillis());
+    assertEquals(1, (int) convert(m.getProfileValue(), Integer.class));
+  }
+
+  /**
+   * In event time, a period should remain open until the watermark passes its end, no matter
+   * how much wall clock time passes in the meantime.
+   */
+  @Test
+  public void testEventTimePeriodDoesNotExpire() throws Exception {
+    long periodDurationMillis = 100;
+    distributor = new DefaultMessageDistributor(periodDurationMillis, periodDurationMillis);
+    ProfileConfig definition = createDefinition(profileOne);
+    String entity = (String) messageOne.get("ip_src_addr");
+    MessageRoute route = new MessageRoute(definition, entity);
+
+    assertTrue(distributor.distribute(messageOne, 10, route, context));
+
+    // more than the profile TTL passes before the watermark reaches the end of the period
+    Thread.sleep(2 * periodDurationMillis);
+    List<ProfileMeasurement> measurements = distributor.flush(periodDurationMillis);
+    assertEquals(1, measurements.size());
+    assertEquals(1, (int) convert(measurements.get(0).getProfileValue(), Integer.class));
+  }
+
+  /**
+   * In event time, a message that arrives after its period has been flushed should be dropped.
+   */
+  @Test
+  public void testLateMessageWithEventTime() throws Exception {
+    ProfileConfig definition = createDefinition(profileOne);
+    String entity = (String) messageOne.get("ip_src_addr");
+    MessageRoute route = new MessageRoute(definition, entity);
+    long periodDurationMillis = TimeUnit.MINUTES.toMillis(15);
+    distributor.withAllowedLateness(1, TimeUnit.MINUTES);
+
+    assertTrue(distributor.distribute(messageOne, 1000, route, context));
+
+    // the period remains open within the allowed lateness
+    assertEquals(0, distributor.flush(periodDurationMillis + 1000).size());
+    assertTrue(distributor.distribute(messageOne, 2000, route, context));
+
+    // the period is flushed after the allowed lateness
+    List<ProfileMeasurement> measurements = distributor.flush(periodDurationMillis + TimeUnit.MINUTES.toMillis(1));
+    assertEquals(1, measurements.size());
+    assertEquals(2, (int) convert(measurements.get(0).getProfileValue(), Integer.class));
+
+    // any message for the flushed period is too late
+    assertFalse(distributor.distribute(messageOne, 3000, route, context));
+    assertEquals(1, distributor.getLateMessages());
+    assertEquals(0, distributor.flush(2 * periodDurationMillis).size());
+  }
+
+  /**
+   * When there are more active profiles than allowed, the least recently used should be
+   * spilled to the state store and restored when needed.
+   */
+  @Test
+  public void testSpillToStateStore() throws Exception {
+    File file = Files.createTempFile("profiler", ".state").toFile();
+    try(FileStateStore store = new FileStateStore(file)) {
+      distributor = new DefaultMessageDistributor(
+              TimeUnit.MINUTES.toMillis(15),
+              TimeUnit.MINUTES.toMillis(30),
+              1,
+              store);
+      ProfileConfig definition = createDefinition(profileOne);
+      MessageRoute routeOne = new MessageRoute(definition, (String) messageOne.get("ip_src_addr"));
+      MessageRoute routeTwo = new MessageRoute(definition, (String) messageTwo.get("ip_src_addr"));
+
+      // only one profile can be active, so the other is spilled
+      distributor.distribute(messageOne, routeOne, context);
+      distributor.distribute(messageTwo, routeTwo, context);
+      distributor.distribute(messageOne, routeOne, context);
+      distributor.distribute(messageTwo, routeTwo, context);
+      distributor.distribute(messageTwo, routeTwo, context);
+      assertEquals(3, distributor.getSpilledProfiles());
+      assertEquals(1, store.size());
+
+      // expect a measurement for both profiles, including the spilled profile
+      List<ProfileMeasurement> measurements = distributor.flush();
+      assertEquals(2, measurements.size());
+      Map<String, Integer> values = new HashMap<>();
+      measurements.forEach(m -> values.put(m.getEntity(), convert(m.getProfileValue(), Integer.class)));
+      assertEquals(2, (int) values.get(routeOne.getEntity()));
+      assertEquals(3, (int) values.get(routeTwo.getEntity()));
+      assertEquals(0, store.size());
+
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * State checkpointed in one period should never be merged into a later period after a
+   * restart.  It should be flushed as the measurement of the period it was checkpointed in.
+   */
+  @Test
+  public void testRecoverFromCheckpointInEarlierPeriod() throws Exception {
+    File file = Files.createTempFile("profiler", ".state").toFile();
+    ProfileConfig definition = createDefinition(profileOne);
+    MessageRoute route = new MessageRoute(definition, (String) messageOne.get("ip_src_addr"));
+    long periodDurationMillis = TimeUnit.MINUTES.toMillis(15);
+    FixedClock clock = new FixedClock();
+    clock.setTime(periodDurationMillis + 1000);
+    try {
+      try(FileStateStore store = new FileStateStore(file)) {
+        distributor = new DefaultMessageDistributor(periodDurationMillis, TimeUnit.MINUTES.toMillis(30), 0, store)
+                .withClock(clock);
+        distributor.distribute(messageOne, route, context);
+        distributor.distribute(messageOne, route, context);
+        distributor.checkpoint();
+      }
+
+      // restart in the next period
+      clock.setTime(2 * periodDurationMillis + 1000);
+      try(FileStateStore store = new FileStateStore(file)) {
+        distributor = new DefaultMessageDistributor(periodDurationMillis, TimeUnit.MINUTES.toMillis(30), 0, store)
+                .withClock(clock);
+
+        // the current period starts from scratch
+        distributor.distribute(messageOne, route, context);
+        assertEquals(1, (int) convert(distributor.getBuilder(route, context).valueOf("x"), Integer.class));
+
+        // the checkpointed state is flushed as its own period
+        List<ProfileMeasurement> measurements = distributor.flush();
+        assertEquals(2, measurements.size());
+        Map<Long, Integer> values = new HashMap<>();
+        measurements.forEach(m -> values.put(m.getPeriod().getStartTimeMillis(), convert(m.getProfileValue(), Integer.class)));
+        assertEquals(2, (int) values.get(periodDurationMillis));
+        assertEquals(1, (int) values.get(2 * periodDurationMillis));
+        assertEquals(0, store.size());
+      }
+
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * The state of the profiles should be recovered from a checkpoint after a restart.
+   */
+  @Test
+  public void testRecoverFromCheckpoint() throws Exception {
+    File file = Files.createTempFile("profiler", ".state").toFile();
+    ProfileConfig definition = createDefinition(profileOne);
+    MessageRoute routeOne = new MessageRoute(definition, (String) messageOne.get("ip_src_addr"));
+    MessageRoute routeTwo = new MessageRoute(definition, (String) messageTwo.get("ip_src_addr"));
+    try {
+      try(FileStateStore store = new FileStateStore(file)) {
+        distributor = new DefaultMessageDistributor(TimeUnit.MINUTES.toMillis(15), TimeUnit.MINUTES.toMillis(30), 0, store);
+        distributor.distribute(messageOne, routeOne, context);
+        distributor.distribute(messageOne, routeOne, context);
+        distributor.distribute(messageTwo, routeTwo, context);
+        distributor.checkpoint();
+      }
+
+      // restart
+      try(FileStateStore store = new FileStateStore(file)) {
+        distributor = new DefaultMessageDistributor(TimeUnit.MINUTES.toMillis(15), TimeUnit.MINUTES.toMillis(30), 0, store);
+
+        // the first profile is restored when it is next needed
+        distributor.distribute(messageOne, routeOne, context);
+        assertEquals(3, (int) convert(distributor.getBuilder(routeOne, context).valueOf("x"), Integer.class));
+
+        // the second profile is only restored when flushed
+        List<ProfileMeasurement> measurements = distributor.flush();
+        assertEquals(2, measurements.size());
+        Map<String, Integer> values = new HashMap<>();
+        measurements.forEach(m -> values.put(m.getEntity(), convert(m.getProfileValue(), Integer.class)));
+        assertEquals(3, (int) values.get(routeOne.getEntity()));
+        assertEquals(1, (int) values.get(routeTwo.getEntity()));
+        assertEquals(0, store.size());
+      }
+
+    } finally {
+      file.delete();
+    }
+  }
 }
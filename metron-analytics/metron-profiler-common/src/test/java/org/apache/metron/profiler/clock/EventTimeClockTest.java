@@ -0,0 +1,85 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.metron.profiler.clock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventTimeClockTest {
+
+  private static final long IDLE_TIMEOUT = 1000;
+
+  private FixedClock wallClock;
+  private EventTimeClock clock;
+
+  @Before
+  public void setup() {
+    wallClock = new FixedClock();
+    clock = new EventTimeClock(IDLE_TIMEOUT, wallClock);
+  }
+
+  /**
+   * The clock should report the smallest watermark across all partitions.
+   */
+  @Test
+  public void testSmallestWatermark() {
+    clock.advance(0, 5000);
+    clock.advance(1, 3000);
+    assertEquals(3000, clock.currentTimeMillis());
+
+    clock.advance(1, 7000);
+    assertEquals(5000, clock.currentTimeMillis());
+  }
+
+  /**
+   * The clock should never move backwards.
+   */
+  @Test
+  public void testNeverMovesBackwards() {
+    clock.advance(0, 5000);
+    assertEquals(5000, clock.currentTimeMillis());
+
+    // an out-of-order timestamp does not change the watermark
+    clock.advance(0, 4000);
+    assertEquals(5000, clock.currentTimeMillis());
+
+    // a new partition that is behind does not move the clock backwards
+    clock.advance(1, 2000);
+    assertEquals(5000, clock.currentTimeMillis());
+  }
+
+  /**
+   * An idle partition should not hold back the clock.
+   */
+  @Test
+  public void testIdlePartition() {
+    clock.advance(0, 5000);
+    clock.advance(1, 3000);
+    assertEquals(3000, clock.currentTimeMillis());
+
+    // partition 1 becomes idle while partition 0 continues to advance
+    wallClock.setTime(IDLE_TIMEOUT);
+    clock.advance(0, 6000);
+    assertEquals(6000, clock.currentTimeMillis());
+  }
+}
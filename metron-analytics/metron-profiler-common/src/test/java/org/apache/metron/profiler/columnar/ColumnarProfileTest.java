@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.columnar;
+
+import org.adrianwalker.multilinestring.Multiline;
+import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.profiler.DefaultProfileBuilder;
+import org.apache.metron.profiler.ProfileBuilder;
+import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.clock.FixedClock;
+import org.apache.metron.stellar.dsl.Context;
+import org.json.simple.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the ColumnarProfile class.
+ */
+public class ColumnarProfileTest {
+
+  /**
+   * {
+   *   "profile": "count",
+   *   "foreach": "ip_src_addr",
+   *   "init":   { "count": "0" },
+   *   "update": { "count": "count + 1" },
+   *   "result": "count"
+   * }
+   */
+  @Multiline
+  private String countProfile;
+
+  /**
+   * {
+   *   "profile": "sum",
+   *   "foreach": "ip_src_addr",
+   *   "init":   { "sum": "0", "count": "0" },
+   *   "update": { "sum": "value + sum", "count": "count + 1" },
+   *   "result": {
+   *     "profile": "sum",
+   *     "triage": { "count": "count" }
+   *   }
+   * }
+   */
+  @Multiline
+  private String sumProfile;
+
+  private Context context;
+  private FixedClock clock;
+  private long periodDurationMillis;
+
+  @Before
+  public void setup() {
+    context = Context.EMPTY_CONTEXT();
+    clock = new FixedClock();
+    clock.setTime(0);
+    periodDurationMillis = TimeUnit.MINUTES.toMillis(15);
+  }
+
+  private ColumnarProfile create(String json) throws Exception {
+    ProfileConfig definition = JSONUtils.INSTANCE.load(json, ProfileConfig.class);
+    Optional<ColumnarProfile> profile = ColumnarProfile.of(definition, periodDurationMillis, clock, context);
+    assertTrue(profile.isPresent());
+    return profile.get();
+  }
+
+  private JSONObject message(String entity, Object value) {
+    JSONObject message = new JSONObject();
+    message.put("ip_src_addr", entity);
+    if(value != null) {
+      message.put("value", value);
+    }
+    return message;
+  }
+
+  /**
+   * A count should be maintained separately for each entity.
+   */
+  @Test
+  public void testCount() throws Exception {
+    ColumnarProfile profile = create(countProfile);
+
+    for(int i = 0; i < 3; i++) {
+      profile.apply("10.0.0.1", message("10.0.0.1", null), context);
+    }
+    profile.apply("10.0.0.2", message("10.0.0.2", null), context);
+
+    assertEquals(2, profile.size());
+    assertEquals(3, profile.valueOf("10.0.0.1", "count").get());
+    assertEquals(1, profile.valueOf("10.0.0.2", "count").get());
+
+    // flush the profile
+    List<ProfileMeasurement> measurements = profile.flush(TimeUnit.MINUTES.toMillis(30));
+    assertEquals(2, measurements.size());
+    for(ProfileMeasurement m : measurements) {
+      assertEquals("count", m.getProfileName());
+      assertEquals(m.getEntity().equals("10.0.0.1") ? 3 : 1, m.getProfileValue());
+    }
+
+    // the state should be reset after a flush
+    assertFalse(profile.valueOf("10.0.0.1", "count").isPresent());
+    assertEquals(0, profile.flush(TimeUnit.MINUTES.toMillis(30)).size());
+  }
+
+  /**
+   * The type of a sum should follow the same rules as Stellar's addition.
+   */
+  @Test
+  public void testSumTypePromotion() throws Exception {
+    ColumnarProfile profile = create(sumProfile);
+
+    profile.apply("ints", message("ints", 2), context);
+    profile.apply("ints", message("ints", 3), context);
+    assertEquals(5, profile.valueOf("ints", "sum").get());
+
+    profile.apply("longs", message("longs", 2), context);
+    profile.apply("longs", message("longs", 3L), context);
+    assertEquals(5L, profile.valueOf("longs", "sum").get());
+
+    profile.apply("floats", message("floats", 2L), context);
+    profile.apply("floats", message("floats", 0.5f), context);
+    assertEquals(2.5f, profile.valueOf("floats", "sum").get());
+
+    profile.apply("doubles", message("doubles", 2), context);
+    profile.apply("doubles", message("doubles", 0.5f), context);
+    profile.apply("doubles", message("doubles", 0.25d), context);
+    assertEquals(2.75d, profile.valueOf("doubles", "sum").get());
+  }
+
+  /**
+   * The columnar profile should produce the same measurements as the DefaultProfileBuilder.
+   */
+  @Test
+  public void testSameAsProfileBuilder() throws Exception {
+    ColumnarProfile profile = create(sumProfile);
+    ProfileBuilder builder = new DefaultProfileBuilder.Builder()
+            .withDefinition(profile.getDefinition())
+            .withEntity("10.0.0.1")
+            .withPeriodDurationMillis(periodDurationMillis)
+            .withContext(context)
+            .withClock(clock)
+            .build();
+
+    // a missing value is treated as 0 and a non-numeric value is an error
+    for(Object value : Arrays.asList(1, 2L, null, 3.5d, Integer.MAX_VALUE, "22", 4.25f)) {
+      JSONObject message = message("10.0.0.1", value);
+      profile.apply("10.0.0.1", message, context);
+      builder.apply(message);
+    }
+
+    ProfileMeasurement expected = builder.flush().get();
+    List<ProfileMeasurement> actual = profile.flush(TimeUnit.MINUTES.toMillis(30));
+    assertEquals(1, actual.size());
+    assertEquals(expected.getProfileValue(), actual.get(0).getProfileValue());
+    assertEquals(expected.getTriageValues(), actual.get(0).getTriageValues());
+    assertEquals(expected.getPeriod(), actual.get(0).getPeriod());
+  }
+
+  /**
+   * An entity that has not received a message within the TTL should be forgotten.
+   */
+  @Test
+  public void testExpireEntities() throws Exception {
+    ColumnarProfile profile = create(countProfile);
+    long ttl = TimeUnit.MINUTES.toMillis(30);
+
+    profile.apply("10.0.0.1", message("10.0.0.1", null), context);
+    clock.setTime(TimeUnit.MINUTES.toMillis(20));
+    profile.apply("10.0.0.2", message("10.0.0.2", null), context);
+
+    // neither entity has expired
+    assertEquals(2, profile.flush(ttl).size());
+    assertEquals(2, profile.size());
+
+    // the first entity has expired
+    clock.setTime(TimeUnit.MINUTES.toMillis(30));
+    assertEquals(0, profile.flush(ttl).size());
+    assertEquals(1, profile.size());
+
+    // the id of the expired entity is reused
+    profile.apply("10.0.0.3", message("10.0.0.3", null), context);
+    assertEquals(2, profile.size());
+    assertEquals(1, profile.valueOf("10.0.0.3", "count").get());
+  }
+
+  /**
+   * The partial state drained from one profile should be merged into another.
+   */
+  @Test
+  public void testDrainAndMerge() throws Exception {
+    ColumnarProfile partialOne = create(sumProfile);
+    ColumnarProfile partialTwo = create(sumProfile);
+    ColumnarProfile merged = create(sumProfile);
+    assertTrue(merged.isMergeable());
+
+    partialOne.apply("10.0.0.1", message("10.0.0.1", 2), context);
+    partialOne.apply("10.0.0.2", message("10.0.0.2", 5), context);
+    partialTwo.apply("10.0.0.1", message("10.0.0.1", 3L), context);
+
+    // drain the partial state and merge it
+    for(ColumnarProfile partial : Arrays.asList(partialOne, partialTwo)) {
+      partial.drain().forEach((entity, state) -> merged.merge(entity, state, context));
+      assertEquals(0, partial.size());
+    }
+
+    assertEquals(5L, merged.valueOf("10.0.0.1", "sum").get());
+    assertEquals(2, merged.valueOf("10.0.0.1", "count").get());
+    assertEquals(5, merged.valueOf("10.0.0.2", "sum").get());
+    assertEquals(1, merged.valueOf("10.0.0.2", "count").get());
+  }
+
+  /**
+   * A count or sum that is not initialized to 0 cannot be merged.
+   */
+  @Test
+  public void testNotMergeable() throws Exception {
+    ProfileConfig definition = JSONUtils.INSTANCE.load(format(templateProfile, "10", "x + 1"), ProfileConfig.class);
+    Optional<ColumnarProfile> profile = ColumnarProfile.of(definition, periodDurationMillis, clock, context);
+    assertTrue(profile.isPresent());
+    assertFalse(profile.get().isMergeable());
+  }
+
+  /**
+   * {
+   *   "profile": "test",
+   *   "foreach": "ip_src_addr",
+   *   "init":   { "x": "%s", "y": "0" },
+   *   "update": { "x": "%s", "y": "y + 1" },
+   *   "result": "x"
+   * }
+   */
+  @Multiline
+  private String templateProfile;
+
+  /**
+   * Profiles whose expressions are not recognized should not be supported.
+   */
+  @Test
+  public void testNotSupported() throws Exception {
+    String[][] cases = {
+            // init, update
+            { "0", "x * 2" },
+            { "0", "x + y" },
+            { "0", "x + true" },
+            { "0", "y + 1" },
+            { "TO_INTEGER(0)", "x + 1" },
+            { "0", "x + 1 + 1" },
+            { "0", "x + 1L" },
+            { "99999999999", "x + 1" },
+            { "0", "MAP_GET(x, value)" },
+            { "0", "STATS_ADD(x, value)" }
+    };
+
+    for(String[] c : cases) {
+      ProfileConfig definition = JSONUtils.INSTANCE.load(format(templateProfile, c[0], c[1]), ProfileConfig.class);
+      Optional<ColumnarProfile> profile = ColumnarProfile.of(definition, periodDurationMillis, clock, context);
+      assertFalse(Arrays.toString(c), profile.isPresent());
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.state;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests the FileStateStore class.
+ */
+public class FileStateStoreTest {
+
+  private File file;
+  private FileStateStore store;
+
+  @Before
+  public void setup() throws Exception {
+    file = Files.createTempFile("profiler", ".state").toFile();
+    store = new FileStateStore(file);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    store.close();
+    file.delete();
+  }
+
+  @Test
+  public void testPutAndGet() {
+    store.put("key1", new byte[] { 1, 2, 3 });
+    store.put("key2", new byte[] { 4 });
+
+    assertArrayEquals(new byte[] { 1, 2, 3 }, store.get("key1").get());
+    assertArrayEquals(new byte[] { 4 }, store.get("key2").get());
+    assertFalse(store.get("key3").isPresent());
+    assertEquals(new HashSet<>(Arrays.asList("key1", "key2")), store.keys());
+  }
+
+  @Test
+  public void testPutReplaces() {
+    store.put("key1", new byte[] { 1, 2, 3 });
+    store.put("key1", new byte[] { 4, 5 });
+
+    assertArrayEquals(new byte[] { 4, 5 }, store.get("key1").get());
+    assertEquals(1, store.size());
+  }
+
+  @Test
+  public void testRemove() {
+    store.put("key1", new byte[] { 1, 2, 3 });
+    store.remove("key1");
+    store.remove("key2");
+
+    assertFalse(store.get("key1").isPresent());
+    assertEquals(0, store.size());
+  }
+
+  @Test
+  public void testClear() {
+    store.put("key1", new byte[] { 1, 2, 3 });
+    store.put("key2", new byte[] { 4 });
+    store.clear();
+
+    assertEquals(0, store.size());
+    assertEquals(0, file.length());
+  }
+
+  /**
+   * The state should be recovered when the store is reopened.
+   */
+  @Test
+  public void testRecover() throws Exception {
+    store.put("key1", new byte[] { 1, 2, 3 });
+    store.put("key2", new byte[] { 4 });
+    store.put("key1", new byte[] { 5 });
+    store.remove("key2");
+    store.put("key3", new byte[] { });
+    store.sync();
+    store.close();
+
+    store = new FileStateStore(file);
+    assertEquals(new HashSet<>(Arrays.asList("key1", "key3")), store.keys());
+    assertArrayEquals(new byte[] { 5 }, store.get("key1").get());
+    assertArrayEquals(new byte[] { }, store.get("key3").get());
+  }
+
+  /**
+   * A record that was only partially written should be discarded when the store is reopened.
+   */
+  @Test
+  public void testRecoverWithIncompleteRecord() throws Exception {
+    store.put("key1", new byte[] { 1, 2, 3 });
+    store.close();
+    long length = file.length();
+
+    // append a record that was only partially written
+    try(FileOutputStream out = new FileOutputStream(file, true)) {
+      out.write(new byte[] { 0, 0, 0, 4, 'k', 'e' });
+    }
+
+    store = new FileStateStore(file);
+    assertEquals(new HashSet<>(Arrays.asList("key1")), store.keys());
+    assertEquals(length, file.length());
+
+    // the store remains usable
+    store.put("key2", new byte[] { 4 });
+    assertArrayEquals(new byte[] { 4 }, store.get("key2").get());
+  }
+}
@@ -53,4 +53,14 @@ public interface DestinationHandler {
    * @param collector The output collector.
    */
   void emit(ProfileMeasurement measurement, OutputCollector collector);
+
+  /**
+   * Emit a rollup; a measurement that summarizes many profile periods.  By default,
+   * rollups are not emitted to a destination.
+   * @param rollup The rollup to emit.
+   * @param collector The output collector.
+   */
+  default void emitRollup(ProfileMeasurement rollup, OutputCollector collector) {
+    // rollups are not emitted by default
+  }
 }
@@ -47,6 +47,11 @@ public class HBaseDestinationHandler implements DestinationHandler, Serializable
     collector.emit(getStreamId(), new Values(measurement));
   }
 
+  @Override
+  public void emitRollup(ProfileMeasurement rollup, OutputCollector collector) {
+    emit(rollup, collector);
+  }
+
   @Override
   public String getStreamId() {
     return streamId;
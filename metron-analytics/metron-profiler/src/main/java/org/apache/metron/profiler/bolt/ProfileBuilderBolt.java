@@ -20,11 +20,18 @@
 
 package org.apache.metron.profiler.bolt;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.metron.common.bolt.ConfiguredProfilerBolt;
 import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.apache.metron.common.configuration.profiler.ProfilerConfig;
+import org.apache.metron.common.utils.SerDeUtils;
 import org.apache.metron.profiler.DefaultMessageDistributor;
 import org.apache.metron.profiler.MessageRoute;
 import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfileRollups;
+import org.apache.metron.profiler.clock.EventTimeClock;
+import org.apache.metron.profiler.state.FileStateStore;
+import org.apache.metron.profiler.state.ProfileStateStore;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.storm.Config;
@@ -38,6 +45,8 @@ import org.json.simple.parser.JSONParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.List;
@@ -54,6 +63,19 @@ import static java.lang.String.format;
  * period expires, the data is summarized as a ProfileMeasurement, all state is
  * flushed, and the ProfileMeasurement is emitted.
  *
+ * By default, the bolt operates in processing time and profiles are flushed on each
+ * tick tuple.  If the Profiler configuration defines a 'timestampField', the bolt
+ * operates in event time.  Each message is applied to the period containing its
+ * timestamp and a period is flushed once the watermark has passed its end, plus the
+ * allowed lateness.  A separate watermark is maintained for each upstream task.
+ *
+ * In processing time, the bolt also receives the partial state of profiles that were
+ * combined by the upstream ProfileSplitterBolt, which is merged with the state of the profile.
+ *
+ * In processing time, the state of the profiles can be kept in a local state directory.
+ * This allows the number of profiles held in memory to be bounded, with the remainder
+ * spilled to disk, and allows the state to be periodically checkpointed so that it can
+ * be recovered after the worker is restarted.
  */
 public class ProfileBuilderBolt extends ConfiguredProfilerBolt {
 
@@ -74,6 +96,61 @@ public class ProfileBuilderBolt extends ConfiguredProfilerBolt {
    */
   private long profileTimeToLiveMillis;
 
+  /**
+   * In event time, the amount of time in milliseconds that a period remains open after
+   * the watermark has passed its end.  Messages arriving after this are dropped.
+   */
+  private long allowedLatenessMillis;
+
+  /**
+   * In event time, tracks the watermark of each upstream task.
+   */
+  private transient EventTimeClock eventTimeClock;
+
+  /**
+   * The duration of each rollup to maintain in milliseconds.  If empty, no rollups are maintained.
+   */
+  private List<Long> rollupDurations;
+
+  /**
+   * Maintains the rollups of the profile measurements.
+   */
+  private transient RollupBuilder rollupBuilder;
+
+  /**
+   * A local directory in which the state of the profiles is stored.  If blank, the state
+   * of all profiles is held in memory only.
+   */
+  private String stateDirectory;
+
+  /**
+   * The maximum number of profiles held in memory.  Any others are spilled to the
+   * state directory.  If 0, there is no maximum.
+   */
+  private int maxActiveProfiles;
+
+  /**
+   * The frequency at which the state of the profiles is checkpointed to the state
+   * directory in milliseconds.  If 0, the state is not checkpointed.
+   */
+  private long checkpointIntervalMillis;
+
+  /**
+   * The next time at which the state of the profiles should be checkpointed.
+   */
+  private transient long nextCheckpointMillis;
+
+  /**
+   * Stores the state of the profiles in the state directory.
+   */
+  private transient ProfileStateStore stateStore;
+
+  /**
+   * Should profiles whose updates are recognized aggregations be maintained in columns of
+   * primitive state, rather than by executing Stellar for every message?
+   */
+  private boolean columnarProfiles;
+
   /**
    * Distributes messages to the profile builders.
    */
@@ -96,6 +173,7 @@ public class ProfileBuilderBolt extends ConfiguredProfilerBolt {
   public ProfileBuilderBolt(String zookeeperUrl) {
     super(zookeeperUrl);
     this.destinationHandlers = new ArrayList<>();
+    this.rollupDurations = new ArrayList<>();
   }
 
   /**
@@ -120,9 +198,40 @@ public class ProfileBuilderBolt extends ConfiguredProfilerBolt {
               profileTimeToLiveMillis,
               periodDurationMillis));
     }
+    if(StringUtils.isBlank(stateDirectory) && (maxActiveProfiles > 0 || checkpointIntervalMillis > 0)) {
+      throw new IllegalStateException(
+              "invalid configuration: expect a state directory when max active profiles or checkpoints are defined");
+    }
     this.collector = collector;
     this.parser = new JSONParser();
-    this.messageDistributor = new DefaultMessageDistributor(periodDurationMillis, profileTimeToLiveMillis);
+
+    // each task keeps its own state, which is recovered by the same task after a restart; state
+    // checkpointed in an earlier period is flushed as that period at the next flush
+    if(StringUtils.isNotBlank(stateDirectory)) {
+      String fileName = format("%s-%d.state", context.getThisComponentId(), context.getThisTaskIndex());
+      this.stateStore = new FileStateStore(new File(stateDirectory, fileName));
+    }
+    this.nextCheckpointMillis = System.currentTimeMillis() + checkpointIntervalMillis;
+    this.messageDistributor = new DefaultMessageDistributor(periodDurationMillis, profileTimeToLiveMillis, maxActiveProfiles, stateStore)
+            .withAllowedLatenessMillis(allowedLatenessMillis)
+            .withColumnarProfiles(columnarProfiles);
+
+    // an upstream task that has not advanced within a period no longer holds back the watermark
+    this.eventTimeClock = new EventTimeClock(periodDurationMillis);
+    this.rollupBuilder = new RollupBuilder(rollupDurations);
+  }
+
+  @Override
+  public void cleanup() {
+    super.cleanup();
+    if(stateStore != null) {
+      try {
+        stateStore.close();
+
+      } catch(IOException e) {
+        LOG.error(format("Unable to close the profile state: error=%s", e.getMessage()), e);
+      }
+    }
   }
 
   @Override
@@ -155,6 +264,9 @@ public class ProfileBuilderBolt extends ConfiguredProfilerBolt {
       if(TupleUtils.isTick(input)) {
         handleTick();
 
+      } else if(ProfileSplitterBolt.PARTIAL_STREAM.equals(input.getSourceStreamId())) {
+        handlePartial(input);
+
       } else {
         handleMessage(input);
       }
@@ -178,21 +290,111 @@ public class ProfileBuilderBolt extends ConfiguredProfilerBolt {
     String entity = getField("entity", input, String.class);
     MessageRoute route = new MessageRoute(definition, entity);
 
-    messageDistributor.distribute(message, route, getStellarContext());
+    String timestampField = getTimestampField();
+    if(timestampField == null) {
+      messageDistributor.distribute(message, route, getStellarContext());
+      checkpoint();
+      return;
+    }
+
+    // event time
+    Long timestamp = ConversionUtils.convert(message.get(timestampField), Long.class);
+    if(timestamp == null) {
+      LOG.warn("Missing or invalid timestamp; message ignored: field='{}', profile='{}', entity='{}'",
+              timestampField, definition.getProfile(), entity);
+      return;
+    }
+
+    eventTimeClock.advance(input.getSourceTask(), timestamp);
+    if(!messageDistributor.distribute(message, timestamp, route, getStellarContext())) {
+      LOG.debug("Late message dropped: timestamp={}, profile='{}', entity='{}'", timestamp, definition.getProfile(), entity);
+    }
+
+    emit(messageDistributor.flush(eventTimeClock.currentTimeMillis()));
+  }
+
+  /**
+   * Handles the partial state of a profile that was combined by the upstream splitter.
+   * @param input The tuple.
+   */
+  private void handlePartial(Tuple input) {
+    Object bytes = input.getValueByField("partial");
+    if(!(bytes instanceof byte[])) {
+      throw new IllegalStateException("invalid tuple received: missing or invalid field 'partial'");
+    }
+    ProfileConfig definition = getField("profile", input, ProfileConfig.class);
+    String entity = getField("entity", input, String.class);
+
+    // partial state is only combined in processing time
+    if(getTimestampField() != null) {
+      LOG.warn("Partial state ignored in event time: profile='{}', entity='{}'", definition.getProfile(), entity);
+      return;
+    }
+
+    Map<String, Object> partial = SerDeUtils.fromBytes((byte[]) bytes, Map.class);
+    if(!messageDistributor.merge(partial, new MessageRoute(definition, entity), getStellarContext())) {
+      LOG.warn("Partial state cannot be merged: profile='{}', entity='{}'", definition.getProfile(), entity);
+    }
+    checkpoint();
   }
 
   /**
    * Handles a tick tuple.
    */
   private void handleTick() {
-    List<ProfileMeasurement> measurements = messageDistributor.flush();
+    if(getTimestampField() == null) {
+      emit(messageDistributor.flush());
+      checkpoint();
+
+    } else {
+      // an idle upstream task may have released the watermark
+      emit(messageDistributor.flush(eventTimeClock.currentTimeMillis()));
+    }
+  }
 
-    // forward the measurements to each destination handler
+  /**
+   * Checkpoints the state of the profiles, if it is time to do so.
+   */
+  private void checkpoint() {
+    long now = System.currentTimeMillis();
+    if(checkpointIntervalMillis > 0 && now >= nextCheckpointMillis) {
+      messageDistributor.checkpoint();
+      nextCheckpointMillis = now + checkpointIntervalMillis;
+    }
+  }
+
+  /**
+   * Forward the measurements to each destination handler, along with any rollups
+   * that the measurements have completed.
+   * @param measurements The profile measurements.
+   */
+  private void emit(List<ProfileMeasurement> measurements) {
+    long latestEndMillis = Long.MIN_VALUE;
     for(ProfileMeasurement m : measurements ) {
       destinationHandlers.forEach(handler -> handler.emit(m, collector));
+
+      if(rollupDurations.size() > 0) {
+        rollupBuilder.apply(m);
+        latestEndMillis = Math.max(latestEndMillis, m.getPeriod().getEndTimeMillis());
+      }
+    }
+
+    if(latestEndMillis > Long.MIN_VALUE) {
+      for(ProfileMeasurement rollup : rollupBuilder.complete(latestEndMillis)) {
+        destinationHandlers.forEach(handler -> handler.emitRollup(rollup, collector));
+      }
     }
   }
 
+  /**
+   * Returns the name of the field containing the event timestamp or null, if the
+   * Profiler is operating in processing time.
+   */
+  private String getTimestampField() {
+    ProfilerConfig config = getProfilerConfig();
+    return (config != null) ? config.getTimestampField() : null;
+  }
+
   /**
    * Retrieves an expected field from a Tuple.  If the field is missing an exception is thrown to
    * indicate a fatal error.
@@ -228,6 +430,58 @@ public class ProfileBuilderBolt extends ConfiguredProfilerBolt {
     return withProfileTimeToLiveMillis(units.toMillis(duration));
   }
 
+  public ProfileBuilderBolt withAllowedLatenessMillis(long allowedLatenessMillis) {
+    this.allowedLatenessMillis = allowedLatenessMillis;
+    return this;
+  }
+
+  public ProfileBuilderBolt withAllowedLateness(int duration, TimeUnit units) {
+    return withAllowedLatenessMillis(units.toMillis(duration));
+  }
+
+  /**
+   * @param rollups The rollups to maintain; for example '1 HOURS, 1 DAYS, 7 DAYS'.  If blank, no rollups are maintained.
+   */
+  public ProfileBuilderBolt withRollups(String rollups) {
+    this.rollupDurations = new ArrayList<>(ProfileRollups.parseDurations(rollups));
+    return this;
+  }
+
+  /**
+   * @param stateDirectory A local directory in which the state of the profiles is stored.  If blank, the
+   *                       state of all profiles is held in memory only.
+   */
+  public ProfileBuilderBolt withStateDirectory(String stateDirectory) {
+    this.stateDirectory = stateDirectory;
+    return this;
+  }
+
+  /**
+   * @param maxActiveProfiles The maximum number of profiles held in memory.  If 0, there is no maximum.
+   */
+  public ProfileBuilderBolt withMaxActiveProfiles(int maxActiveProfiles) {
+    this.maxActiveProfiles = maxActiveProfiles;
+    return this;
+  }
+
+  public ProfileBuilderBolt withCheckpointIntervalMillis(long checkpointIntervalMillis) {
+    this.checkpointIntervalMillis = checkpointIntervalMillis;
+    return this;
+  }
+
+  public ProfileBuilderBolt withCheckpointInterval(int duration, TimeUnit units) {
+    return withCheckpointIntervalMillis(units.toMillis(duration));
+  }
+
+  /**
+   * @param columnarProfiles If true, profiles whose updates are recognized aggregations are maintained
+   *                         in columns of primitive state.
+   */
+  public ProfileBuilderBolt withColumnarProfiles(boolean columnarProfiles) {
+    this.columnarProfiles = columnarProfiles;
+    return this;
+  }
+
   public ProfileBuilderBolt withDestinationHandler(DestinationHandler handler) {
     this.destinationHandlers.add(handler);
     return this;
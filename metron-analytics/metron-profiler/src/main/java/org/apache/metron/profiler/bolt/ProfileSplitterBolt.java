@@ -21,17 +21,23 @@
 package org.apache.metron.profiler.bolt;
 
 import org.apache.metron.common.bolt.ConfiguredProfilerBolt;
+import org.apache.metron.common.configuration.profiler.ProfileConfig;
 import org.apache.metron.common.configuration.profiler.ProfilerConfig;
+import org.apache.metron.common.utils.SerDeUtils;
 import org.apache.metron.profiler.MessageRouter;
 import org.apache.metron.profiler.MessageRoute;
 import org.apache.metron.profiler.DefaultMessageRouter;
+import org.apache.metron.profiler.clock.WallClock;
+import org.apache.metron.profiler.columnar.ColumnarProfile;
 import org.apache.metron.stellar.dsl.Context;
+import org.apache.storm.Config;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
 import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.TupleUtils;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
@@ -40,18 +46,36 @@ import org.slf4j.LoggerFactory;
 
 import java.io.UnsupportedEncodingException;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The bolt responsible for filtering incoming messages and directing
  * each to the one or more bolts responsible for building a Profile.  Each
  * message may be needed by 0, 1 or even many Profiles.
+ *
+ * Optionally, the bolt can act as a combiner.  In processing time, messages applied to a
+ * profile whose state can be merged are partially aggregated within the bolt.  Once the
+ * combiner window has passed, only the partial state of each profile is emitted on the
+ * 'partial' stream, rather than every message.  The input tuples are acked once the
+ * partial state that they contributed to has been emitted.
  */
 public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
 
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /**
+   * The stream on which the partial state of combined profiles is emitted.
+   */
+  public static final String PARTIAL_STREAM = "partial";
+
   private OutputCollector collector;
 
   /**
@@ -64,6 +88,27 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
    */
   private MessageRouter router;
 
+  /**
+   * The amount of time in milliseconds that messages are combined before the partial state
+   * is emitted.  If 0, messages are not combined.
+   */
+  private long combinerWindowMillis;
+
+  /**
+   * The next time at which the partial state should be emitted.
+   */
+  private transient long nextCombineMillis;
+
+  /**
+   * The partial state of each profile being combined; empty, if the profile cannot be combined.
+   */
+  private transient Map<ProfileConfig, Optional<ColumnarProfile>> combiners;
+
+  /**
+   * The input tuples that contributed to the partial state of each profile and entity.
+   */
+  private transient Map<ProfileConfig, Map<String, List<Tuple>>> anchors;
+
   /**
    * @param zookeeperUrl The Zookeeper URL that contains the configuration for this bolt.
    */
@@ -77,6 +122,22 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
     this.collector = collector;
     this.parser = new JSONParser();
     this.router = new DefaultMessageRouter(getStellarContext());
+    this.combiners = new HashMap<>();
+    this.anchors = new HashMap<>();
+    this.nextCombineMillis = System.currentTimeMillis() + combinerWindowMillis;
+  }
+
+  /**
+   * When combining messages, the bolt receives tick tuples so that the partial state is
+   * emitted even when no messages are received.
+   */
+  @Override
+  public Map<String, Object> getComponentConfiguration() {
+    Config conf = new Config();
+    if(combinerWindowMillis > 0) {
+      conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, Math.max(1, TimeUnit.MILLISECONDS.toSeconds(combinerWindowMillis)));
+    }
+    return conf;
   }
 
   private Context getStellarContext() {
@@ -90,19 +151,35 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
 
   @Override
   public void execute(Tuple input) {
+    boolean combined = false;
+    boolean tick = TupleUtils.isTick(input);
     try {
-      doExecute(input);
+      if(!tick) {
+        combined = doExecute(input);
+      }
 
     } catch (IllegalArgumentException | ParseException | UnsupportedEncodingException e) {
       LOG.error("Unexpected failure: message='{}', tuple='{}'", e.getMessage(), input, e);
       collector.reportError(e);
 
     } finally {
-      collector.ack(input);
+      // a combined tuple is acked once its partial state is emitted
+      if(!combined) {
+        collector.ack(input);
+      }
+    }
+
+    if(combinerWindowMillis > 0 && (tick || System.currentTimeMillis() >= nextCombineMillis)) {
+      emitPartials();
     }
   }
 
-  private void doExecute(Tuple input) throws ParseException, UnsupportedEncodingException {
+  /**
+   * @return True, if the message was combined into the partial state of at least one profile.
+   */
+  private boolean doExecute(Tuple input) throws ParseException, UnsupportedEncodingException {
+    List<MessageRoute> combined = new ArrayList<>();
+
     // retrieve the input message
     byte[] data = input.getBinary(0);
     JSONObject message = (JSONObject) parser.parse(new String(data, "UTF8"));
@@ -114,12 +191,74 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
       // emit a message for each 'route'
       List<MessageRoute> routes = router.route(message, config, getStellarContext());
       for(MessageRoute route : routes) {
-        collector.emit(input, new Values(route.getEntity(), route.getProfileDefinition(), message));
+        Optional<ColumnarProfile> combiner = getCombiner(route.getProfileDefinition(), config);
+        if(combiner.isPresent()) {
+          combiner.get().apply(route.getEntity(), message, getStellarContext());
+          combined.add(route);
+
+        } else {
+          collector.emit(input, new Values(route.getEntity(), route.getProfileDefinition(), message));
+        }
       }
 
     } else {
       LOG.warn("No Profiler configuration found.  Nothing to do.");
     }
+
+    // the tuple is only anchored once every route succeeds, as it is acked right away on failure
+    for(MessageRoute route : combined) {
+      anchors.computeIfAbsent(route.getProfileDefinition(), profile -> new HashMap<>())
+              .computeIfAbsent(route.getEntity(), entity -> new ArrayList<>())
+              .add(input);
+    }
+
+    return !combined.isEmpty();
+  }
+
+  /**
+   * Returns the ColumnarProfile that combines the messages of a profile.  Only profiles whose
+   * state can be merged are combined and only in processing time.
+   * @param profile The profile definition.
+   * @param config The profiler configuration.
+   * @return The ColumnarProfile or empty, if the profile is not combined.
+   */
+  private Optional<ColumnarProfile> getCombiner(ProfileConfig profile, ProfilerConfig config) {
+    if(combinerWindowMillis <= 0 || config.getTimestampField() != null) {
+      return Optional.empty();
+    }
+
+    return combiners.computeIfAbsent(profile, definition ->
+            ColumnarProfile.of(definition, combinerWindowMillis, new WallClock(), getStellarContext())
+                    .filter(ColumnarProfile::isMergeable));
+  }
+
+  /**
+   * Emits the partial state of each combined profile and acks the tuples that contributed to it.
+   */
+  private void emitPartials() {
+    Set<Tuple> combined = new LinkedHashSet<>();
+    for(Map.Entry<ProfileConfig, Optional<ColumnarProfile>> entry : combiners.entrySet()) {
+      if(!entry.getValue().isPresent()) {
+        continue;
+      }
+
+      ProfileConfig profile = entry.getKey();
+      Map<String, List<Tuple>> profileAnchors = anchors.getOrDefault(profile, Collections.emptyMap());
+      entry.getValue().get().drain().forEach((entity, partial) -> {
+        List<Tuple> tuples = profileAnchors.getOrDefault(entity, Collections.emptyList());
+        collector.emit(PARTIAL_STREAM, tuples, new Values(entity, profile, SerDeUtils.toBytes(partial)));
+      });
+    }
+
+    for(Map<String, List<Tuple>> profileAnchors : anchors.values()) {
+      profileAnchors.values().forEach(combined::addAll);
+    }
+    combined.forEach(collector::ack);
+
+    // the profiles are recreated each window so that changes to their definition are picked up
+    combiners.clear();
+    anchors.clear();
+    nextCombineMillis = System.currentTimeMillis() + combinerWindowMillis;
   }
 
   /**
@@ -131,10 +270,27 @@ public class ProfileSplitterBolt extends ConfiguredProfilerBolt {
    * <li> message - The message containing JSON-formatted data that needs applied to a profile.
    * </ol>
    * <p>
+   * Tuples emitted on the 'partial' stream contain the entity, the profile and the serialized
+   * partial state of the profile, in place of the message.
    */
   @Override
   public void declareOutputFields(OutputFieldsDeclarer declarer) {
     declarer.declare(new Fields("entity", "profile", "message"));
+    declarer.declareStream(PARTIAL_STREAM, new Fields("entity", "profile", "partial"));
+  }
+
+  public ProfileSplitterBolt withCombinerWindowMillis(long combinerWindowMillis) {
+    this.combinerWindowMillis = combinerWindowMillis;
+    return this;
+  }
+
+  /**
+   * @param duration The amount of time that messages are combined before the partial state is emitted.
+   *                 If 0, messages are not combined.
+   * @param units The units of the duration.
+   */
+  public ProfileSplitterBolt withCombinerWindow(int duration, TimeUnit units) {
+    return withCombinerWindowMillis(units.toMillis(duration));
   }
 
   protected MessageRouter getMessageRouter() {
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.bolt;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfilePeriod;
+import org.apache.metron.profiler.ProfileRollups;
+import org.apache.metron.statistics.OnlineStatisticsProvider;
+import org.apache.metron.statistics.approximation.HyperLogLogPlus;
+import org.apache.metron.statistics.outlier.MedianAbsoluteDeviationFunctions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Maintains rollups of the measurements produced by the Profiler.
+ *
+ * Each rollup merges the values of all the profile periods that fall within a coarser,
+ * rollup period; for example an hour or a day.  Only values that can be merged are rolled
+ * up; statistics, cardinality estimates and median absolute deviation state.  A rollup is
+ * completed once time has passed the end of its period.
+ *
+ * Rollups are not checkpointed, so a rollup whose period started before the builder received
+ * its first measurement would only summarize part of its period; such a rollup is dropped.
+ * Each rollup also records the number of profile periods that were flushed within its period,
+ * which lets a reader tell whether the rollup summarizes all of them.
+ */
+public class RollupBuilder {
+
+  protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * A rollup that is being built.
+   */
+  private static class Rollup {
+
+    private ProfileMeasurement prototype;
+    private ProfilePeriod period;
+    private Object value;
+    private Window window;
+
+    private Rollup(ProfileMeasurement prototype, ProfilePeriod period, Object value, Window window) {
+      this.prototype = prototype;
+      this.period = period;
+      this.value = value;
+      this.window = window;
+    }
+  }
+
+  /**
+   * The profile periods of a profile that were flushed within a rollup period.
+   */
+  private static class Window {
+
+    private ProfilePeriod period;
+    private Set<Long> periods;
+
+    private Window(ProfilePeriod period) {
+      this.period = period;
+      this.periods = new HashSet<>();
+    }
+  }
+
+  /**
+   * The duration of each rollup in milliseconds.
+   */
+  private List<Long> durations;
+
+  /**
+   * The rollups that are being built.
+   */
+  private Map<String, Rollup> rollups;
+
+  /**
+   * The profile periods flushed within each rollup period, keyed by profile, duration and period.
+   */
+  private Map<String, Window> windows;
+
+  /**
+   * The start of the first profile period applied to the builder in epoch milliseconds.  Rollups
+   * whose period started earlier are incomplete.
+   */
+  private long firstPeriodStartMillis;
+
+  /**
+   * @param durations The duration of each rollup in milliseconds.
+   */
+  public RollupBuilder(List<Long> durations) {
+    this.durations = durations;
+    this.rollups = new HashMap<>();
+    this.windows = new HashMap<>();
+    this.firstPeriodStartMillis = Long.MAX_VALUE;
+  }
+
+  /**
+   * Applies a profile measurement to each of the rollups that cover it.
+   * @param measurement The profile measurement.
+   */
+  public void apply(ProfileMeasurement measurement) {
+    Object value = measurement.getProfileValue();
+    if(!isMergeable(value)) {
+      return;
+    }
+
+    ProfilePeriod period = measurement.getPeriod();
+    if(firstPeriodStartMillis == Long.MAX_VALUE) {
+      firstPeriodStartMillis = period.getStartTimeMillis();
+    }
+
+    for(long duration : durations) {
+      if(!ProfileRollups.isCompatible(duration, period.getDurationMillis())) {
+        continue;
+      }
+
+      ProfilePeriod rollupPeriod = new ProfilePeriod(period.getStartTimeMillis(), duration, TimeUnit.MILLISECONDS);
+      String key = format("%s:%s:%s:%d:%d", measurement.getProfileName(), measurement.getEntity(),
+              measurement.getGroups(), duration, rollupPeriod.getPeriod());
+
+      String windowKey = format("%s:%d:%d", measurement.getProfileName(), duration, rollupPeriod.getPeriod());
+      Window window = windows.computeIfAbsent(windowKey, k -> new Window(rollupPeriod));
+      window.periods.add(period.getPeriod());
+
+      Rollup rollup = rollups.get(key);
+      if(rollup == null) {
+        rollups.put(key, new Rollup(measurement, rollupPeriod, value, window));
+
+      } else {
+        try {
+          rollup.value = merge(rollup.value, value);
+
+        } catch(IllegalArgumentException e) {
+          LOG.error(format("Unable to rollup profile: profile=%s, entity=%s, error=%s",
+                  measurement.getProfileName(), measurement.getEntity(), e.getMessage()), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Completes all rollups whose period ends on or before the given time.
+   *
+   * @param timeMillis The time in epoch milliseconds.
+   * @return The completed rollups.
+   */
+  public List<ProfileMeasurement> complete(long timeMillis) {
+    List<ProfileMeasurement> completed = new ArrayList<>();
+
+    Iterator<Rollup> iterator = rollups.values().iterator();
+    while(iterator.hasNext()) {
+      Rollup rollup = iterator.next();
+      if(rollup.period.getEndTimeMillis() > timeMillis) {
+        continue;
+      }
+
+      iterator.remove();
+      ProfileMeasurement prototype = rollup.prototype;
+      if(rollup.period.getStartTimeMillis() < firstPeriodStartMillis) {
+        LOG.debug("Dropping incomplete rollup: profile={}, entity={}, start={}",
+                prototype.getProfileName(), prototype.getEntity(), rollup.period.getStartTimeMillis());
+        continue;
+      }
+
+      completed.add(new ProfileMeasurement()
+              .withProfileName(prototype.getProfileName())
+              .withEntity(prototype.getEntity())
+              .withGroups(ProfileRollups.rollupGroups(prototype.getGroups(), rollup.period.getDurationMillis()))
+              .withPeriod(rollup.period.getStartTimeMillis(), rollup.period.getDurationMillis(), TimeUnit.MILLISECONDS)
+              .withProfileValue(rollup.value)
+              .withRolledUpPeriods((long) rollup.window.periods.size())
+              .withDefinition(prototype.getDefinition()));
+    }
+
+    windows.values().removeIf(window -> window.period.getEndTimeMillis() <= timeMillis);
+    return completed;
+  }
+
+  /**
+   * The number of rollups that are being built.
+   */
+  public int size() {
+    return rollups.size();
+  }
+
+  /**
+   * Can the profile value be rolled up?
+   * @param value The profile value.
+   */
+  private static boolean isMergeable(Object value) {
+    return value instanceof OnlineStatisticsProvider
+            || value instanceof HyperLogLogPlus
+            || value instanceof MedianAbsoluteDeviationFunctions.State;
+  }
+
+  /**
+   * Merges two profile values.  Neither value is modified.
+   *
+   * @param earlier The value from the earlier period.
+   * @param later The value from the later period.
+   * @return The merged value.
+   */
+  private static Object merge(Object earlier, Object later) {
+    if(earlier instanceof OnlineStatisticsProvider && later instanceof OnlineStatisticsProvider) {
+      return ((OnlineStatisticsProvider) earlier).merge((OnlineStatisticsProvider) later);
+
+    } else if(earlier instanceof HyperLogLogPlus && later instanceof HyperLogLogPlus) {
+      return ((HyperLogLogPlus) earlier).merge(Collections.singletonList((HyperLogLogPlus) later));
+
+    } else if(earlier instanceof MedianAbsoluteDeviationFunctions.State && later instanceof MedianAbsoluteDeviationFunctions.State) {
+      return MedianAbsoluteDeviationFunctions.State.combine(
+              (MedianAbsoluteDeviationFunctions.State) earlier,
+              (MedianAbsoluteDeviationFunctions.State) later);
+    }
+
+    throw new IllegalArgumentException(format("unable to merge profile values of type %s and %s",
+            ClassUtils.getShortClassName(earlier, "null"), ClassUtils.getShortClassName(later, "null")));
+  }
+}
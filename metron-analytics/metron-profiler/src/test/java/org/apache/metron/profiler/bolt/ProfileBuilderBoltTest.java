@@ -23,6 +23,7 @@ package org.apache.metron.profiler.bolt;
 import org.adrianwalker.multilinestring.Multiline;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.apache.metron.common.configuration.profiler.ProfilerConfig;
 import org.apache.metron.common.utils.JSONUtils;
 import org.apache.metron.profiler.MessageRoute;
 import org.apache.metron.profiler.ProfileBuilder;
@@ -39,6 +40,7 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -47,9 +49,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -339,4 +343,42 @@ public class ProfileBuilderBoltTest extends BaseBoltTest {
     verify(outputCollector, times(1)).emit(eq("kafka"), arg.capture());
     assertTrue(arg.getValue().get(0) instanceof JSONObject);
   }
+
+  /**
+   * In event time, a profile period should be flushed once the watermark passes the end of the
+   * period, rather than on a tick tuple.
+   */
+  @Test
+  public void testEventTime() throws Exception {
+
+    // setup - the profiler uses event time
+    ProfileBuilderBolt bolt = createBolt();
+    ProfileConfig definition = createDefinition(profileOne);
+    ProfilerConfig config = new ProfilerConfig();
+    config.setProfiles(Collections.singletonList(definition));
+    config.setTimestampField("timestamp");
+    bolt.getConfigurations().updateProfilerConfig(config);
+
+    // apply a message to the first period
+    final String entity = (String) messageOne.get("ip_src_addr");
+    JSONObject first = new JSONObject(messageOne);
+    first.put("timestamp", 1000L);
+    bolt.execute(createTuple(entity, first, definition));
+
+    // a tick tuple does not flush the period
+    bolt.execute(mockTickTuple());
+    verify(outputCollector, never()).emit(eq("hbase"), any(Values.class));
+
+    // a message from the next period advances the watermark past the end of the first period
+    JSONObject second = new JSONObject(messageOne);
+    second.put("timestamp", TimeUnit.MINUTES.toMillis(10) + 1000L);
+    bolt.execute(createTuple(entity, second, definition));
+
+    // validate - only the first period was flushed
+    ArgumentCaptor<Values> arg = ArgumentCaptor.forClass(Values.class);
+    verify(outputCollector, times(1)).emit(eq("hbase"), arg.capture());
+    ProfileMeasurement measurement = (ProfileMeasurement) arg.getValue().get(0);
+    assertEquals(0, measurement.getPeriod().getStartTimeMillis());
+    assertEquals(1, (int) convert(measurement.getProfileValue(), Integer.class));
+  }
 }
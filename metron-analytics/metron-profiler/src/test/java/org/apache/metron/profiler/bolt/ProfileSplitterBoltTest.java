@@ -21,6 +21,7 @@
 package org.apache.metron.profiler.bolt;
 
 import org.adrianwalker.multilinestring.Multiline;
+import org.apache.metron.common.utils.SerDeUtils;
 import org.apache.metron.stellar.common.DefaultStellarStatefulExecutor;
 import org.apache.metron.test.bolt.BaseBoltTest;
 import org.apache.storm.tuple.Tuple;
@@ -30,11 +31,18 @@ import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.refEq;
 import static org.mockito.Mockito.*;
 
@@ -120,6 +128,45 @@ public class ProfileSplitterBoltTest extends BaseBoltTest {
   @Multiline
   private String onlyIfInvalid;
 
+  /**
+   * {
+   *   "profiles": [
+   *      {
+   *        "profile": "count",
+   *        "foreach": "ip_src_addr",
+   *        "init": { "count": "0" },
+   *        "update": { "count": "count + 1" },
+   *        "result": "count"
+   *      }
+   *   ]
+   * }
+   */
+  @Multiline
+  private String countProfile;
+
+  /**
+   * {
+   *   "profiles": [
+   *      {
+   *        "profile": "count",
+   *        "foreach": "ip_src_addr",
+   *        "init": { "count": "0" },
+   *        "update": { "count": "count + 1" },
+   *        "result": "count"
+   *      },
+   *      {
+   *        "profile": "test",
+   *        "foreach": "ip_src_addr",
+   *        "init": {},
+   *        "update": {},
+   *        "result": "2"
+   *      }
+   *   ]
+   * }
+   */
+  @Multiline
+  private String countAndOtherProfile;
+
   private JSONObject message;
 
   @Before
@@ -226,6 +273,89 @@ public class ProfileSplitterBoltTest extends BaseBoltTest {
     verify(outputCollector, times(1)).emit(any(Tuple.class), refEq(new Values(expectedEntity, onlyIfTrue, message)));
   }
 
+  /**
+   * When combining, a profile whose state can be merged should only emit its partial state and
+   * the input tuples should be acked once it is emitted.
+   */
+  @Test
+  public void testCombiner() throws Exception {
+    ProfileSplitterBolt bolt = new ProfileSplitterBolt("zookeeperURL")
+            .withCombinerWindow(1, TimeUnit.MINUTES);
+    bolt.setCuratorFramework(client);
+    bolt.setTreeCache(cache);
+    bolt.getConfigurations().updateProfilerConfig(countProfile.getBytes("UTF-8"));
+    bolt.prepare(new HashMap<>(), topologyContext, outputCollector);
+
+    Tuple another = mock(Tuple.class);
+    when(another.getBinary(0)).thenReturn(input.getBytes());
+    bolt.execute(tuple);
+    bolt.execute(another);
+
+    // nothing is emitted or acked until the combiner window has passed
+    verify(outputCollector, times(0)).emit(any(Tuple.class), any(Values.class));
+    verify(outputCollector, times(0)).ack(any(Tuple.class));
+
+    // the tick tuple triggers the partial state to be emitted
+    bolt.execute(ProfileBuilderBoltTest.mockTickTuple());
+    ArgumentCaptor<List> anchors = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<Values> values = ArgumentCaptor.forClass(Values.class);
+    verify(outputCollector, times(1)).emit(eq(ProfileSplitterBolt.PARTIAL_STREAM), anchors.capture(), values.capture());
+
+    // the partial state should count both messages
+    assertEquals("10.0.0.1", values.getValue().get(0));
+    Map partial = SerDeUtils.fromBytes((byte[]) values.getValue().get(2), Map.class);
+    assertEquals(2, partial.get("count"));
+
+    // the partial state is anchored to, and then acks, both tuples
+    assertEquals(Arrays.asList(tuple, another), anchors.getValue());
+    verify(outputCollector, times(1)).ack(tuple);
+    verify(outputCollector, times(1)).ack(another);
+  }
+
+  /**
+   * When combining, a tuple that fails after being combined into one profile is acked right
+   * away and should not be acked again once the partial state is emitted.
+   */
+  @Test
+  public void testCombinerAcksFailedTupleOnce() throws Exception {
+    ProfileSplitterBolt bolt = new ProfileSplitterBolt("zookeeperURL")
+            .withCombinerWindow(1, TimeUnit.MINUTES);
+    bolt.setCuratorFramework(client);
+    bolt.setTreeCache(cache);
+    bolt.getConfigurations().updateProfilerConfig(countAndOtherProfile.getBytes("UTF-8"));
+    bolt.prepare(new HashMap<>(), topologyContext, outputCollector);
+
+    // the message is combined into the first profile, then fails to be emitted for the second
+    doThrow(new IllegalStateException("emit failed")).when(outputCollector).emit(any(Tuple.class), any(Values.class));
+    try {
+      bolt.execute(tuple);
+    } catch(IllegalStateException e) {
+      // expected
+    }
+    verify(outputCollector, times(1)).ack(tuple);
+
+    // the partial state is emitted without acking the tuple again
+    bolt.execute(ProfileBuilderBoltTest.mockTickTuple());
+    verify(outputCollector, times(1)).ack(tuple);
+  }
+
+  /**
+   * When combining, a profile whose state cannot be merged should emit each message.
+   */
+  @Test
+  public void testCombinerWithProfileThatCannotMerge() throws Exception {
+    ProfileSplitterBolt bolt = new ProfileSplitterBolt("zookeeperURL")
+            .withCombinerWindow(1, TimeUnit.MINUTES);
+    bolt.setCuratorFramework(client);
+    bolt.setTreeCache(cache);
+    bolt.getConfigurations().updateProfilerConfig(onlyIfTrue.getBytes("UTF-8"));
+    bolt.prepare(new HashMap<>(), topologyContext, outputCollector);
+
+    bolt.execute(tuple);
+    verify(outputCollector, times(1)).emit(refEq(tuple), any(Values.class));
+    verify(outputCollector, times(1)).ack(tuple);
+  }
+
   /**
    * What happens when invalid Stella code is used for 'onlyif'?  The invalid profile should be ignored.
    */
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.profiler.bolt;
+
+import org.apache.metron.profiler.ProfileMeasurement;
+import org.apache.metron.profiler.ProfileRollups;
+import org.apache.metron.statistics.OnlineStatisticsProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the RollupBuilder class.
+ */
+public class RollupBuilderTest {
+
+  private static final long hourMillis = TimeUnit.HOURS.toMillis(1);
+  private static final long startTime = 1503081070340L / hourMillis * hourMillis;
+
+  private RollupBuilder builder;
+
+  @Before
+  public void setup() {
+    builder = new RollupBuilder(Arrays.asList(hourMillis));
+  }
+
+  /**
+   * Creates a measurement containing statistics for the given values.
+   */
+  private ProfileMeasurement measurement(long whenMillis, double... values) {
+    OnlineStatisticsProvider stats = new OnlineStatisticsProvider();
+    for(double value : values) {
+      stats.addValue(value);
+    }
+
+    return new ProfileMeasurement()
+            .withProfileName("profile1")
+            .withEntity("entity1")
+            .withGroups(Collections.emptyList())
+            .withPeriod(whenMillis, 15, TimeUnit.MINUTES)
+            .withProfileValue(stats);
+  }
+
+  /**
+   * The rollup should merge all of the profile periods that it covers.
+   */
+  @Test
+  public void testRollup() {
+    for(int i=0; i<4; i++) {
+      builder.apply(measurement(startTime + TimeUnit.MINUTES.toMillis(15 * i), i, i + 10));
+    }
+
+    // the rollup period has not ended yet
+    assertEquals(0, builder.complete(startTime + hourMillis - 1).size());
+    assertEquals(1, builder.size());
+
+    List<ProfileMeasurement> rollups = builder.complete(startTime + hourMillis);
+    assertEquals(1, rollups.size());
+    assertEquals(0, builder.size());
+
+    ProfileMeasurement rollup = rollups.get(0);
+    assertEquals("profile1", rollup.getProfileName());
+    assertEquals("entity1", rollup.getEntity());
+    assertEquals(ProfileRollups.rollupGroups(Collections.emptyList(), hourMillis), rollup.getGroups());
+    assertEquals(startTime, rollup.getPeriod().getStartTimeMillis());
+    assertEquals(hourMillis, rollup.getPeriod().getDurationMillis());
+    assertEquals(4L, (long) rollup.getRolledUpPeriods());
+
+    OnlineStatisticsProvider stats = (OnlineStatisticsProvider) rollup.getProfileValue();
+    assertEquals(8, stats.getCount());
+    assertEquals(0, stats.getMin(), 0.0001);
+    assertEquals(13, stats.getMax(), 0.0001);
+  }
+
+  /**
+   * Measurements falling in different rollup periods are rolled up separately.
+   */
+  @Test
+  public void testRollupPerPeriod() {
+    builder.apply(measurement(startTime, 1));
+    builder.apply(measurement(startTime + hourMillis, 2));
+    assertEquals(2, builder.size());
+
+    List<ProfileMeasurement> rollups = builder.complete(startTime + hourMillis);
+    assertEquals(1, rollups.size());
+    assertEquals(startTime, rollups.get(0).getPeriod().getStartTimeMillis());
+    assertEquals(1, builder.size());
+  }
+
+  /**
+   * Values that cannot be merged are not rolled up.
+   */
+  @Test
+  public void testIgnoreValuesThatCannotMerge() {
+    ProfileMeasurement m = measurement(startTime).withProfileValue(22);
+    builder.apply(m);
+    assertEquals(0, builder.size());
+    assertEquals(0, builder.complete(startTime + hourMillis).size());
+  }
+
+  /**
+   * A rollup whose period started before the first measurement only covers part of its
+   * period, so it is dropped.
+   */
+  @Test
+  public void testDropRollupStartedBeforeFirstMeasurement() {
+    builder.apply(measurement(startTime + TimeUnit.MINUTES.toMillis(30), 1));
+    builder.apply(measurement(startTime + TimeUnit.MINUTES.toMillis(45), 2));
+    builder.apply(measurement(startTime + hourMillis, 3));
+
+    assertEquals(0, builder.complete(startTime + hourMillis).size());
+    assertEquals(1, builder.complete(startTime + 2 * hourMillis).size());
+  }
+
+  /**
+   * A rollup records the number of profile periods flushed within its period, by any entity.
+   */
+  @Test
+  public void testRollupCountsFlushedPeriods() {
+    builder.apply(measurement(startTime, 1));
+    builder.apply(measurement(startTime + TimeUnit.MINUTES.toMillis(15), 2).withEntity("entity2"));
+    builder.apply(measurement(startTime + TimeUnit.MINUTES.toMillis(30), 3));
+
+    List<ProfileMeasurement> rollups = builder.complete(startTime + hourMillis);
+    assertEquals(2, rollups.size());
+    for(ProfileMeasurement rollup : rollups) {
+      assertEquals(3L, (long) rollup.getRolledUpPeriods());
+    }
+  }
+}
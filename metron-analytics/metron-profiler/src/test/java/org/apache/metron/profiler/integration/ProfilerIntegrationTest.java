@@ -294,6 +294,16 @@ public class ProfilerIntegrationTest extends BaseIntegrationTest {
       setProperty("profiler.period.duration.units", "SECONDS");
       setProperty("profiler.ttl", "30");
       setProperty("profiler.ttl.units", "MINUTES");
+      setProperty("profiler.allowed.lateness", "0");
+      setProperty("profiler.allowed.lateness.units", "SECONDS");
+      setProperty("profiler.rollups", "");
+      setProperty("profiler.state.dir", "");
+      setProperty("profiler.max.active.profiles", "0");
+      setProperty("profiler.checkpoint.interval", "0");
+      setProperty("profiler.checkpoint.interval.units", "MINUTES");
+      setProperty("profiler.columnar.enabled", "false");
+      setProperty("profiler.combiner.window", "0");
+      setProperty("profiler.combiner.window.units", "SECONDS");
       setProperty("profiler.hbase.salt.divisor", "10");
       setProperty("profiler.hbase.table", tableName);
       setProperty("profiler.hbase.column.family", columnFamily);
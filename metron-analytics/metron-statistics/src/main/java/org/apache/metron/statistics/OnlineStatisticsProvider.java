@@ -272,6 +272,71 @@ public class OnlineStatisticsProvider implements StatisticsProvider, KryoSeriali
     return combined;
   }
 
+  /**
+   * Merge another provider into this one, in place.  Unlike merge, this does not allocate
+   * a new provider and digest, which matters when accumulating many providers.
+   * NOTE: This is NOT threadsafe.
+   * @param provider The provider to merge into this one.  It is not modified.
+   * @return This provider.
+   */
+  public OnlineStatisticsProvider mergeInPlace(OnlineStatisticsProvider provider) {
+    OnlineStatisticsProvider a = this;
+    OnlineStatisticsProvider b = provider;
+    if(b.n == 0) {
+      return this;
+    }
+    if(a.n == 0) {
+      n = b.n;
+      sum = b.sum;
+      sumOfSquares = b.sumOfSquares;
+      sumOfLogs = b.sumOfLogs;
+      min = b.min;
+      max = b.max;
+      M1 = b.M1;
+      M2 = b.M2;
+      M3 = b.M3;
+      M4 = b.M4;
+      digest.add(b.digest);
+      return this;
+    }
+
+    long n = a.n + b.n;
+    double delta = b.M1 - a.M1;
+    double delta2 = delta*delta;
+    double delta3 = delta*delta2;
+    double delta4 = delta2*delta2;
+
+    double M1 = (a.n*a.M1 + b.n*b.M1) / n;
+
+    double M2 = a.M2 + b.M2 +
+            delta2 * a.n * b.n / n;
+
+    double M3 = a.M3 + b.M3 +
+            delta3 * a.n * b.n * (a.n - b.n)/(n*n);
+    M3 += 3.0*delta * (a.n*b.M2 - b.n*a.M2) / n;
+
+    double M4 = a.M4 + b.M4 + delta4*a.n*b.n * (a.n*a.n - a.n*b.n + b.n*b.n) /
+            (n*n*n);
+    M4 += 6.0*delta2 * (a.n*a.n*b.M2 + b.n*b.n*a.M2)/(n*n) +
+            4.0*delta*(a.n*b.M3 - b.n*a.M3) / n;
+
+    this.n = n;
+    this.sum += b.sum;
+    this.sumOfSquares += b.sumOfSquares;
+    this.sumOfLogs += b.sumOfLogs;
+    if(b.min != null) {
+      this.min = this.min == null ? b.min : Math.min(this.min, b.min);
+      this.max = this.max == null ? b.max : Math.max(this.max, b.max);
+    }
+    this.M1 = M1;
+    this.M2 = M2;
+    this.M3 = M3;
+    this.M4 = M4;
+    digest.add(b.digest);
+    checkFlowError(sumOfSquares, sum, sumOfSquares, M1, M2, M3, M4);
+    return this;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -25,6 +25,7 @@ import org.apache.metron.stellar.dsl.BaseStellarFunction;
 import org.apache.metron.stellar.dsl.Stellar;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -46,8 +47,13 @@ public class StellarStatisticsFunctions {
     if(args.size() > 0 && args.get(0) instanceof Number) {
       windowSize = convert(args.get(0), Integer.class);
     }
+    boolean approximate = false;
+    if(args.size() > 1 && args.get(1) != null) {
+      Boolean b = convert(args.get(1), Boolean.class);
+      approximate = b != null && b;
+    }
     if(windowSize > 0) {
-      return new WindowedStatisticsProvider(windowSize);
+      return approximate ? new WindowedSketchStatisticsProvider(windowSize) : new WindowedStatisticsProvider(windowSize);
     }
     return new OnlineStatisticsProvider();
   }
@@ -66,17 +72,32 @@ public class StellarStatisticsFunctions {
       if(args.size() > 0) {
         Object firstArg = args.get(0);
         if(firstArg instanceof List) {
-          StatisticsProvider ret = null;
+          List<StatisticsProvider> providers = new ArrayList<>();
+          boolean online = true;
           for(Object sp : (List)firstArg) {
             if(sp instanceof StatisticsProvider) {
-              if(ret == null) {
-                ret = (StatisticsProvider)sp;
-              }
-              else {
-                ret = ret.merge((StatisticsProvider)sp);
-              }
+              providers.add((StatisticsProvider)sp);
+              online &= sp instanceof OnlineStatisticsProvider;
             }
           }
+          if(providers.isEmpty()) {
+            return null;
+          }
+          else if(providers.size() == 1) {
+            return providers.get(0);
+          }
+          else if(online) {
+            //accumulate in place using a tree reduction, rather than allocating a new provider per merge
+            return TreeReduce.<StatisticsProvider, OnlineStatisticsProvider>reduce( providers
+                                                                          , OnlineStatisticsProvider::new
+                                                                          , (acc, sp) -> acc.mergeInPlace((OnlineStatisticsProvider)sp)
+                                                                          , OnlineStatisticsProvider::mergeInPlace
+                                                                          );
+          }
+          StatisticsProvider ret = providers.get(0);
+          for(StatisticsProvider sp : providers.subList(1, providers.size())) {
+            ret = ret.merge(sp);
+          }
           return ret;
         }
         else {
@@ -90,12 +111,14 @@ public class StellarStatisticsFunctions {
   /**
    * Initialize the summary statistics.
    *
-   *  STATS_INIT (window_size)
+   *  STATS_INIT (window_size [, approximate])
    *
    * window_size The number of input data values to maintain in a rolling window
    *             in memory.  If equal to 0, then no rolling window is maintained.
    *             Using no rolling window is less memory intensive, but cannot
    *             calculate certain statistics like percentiles and kurtosis.
+   * approximate If true, the rolling window is summarized by sketches in bounded
+   *             memory rather than storing every value.
    */
   @Stellar( namespace="STATS"
           , name="INIT"
@@ -105,6 +128,10 @@ public class StellarStatisticsFunctions {
                       "in memory.  If window_size is equal to 0, then no rolling window is maintained. " +
                       "Using no rolling window is less memory intensive, but cannot " +
                       "calculate certain statistics like percentiles and kurtosis."
+                     , "approximate - Optional; if true, the rolling window is summarized in bounded memory by " +
+                       "sketches that expire in buckets, rather than storing every value.  Percentiles are approximate " +
+                       "and the window covers the most recent window_size values to within a sixteenth of window_size.  " +
+                       "Defaults to false."
                       }
           , returns = "A Stellar statistics object"
           )
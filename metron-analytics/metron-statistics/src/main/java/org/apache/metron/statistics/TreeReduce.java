@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Merges a list of mergeable values, like statistics providers or cardinality estimators, using
+ * a balanced tree reduction.
+ *
+ * Each leaf of the tree accumulates a contiguous run of values, in place, into a single mutable
+ * accumulator.  The accumulators are then combined pairwise up the tree.  This avoids allocating
+ * a new merged value for each of the values being merged.  When the list is large, the branches
+ * of the tree are reduced in parallel using the common fork/join pool.
+ *
+ * The values are always merged in the order in which they are given.  The values themselves are
+ * never modified, only the accumulators.
+ */
+public class TreeReduce {
+
+  /**
+   * The number of values accumulated serially at each leaf of the tree.
+   */
+  public static final int LEAF_SIZE = 256;
+
+  /**
+   * The number of values above which the reduction is performed in parallel.
+   */
+  public static final int PARALLEL_THRESHOLD = 2048;
+
+  /**
+   * Reduces a list of values.
+   *
+   * @param values The values to reduce.
+   * @param accumulator Creates a new, empty accumulator.
+   * @param accumulate Merges a value into an accumulator, in place.
+   * @param combine Merges the second accumulator into the first, returning the first.
+   * @param <T> The type of value.
+   * @param <A> The type of accumulator.
+   * @return The accumulator containing all of the values.
+   */
+  public static <T, A> A reduce(List<T> values
+                               , Supplier<A> accumulator
+                               , BiConsumer<A, T> accumulate
+                               , BinaryOperator<A> combine) {
+    List<T> list = values instanceof RandomAccess ? values : new ArrayList<>(values);
+    Reduction<T, A> reduction = new Reduction<>(list, 0, list.size(), accumulator, accumulate, combine);
+    if(list.size() > PARALLEL_THRESHOLD) {
+      return ForkJoinPool.commonPool().invoke(reduction);
+    }
+    return reduction.compute();
+  }
+
+  /**
+   * Reduces the values in the range [from, to).
+   */
+  private static class Reduction<T, A> extends RecursiveTask<A> {
+
+    private final List<T> values;
+    private final int from;
+    private final int to;
+    private final Supplier<A> accumulator;
+    private final BiConsumer<A, T> accumulate;
+    private final BinaryOperator<A> combine;
+
+    private Reduction(List<T> values
+                     , int from
+                     , int to
+                     , Supplier<A> accumulator
+                     , BiConsumer<A, T> accumulate
+                     , BinaryOperator<A> combine) {
+      this.values = values;
+      this.from = from;
+      this.to = to;
+      this.accumulator = accumulator;
+      this.accumulate = accumulate;
+      this.combine = combine;
+    }
+
+    @Override
+    protected A compute() {
+      if(to - from <= LEAF_SIZE) {
+        A acc = accumulator.get();
+        for(int i = from; i < to; ++i) {
+          accumulate.accept(acc, values.get(i));
+        }
+        return acc;
+      }
+
+      int mid = (from + to) >>> 1;
+      Reduction<T, A> left = new Reduction<>(values, from, mid, accumulator, accumulate, combine);
+      Reduction<T, A> right = new Reduction<>(values, mid, to, accumulator, accumulate, combine);
+      if(inForkJoinPool()) {
+        right.fork();
+        A leftResult = left.compute();
+        return combine.apply(leftResult, right.join());
+      }
+      return combine.apply(left.compute(), right.compute());
+    }
+  }
+}
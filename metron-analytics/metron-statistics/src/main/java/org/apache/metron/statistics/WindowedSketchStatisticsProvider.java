@@ -0,0 +1,254 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.metron.statistics;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+
+/**
+ * A bounded memory implementation of a statistics provider over a rolling window.
+ *
+ * Rather than storing every value in the window, as the WindowedStatisticsProvider does, the window
+ * is divided into a fixed number of buckets, each of which is summarized by an OnlineStatisticsProvider
+ * and its t-digest.  When the window is full, the oldest bucket expires as a whole, so the statistics
+ * cover between (window_size - bucket_size) and window_size of the most recent values.  Memory is
+ * bounded by the number of buckets rather than the window size, and percentiles are approximate.
+ * NOTE: Windowed statistics providers cannot be merged.
+ */
+public class WindowedSketchStatisticsProvider implements StatisticsProvider, KryoSerializable {
+
+  /**
+   * The default number of buckets the window is divided into.
+   */
+  public static final int BUCKETS = 16;
+
+  private int windowSize;
+  private int bucketSize;
+
+  /**
+   * The buckets, oldest first.  The last bucket is the one values are added to.
+   */
+  private Deque<OnlineStatisticsProvider> buckets = new ArrayDeque<>();
+  private long n = 0;
+
+  /**
+   * The buckets merged into a single provider, so repeated queries do not merge again.  This is
+   * discarded whenever a value is added.
+   */
+  private transient OnlineStatisticsProvider merged;
+
+  /**
+   * Used only by Kryo.
+   */
+  public WindowedSketchStatisticsProvider() {
+  }
+
+  public WindowedSketchStatisticsProvider(int windowSize) {
+    this(windowSize, BUCKETS);
+  }
+
+  /**
+   * @param windowSize The number of the most recent values summarized.
+   * @param numBuckets The number of buckets the window is divided into.  More buckets track the window
+   *                   more closely at the cost of memory.
+   */
+  public WindowedSketchStatisticsProvider(int windowSize, int numBuckets) {
+    if(windowSize <= 0 || numBuckets <= 0) {
+      throw new IllegalArgumentException("Window size and number of buckets must be positive.");
+    }
+    this.windowSize = windowSize;
+    this.bucketSize = (int) Math.ceil((double) windowSize / numBuckets);
+  }
+
+  /**
+   * Add a value, expiring the oldest bucket if the window is full.
+   * NOTE: This is NOT threadsafe.
+   * @param value
+   */
+  @Override
+  public void addValue(double value) {
+    OnlineStatisticsProvider current = buckets.peekLast();
+    if(current == null || current.getCount() >= bucketSize) {
+      current = new OnlineStatisticsProvider();
+      buckets.addLast(current);
+    }
+    current.addValue(value);
+    n++;
+    while(n > windowSize && buckets.size() > 1) {
+      n -= buckets.removeFirst().getCount();
+    }
+    merged = null;
+  }
+
+  private OnlineStatisticsProvider merged() {
+    if(merged == null) {
+      OnlineStatisticsProvider ret = new OnlineStatisticsProvider();
+      for(OnlineStatisticsProvider bucket : buckets) {
+        ret.mergeInPlace(bucket);
+      }
+      merged = ret;
+    }
+    return merged;
+  }
+
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  @Override
+  public long getCount() {
+    return n;
+  }
+
+  @Override
+  public double getMin() {
+    return merged().getMin();
+  }
+
+  @Override
+  public double getMax() {
+    return merged().getMax();
+  }
+
+  @Override
+  public double getMean() {
+    return merged().getMean();
+  }
+
+  @Override
+  public double getSum() {
+    return merged().getSum();
+  }
+
+  @Override
+  public double getVariance() {
+    return merged().getVariance();
+  }
+
+  @Override
+  public double getStandardDeviation() {
+    return merged().getStandardDeviation();
+  }
+
+  @Override
+  public double getGeometricMean() {
+    return FastMath.exp(getSumLogs() / n);
+  }
+
+  @Override
+  public double getPopulationVariance() {
+    return getVariance() * (n - 1.0) / n;
+  }
+
+  @Override
+  public double getQuadraticMean() {
+    return merged().getQuadraticMean();
+  }
+
+  @Override
+  public double getSumLogs() {
+    return merged().getSumLogs();
+  }
+
+  @Override
+  public double getSumSquares() {
+    return merged().getSumSquares();
+  }
+
+  @Override
+  public double getKurtosis() {
+    return merged().getKurtosis();
+  }
+
+  @Override
+  public double getSkewness() {
+    return merged().getSkewness();
+  }
+
+  /**
+   * This returns an approximate percentile based on the merged t-digests of the buckets.
+   * @param p
+   * @return
+   */
+  @Override
+  public double getPercentile(double p) {
+    return merged().getPercentile(p);
+  }
+
+  @Override
+  public StatisticsProvider merge(StatisticsProvider provider) {
+    throw new UnsupportedOperationException("Windowed Statistics cannot be merged.");
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+
+    WindowedSketchStatisticsProvider that = (WindowedSketchStatisticsProvider) o;
+
+    if (windowSize != that.windowSize) return false;
+    if (bucketSize != that.bucketSize) return false;
+    if (n != that.n) return false;
+    return new ArrayList<>(buckets).equals(new ArrayList<>(that.buckets));
+  }
+
+  @Override
+  public int hashCode() {
+    int result = windowSize;
+    result = 31 * result + bucketSize;
+    result = 31 * result + (int) (n ^ (n >>> 32));
+    result = 31 * result + new ArrayList<>(buckets).hashCode();
+    return result;
+  }
+
+  @Override
+  public void write(Kryo kryo, Output output) {
+    output.writeInt(windowSize);
+    output.writeInt(bucketSize);
+    output.writeInt(buckets.size());
+    for(OnlineStatisticsProvider bucket : buckets) {
+      bucket.write(kryo, output);
+    }
+  }
+
+  @Override
+  public void read(Kryo kryo, Input input) {
+    windowSize = input.readInt();
+    bucketSize = input.readInt();
+    int numBuckets = input.readInt();
+    buckets = new ArrayDeque<>(numBuckets);
+    n = 0;
+    for(int i = 0;i < numBuckets;++i) {
+      OnlineStatisticsProvider bucket = new OnlineStatisticsProvider();
+      bucket.read(kryo, input);
+      buckets.addLast(bucket);
+      n += bucket.getCount();
+    }
+    merged = null;
+  }
+}
@@ -116,6 +116,22 @@ public class HyperLogLogPlus implements Serializable {
     return new HyperLogLogPlus(p, sp, (com.clearspring.analytics.stream.cardinality.HyperLogLogPlus) merged);
   }
 
+  /**
+   * Merges an hllp set into this set, in place. Unlike merge, this does not allocate a new set. Does not modify
+   * the other set.
+   *
+   * @param other hllp set to merge into this set
+   * @return This hllp set
+   */
+  public HyperLogLogPlus mergeInPlace(HyperLogLogPlus other) {
+    try {
+      hllp.addAll(other.hllp);
+    } catch (CardinalityMergeException e) {
+      throw new IllegalArgumentException("Unable to merge estimators", e);
+    }
+    return this;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -17,6 +17,7 @@
  */
 package org.apache.metron.statistics.approximation;
 
+import org.apache.metron.statistics.TreeReduce;
 import org.apache.metron.stellar.dsl.BaseStellarFunction;
 import org.apache.metron.stellar.dsl.Stellar;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
@@ -139,7 +140,13 @@ public class HyperLogLogPlusFunctions {
         }
         HyperLogLogPlus hllp = ConversionUtils.convert(estimators.get(0), HyperLogLogPlus.class);
         if (estimators.size() > 1) {
-          hllp = hllp.merge(getEstimatorsFromIndex(estimators, 1));
+          // accumulate in place using a tree reduction, initialized with the precision of the first estimator set
+          final int p = hllp.getP();
+          final int sp = hllp.getSp();
+          hllp = TreeReduce.reduce(getEstimatorsFromIndex(estimators, 0),
+                  () -> new HyperLogLogPlus(p, sp),
+                  HyperLogLogPlus::mergeInPlace,
+                  HyperLogLogPlus::mergeInPlace);
         }
         return hllp;
       }
@@ -24,6 +24,7 @@ import org.apache.metron.stellar.dsl.ParseException;
 import org.apache.metron.stellar.dsl.Stellar;
 import org.apache.metron.stellar.dsl.StellarFunction;
 import org.apache.metron.statistics.OnlineStatisticsProvider;
+import org.apache.metron.statistics.TreeReduce;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -47,12 +48,42 @@ public class MedianAbsoluteDeviationFunctions {
     {
       tickMedianProvider = new OnlineStatisticsProvider();
       tickMADProvider = new OnlineStatisticsProvider();
-      windowMedianProvider = currentState.isPresent()?currentState.get().tickMedianProvider:new OnlineStatisticsProvider();
-      windowMADProvider = currentState.isPresent()?currentState.get().tickMADProvider:new OnlineStatisticsProvider();
-      for(State s : previousStates.orElse(new ArrayList<>())) {
-        windowMedianProvider = (OnlineStatisticsProvider) windowMedianProvider.merge(s.tickMedianProvider);
-        windowMADProvider = (OnlineStatisticsProvider) windowMADProvider.merge(s.tickMADProvider);
-      }
+      List<State> states = new ArrayList<>();
+      currentState.ifPresent(states::add);
+      states.addAll(previousStates.orElse(new ArrayList<>()));
+
+      //accumulate the ticks of all the states, in place, into the window of a single state
+      State window = TreeReduce.reduce(states, State::new, State::accumulateTick, State::accumulateWindow);
+      windowMedianProvider = window.windowMedianProvider;
+      windowMADProvider = window.windowMADProvider;
+    }
+
+    private static void accumulateTick(State acc, State s) {
+      acc.windowMedianProvider.mergeInPlace(s.tickMedianProvider);
+      acc.windowMADProvider.mergeInPlace(s.tickMADProvider);
+    }
+
+    private static State accumulateWindow(State acc, State s) {
+      acc.windowMedianProvider.mergeInPlace(s.windowMedianProvider);
+      acc.windowMADProvider.mergeInPlace(s.windowMADProvider);
+      return acc;
+    }
+
+    /**
+     * Combines the states of two consecutive ticks into the state of a single tick that
+     * spans both.  Neither state is modified.
+     *
+     * @param earlier The state of the earlier tick.
+     * @param later The state of the later tick.
+     * @return The combined state.
+     */
+    public static State combine(State earlier, State later) {
+      State combined = new State();
+      combined.tickMedianProvider = (OnlineStatisticsProvider) earlier.tickMedianProvider.merge(later.tickMedianProvider);
+      combined.tickMADProvider = (OnlineStatisticsProvider) earlier.tickMADProvider.merge(later.tickMADProvider);
+      combined.windowMedianProvider = later.windowMedianProvider;
+      combined.windowMADProvider = later.windowMADProvider;
+      return combined;
     }
 
     public void add(Double d) {
@@ -92,8 +92,44 @@ public class OnlineStatisticsProviderTest {
     for(int j = 1;j < providers.size();++j) {
       aggregatedProvider = aggregatedProvider.merge(providers.get(j));
     }
+    OnlineStatisticsProvider accumulatedProvider = new OnlineStatisticsProvider();
+    for(OnlineStatisticsProvider provider : providers) {
+      accumulatedProvider.mergeInPlace(provider);
+    }
     validateStatisticsProvider(statsProvider, summaryStats, stats);
     validateStatisticsProvider(aggregatedProvider, summaryStats, stats);
+    validateStatisticsProvider(accumulatedProvider, summaryStats, stats);
+  }
+
+  @Test
+  public void testMergeInPlaceDoesNotModifyProvider() {
+    OnlineStatisticsProvider a = new OnlineStatisticsProvider();
+    OnlineStatisticsProvider b = new OnlineStatisticsProvider();
+    for(int i = 1;i <= 10;++i) {
+      a.addValue(i);
+      b.addValue(i * 10);
+    }
+    a.mergeInPlace(b);
+    Assert.assertEquals(20, a.getCount());
+    Assert.assertEquals(1, a.getMin(), 1e-6);
+    Assert.assertEquals(100, a.getMax(), 1e-6);
+    Assert.assertEquals(10, b.getCount());
+    Assert.assertEquals(10, b.getMin(), 1e-6);
+    Assert.assertEquals(550, b.getSum(), 1e-6);
+  }
+
+  @Test
+  public void testMergeInPlaceWithEmptyProvider() {
+    OnlineStatisticsProvider a = new OnlineStatisticsProvider();
+    OnlineStatisticsProvider b = new OnlineStatisticsProvider();
+    b.addValue(5);
+    b.addValue(7);
+    a.mergeInPlace(new OnlineStatisticsProvider()).mergeInPlace(b).mergeInPlace(new OnlineStatisticsProvider());
+    Assert.assertEquals(2, a.getCount());
+    Assert.assertEquals(5, a.getMin(), 1e-6);
+    Assert.assertEquals(7, a.getMax(), 1e-6);
+    Assert.assertEquals(6, a.getMean(), 1e-6);
+    Assert.assertEquals(2, a.getVariance(), 1e-6);
   }
 
   @Test(expected = IllegalStateException.class)
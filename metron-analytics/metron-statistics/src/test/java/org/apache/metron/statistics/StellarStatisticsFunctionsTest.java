@@ -223,6 +223,33 @@ public class StellarStatisticsFunctionsTest {
 
   }
 
+  @Test
+  public void testMergeManyProviders() throws Exception {
+    /*
+    Create enough providers that the merge is performed in parallel.
+     */
+    GaussianRandomGenerator gaussian = new GaussianRandomGenerator(new MersenneTwister(1L));
+    SummaryStatistics sStatistics= new SummaryStatistics();
+    DescriptiveStatistics dStatistics = new DescriptiveStatistics();
+    List<StatisticsProvider> providers = new ArrayList<>();
+    for(int i = 0;i < 2 * TreeReduce.PARALLEL_THRESHOLD;++i) {
+      OnlineStatisticsProvider provider = new OnlineStatisticsProvider();
+      double s = gaussian.nextNormalizedDouble();
+      provider.addValue(s);
+      sStatistics.addValue(s);
+      dStatistics.addValue(s);
+      providers.add(provider);
+    }
+
+    Map<String, Object> providerVariables = new HashMap<>();
+    providerVariables.put("providers", providers);
+    StatisticsProvider mergedProvider = (StatisticsProvider)run("STATS_MERGE(providers)", providerVariables);
+    OnlineStatisticsProviderTest.validateStatisticsProvider(mergedProvider, sStatistics , dStatistics);
+
+    // the providers being merged are not modified
+    Assert.assertEquals(1, providers.get(0).getCount());
+  }
+
   @Test
   public void testAddAllManyIntegers() throws Exception {
     statsInit(windowSize);
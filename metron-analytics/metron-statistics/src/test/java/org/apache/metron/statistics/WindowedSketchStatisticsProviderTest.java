@@ -0,0 +1,102 @@
+/*
+ *
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.metron.statistics;
+
+import org.apache.commons.math3.random.GaussianRandomGenerator;
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.metron.common.utils.SerDeUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WindowedSketchStatisticsProviderTest {
+
+  @Test
+  public void testWindowExpiresInBuckets() {
+    WindowedSketchStatisticsProvider provider = new WindowedSketchStatisticsProvider(100, 10);
+    for(int i = 1;i <= 100;++i) {
+      provider.addValue(i);
+    }
+    Assert.assertEquals(100, provider.getCount());
+    Assert.assertEquals(1, provider.getMin(), 0.0);
+
+    //the 101st value expires the oldest bucket of 10 values
+    provider.addValue(101);
+    Assert.assertEquals(91, provider.getCount());
+    Assert.assertEquals(11, provider.getMin(), 0.0);
+    Assert.assertEquals(101, provider.getMax(), 0.0);
+
+    for(int i = 102;i <= 1000;++i) {
+      provider.addValue(i);
+      Assert.assertTrue(provider.getCount() > 90 && provider.getCount() <= 100);
+    }
+    Assert.assertEquals(1000, provider.getMax(), 0.0);
+  }
+
+  @Test
+  public void testMatchesWindowedStatistics() {
+    GaussianRandomGenerator gaussian = new GaussianRandomGenerator(new MersenneTwister(0L));
+    int windowSize = 1600;
+    WindowedSketchStatisticsProvider provider = new WindowedSketchStatisticsProvider(windowSize);
+    DescriptiveStatistics stats = new DescriptiveStatistics(windowSize);
+    for(int i = 0;i < 10 * windowSize;++i) {
+      double d = 10 + gaussian.nextNormalizedDouble();
+      provider.addValue(d);
+      stats.addValue(d);
+    }
+    //the window size is a multiple of the number of buckets, so the last value completes a bucket and the windows coincide
+    Assert.assertEquals(stats.getN(), provider.getCount());
+    Assert.assertEquals(stats.getMean(), provider.getMean(), 1e-6);
+    Assert.assertEquals(stats.getVariance(), provider.getVariance(), 1e-6);
+    Assert.assertEquals(stats.getPopulationVariance(), provider.getPopulationVariance(), 1e-6);
+    Assert.assertEquals(stats.getGeometricMean(), provider.getGeometricMean(), 1e-6);
+    Assert.assertEquals(stats.getMin(), provider.getMin(), 1e-6);
+    Assert.assertEquals(stats.getMax(), provider.getMax(), 1e-6);
+    Assert.assertEquals(stats.getSkewness(), provider.getSkewness(), 1e-3);
+    Assert.assertEquals(stats.getKurtosis(), provider.getKurtosis(), 1e-3);
+    for(double d = 10.0;d < 100.0;d += 10) {
+      //This is a sketch, so we're a bit more forgiving here in our choice of \epsilon.
+      Assert.assertEquals(stats.getPercentile(d), provider.getPercentile(d), 5e-2);
+    }
+  }
+
+  @Test
+  public void testSerialization() {
+    WindowedSketchStatisticsProvider provider = new WindowedSketchStatisticsProvider(100);
+    for(int i = 1;i <= 250;++i) {
+      provider.addValue(i);
+    }
+    WindowedSketchStatisticsProvider actual = SerDeUtils.fromBytes(SerDeUtils.toBytes(provider), WindowedSketchStatisticsProvider.class);
+    Assert.assertEquals(provider.getCount(), actual.getCount());
+    Assert.assertEquals(provider.getSum(), actual.getSum(), 1e-6);
+    Assert.assertEquals(provider.getPercentile(50), actual.getPercentile(50), 1e-6);
+
+    //the deserialized provider keeps expiring buckets
+    actual.addValue(251);
+    provider.addValue(251);
+    Assert.assertEquals(provider.getCount(), actual.getCount());
+    Assert.assertEquals(provider.getMin(), actual.getMin(), 1e-6);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testMergeUnsupported() {
+    new WindowedSketchStatisticsProvider(10).merge(new WindowedSketchStatisticsProvider(10));
+  }
+}
@@ -114,6 +114,20 @@ public class HyperLogLogPlusFunctionsTest {
     Assert.assertThat("cardinality should match merged set", actual, equalTo(4L));
   }
 
+  @Test
+  public void hllp_merge_combines_many_hllp_sets_without_modifying_them() {
+    List<Object> estimators = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      HyperLogLogPlus hllp = (HyperLogLogPlus) new HyperLogLogPlusFunctions.HLLPInit().apply(ImmutableList.of());
+      estimators.add(new HyperLogLogPlusFunctions.HLLPAdd().apply(ImmutableList.of(hllp, "item-" + i)));
+    }
+    HyperLogLogPlus merged = (HyperLogLogPlus) new HyperLogLogPlusFunctions.HLLPMerge().apply(ImmutableList.of(estimators));
+
+    Long actual = (Long) new HyperLogLogPlusFunctions.HLLPCardinality().apply(ImmutableList.of(merged));
+    Assert.assertEquals("cardinality should match merged set", 5000.0, actual, 50.0);
+    Assert.assertThat("merged sets should not be modified", ((HyperLogLogPlus) estimators.get(0)).cardinality(), equalTo(1L));
+  }
+
   @Test
   public void hllp_merge_with_single_estimator_acts_as_identity_function() {
     HyperLogLogPlus hllp1 = (HyperLogLogPlus) new HyperLogLogPlusFunctions.HLLPInit().apply(ImmutableList.of(5, 6));
@@ -266,6 +266,16 @@ profiler_period_duration = config['configurations']['metron-profiler-env']['prof
 profiler_period_units = config['configurations']['metron-profiler-env']['profiler_period_units']
 profiler_ttl = config['configurations']['metron-profiler-env']['profiler_ttl']
 profiler_ttl_units = config['configurations']['metron-profiler-env']['profiler_ttl_units']
+profiler_allowed_lateness = config['configurations']['metron-profiler-env']['profiler_allowed_lateness']
+profiler_allowed_lateness_units = config['configurations']['metron-profiler-env']['profiler_allowed_lateness_units']
+profiler_rollups = config['configurations']['metron-profiler-env']['profiler_rollups']
+profiler_state_dir = config['configurations']['metron-profiler-env']['profiler_state_dir']
+profiler_max_active_profiles = config['configurations']['metron-profiler-env']['profiler_max_active_profiles']
+profiler_checkpoint_interval = config['configurations']['metron-profiler-env']['profiler_checkpoint_interval']
+profiler_checkpoint_interval_units = config['configurations']['metron-profiler-env']['profiler_checkpoint_interval_units']
+profiler_columnar_enabled = config['configurations']['metron-profiler-env']['profiler_columnar_enabled']
+profiler_combiner_window = config['configurations']['metron-profiler-env']['profiler_combiner_window']
+profiler_combiner_window_units = config['configurations']['metron-profiler-env']['profiler_combiner_window_units']
 profiler_hbase_batch = config['configurations']['metron-profiler-env']['profiler_hbase_batch']
 profiler_hbase_flush_interval = config['configurations']['metron-profiler-env']['profiler_hbase_flush_interval']
 profiler_topology_workers = config['configurations']['metron-profiler-env']['profiler_topology_workers']
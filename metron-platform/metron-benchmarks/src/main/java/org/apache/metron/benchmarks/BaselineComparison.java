@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two sets of JMH results, written with {@code -rf json}, and reports the change in
+ * score and in normalized allocation rate of every benchmark that appears in both.  A benchmark
+ * regresses when its score gets worse by more than the threshold.
+ * <p>
+ * Usage: {@code BaselineComparison baseline.json current.json [threshold percent, default 10]}
+ * <p>
+ * The process exits with a non-zero status if any benchmark regressed, so it can gate a build.
+ */
+public class BaselineComparison {
+
+  public static final double DEFAULT_THRESHOLD = 10.0;
+  public static final String ALLOCATION_METRIC = "\u00b7gc.alloc.rate.norm";
+
+  /**
+   * The score of a single benchmark, with a particular set of parameters, in one of the runs.
+   */
+  public static class Score {
+    private final String name;
+    private final String mode;
+    private final double score;
+    private final double error;
+    private final String unit;
+    private final Double allocation;
+
+    public Score(String name, String mode, double score, double error, String unit, Double allocation) {
+      this.name = name;
+      this.mode = mode;
+      this.score = score;
+      this.error = error;
+      this.unit = unit;
+      this.allocation = allocation;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getMode() {
+      return mode;
+    }
+
+    public double getScore() {
+      return score;
+    }
+
+    public double getError() {
+      return error;
+    }
+
+    public String getUnit() {
+      return unit;
+    }
+
+    /**
+     * @return The bytes allocated per operation, or null if the run was not profiled.
+     */
+    public Double getAllocation() {
+      return allocation;
+    }
+
+    /**
+     * @return True if a larger score is better, which is the case for throughput.
+     */
+    public boolean isHigherBetter() {
+      return "thrpt".equals(mode);
+    }
+  }
+
+  /**
+   * The comparison of a benchmark's baseline score to its current score.
+   */
+  public static class Comparison {
+    private final Score baseline;
+    private final Score current;
+    private final double threshold;
+
+    public Comparison(Score baseline, Score current, double threshold) {
+      this.baseline = baseline;
+      this.current = current;
+      this.threshold = threshold;
+    }
+
+    public Score getBaseline() {
+      return baseline;
+    }
+
+    public Score getCurrent() {
+      return current;
+    }
+
+    /**
+     * @return The change of the score as a percentage of the baseline, positive when the score improved.
+     */
+    public double getImprovement() {
+      double change = percentChange(baseline.getScore(), current.getScore());
+      return baseline.isHigherBetter() ? change : -change;
+    }
+
+    /**
+     * @return The change of the bytes allocated per operation as a percentage of the baseline, or
+     * null if either run was not profiled.
+     */
+    public Double getAllocationChange() {
+      if (baseline.getAllocation() == null || current.getAllocation() == null) {
+        return null;
+      }
+      return percentChange(baseline.getAllocation(), current.getAllocation());
+    }
+
+    /**
+     * A benchmark regressed if its score got worse by more than the threshold, and by more than
+     * the combined error of the two measurements.
+     */
+    public boolean isRegression() {
+      double delta = Math.abs(current.getScore() - baseline.getScore());
+      return getImprovement() < -threshold && delta > baseline.getError() + current.getError();
+    }
+
+    private static double percentChange(double from, double to) {
+      if (from == 0) {
+        return to == 0 ? 0 : Double.POSITIVE_INFINITY;
+      }
+      return 100.0 * (to - from) / from;
+    }
+  }
+
+  /**
+   * Reads the JMH JSON results from a file.
+   *
+   * @return The scores keyed by the benchmark name and its parameters.
+   */
+  public static Map<String, Score> read(String file) throws IOException, ParseException {
+    try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+      return read((JSONArray) new JSONParser().parse(reader));
+    }
+  }
+
+  public static Map<String, Score> read(JSONArray results) {
+    Map<String, Score> scores = new LinkedHashMap<>();
+    for (Object o : results) {
+      JSONObject result = (JSONObject) o;
+      String name = result.get("benchmark") + paramString((JSONObject) result.get("params"));
+      JSONObject primary = (JSONObject) result.get("primaryMetric");
+      Double allocation = null;
+      JSONObject secondary = (JSONObject) result.get("secondaryMetrics");
+      if (secondary != null && secondary.get(ALLOCATION_METRIC) != null) {
+        allocation = toDouble(((JSONObject) secondary.get(ALLOCATION_METRIC)).get("score"));
+      }
+      scores.put(name, new Score( name
+                                , (String) result.get("mode")
+                                , toDouble(primary.get("score"))
+                                , toDouble(primary.get("scoreError"))
+                                , (String) primary.get("scoreUnit")
+                                , allocation
+                                ));
+    }
+    return scores;
+  }
+
+  /**
+   * Compares the benchmarks common to both runs.
+   */
+  public static List<Comparison> compare(Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+    List<Comparison> comparisons = new ArrayList<>();
+    for (Map.Entry<String, Score> kv : baseline.entrySet()) {
+      Score score = current.get(kv.getKey());
+      if (score != null && score.getMode().equals(kv.getValue().getMode())) {
+        comparisons.add(new Comparison(kv.getValue(), score, threshold));
+      }
+    }
+    return comparisons;
+  }
+
+  public static void report(List<Comparison> comparisons, PrintStream out) {
+    out.println(String.format("%-90s %14s %14s %10s %10s  %s", "Benchmark", "Baseline", "Current", "Change", "Alloc", "Unit"));
+    for (Comparison c : comparisons) {
+      Double allocation = c.getAllocationChange();
+      out.println(String.format("%-90s %14.3f %14.3f %+9.1f%% %10s  %s%s"
+                               , c.getBaseline().getName()
+                               , c.getBaseline().getScore()
+                               , c.getCurrent().getScore()
+                               , c.getImprovement()
+                               , allocation == null ? "-" : String.format("%+.1f%%", allocation)
+                               , c.getCurrent().getUnit()
+                               , c.isRegression() ? "  REGRESSION" : ""
+                               ));
+    }
+  }
+
+  public static void main(String... args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("Usage: " + BaselineComparison.class.getName() + " baseline.json current.json [threshold percent]");
+      System.exit(1);
+    }
+    double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+    List<Comparison> comparisons = compare(read(args[0]), read(args[1]), threshold);
+    report(comparisons, System.out);
+    long regressions = comparisons.stream().filter(Comparison::isRegression).count();
+    if (regressions > 0) {
+      System.out.println(regressions + " benchmark(s) regressed by more than " + threshold + "%");
+      System.exit(2);
+    }
+  }
+
+  private static String paramString(JSONObject params) {
+    if (params == null || params.isEmpty()) {
+      return "";
+    }
+    return new TreeMap<Object, Object>(params).toString();
+  }
+
+  private static double toDouble(Object o) {
+    if (o instanceof Number) {
+      return ((Number) o).doubleValue();
+    }
+    // JMH writes "NaN" for scores that could not be computed
+    return Double.parseDouble(String.valueOf(o));
+  }
+}
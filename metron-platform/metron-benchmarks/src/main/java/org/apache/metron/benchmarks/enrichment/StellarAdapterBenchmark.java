@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.enrichment;
+
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.enrichment.adapters.stellar.StellarAdapter;
+import org.apache.metron.enrichment.bolt.CacheKey;
+import org.apache.metron.enrichment.bolt.GenericEnrichmentBolt;
+import org.apache.metron.stellar.dsl.Context;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link StellarAdapter#enrich} for an ungrouped and a grouped stellar enrichment.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StellarAdapterBenchmark {
+
+  public static final String ENRICHMENT_CONFIG =
+          "{ \"enrichment\" : {"
+        + "    \"fieldMap\" : {"
+        + "      \"stellar\" : {"
+        + "        \"config\" : {"
+        + "          \"stmt1\" : \"TO_UPPER(source.type)\""
+        + "        , \"stmt2\" : \"IN_SUBNET(ip_src_addr, '192.168.0.0/16', '10.0.0.0/8')\""
+        + "        , \"stmt3\" : \"DOMAIN_REMOVE_SUBDOMAINS(URL_TO_HOST(url))\""
+        + "        , \"group\" : {"
+        + "            \"stmt4\" : \"ip_dst_port > 1024 && protocol == 'tcp'\""
+        + "          , \"stmt5\" : \"{ 'host' : URL_TO_HOST(url), 'port' : ip_dst_port }\""
+        + "          }"
+        + "        }"
+        + "      }"
+        + "    }"
+        + "  }"
+        + "}";
+
+  private StellarAdapter adapter;
+  private CacheKey ungrouped;
+  private CacheKey grouped;
+
+  @Setup
+  public void setup() throws Exception {
+    SensorEnrichmentConfig config = JSONUtils.INSTANCE.load(ENRICHMENT_CONFIG, SensorEnrichmentConfig.class);
+    config.getConfiguration().put(GenericEnrichmentBolt.STELLAR_CONTEXT_CONF, Context.EMPTY_CONTEXT());
+    adapter = new StellarAdapter().ofType("ENRICHMENT");
+    adapter.initializeAdapter(new HashMap<>());
+
+    Map<String, Object> message = new HashMap<>();
+    message.put("source.type", "squid");
+    message.put("ip_src_addr", "192.168.0.1");
+    message.put("ip_dst_addr", "10.0.0.1");
+    message.put("ip_dst_port", 8080);
+    message.put("protocol", "tcp");
+    message.put("url", "http://www.cnn.com/index.html");
+    ungrouped = new CacheKey("", message, config);
+    grouped = new CacheKey("group", message, config);
+  }
+
+  @Benchmark
+  public JSONObject enrich() {
+    return adapter.enrich(ungrouped);
+  }
+
+  @Benchmark
+  public JSONObject enrichGroup() {
+    return adapter.enrich(grouped);
+  }
+}
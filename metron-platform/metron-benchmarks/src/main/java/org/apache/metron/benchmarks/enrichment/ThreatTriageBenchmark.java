@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.enrichment;
+
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.configuration.enrichment.threatintel.ThreatScore;
+import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.threatintel.triage.ThreatTriageProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ThreatTriageProcessor#apply} scoring a message against a set of risk level rules.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreatTriageBenchmark {
+
+  public static final String TRIAGE_CONFIG =
+          "{ \"threatIntel\" : {"
+        + "    \"triageConfig\" : {"
+        + "      \"riskLevelRules\" : ["
+        + "        { \"name\" : \"rule 1\", \"rule\" : \"user.type in [ 'admin', 'power' ] and asset.type == 'web'\", \"score\" : 10 }"
+        + "      , { \"name\" : \"rule 2\", \"rule\" : \"asset.type == 'web'\", \"score\" : 5 }"
+        + "      , { \"name\" : \"rule 3\", \"rule\" : \"user.type == 'normal' and asset.type == 'web'\", \"score\" : 0 }"
+        + "      , { \"name\" : \"rule 4\", \"rule\" : \"user.type in whitelist\", \"score\" : -1, \"reason\" : \"user.type\" }"
+        + "      , { \"name\" : \"rule 5\", \"rule\" : \"IN_SUBNET(ip_src_addr, '192.168.0.0/16')\", \"score\" : 20 }"
+        + "      ],"
+        + "      \"aggregator\" : \"MAX\""
+        + "    },"
+        + "    \"config\" : {"
+        + "      \"whitelist\" : [ \"abnormal\" ]"
+        + "    }"
+        + "  }"
+        + "}";
+
+  private ThreatTriageProcessor processor;
+  private Map<Object, Object> message;
+
+  @Setup
+  public void setup() throws Exception {
+    SensorEnrichmentConfig config = JSONUtils.INSTANCE.load(TRIAGE_CONFIG, SensorEnrichmentConfig.class);
+    processor = new ThreatTriageProcessor(config, StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT());
+    message = new HashMap<>();
+    message.put("user.type", "admin");
+    message.put("asset.type", "web");
+    message.put("ip_src_addr", "192.168.0.1");
+  }
+
+  @Benchmark
+  public ThreatScore apply() {
+    return processor.apply(message);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.parsers;
+
+import org.apache.metron.common.csv.CSVConverter;
+import org.apache.metron.parsers.GrokParser;
+import org.apache.metron.parsers.csv.CSVParser;
+import org.apache.metron.parsers.json.JSONMapParser;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parse of a single raw message by the grok, CSV and JSON map parsers, configured
+ * the way the shipped sensors configure them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+  public static final String SQUID_MESSAGE =
+          "1461576382.642    161 127.0.0.1 TCP_MISS/200 103701 GET http://www.cnn.com/ - DIRECT/199.27.79.73 text/html";
+
+  public static final String CSV_MESSAGE =
+          "1461576382642,192.168.0.1,53,10.0.0.1,8080,tcp,GET,http://www.cnn.com/,200";
+
+  public static final String JSON_MESSAGE =
+          "{ \"timestamp\" : 1461576382642"
+        + ", \"ip_src_addr\" : \"192.168.0.1\""
+        + ", \"ip_src_port\" : 53"
+        + ", \"ip_dst_addr\" : \"10.0.0.1\""
+        + ", \"ip_dst_port\" : 8080"
+        + ", \"protocol\" : \"tcp\""
+        + ", \"method\" : \"GET\""
+        + ", \"url\" : \"http://www.cnn.com/\""
+        + ", \"tags\" : [ \"web\", \"external\" ]"
+        + ", \"headers\" : { \"host\" : \"www.cnn.com\", \"user_agent\" : \"curl\" }"
+        + "}";
+
+  private GrokParser grokParser;
+  private CSVParser csvParser;
+  private JSONMapParser jsonMapParser;
+  private byte[] squidMessage;
+  private byte[] csvMessage;
+  private byte[] jsonMessage;
+
+  @Setup
+  public void setup() {
+    Map<String, Object> grokConfig = new HashMap<>();
+    grokConfig.put("grokPath", "/patterns/squid");
+    grokConfig.put("patternLabel", "SQUID_DELIMITED");
+    grokConfig.put("timestampField", "timestamp");
+    grokParser = new GrokParser();
+    grokParser.configure(grokConfig);
+    grokParser.init();
+
+    Map<String, Object> columns = new LinkedHashMap<>();
+    String[] names = { "timestamp", "ip_src_addr", "ip_src_port", "ip_dst_addr", "ip_dst_port"
+                     , "protocol", "method", "url", "status_code" };
+    for (int i = 0; i < names.length; ++i) {
+      columns.put(names[i], i);
+    }
+    Map<String, Object> csvConfig = new HashMap<>();
+    csvConfig.put(CSVConverter.COLUMNS_KEY, columns);
+    csvParser = new CSVParser();
+    csvParser.configure(csvConfig);
+    csvParser.init();
+
+    Map<String, Object> jsonConfig = new HashMap<>();
+    jsonConfig.put(JSONMapParser.MAP_STRATEGY_CONFIG, JSONMapParser.MapStrategy.UNFOLD.name());
+    jsonMapParser = new JSONMapParser();
+    jsonMapParser.configure(jsonConfig);
+    jsonMapParser.init();
+
+    squidMessage = SQUID_MESSAGE.getBytes(StandardCharsets.UTF_8);
+    csvMessage = CSV_MESSAGE.getBytes(StandardCharsets.UTF_8);
+    jsonMessage = JSON_MESSAGE.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public List<JSONObject> grok() {
+    return grokParser.parse(squidMessage);
+  }
+
+  @Benchmark
+  public List<JSONObject> csv() {
+    return csvParser.parse(csvMessage);
+  }
+
+  @Benchmark
+  public List<JSONObject> jsonMap() {
+    return jsonMapParser.parse(jsonMessage);
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.pcap;
+
+import org.apache.metron.pcap.PacketInfo;
+import org.apache.metron.pcap.PcapHelper;
+import org.apache.metron.spout.pcap.Endianness;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PcapHelper#toPacketInfo(byte[])} decoding a single ethernet/IPv4/TCP packet
+ * with the pcap headers that the pcap spout adds to every packet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PcapHelperBenchmark {
+
+  @Param({ "64", "1400" })
+  public int payloadSize;
+
+  private byte[] pcap;
+
+  @Setup
+  public void setup() {
+    pcap = PcapHelper.addHeaders(1461576382642000000L, tcpPacket(payloadSize), Endianness.getNativeEndianness());
+  }
+
+  @Benchmark
+  public List<PacketInfo> toPacketInfo() throws IOException {
+    return PcapHelper.toPacketInfo(pcap);
+  }
+
+  /**
+   * @param payloadSize The number of bytes of TCP payload
+   * @return An ethernet frame carrying a TCP segment from 192.168.0.1:53421 to 10.0.0.1:80
+   */
+  public static byte[] tcpPacket(int payloadSize) {
+    int ipLength = 20 + 20 + payloadSize;
+    ByteBuffer frame = ByteBuffer.allocate(14 + ipLength);
+    // ethernet
+    frame.put(new byte[] { 0x00, 0x1b, 0x21, 0x3a, 0x4b, 0x5c });
+    frame.put(new byte[] { 0x00, 0x1b, 0x21, 0x6d, 0x7e, 0x0f });
+    frame.putShort((short) 0x0800);
+    // IPv4
+    frame.put((byte) 0x45);
+    frame.put((byte) 0);
+    frame.putShort((short) ipLength);
+    frame.putShort((short) 0x1c46);
+    frame.putShort((short) 0x4000);
+    frame.put((byte) 64);
+    frame.put((byte) 6);
+    frame.putShort((short) 0);
+    frame.put(new byte[] { (byte) 192, (byte) 168, 0, 1 });
+    frame.put(new byte[] { 10, 0, 0, 1 });
+    // TCP
+    frame.putShort((short) 53421);
+    frame.putShort((short) 80);
+    frame.putInt(0x2c3f6b10);
+    frame.putInt(0x0d4e2a71);
+    frame.put((byte) 0x50);
+    frame.put((byte) 0x18);
+    frame.putShort((short) 29200);
+    frame.putShort((short) 0);
+    frame.putShort((short) 0);
+    for (int i = 0; i < payloadSize; ++i) {
+      frame.put((byte) ('a' + (i % 26)));
+    }
+    return frame.array();
+  }
+}
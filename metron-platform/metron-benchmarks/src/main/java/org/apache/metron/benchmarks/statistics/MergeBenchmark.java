@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.statistics;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.math3.random.GaussianRandomGenerator;
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.metron.statistics.OnlineStatisticsProvider;
+import org.apache.metron.statistics.StatisticsProvider;
+import org.apache.metron.statistics.StellarStatisticsFunctions;
+import org.apache.metron.statistics.approximation.HyperLogLogPlus;
+import org.apache.metron.statistics.approximation.HyperLogLogPlusFunctions;
+import org.apache.metron.statistics.outlier.MedianAbsoluteDeviationFunctions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures STATS_MERGE, HLLP_MERGE and OUTLIER_MAD_STATE_MERGE of values like those fetched by
+ * PROFILE_GET over a long lookback.  Each is compared against a serial fold that allocates a new
+ * value for each merge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeBenchmark {
+
+  public static final int NUM_DATA_POINTS = 100;
+
+  @Param({"1000", "10000"})
+  public int numValues;
+
+  private List<Object> providers;
+  private List<Object> estimators;
+  private List<MedianAbsoluteDeviationFunctions.State> states;
+  private StellarStatisticsFunctions.Merge statsMerge;
+  private HyperLogLogPlusFunctions.HLLPMerge hllpMerge;
+
+  @Setup
+  public void setup() {
+    GaussianRandomGenerator gaussian = new GaussianRandomGenerator(new MersenneTwister(0L));
+    providers = new ArrayList<>();
+    estimators = new ArrayList<>();
+    states = new ArrayList<>();
+    for(int i = 0;i < numValues;++i) {
+      OnlineStatisticsProvider provider = new OnlineStatisticsProvider();
+      HyperLogLogPlus estimator = new HyperLogLogPlus();
+      MedianAbsoluteDeviationFunctions.State state = new MedianAbsoluteDeviationFunctions.State();
+      for(int j = 0;j < NUM_DATA_POINTS;++j) {
+        double d = 1000 * gaussian.nextNormalizedDouble();
+        provider.addValue(d);
+        estimator.add(Math.round(d));
+        state.add(d);
+      }
+      providers.add(provider);
+      estimators.add(estimator);
+      states.add(state);
+    }
+    statsMerge = new StellarStatisticsFunctions.Merge();
+    hllpMerge = new HyperLogLogPlusFunctions.HLLPMerge();
+  }
+
+  @Benchmark
+  public Object statsSerialFold() {
+    StatisticsProvider ret = (StatisticsProvider) providers.get(0);
+    for(Object sp : providers.subList(1, providers.size())) {
+      ret = ret.merge((StatisticsProvider) sp);
+    }
+    return ret;
+  }
+
+  @Benchmark
+  public Object statsTreeReduce() {
+    return statsMerge.apply(ImmutableList.of(providers));
+  }
+
+  @Benchmark
+  public Object hllpSerialFold() {
+    HyperLogLogPlus ret = (HyperLogLogPlus) estimators.get(0);
+    for(Object e : estimators.subList(1, estimators.size())) {
+      ret = ret.merge(ImmutableList.of((HyperLogLogPlus) e));
+    }
+    return ret;
+  }
+
+  @Benchmark
+  public Object hllpTreeReduce() {
+    return hllpMerge.apply(ImmutableList.of(estimators));
+  }
+
+  @Benchmark
+  public Object madSerialFold() {
+    // each state merges two providers of a similar size; the median and the median absolute deviation
+    StatisticsProvider median = new OnlineStatisticsProvider();
+    StatisticsProvider mad = new OnlineStatisticsProvider();
+    for(Object sp : providers) {
+      median = median.merge((StatisticsProvider) sp);
+      mad = mad.merge((StatisticsProvider) sp);
+    }
+    return ImmutableList.of(median, mad);
+  }
+
+  @Benchmark
+  public Object madTreeReduce() {
+    return new MedianAbsoluteDeviationFunctions.State(Optional.of(states), Optional.empty());
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.stellar;
+
+import org.apache.metron.stellar.common.StellarEvaluationMode;
+import org.apache.metron.stellar.common.StellarProcessor;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.stellar.dsl.VariableResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link StellarProcessor#parse} for a handful of representative expressions in each
+ * {@link StellarEvaluationMode}.  The expressions are parsed once during setup, so this measures
+ * evaluation of a cached expression, which is what the topologies do for every message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StellarProcessorBenchmark {
+
+  @Param({ "ARITHMETIC", "BOOLEAN", "STRING_FUNCTIONS", "IN_SUBNET", "MAP_LAMBDA" })
+  public Expression expression;
+
+  @Param({ "INTERPRETED", "COMPILED" })
+  public StellarEvaluationMode mode;
+
+  public enum Expression {
+    ARITHMETIC("(one + two) * 3 - half / 2"),
+    BOOLEAN("foo == 'casey' && (one > 0 || not(exists(bar)))"),
+    STRING_FUNCTIONS("TO_UPPER(TRIM(JOIN([ foo, 'metron' ], ',')))"),
+    IN_SUBNET("IN_SUBNET(ip_src_addr, '192.168.0.0/24', '10.0.0.0/8', '172.16.0.0/12')"),
+    MAP_LAMBDA("REDUCE(MAP(list, x -> x * 2), (sum, x) -> sum + x, 0)");
+
+    private final String rule;
+
+    Expression(String rule) {
+      this.rule = rule;
+    }
+
+    public String getRule() {
+      return rule;
+    }
+  }
+
+  private StellarProcessor processor;
+  private VariableResolver resolver;
+  private Context context;
+
+  @Setup
+  public void setup() {
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("foo", " casey ");
+    variables.put("one", 1);
+    variables.put("two", 2L);
+    variables.put("half", 0.5d);
+    variables.put("ip_src_addr", "192.168.0.1");
+    variables.put("list", Arrays.asList(1, 2, 3, 4, 5));
+    resolver = new MapVariableResolver(variables);
+    context = Context.EMPTY_CONTEXT();
+    processor = new StellarProcessor();
+    processor.setEvaluationMode(mode);
+    // populate the expression cache so that parsing is not measured
+    processor.parse(expression.getRule(), resolver, StellarFunctions.FUNCTION_RESOLVER(), context);
+  }
+
+  @Benchmark
+  public Object parse() {
+    return processor.parse(expression.getRule(), resolver, StellarFunctions.FUNCTION_RESOLVER(), context);
+  }
+}
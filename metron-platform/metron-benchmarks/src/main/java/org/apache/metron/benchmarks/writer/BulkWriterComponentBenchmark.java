@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks.writer;
+
+import org.apache.metron.common.configuration.writer.WriterConfiguration;
+import org.apache.metron.common.message.MessageGetStrategy;
+import org.apache.metron.common.message.MessageGetters;
+import org.apache.metron.common.writer.BulkMessageWriter;
+import org.apache.metron.common.writer.BulkWriterResponse;
+import org.apache.metron.writer.BulkWriterComponent;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead {@link BulkWriterComponent#write} adds to each message: batching,
+ * flushing and acking.  The writer and the collector do no work, so only the component itself is
+ * measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkWriterComponentBenchmark {
+
+  public static final String SENSOR_TYPE = "bro";
+
+  @Param({ "1", "100", "1000" })
+  public int batchSize;
+
+  private BulkWriterComponent<JSONObject> component;
+  private BulkMessageWriter<JSONObject> writer;
+  private WriterConfiguration configuration;
+  private MessageGetStrategy messageGetStrategy;
+  private Tuple[] tuples;
+  private JSONObject[] messages;
+  private int next;
+
+  @Setup
+  public void setup() {
+    component = new BulkWriterComponent<>(new OutputCollector(proxy(IOutputCollector.class)));
+    writer = new SuccessfulWriter();
+    configuration = new BatchConfiguration(batchSize);
+    messageGetStrategy = MessageGetters.DEFAULT_JSON_FROM_POSITION.get();
+    int size = Math.max(batchSize, 1);
+    tuples = new Tuple[size];
+    messages = new JSONObject[size];
+    for (int i = 0; i < size; ++i) {
+      tuples[i] = proxy(Tuple.class);
+      JSONObject message = new JSONObject();
+      message.put("source.type", SENSOR_TYPE);
+      message.put("ip_src_addr", "192.168.0." + (i % 256));
+      message.put("timestamp", (long) i);
+      messages[i] = message;
+    }
+  }
+
+  @Benchmark
+  public void write() throws Exception {
+    int i = next;
+    next = (i + 1) % tuples.length;
+    component.write(SENSOR_TYPE, tuples[i], messages[i], writer, configuration, messageGetStrategy);
+  }
+
+  /**
+   * Creates a do-nothing implementation of an interface, returning null (or false and 0 for
+   * primitives) from every method.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Class<T> clazz) {
+    return (T) Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] { clazz }, (p, method, args) -> {
+      switch (method.getName()) {
+        case "hashCode":
+          return System.identityHashCode(p);
+        case "equals":
+          return p == args[0];
+        case "toString":
+          return clazz.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(p));
+        default:
+          break;
+      }
+      Class<?> returnType = method.getReturnType();
+      if (returnType == boolean.class) {
+        return false;
+      }
+      if (returnType == long.class) {
+        return 0L;
+      }
+      if (returnType == int.class) {
+        return 0;
+      }
+      return null;
+    });
+  }
+
+  private static class SuccessfulWriter implements BulkMessageWriter<JSONObject> {
+    @Override
+    public void init(Map stormConf, TopologyContext topologyContext, WriterConfiguration config) {
+    }
+
+    @Override
+    public BulkWriterResponse write(String sensorType
+                                   , WriterConfiguration configurations
+                                   , Iterable<Tuple> tuples
+                                   , List<JSONObject> messages
+                                   ) {
+      BulkWriterResponse response = new BulkWriterResponse();
+      response.addAllSuccesses(tuples);
+      return response;
+    }
+
+    @Override
+    public String getName() {
+      return "benchmark";
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static class BatchConfiguration implements WriterConfiguration {
+    private final int batchSize;
+
+    BatchConfiguration(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    @Override
+    public int getBatchSize(String sensorName) {
+      return batchSize;
+    }
+
+    @Override
+    public int getBatchTimeout(String sensorName) {
+      return 0;
+    }
+
+    @Override
+    public List<Integer> getAllConfiguredTimeouts() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public String getIndex(String sensorName) {
+      return sensorName;
+    }
+
+    @Override
+    public boolean isEnabled(String sensorName) {
+      return true;
+    }
+
+    @Override
+    public Map<String, Object> getSensorConfig(String sensorName) {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public Map<String, Object> getGlobalConfig() {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public boolean isDefault(String sensorName) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.benchmarks;
+
+import org.adrianwalker.multilinestring.Multiline;
+import org.json.simple.JSONArray;
+import org.json.simple.parser.JSONParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class BaselineComparisonTest {
+
+  /**
+   * [
+   *  {
+   *    "benchmark" : "org.apache.metron.benchmarks.parsers.ParserBenchmark.grok",
+   *    "mode" : "avgt",
+   *    "primaryMetric" : { "score" : 10.0, "scoreError" : 0.5, "scoreUnit" : "us/op" },
+   *    "secondaryMetrics" : { "\u00b7gc.alloc.rate.norm" : { "score" : 1000.0 } }
+   *  },
+   *  {
+   *    "benchmark" : "org.apache.metron.benchmarks.parsers.ParserBenchmark.csv",
+   *    "mode" : "avgt",
+   *    "primaryMetric" : { "score" : 5.0, "scoreError" : 0.1, "scoreUnit" : "us/op" },
+   *    "secondaryMetrics" : { }
+   *  },
+   *  {
+   *    "benchmark" : "org.apache.metron.benchmarks.stellar.StellarProcessorBenchmark.parse",
+   *    "mode" : "thrpt",
+   *    "params" : { "mode" : "COMPILED", "expression" : "BOOLEAN" },
+   *    "primaryMetric" : { "score" : 1000.0, "scoreError" : 10.0, "scoreUnit" : "ops/ms" },
+   *    "secondaryMetrics" : { }
+   *  }
+   * ]
+   */
+  @Multiline
+  public static String baseline;
+
+  /**
+   * [
+   *  {
+   *    "benchmark" : "org.apache.metron.benchmarks.parsers.ParserBenchmark.grok",
+   *    "mode" : "avgt",
+   *    "primaryMetric" : { "score" : 12.0, "scoreError" : 0.5, "scoreUnit" : "us/op" },
+   *    "secondaryMetrics" : { "\u00b7gc.alloc.rate.norm" : { "score" : 1500.0 } }
+   *  },
+   *  {
+   *    "benchmark" : "org.apache.metron.benchmarks.parsers.ParserBenchmark.csv",
+   *    "mode" : "avgt",
+   *    "primaryMetric" : { "score" : 5.15, "scoreError" : 0.1, "scoreUnit" : "us/op" },
+   *    "secondaryMetrics" : { }
+   *  },
+   *  {
+   *    "benchmark" : "org.apache.metron.benchmarks.stellar.StellarProcessorBenchmark.parse",
+   *    "mode" : "thrpt",
+   *    "params" : { "expression" : "BOOLEAN", "mode" : "COMPILED" },
+   *    "primaryMetric" : { "score" : 1500.0, "scoreError" : 10.0, "scoreUnit" : "ops/ms" },
+   *    "secondaryMetrics" : { }
+   *  },
+   *  {
+   *    "benchmark" : "org.apache.metron.benchmarks.pcap.PcapHelperBenchmark.toPacketInfo",
+   *    "mode" : "avgt",
+   *    "primaryMetric" : { "score" : 1.0, "scoreError" : 0.1, "scoreUnit" : "us/op" },
+   *    "secondaryMetrics" : { }
+   *  }
+   * ]
+   */
+  @Multiline
+  public static String current;
+
+  private static Map<String, BaselineComparison.Score> read(String json) throws Exception {
+    return BaselineComparison.read((JSONArray) new JSONParser().parse(json));
+  }
+
+  @Test
+  public void onlyCommonBenchmarksAreCompared() throws Exception {
+    List<BaselineComparison.Comparison> comparisons = BaselineComparison.compare(read(baseline), read(current), 10.0);
+    Assert.assertEquals(3, comparisons.size());
+  }
+
+  @Test
+  public void slowerAverageTimeIsARegression() throws Exception {
+    BaselineComparison.Comparison grok = BaselineComparison.compare(read(baseline), read(current), 10.0).get(0);
+    Assert.assertEquals(-20.0, grok.getImprovement(), 1e-6);
+    Assert.assertEquals(50.0, grok.getAllocationChange(), 1e-6);
+    Assert.assertTrue(grok.isRegression());
+  }
+
+  @Test
+  public void changesWithinTheThresholdAreNotRegressions() throws Exception {
+    BaselineComparison.Comparison csv = BaselineComparison.compare(read(baseline), read(current), 10.0).get(1);
+    Assert.assertEquals(-3.0, csv.getImprovement(), 1e-6);
+    Assert.assertNull(csv.getAllocationChange());
+    Assert.assertFalse(csv.isRegression());
+  }
+
+  @Test
+  public void higherThroughputIsAnImprovement() throws Exception {
+    BaselineComparison.Comparison parse = BaselineComparison.compare(read(baseline), read(current), 10.0).get(2);
+    Assert.assertEquals(50.0, parse.getImprovement(), 1e-6);
+    Assert.assertFalse(parse.isRegression());
+  }
+
+  @Test
+  public void changesWithinTheErrorAreNotRegressions() throws Exception {
+    BaselineComparison.Comparison csv = BaselineComparison.compare(read(baseline), read(current), 1.0).get(1);
+    Assert.assertFalse(csv.isRegression());
+  }
+}
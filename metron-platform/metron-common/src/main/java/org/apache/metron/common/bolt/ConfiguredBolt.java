@@ -19,7 +19,9 @@ package org.apache.metron.common.bolt;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
@@ -31,6 +33,8 @@ import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.ConfigurationType;
 import org.apache.metron.common.configuration.Configurations;
 import org.apache.metron.common.configuration.ConfigurationsUtils;
+import org.apache.metron.stellar.common.cache.ExpressionCaches;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.base.BaseRichBolt;
@@ -41,6 +45,12 @@ public abstract class ConfiguredBolt<CONFIG_T extends Configurations> extends Ba
 
   private static final Logger LOG =  LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  /**
+   * The name of the metric reporting the statistics of the shared Stellar expression cache.
+   */
+  public static final String STELLAR_CACHE_METRIC = "stellarExpressionCache";
+  public static final int STELLAR_CACHE_METRIC_INTERVAL_SECS = 60;
+
   private String zookeeperUrl;
 
   protected CuratorFramework client;
@@ -70,6 +80,48 @@ public abstract class ConfiguredBolt<CONFIG_T extends Configurations> extends Ba
   @Override
   public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
     prepCache();
+    prepExpressionCache(context);
+  }
+
+  /**
+   * Sizes the shared Stellar expression cache from the global configuration, compiles every Stellar
+   * expression in the configurations and reports the statistics of the cache as a metric.
+   */
+  protected void prepExpressionCache(TopologyContext context) {
+    ExpressionCaches.configureShared(getConfigurations().getGlobalConfig());
+    ExpressionCaches.getShared().prewarm(getConfigurations().getStellarExpressions());
+    if (context != null) {
+      context.registerMetric( STELLAR_CACHE_METRIC
+                            , (IMetric) () -> ExpressionCaches.getShared().getStats().toMap()
+                            , STELLAR_CACHE_METRIC_INTERVAL_SECS
+                            );
+    }
+  }
+
+  /**
+   * Brings the shared Stellar expression cache in line with updated configurations.  Expressions
+   * that are no longer configured are discarded and new expressions are compiled.  An update of
+   * the global configuration that changes the cache settings replaces the cache.
+   *
+   * @param path The path of the updated configuration.
+   * @param previous The Stellar expressions configured before the update.
+   */
+  protected void updateExpressionCache(String path, Set<String> previous) {
+    Set<String> current = getConfigurations().getStellarExpressions();
+    if (ConfigurationType.GLOBAL.getZookeeperRoot().equals(path)
+            && ExpressionCaches.configureShared(getConfigurations().getGlobalConfig())) {
+      ExpressionCaches.getShared().prewarm(current);
+      return;
+    }
+    Set<String> removed = new HashSet<>(previous);
+    removed.removeAll(current);
+    Set<String> added = new HashSet<>(current);
+    added.removeAll(previous);
+    if (!removed.isEmpty() || !added.isEmpty()) {
+      LOG.debug("Stellar expressions changed by {}: {} removed, {} added", path, removed.size(), added.size());
+      ExpressionCaches.getShared().invalidate(removed);
+      ExpressionCaches.getShared().prewarm(added);
+    }
   }
 
   protected void prepCache() {
@@ -92,7 +144,9 @@ public abstract class ConfiguredBolt<CONFIG_T extends Configurations> extends Ba
             if (event.getType().equals(TreeCacheEvent.Type.NODE_ADDED) || event.getType().equals(TreeCacheEvent.Type.NODE_UPDATED)) {
               String path = event.getData().getPath();
               byte[] data = event.getData().getData();
+              Set<String> expressions = getConfigurations().getStellarExpressions();
               updateConfig(path, data);
+              updateExpressionCache(path, expressions);
             }
           }
         };
@@ -25,8 +25,10 @@ import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import org.apache.metron.common.utils.JSONUtils;
@@ -63,6 +65,18 @@ public class Configurations implements Serializable {
     validations = FieldValidator.readValidations(getGlobalConfig());
   }
 
+  /**
+   * @return The Stellar expressions contained in every configuration.
+   * @see StellarExpressions
+   */
+  public Set<String> getStellarExpressions() {
+    Set<String> ret = new HashSet<>();
+    for (Object config : configurations.values()) {
+      ret.addAll(StellarExpressions.of(config));
+    }
+    return ret;
+  }
+
 
   @Override
   public boolean equals(Object o) {
@@ -43,6 +43,7 @@ public class SensorParserConfig implements Serializable {
   private Integer spoutNumTasks = 1;
   private Integer parserParallelism = 1;
   private Integer parserNumTasks = 1;
+  private Integer parserThreads = 1;
   private Integer errorWriterParallelism = 1;
   private Integer errorWriterNumTasks = 1;
   private Map<String, Object> spoutConfig = new HashMap<>();
@@ -121,6 +122,19 @@ public class SensorParserConfig implements Serializable {
     this.parserNumTasks = parserNumTasks;
   }
 
+  /**
+   * Return the number of threads each parser task parses messages on.  With more than one, messages
+   * are parsed concurrently while their tuples are still written and acked in order.
+   * @return
+   */
+  public Integer getParserThreads() {
+    return parserThreads;
+  }
+
+  public void setParserThreads(Integer parserThreads) {
+    this.parserThreads = parserThreads;
+  }
+
   /**
    * Return the error writer bolt parallelism.  This property will be used for the parser unless overridden on the CLI.
    * @return
@@ -305,6 +319,7 @@ public class SensorParserConfig implements Serializable {
             ", spoutNumTasks=" + spoutNumTasks +
             ", parserParallelism=" + parserParallelism +
             ", parserNumTasks=" + parserNumTasks +
+            ", parserThreads=" + parserThreads +
             ", errorWriterParallelism=" + errorWriterParallelism +
             ", errorWriterNumTasks=" + errorWriterNumTasks +
             ", spoutConfig=" + spoutConfig +
@@ -350,6 +365,8 @@ public class SensorParserConfig implements Serializable {
       return false;
     if (getParserNumTasks() != null ? !getParserNumTasks().equals(that.getParserNumTasks()) : that.getParserNumTasks() != null)
       return false;
+    if (getParserThreads() != null ? !getParserThreads().equals(that.getParserThreads()) : that.getParserThreads() != null)
+      return false;
     if (getErrorWriterParallelism() != null ? !getErrorWriterParallelism().equals(that.getErrorWriterParallelism()) : that.getErrorWriterParallelism() != null)
       return false;
     if (getErrorWriterNumTasks() != null ? !getErrorWriterNumTasks().equals(that.getErrorWriterNumTasks()) : that.getErrorWriterNumTasks() != null)
@@ -382,6 +399,7 @@ public class SensorParserConfig implements Serializable {
     result = 31 * result + (getSpoutNumTasks() != null ? getSpoutNumTasks().hashCode() : 0);
     result = 31 * result + (getParserParallelism() != null ? getParserParallelism().hashCode() : 0);
     result = 31 * result + (getParserNumTasks() != null ? getParserNumTasks().hashCode() : 0);
+    result = 31 * result + (getParserThreads() != null ? getParserThreads().hashCode() : 0);
     result = 31 * result + (getErrorWriterParallelism() != null ? getErrorWriterParallelism().hashCode() : 0);
     result = 31 * result + (getErrorWriterNumTasks() != null ? getErrorWriterNumTasks().hashCode() : 0);
     result = 31 * result + (getSpoutConfig() != null ? getSpoutConfig().hashCode() : 0);
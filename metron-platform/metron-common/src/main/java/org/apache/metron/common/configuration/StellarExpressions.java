@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.configuration;
+
+import org.apache.metron.common.configuration.enrichment.EnrichmentConfig;
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.configuration.enrichment.handler.ConfigHandler;
+import org.apache.metron.common.configuration.enrichment.handler.Configs;
+import org.apache.metron.common.configuration.enrichment.threatintel.RiskLevelRule;
+import org.apache.metron.common.configuration.enrichment.threatintel.ThreatIntelConfig;
+import org.apache.metron.common.configuration.profiler.ProfileConfig;
+import org.apache.metron.common.configuration.profiler.ProfileResult;
+import org.apache.metron.common.configuration.profiler.ProfilerConfig;
+import org.apache.metron.common.field.transformation.StellarTransformation;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the Stellar expressions contained in the sensor parser, enrichment and profiler
+ * configurations, so that they can be compiled before the first message needs them.
+ */
+public class StellarExpressions {
+
+  /**
+   * The parser filter that evaluates the {@link #FILTER_QUERY_CONF} expression.
+   */
+  public static final String STELLAR_FILTER = "STELLAR";
+  public static final String FILTER_QUERY_CONF = "filter.query";
+
+  /**
+   * @param config A sensor parser, sensor enrichment or profiler configuration.
+   * @return The Stellar expressions in the configuration, or none if it is of any other type.
+   */
+  public static Set<String> of(Object config) {
+    if (config instanceof SensorParserConfig) {
+      return of((SensorParserConfig) config);
+    }
+    if (config instanceof SensorEnrichmentConfig) {
+      return of((SensorEnrichmentConfig) config);
+    }
+    if (config instanceof ProfilerConfig) {
+      return of((ProfilerConfig) config);
+    }
+    return new LinkedHashSet<>();
+  }
+
+  /**
+   * @return The Stellar field transformations and the Stellar filter of a parser.
+   */
+  public static Set<String> of(SensorParserConfig config) {
+    Set<String> ret = new LinkedHashSet<>();
+    if (config.getFieldTransformations() != null) {
+      for (FieldTransformer transformer : config.getFieldTransformations()) {
+        if (transformer.getFieldTransformation() instanceof StellarTransformation && transformer.getConfig() != null) {
+          addAll(ret, transformer.getConfig().values());
+        }
+      }
+    }
+    if (STELLAR_FILTER.equalsIgnoreCase(config.getFilterClassName()) && config.getParserConfig() != null) {
+      add(ret, config.getParserConfig().get(FILTER_QUERY_CONF));
+    }
+    return ret;
+  }
+
+  /**
+   * @return The Stellar enrichments, Stellar threat intel enrichments and triage rules of a sensor.
+   */
+  public static Set<String> of(SensorEnrichmentConfig config) {
+    Set<String> ret = new LinkedHashSet<>();
+    addEnrichments(ret, config.getEnrichment());
+    ThreatIntelConfig threatIntel = config.getThreatIntel();
+    addEnrichments(ret, threatIntel);
+    if (threatIntel != null && threatIntel.getTriageConfig() != null) {
+      for (RiskLevelRule rule : threatIntel.getTriageConfig().getRiskLevelRules()) {
+        add(ret, rule.getRule());
+        add(ret, rule.getReason());
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * @return The expressions of every profile.
+   */
+  public static Set<String> of(ProfilerConfig config) {
+    Set<String> ret = new LinkedHashSet<>();
+    for (ProfileConfig profile : config.getProfiles()) {
+      add(ret, profile.getForeach());
+      add(ret, profile.getOnlyif());
+      addAll(ret, profile.getInit().values());
+      addAll(ret, profile.getUpdate().values());
+      addAll(ret, profile.getGroupBy());
+      ProfileResult result = profile.getResult();
+      if (result != null) {
+        if (result.getProfileExpressions() != null) {
+          add(ret, result.getProfileExpressions().getExpression());
+        }
+        if (result.getTriageExpressions() != null) {
+          addAll(ret, result.getTriageExpressions().getExpressions().values());
+        }
+      }
+    }
+    return ret;
+  }
+
+  private static void addEnrichments(Set<String> ret, EnrichmentConfig config) {
+    if (config == null) {
+      return;
+    }
+    for (ConfigHandler handler : config.getEnrichmentConfigs().values()) {
+      if (handler.getType() == Configs.STELLAR && handler.getConfig() != null) {
+        addStellarConfig(ret, handler.getConfig());
+      }
+    }
+  }
+
+  /**
+   * A Stellar enrichment is a map or list of assignments, whose values are either expressions
+   * or, for the subgroups, another map or list of assignments.
+   */
+  private static void addStellarConfig(Set<String> ret, Object config) {
+    for (Map.Entry<String, Object> kv : Configs.STELLAR.toConfig(config)) {
+      Object value = kv.getValue();
+      if (value instanceof Map || value instanceof Collection) {
+        addStellarConfig(ret, value);
+      } else {
+        add(ret, value);
+      }
+    }
+  }
+
+  private static void addAll(Set<String> ret, Collection<?> expressions) {
+    if (expressions != null) {
+      for (Object expression : expressions) {
+        add(ret, expression);
+      }
+    }
+  }
+
+  private static void add(Set<String> ret, Object expression) {
+    if (expression instanceof String && !((String) expression).trim().isEmpty()) {
+      ret.add((String) expression);
+    }
+  }
+}
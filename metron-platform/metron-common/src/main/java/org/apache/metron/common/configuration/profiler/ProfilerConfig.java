@@ -31,6 +31,14 @@ public class ProfilerConfig implements Serializable {
    */
   private List<ProfileConfig> profiles = new ArrayList<>();
 
+  /**
+   * The name of a field containing the timestamp that is used to generate profiles.
+   *
+   * <p>If defined, the Profiler operates in event time and each message is applied to the
+   * period that its timestamp falls within.  Otherwise, the Profiler uses processing time.
+   */
+  private String timestampField;
+
   public List<ProfileConfig> getProfiles() {
     return profiles;
   }
@@ -39,17 +47,28 @@ public class ProfilerConfig implements Serializable {
     this.profiles = profiles;
   }
 
+  public String getTimestampField() {
+    return timestampField;
+  }
+
+  public void setTimestampField(String timestampField) {
+    this.timestampField = timestampField;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
 
     ProfilerConfig that = (ProfilerConfig) o;
-    return profiles != null ? profiles.equals(that.profiles) : that.profiles == null;
+    if (profiles != null ? !profiles.equals(that.profiles) : that.profiles != null) return false;
+    return timestampField != null ? timestampField.equals(that.timestampField) : that.timestampField == null;
   }
 
   @Override
   public int hashCode() {
-    return profiles != null ? profiles.hashCode() : 0;
+    int result = profiles != null ? profiles.hashCode() : 0;
+    result = 31 * result + (timestampField != null ? timestampField.hashCode() : 0);
+    return result;
   }
 }
@@ -18,21 +18,14 @@
 package org.apache.metron.common.message;
 
 import org.apache.commons.io.Charsets;
+import org.apache.metron.common.utils.JSONByteParser;
 import org.apache.storm.tuple.Tuple;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
 public class JSONFromPosition implements MessageGetStrategy {
 
   private int position = 0;
 
-  private ThreadLocal<JSONParser> parser = new ThreadLocal<JSONParser>() {
-    @Override
-    protected JSONParser initialValue() {
-      return new JSONParser();
-    }
-  };
-
   public JSONFromPosition() {};
 
   public JSONFromPosition(int position) {
@@ -41,11 +34,12 @@ public class JSONFromPosition implements MessageGetStrategy {
 
   @Override
   public JSONObject get(Tuple tuple) {
-    String s = null;
+    byte[] bytes = tuple.getBinary(position);
     try {
-      s =  new String(tuple.getBinary(position), Charsets.UTF_8);
-      return (JSONObject) parser.get().parse(s);
+      //parse the bytes directly, rather than first decoding them to a string
+      return JSONByteParser.JSON_SIMPLE.parseObject(bytes);
     } catch (Exception e) {
+      String s = bytes == null ? null : new String(bytes, Charsets.UTF_8);
       throw new IllegalStateException("Unable to parse " + s + " due to " + e.getMessage(), e);
     }
   }
@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+
+/**
+ * Parses JSON straight from its UTF-8 bytes into json-simple objects with the Jackson streaming API.
+ * Unlike decoding the bytes into a String and handing it to a JSONParser, or binding it to a map with
+ * an ObjectMapper and copying that map into a JSONObject, each value is read once and put directly
+ * into the JSONObject or JSONArray that holds it.
+ *
+ * <p>The strategies differ in the types used for integers and in leniency, so that callers can keep
+ * the behavior of the parser they replace.
+ */
+public enum JSONByteParser {
+  /**
+   * Integers are read as Longs and control characters are allowed in strings, as they are by
+   * json-simple's JSONParser.
+   */
+  JSON_SIMPLE(false, true),
+  /**
+   * Integers are read as the smallest of Integer, Long or BigInteger that holds them, as they are by
+   * Jackson's ObjectMapper.
+   */
+  JACKSON(true, false);
+
+  private static final JsonFactory FACTORY = new JsonFactory();
+  private final boolean narrowIntegers;
+  private final boolean allowControlChars;
+
+  JSONByteParser(boolean narrowIntegers, boolean allowControlChars) {
+    this.narrowIntegers = narrowIntegers;
+    this.allowControlChars = allowControlChars;
+  }
+
+  /**
+   * Parse a JSON object.
+   *
+   * @param bytes The UTF-8 encoded JSON
+   * @return The JSON object
+   * @throws IOException If the bytes are not a single, well formed JSON object
+   */
+  public JSONObject parseObject(byte[] bytes) throws IOException {
+    return parseObject(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Parse a JSON object held in a region of a byte array.
+   *
+   * @param bytes The buffer holding the UTF-8 encoded JSON
+   * @param offset The offset of the JSON in the buffer
+   * @param length The length of the JSON
+   * @return The JSON object
+   * @throws IOException If the region is not a single, well formed JSON object
+   */
+  public JSONObject parseObject(byte[] bytes, int offset, int length) throws IOException {
+    Object ret = parse(bytes, offset, length);
+    if(!(ret instanceof JSONObject)) {
+      throw new IOException("Expected a JSON object, but found " + (ret == null ? "null" : ret.getClass().getSimpleName()));
+    }
+    return (JSONObject) ret;
+  }
+
+  /**
+   * Parse any JSON value: an object, an array, a string, a number, a boolean or null.
+   *
+   * @param bytes The buffer holding the UTF-8 encoded JSON
+   * @param offset The offset of the JSON in the buffer
+   * @param length The length of the JSON
+   * @return The value
+   * @throws IOException If the region is not a single, well formed JSON value
+   */
+  public Object parse(byte[] bytes, int offset, int length) throws IOException {
+    try (JsonParser parser = FACTORY.createParser(bytes, offset, length)) {
+      parser.configure(JsonParser.Feature.ALLOW_UNQUOTED_CONTROL_CHARS, allowControlChars);
+      JsonToken token = parser.nextToken();
+      if(token == null) {
+        throw new JsonParseException(parser, "No JSON content");
+      }
+      Object ret = readValue(parser, token);
+      if(parser.nextToken() != null) {
+        throw new JsonParseException(parser, "Unexpected content after the JSON value");
+      }
+      return ret;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object readValue(JsonParser parser, JsonToken token) throws IOException {
+    switch(token) {
+      case START_OBJECT:
+        JSONObject object = new JSONObject();
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.getCurrentName();
+          object.put(name, readValue(parser, parser.nextToken()));
+        }
+        return object;
+      case START_ARRAY:
+        JSONArray array = new JSONArray();
+        for(JsonToken t = parser.nextToken();t != JsonToken.END_ARRAY;t = parser.nextToken()) {
+          array.add(readValue(parser, t));
+        }
+        return array;
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+        if(narrowIntegers || parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+          return parser.getNumberValue();
+        }
+        return parser.getLongValue();
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        throw new JsonParseException(parser, "Unexpected token " + token);
+    }
+  }
+}
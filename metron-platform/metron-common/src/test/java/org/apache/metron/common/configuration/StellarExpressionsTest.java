@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.configuration;
+
+import com.google.common.collect.ImmutableSet;
+import org.adrianwalker.multilinestring.Multiline;
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.configuration.profiler.ProfilerConfig;
+import org.apache.metron.common.configuration.profiler.ProfilerConfigurations;
+import org.apache.metron.common.utils.JSONUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StellarExpressionsTest {
+
+  /**
+   * {
+   *  "parserClassName" : "org.apache.metron.parsers.GrokParser",
+   *  "sensorTopic" : "squid",
+   *  "filterClassName" : "STELLAR",
+   *  "parserConfig" : {
+   *    "filter.query" : "exists(url)"
+   *  },
+   *  "fieldTransformations" : [
+   *    {
+   *      "transformation" : "STELLAR",
+   *      "output" : [ "full_hostname", "domain_without_subdomains" ],
+   *      "config" : {
+   *        "full_hostname" : "URL_TO_HOST(url)",
+   *        "domain_without_subdomains" : "DOMAIN_REMOVE_SUBDOMAINS(full_hostname)"
+   *      }
+   *    },
+   *    {
+   *      "transformation" : "REMOVE",
+   *      "input" : [ "foo" ]
+   *    }
+   *  ]
+   * }
+   */
+  @Multiline
+  public static String parserConfig;
+
+  /**
+   * {
+   *  "enrichment" : {
+   *    "fieldMap" : {
+   *      "geo" : [ "ip_dst_addr" ],
+   *      "stellar" : {
+   *        "config" : {
+   *          "stmt1" : "TO_UPPER(source.type)",
+   *          "group" : [ "stmt2 := TO_LOWER(source.type)" ],
+   *          "map" : {
+   *            "stmt3" : "1 + 1"
+   *          }
+   *        }
+   *      }
+   *    }
+   *  },
+   *  "threatIntel" : {
+   *    "fieldMap" : {
+   *      "stellar" : {
+   *        "config" : [ "is_alert := true" ]
+   *      }
+   *    },
+   *    "triageConfig" : {
+   *      "riskLevelRules" : [
+   *        {
+   *          "rule" : "user.type == 'admin'",
+   *          "reason" : "user.type",
+   *          "score" : 10
+   *        }
+   *      ],
+   *      "aggregator" : "MAX"
+   *    }
+   *  }
+   * }
+   */
+  @Multiline
+  public static String enrichmentConfig;
+
+  /**
+   * {
+   *  "profiles" : [
+   *    {
+   *      "profile" : "test",
+   *      "foreach" : "ip_src_addr",
+   *      "onlyif" : "protocol == 'HTTP'",
+   *      "init" : { "count" : "0" },
+   *      "update" : { "count" : "count + 1" },
+   *      "groupBy" : [ "DAY_OF_WEEK()" ],
+   *      "result" : {
+   *        "profile" : "count",
+   *        "triage" : { "is_busy" : "count > 100" }
+   *      }
+   *    }
+   *  ]
+   * }
+   */
+  @Multiline
+  public static String profilerConfig;
+
+  @Test
+  public void findsParserExpressions() throws Exception {
+    SensorParserConfig config = JSONUtils.INSTANCE.load(parserConfig, SensorParserConfig.class);
+    Assert.assertEquals(ImmutableSet.of("URL_TO_HOST(url)", "DOMAIN_REMOVE_SUBDOMAINS(full_hostname)", "exists(url)")
+                       , StellarExpressions.of(config)
+                       );
+  }
+
+  @Test
+  public void findsEnrichmentExpressions() throws Exception {
+    SensorEnrichmentConfig config = JSONUtils.INSTANCE.load(enrichmentConfig, SensorEnrichmentConfig.class);
+    Assert.assertEquals(ImmutableSet.of("TO_UPPER(source.type)", "TO_LOWER(source.type)", "1 + 1", "true", "user.type == 'admin'", "user.type")
+                       , StellarExpressions.of(config)
+                       );
+  }
+
+  @Test
+  public void findsProfilerExpressions() throws Exception {
+    ProfilerConfig config = JSONUtils.INSTANCE.load(profilerConfig, ProfilerConfig.class);
+    Assert.assertEquals(ImmutableSet.of("ip_src_addr", "protocol == 'HTTP'", "0", "count + 1", "DAY_OF_WEEK()", "count", "count > 100")
+                       , StellarExpressions.of(config)
+                       );
+  }
+
+  @Test
+  public void findsExpressionsOfEveryConfiguration() throws Exception {
+    EnrichmentConfigurations enrichmentConfigurations = new EnrichmentConfigurations();
+    enrichmentConfigurations.updateSensorEnrichmentConfig("squid", enrichmentConfig.getBytes());
+    enrichmentConfigurations.updateSensorEnrichmentConfig("bro", "{}".getBytes());
+    Assert.assertEquals(6, enrichmentConfigurations.getStellarExpressions().size());
+
+    ProfilerConfigurations profilerConfigurations = new ProfilerConfigurations();
+    profilerConfigurations.updateProfilerConfig(profilerConfig.getBytes());
+    profilerConfigurations.updateGlobalConfig("{ \"a\" : \"b\" }".getBytes());
+    Assert.assertEquals(7, profilerConfigurations.getStellarExpressions().size());
+  }
+}
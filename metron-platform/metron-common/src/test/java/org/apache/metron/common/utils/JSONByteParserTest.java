@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.common.utils;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+public class JSONByteParserTest {
+
+  private static final String MESSAGE = "{\"s\":\"caf\\u00e9 \u00fc\",\"i\":7,\"l\":12345678901,\"d\":1.5,\"b\":true,\"n\":null"
+                                      + ",\"a\":[1,\"two\",[3],{\"four\":4}],\"o\":{\"p\":{\"q\":false}}}";
+
+  @Test
+  public void matchesJSONSimple() throws Exception {
+    Object expected = new JSONParser().parse(MESSAGE);
+    JSONObject actual = JSONByteParser.JSON_SIMPLE.parseObject(MESSAGE.getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(7L, actual.get("i"));
+    Assert.assertTrue(actual.get("a") instanceof JSONArray);
+    Assert.assertTrue(actual.get("o") instanceof JSONObject);
+    Assert.assertTrue(actual.containsKey("n"));
+  }
+
+  @Test
+  public void narrowsIntegersLikeJackson() throws Exception {
+    JSONObject actual = JSONByteParser.JACKSON.parseObject(MESSAGE.getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(7, actual.get("i"));
+    Assert.assertEquals(12345678901L, actual.get("l"));
+    Assert.assertEquals(1.5, actual.get("d"));
+    Assert.assertEquals("caf\u00e9 \u00fc", actual.get("s"));
+  }
+
+  @Test
+  public void readsBigIntegers() throws Exception {
+    JSONObject actual = JSONByteParser.JSON_SIMPLE.parseObject("{\"big\":123456789012345678901234567890}".getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(new BigInteger("123456789012345678901234567890"), actual.get("big"));
+  }
+
+  @Test
+  public void parsesRegionOfBuffer() throws Exception {
+    byte[] buffer = "xx{\"a\":1}yy".getBytes(StandardCharsets.UTF_8);
+    JSONObject actual = JSONByteParser.JSON_SIMPLE.parseObject(buffer, 2, buffer.length - 4);
+    Assert.assertEquals(1L, actual.get("a"));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsTruncatedJSON() throws Exception {
+    JSONByteParser.JSON_SIMPLE.parseObject("{\"a\":[1,2".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsTrailingContent() throws Exception {
+    JSONByteParser.JSON_SIMPLE.parseObject("{\"a\":1} {\"b\":2}".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsNonObjects() throws Exception {
+    JSONByteParser.JSON_SIMPLE.parseObject("[1,2]".getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -18,7 +18,9 @@
 package org.apache.metron.enrichment.adapters.jdbc;
 
 import org.apache.metron.enrichment.bolt.CacheKey;
-import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
+import org.apache.metron.enrichment.interfaces.AsyncEnrichmentAdapter;
+import org.apache.metron.enrichment.utils.AsyncLookupExecutor;
+import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,17 +28,24 @@ import java.io.Serializable;
 import java.net.InetAddress;
 import java.sql.*;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-public abstract class JdbcAdapter implements EnrichmentAdapter<CacheKey>, Serializable {
+public abstract class JdbcAdapter implements AsyncEnrichmentAdapter<CacheKey>, Serializable {
 
   protected static final Logger _LOG = LoggerFactory
           .getLogger(JdbcAdapter.class);
 
+  /**
+   * The maximum number of pending asynchronous lookups passed to {@link #enrichAll} at once.
+   */
+  public static final int MAX_ASYNC_BATCH_SIZE = 100;
+
   protected Connection connection;
   protected Statement statement;
 
   private JdbcConfig config;
   private String host;
+  private transient AsyncLookupExecutor<CacheKey> executor;
 
   protected boolean isConnectionClosed() {
     boolean isClosed = statement == null || connection == null;
@@ -53,7 +62,7 @@ public abstract class JdbcAdapter implements EnrichmentAdapter<CacheKey>, Serial
 
   protected boolean resetConnectionIfNecessary() {
     if(isConnectionClosed()) {
-      this.cleanup();
+      closeConnection();
       return this.initializeAdapter(null);
     }
     return true;
@@ -69,6 +78,26 @@ public abstract class JdbcAdapter implements EnrichmentAdapter<CacheKey>, Serial
   }
 
 
+  /**
+   * Enriches a value on the adapter's lookup thread, as the JDBC statement may not be used by
+   * several threads at once.  The lookups pending at the same time are passed together to
+   * {@link #enrichAll}, which an adapter can override to fetch them with a single query.  A
+   * value that cannot be enriched completes its future exceptionally.
+   * @param value The value to enrich.
+   * @return A future completed with the enrichment of the value.
+   */
+  @Override
+  public CompletableFuture<JSONObject> enrichAsync(CacheKey value) {
+    return getExecutor().submit(value);
+  }
+
+  private synchronized AsyncLookupExecutor<CacheKey> getExecutor() {
+    if (executor == null) {
+      executor = new AsyncLookupExecutor<>("jdbc-lookup", this::enrichAll, MAX_ASYNC_BATCH_SIZE);
+    }
+    return executor;
+  }
+
   @Override
   public boolean initializeAdapter(Map<String, Object> config) {
     try {
@@ -93,6 +122,16 @@ public abstract class JdbcAdapter implements EnrichmentAdapter<CacheKey>, Serial
 
   @Override
   public void cleanup() {
+    synchronized (this) {
+      if (executor != null) {
+        executor.close();
+        executor = null;
+      }
+    }
+    closeConnection();
+  }
+
+  private void closeConnection() {
     try {
       if (statement != null) {
         statement.close();
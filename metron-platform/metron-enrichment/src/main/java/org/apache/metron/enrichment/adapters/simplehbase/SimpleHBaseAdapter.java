@@ -23,26 +23,38 @@ import com.google.common.collect.Iterables;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.metron.enrichment.bolt.CacheKey;
 import org.apache.metron.enrichment.converter.EnrichmentKey;
 import org.apache.metron.enrichment.converter.EnrichmentValue;
-import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
+import org.apache.metron.enrichment.interfaces.AsyncEnrichmentAdapter;
 import org.apache.metron.enrichment.lookup.EnrichmentLookup;
 import org.apache.metron.enrichment.lookup.LookupKV;
 import org.apache.metron.enrichment.lookup.accesstracker.NoopAccessTracker;
+import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
+import org.apache.metron.enrichment.utils.AsyncLookupExecutor;
 import org.apache.metron.enrichment.utils.EnrichmentUtils;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializable {
+public class SimpleHBaseAdapter implements AsyncEnrichmentAdapter<CacheKey>,Serializable {
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  /**
+   * The maximum number of pending asynchronous lookups combined into one multi-get.
+   */
+  public static final int MAX_ASYNC_BATCH_SIZE = 1000;
   protected SimpleHBaseConfig config;
   protected EnrichmentLookup lookup;
+  private transient AsyncLookupExecutor<CacheKey> executor;
 
   public SimpleHBaseAdapter() {
   }
@@ -65,26 +77,49 @@ public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializa
   }
   @Override
   public JSONObject enrich(CacheKey value) {
-    JSONObject enriched = new JSONObject();
+    return enrichAll(Collections.singletonList(value)).get(value);
+  }
+
+  /**
+   * Enriches several values with a single multi-get against the enrichment table.
+   * @param values The values to enrich.
+   * @return The enrichment of each of the values.
+   */
+  @Override
+  public Map<CacheKey, JSONObject> enrichAll(Collection<CacheKey> values) {
     if(!isInitialized()) {
       initializeAdapter(null);
     }
-    List<String> enrichmentTypes = value.getConfig()
-                                        .getEnrichment().getFieldToTypeMap()
-                                        .get(EnrichmentUtils.toTopLevelField(value.getField()));
-    if(isInitialized() && enrichmentTypes != null && value.getValue() != null) {
-      try {
-        for (LookupKV<EnrichmentKey, EnrichmentValue> kv :
-                lookup.get(Iterables.transform(enrichmentTypes
-                                              , new EnrichmentUtils.TypeToKey( value.coerceValue(String.class)
-                                                                             , lookup.getTable()
-                                                                             , value.getConfig().getEnrichment()
-                                                                             )
-                                              )
-                          , false
-                          )
-            )
+    Map<CacheKey, JSONObject> ret = new HashMap<>();
+    // the keys to look up and the value that each of them enriches
+    List<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys = new ArrayList<>();
+    List<JSONObject> enrichments = new ArrayList<>();
+    for(CacheKey value : values) {
+      JSONObject enriched = new JSONObject();
+      ret.put(value, enriched);
+      List<String> enrichmentTypes = value.getConfig()
+                                          .getEnrichment().getFieldToTypeMap()
+                                          .get(EnrichmentUtils.toTopLevelField(value.getField()));
+      if(isInitialized() && enrichmentTypes != null && value.getValue() != null) {
+        for(KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext> key :
+                Iterables.transform(enrichmentTypes
+                                   , new EnrichmentUtils.TypeToKey( value.coerceValue(String.class)
+                                                                  , lookup.getTable()
+                                                                  , value.getConfig().getEnrichment()
+                                                                  )
+                                   )
+           )
         {
+          keys.add(key);
+          enrichments.add(enriched);
+        }
+      }
+    }
+    if(!keys.isEmpty()) {
+      try {
+        int i = 0;
+        for (LookupKV<EnrichmentKey, EnrichmentValue> kv : lookup.get(keys, false)) {
+          JSONObject enriched = enrichments.get(i++);
           if (kv != null && kv.getValue() != null && kv.getValue().getMetadata() != null) {
             for (Map.Entry<String, Object> values : kv.getValue().getMetadata().entrySet()) {
               enriched.put(kv.getKey().type + "." + values.getKey(), values.getValue());
@@ -99,8 +134,27 @@ public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializa
         throw new RuntimeException("Unable to retrieve value: " + e.getMessage(), e);
       }
     }
-    LOG.trace("SimpleHBaseAdapter succeeded: {}", enriched);
-    return enriched;
+    LOG.trace("SimpleHBaseAdapter succeeded: {}", ret);
+    return ret;
+  }
+
+  /**
+   * Enriches a value on the adapter's lookup thread.  The lookups that are pending when the
+   * thread becomes free are combined into a single multi-get, as the HBase table may not be
+   * used by several threads at once.
+   * @param value The value to enrich.
+   * @return A future completed with the enrichment of the value.
+   */
+  @Override
+  public CompletableFuture<JSONObject> enrichAsync(CacheKey value) {
+    return getExecutor().submit(value);
+  }
+
+  private synchronized AsyncLookupExecutor<CacheKey> getExecutor() {
+    if(executor == null) {
+      executor = new AsyncLookupExecutor<>("simplehbase-lookup", this::enrichAll, MAX_ASYNC_BATCH_SIZE);
+    }
+    return executor;
   }
 
   @Override
@@ -125,6 +179,12 @@ public class SimpleHBaseAdapter implements EnrichmentAdapter<CacheKey>,Serializa
 
   @Override
   public void cleanup() {
+    synchronized (this) {
+      if(executor != null) {
+        executor.close();
+        executor = null;
+      }
+    }
     try {
       lookup.close();
     } catch (Exception e) {
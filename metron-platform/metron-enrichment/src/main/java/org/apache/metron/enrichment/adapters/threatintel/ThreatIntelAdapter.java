@@ -17,10 +17,13 @@
  */
 package org.apache.metron.enrichment.adapters.threatintel;
 
-import com.google.common.collect.Iterables;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -32,6 +35,7 @@ import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
 import org.apache.metron.enrichment.lookup.EnrichmentLookup;
 import org.apache.metron.enrichment.lookup.accesstracker.BloomAccessTracker;
 import org.apache.metron.enrichment.lookup.accesstracker.PersistentAccessTracker;
+import org.apache.metron.enrichment.lookup.handler.KeyWithContext;
 import org.apache.metron.enrichment.utils.EnrichmentUtils;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
@@ -66,28 +70,48 @@ public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializa
 
   @Override
   public JSONObject enrich(CacheKey value) {
+    return enrichAll(Collections.singletonList(value)).get(value);
+  }
+
+  /**
+   * Checks several values against the threat intel table with a single multi-get.
+   * @param values The values to enrich.
+   * @return The enrichment of each of the values.
+   */
+  @Override
+  public Map<CacheKey, JSONObject> enrichAll(Collection<CacheKey> values) {
     if(!isInitialized()) {
       initializeAdapter(null);
     }
-    JSONObject enriched = new JSONObject();
-    List<String> enrichmentTypes = value.getConfig()
-                                        .getThreatIntel().getFieldToTypeMap()
-                                        .get(EnrichmentUtils.toTopLevelField(value.getField()));
-    if(isInitialized() && enrichmentTypes != null) {
+    Map<CacheKey, JSONObject> ret = new HashMap<>();
+    // the keys to look up, along with their enrichment type and the value that each of them enriches
+    List<KeyWithContext<EnrichmentKey, EnrichmentLookup.HBaseContext>> keys = new ArrayList<>();
+    List<String> types = new ArrayList<>();
+    List<JSONObject> enrichments = new ArrayList<>();
+    for(CacheKey value : values) {
+      JSONObject enriched = new JSONObject();
+      ret.put(value, enriched);
+      List<String> enrichmentTypes = value.getConfig()
+                                          .getThreatIntel().getFieldToTypeMap()
+                                          .get(EnrichmentUtils.toTopLevelField(value.getField()));
+      if(isInitialized() && enrichmentTypes != null) {
+        EnrichmentUtils.TypeToKey typeToKey = new EnrichmentUtils.TypeToKey( value.coerceValue(String.class)
+                                                                           , lookup.getTable()
+                                                                           , value.getConfig().getThreatIntel()
+                                                                           );
+        for(String enrichmentType : enrichmentTypes) {
+          keys.add(typeToKey.apply(enrichmentType));
+          types.add(enrichmentType);
+          enrichments.add(enriched);
+        }
+      }
+    }
+    if(!keys.isEmpty()) {
       int i = 0;
       try {
-        for (Boolean isThreat :
-                lookup.exists(Iterables.transform(enrichmentTypes
-                                                 , new EnrichmentUtils.TypeToKey(value.coerceValue(String.class)
-                                                                                , lookup.getTable()
-                                                                                , value.getConfig().getThreatIntel()
-                                                                                )
-                                                 )
-                             , false
-                             )
-            )
-        {
-          String enrichmentType = enrichmentTypes.get(i++);
+        for (Boolean isThreat : lookup.exists(keys, false)) {
+          JSONObject enriched = enrichments.get(i);
+          String enrichmentType = types.get(i++);
           if (isThreat) {
             enriched.put(enrichmentType, "alert");
             LOG.trace("Theat Intel Enriched value => {}", enriched);
@@ -100,8 +124,8 @@ public class ThreatIntelAdapter implements EnrichmentAdapter<CacheKey>,Serializa
         throw new RuntimeException("Theat Intel Unable to retrieve value", e);
       }
     }
-    LOG.trace("Threat Intel Enrichment Success: {}", enriched);
-    return enriched;
+    LOG.trace("Threat Intel Enrichment Success: {}", ret);
+    return ret;
   }
 
   public boolean isInitialized() {
@@ -44,6 +44,14 @@ public class EnrichmentJoinBolt extends JoinBolt<JSONObject> {
 
   }
 
+  /**
+   * The streams a message expects depend only on the configuration of its sensor.
+   */
+  @Override
+  protected Object getStreamIdsKey(JSONObject message) {
+    return MessageUtils.getSensorType(message);
+  }
+
   @Override
   public Set<String> getStreamIds(JSONObject message) {
     Set<String> streamIds = new HashSet<>();
@@ -76,6 +84,16 @@ public class EnrichmentJoinBolt extends JoinBolt<JSONObject> {
       JSONObject obj = (JSONObject) messageGetStrategy.get(tuple);
       message.putAll(obj);
     }
+    removeEmptyFields(message);
+    message.put(getClass().getSimpleName().toLowerCase() + ".joiner.ts", "" + System.currentTimeMillis());
+    return  message;
+  }
+
+  /**
+   * Removes the fields of a message whose values are null or empty.
+   * @param message The message.
+   */
+  static void removeEmptyFields(JSONObject message) {
     List<Object> emptyKeys = new ArrayList<>();
     for(Object key : message.keySet()) {
       Object value = message.get(key);
@@ -86,8 +104,6 @@ public class EnrichmentJoinBolt extends JoinBolt<JSONObject> {
     for(Object o : emptyKeys) {
       message.remove(o);
     }
-    message.put(getClass().getSimpleName().toLowerCase() + ".joiner.ts", "" + System.currentTimeMillis());
-    return  message;
   }
 
  protected Map<String, ConfigHandler> getFieldToHandlerMap(String sensorType) {
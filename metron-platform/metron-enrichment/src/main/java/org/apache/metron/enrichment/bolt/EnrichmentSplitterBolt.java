@@ -17,7 +17,6 @@
  */
 package org.apache.metron.enrichment.bolt;
 
-import java.io.UnsupportedEncodingException;
 import java.lang.invoke.MethodHandles;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -28,6 +27,8 @@ import java.util.UUID;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
 import org.apache.metron.common.configuration.enrichment.handler.ConfigHandler;
+import org.apache.metron.common.message.MessageGetStrategy;
+import org.apache.metron.common.message.MessageGetters;
 import org.apache.metron.common.utils.MessageUtils;
 import org.apache.metron.enrichment.configuration.Enrichment;
 import org.apache.metron.enrichment.utils.EnrichmentUtils;
@@ -35,8 +36,6 @@ import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
 import org.apache.storm.tuple.Tuple;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,7 +44,7 @@ public class EnrichmentSplitterBolt extends SplitBolt<JSONObject> {
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private List<Enrichment> enrichments;
   protected String messageFieldName;
-  private transient JSONParser parser;
+  private transient MessageGetStrategy messageGetStrategy;
 
 
   public EnrichmentSplitterBolt(String zookeeperUrl) {
@@ -63,7 +62,7 @@ public class EnrichmentSplitterBolt extends SplitBolt<JSONObject> {
   }
   @Override
   public void prepare(Map map, TopologyContext topologyContext) {
-    parser = new JSONParser();
+    messageGetStrategy = MessageGetters.DEFAULT_JSON_FROM_POSITION.get();
   }
   @Override
   public String getKey(Tuple tuple, JSONObject message) {
@@ -90,11 +89,10 @@ public class EnrichmentSplitterBolt extends SplitBolt<JSONObject> {
   public JSONObject generateMessage(Tuple tuple) {
     JSONObject message = null;
     if (messageFieldName == null) {
-      byte[] data = tuple.getBinary(0);
       try {
-        message = (JSONObject) parser.parse(new String(data, "UTF8"));
+        message = (JSONObject) messageGetStrategy.get(tuple);
         message.put(getClass().getSimpleName().toLowerCase() + ".splitter.begin.ts", "" + System.currentTimeMillis());
-      } catch (ParseException | UnsupportedEncodingException e) {
+      } catch (IllegalStateException e) {
         e.printStackTrace();
       }
     } else {
@@ -21,8 +21,16 @@ package org.apache.metron.enrichment.bolt;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.metron.common.Constants;
@@ -33,9 +41,11 @@ import org.apache.metron.common.error.MetronError;
 import org.apache.metron.common.performance.PerformanceLogger;
 import org.apache.metron.common.utils.ErrorUtils;
 import org.apache.metron.enrichment.configuration.Enrichment;
+import org.apache.metron.enrichment.interfaces.AsyncEnrichmentAdapter;
 import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.storm.Config;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -46,6 +56,8 @@ import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static org.apache.storm.utils.TupleUtils.isTick;
+
 /**
  * Uses an adapter to enrich telemetry messages with additional metadata
  * entries. For a list of available enrichment adapters see
@@ -61,6 +73,17 @@ import org.slf4j.LoggerFactory;
  * </ul>
  * <p>
  * Enrichments are optional
+ * <p>
+ * With a batch size greater than 1, messages are enriched in batches.  The enrichment keys of
+ * a batch are deduplicated and those that are not cached are looked up with a single call to
+ * {@link EnrichmentAdapter#enrichAll(Collection)}, so adapters backed by HBase issue one multi-get
+ * per batch rather than one get per key.  A partial batch is flushed every flush interval.
+ * <p>
+ * With an {@link AsyncEnrichmentAdapter} and a maximum number of messages in flight greater than 0,
+ * the keys of a message that are not cached are looked up asynchronously and the bolt moves on to
+ * the next message.  A message is enriched and emitted, on the bolt's own thread, once all of its
+ * lookups have completed.  When the maximum number of messages are in flight, the bolt waits for
+ * one of them to complete before accepting another.
  **/
 
 @SuppressWarnings({"rawtypes", "serial"})
@@ -80,6 +103,26 @@ public class GenericEnrichmentBolt extends ConfiguredEnrichmentBolt {
   protected Long maxCacheSize;
   protected Long maxTimeRetain;
   protected boolean invalidateCacheOnReload = false;
+  protected int batchSize = 1;
+  protected int flushIntervalSecs = 1;
+  private transient List<Tuple> batch;
+  protected int maxInFlight = 0;
+  private transient int inFlight;
+  private transient BlockingQueue<PendingEnrichment> completed;
+  private transient Map<CacheKey, CompletableFuture<JSONObject>> pendingLookups;
+
+  /**
+   * A message waiting for its asynchronous lookups to complete.
+   */
+  private static class PendingEnrichment {
+    private final Tuple tuple;
+    private final Map<CacheKey, CompletableFuture<JSONObject>> lookups;
+
+    PendingEnrichment(Tuple tuple, Map<CacheKey, CompletableFuture<JSONObject>> lookups) {
+      this.tuple = tuple;
+      this.lookups = lookups;
+    }
+  }
 
   public GenericEnrichmentBolt(String zookeeperUrl) {
     super(zookeeperUrl);
@@ -121,6 +164,55 @@ public class GenericEnrichmentBolt extends ConfiguredEnrichmentBolt {
     return this;
   }
 
+  /**
+   * @param batchSize The number of messages enriched together, 1 to enrich each message as it arrives
+   * @return Instance of this class
+   */
+
+  public GenericEnrichmentBolt withBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * @param flushIntervalSecs The maximum number of seconds that a message waits for its batch to fill up
+   * @return Instance of this class
+   */
+
+  public GenericEnrichmentBolt withFlushIntervalSecs(int flushIntervalSecs) {
+    this.flushIntervalSecs = flushIntervalSecs;
+    return this;
+  }
+
+  /**
+   * @param maxInFlight The maximum number of messages waiting on asynchronous lookups, 0 to look up
+   *                    synchronously.  Only used with an {@link AsyncEnrichmentAdapter}.
+   * @return Instance of this class
+   */
+
+  public GenericEnrichmentBolt withMaxInFlight(int maxInFlight) {
+    this.maxInFlight = maxInFlight;
+    return this;
+  }
+
+  protected boolean isBatching() {
+    return batchSize > 1;
+  }
+
+  protected boolean isAsync() {
+    return maxInFlight > 0 && adapter instanceof AsyncEnrichmentAdapter;
+  }
+
+  @Override
+  public Map<String, Object> getComponentConfiguration() {
+    if (!isBatching() && !isAsync()) {
+      return super.getComponentConfiguration();
+    }
+    Config conf = new Config();
+    conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, flushIntervalSecs);
+    return conf;
+  }
+
 
   @Override
   public void reloadCallback(String name, ConfigurationType type) {
@@ -148,12 +240,29 @@ public class GenericEnrichmentBolt extends ConfiguredEnrichmentBolt {
     loader = new CacheLoader<CacheKey, JSONObject>() {
       @Override
       public JSONObject load(CacheKey key) throws Exception {
+        if (isAsync()) {
+          // the adapter's lookups must not run alongside those in flight
+          return ((AsyncEnrichmentAdapter<CacheKey>) adapter).enrichAsync(key).join();
+        }
         return adapter.enrich(key);
       }
+
+      @Override
+      public Map<CacheKey, JSONObject> loadAll(Iterable<? extends CacheKey> keys) throws Exception {
+        List<CacheKey> values = new ArrayList<>();
+        for (CacheKey key : keys) {
+          values.add(key);
+        }
+        return adapter.enrichAll(values);
+      }
     };
     cache = CacheBuilder.newBuilder().maximumSize(maxCacheSize)
             .expireAfterWrite(maxTimeRetain, TimeUnit.MINUTES)
             .build(loader);
+    batch = new ArrayList<>();
+    inFlight = 0;
+    completed = new LinkedBlockingQueue<>();
+    pendingLookups = new HashMap<>();
     boolean success = adapter.initializeAdapter(getConfigurations().getGlobalConfig());
     if (!success) {
       LOG.error("[Metron] GenericEnrichmentBolt could not initialize adapter");
@@ -178,9 +287,141 @@ public class GenericEnrichmentBolt extends ConfiguredEnrichmentBolt {
     declarer.declareStream(ERROR_STREAM, new Fields("message"));
   }
 
-  @SuppressWarnings("unchecked")
   @Override
   public void execute(Tuple tuple) {
+    if (isAsync()) {
+      executeAsync(tuple);
+      return;
+    }
+    if (!isBatching()) {
+      enrich(tuple);
+      return;
+    }
+    boolean tick = isTick(tuple);
+    if (!tick) {
+      batch.add(tuple);
+    }
+    if (batch.size() >= batchSize || (tick && !batch.isEmpty())) {
+      flush();
+    }
+  }
+
+  /**
+   * Starts the lookups of the keys of a message that are not cached, and enriches the messages
+   * whose lookups have completed.
+   * @param tuple The tuple containing a message, or a tick tuple.
+   */
+  @SuppressWarnings("unchecked")
+  protected void executeAsync(Tuple tuple) {
+    drainCompleted();
+    if (isTick(tuple)) {
+      return;
+    }
+    Map<CacheKey, CompletableFuture<JSONObject>> lookups = new HashMap<>();
+    for (CacheKey key : getCacheKeys(tuple)) {
+      if (!lookups.containsKey(key) && cache.getIfPresent(key) == null) {
+        CompletableFuture<JSONObject> lookup = pendingLookups.get(key);
+        if (lookup == null) {
+          lookup = ((AsyncEnrichmentAdapter<CacheKey>) adapter).enrichAsync(key);
+          pendingLookups.put(key, lookup);
+        }
+        lookups.put(key, lookup);
+      }
+    }
+    if (lookups.isEmpty()) {
+      enrich(tuple);
+      return;
+    }
+    while (inFlight >= maxInFlight) {
+      try {
+        complete(completed.take());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    inFlight++;
+    PendingEnrichment pending = new PendingEnrichment(tuple, lookups);
+    CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[lookups.size()]))
+                     .whenComplete((result, t) -> completed.add(pending));
+  }
+
+  private void drainCompleted() {
+    PendingEnrichment pending;
+    while ((pending = completed.poll()) != null) {
+      complete(pending);
+    }
+  }
+
+  /**
+   * Caches the results of a message's lookups, then enriches it.  Keys whose lookup failed are
+   * looked up again when the message is enriched, which reports the error against the message.
+   */
+  private void complete(PendingEnrichment pending) {
+    inFlight--;
+    for (Map.Entry<CacheKey, CompletableFuture<JSONObject>> lookup : pending.lookups.entrySet()) {
+      pendingLookups.remove(lookup.getKey(), lookup.getValue());
+      if (!lookup.getValue().isCompletedExceptionally()) {
+        JSONObject enrichment = lookup.getValue().join();
+        if (enrichment != null) {
+          cache.put(lookup.getKey(), enrichment);
+        }
+      }
+    }
+    enrich(pending.tuple);
+  }
+
+  /**
+   * Enriches the batched messages.  All of the keys to enrich are first looked up at once, so
+   * that enriching each message only hits the cache.
+   */
+  protected void flush() {
+    perfLog.mark("flush");
+    List<Tuple> tuples = batch;
+    batch = new ArrayList<>();
+    Set<CacheKey> keys = new HashSet<>();
+    for (Tuple tuple : tuples) {
+      keys.addAll(getCacheKeys(tuple));
+    }
+    try {
+      cache.getAll(keys);
+    } catch (Exception e) {
+      // each key is looked up again when its message is enriched, which reports the error against that message
+      LOG.warn("Unable to enrich a batch of {} keys, looking them up individually: {}", keys.size(), e.getMessage());
+    }
+    for (Tuple tuple : tuples) {
+      enrich(tuple);
+    }
+    perfLog.log("flush", "batch size={}, elapsed time to enrich batch", tuples.size());
+  }
+
+  /**
+   * @param tuple The tuple containing a message.
+   * @return The keys that enriching the message looks up.  Messages that cannot be enriched have none.
+   */
+  private Collection<CacheKey> getCacheKeys(Tuple tuple) {
+    List<CacheKey> keys = new ArrayList<>();
+    JSONObject rawMessage = (JSONObject) tuple.getValueByField("message");
+    if (rawMessage == null || tuple.getStringByField("key") == null || rawMessage.get(Constants.SENSOR_TYPE) == null) {
+      return keys;
+    }
+    SensorEnrichmentConfig config = getConfigurations().getSensorEnrichmentConfig(rawMessage.get(Constants.SENSOR_TYPE).toString());
+    if (config == null) {
+      return keys;
+    }
+    config.getConfiguration().putIfAbsent(STELLAR_CONTEXT_CONF, stellarContext);
+    for (Object o : rawMessage.keySet()) {
+      String field = (String) o;
+      Object value = rawMessage.get(field);
+      if (!field.equals(Constants.SENSOR_TYPE) && value != null) {
+        keys.add(new CacheKey(field, value, config));
+      }
+    }
+    return keys;
+  }
+
+  @SuppressWarnings("unchecked")
+  protected void enrich(Tuple tuple) {
     perfLog.mark("execute");
     String key = tuple.getStringByField("key");
     JSONObject rawMessage = (JSONObject) tuple.getValueByField("message");
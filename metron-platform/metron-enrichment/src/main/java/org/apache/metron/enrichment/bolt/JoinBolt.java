@@ -18,25 +18,23 @@
 package org.apache.metron.enrichment.bolt;
 
 import com.google.common.base.Joiner;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.cache.RemovalCause;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
-import com.google.common.collect.Sets;
 import java.lang.invoke.MethodHandles;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.bolt.ConfiguredEnrichmentBolt;
+import org.apache.metron.common.configuration.ConfigurationType;
 import org.apache.metron.common.error.MetronError;
 import org.apache.metron.common.message.MessageGetStrategy;
 import org.apache.metron.common.message.MessageGetters;
 import org.apache.metron.common.performance.PerformanceLogger;
 import org.apache.metron.common.utils.ErrorUtils;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -46,20 +44,32 @@ import org.apache.storm.tuple.Values;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Joins the parts of a message that were split up to be processed in parallel.  The parts are
+ * held in a {@link JoinBuffer} until all of the streams the message expects have delivered theirs.
+ */
 public abstract class JoinBolt<V> extends ConfiguredEnrichmentBolt {
 
   public static class Perf {} // used for performance logging
   private PerformanceLogger perfLog; // not static bc multiple bolts may exist in same worker
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  public static final String JOIN_METRIC = "join";
+  public static final int JOIN_METRIC_INTERVAL_SECS = 60;
   protected OutputCollector collector;
 
-  protected transient CacheLoader<String, Map<String, Tuple>> loader;
-  protected transient LoadingCache<String, Map<String, Tuple>> cache;
+  protected transient JoinBuffer buffer;
   protected transient MessageGetStrategy keyGetStrategy;
   protected transient MessageGetStrategy subgroupGetStrategy;
   protected transient MessageGetStrategy messageGetStrategy;
   protected Long maxCacheSize;
   protected Long maxTimeRetain;
+  /**
+   * The streams expected by each stream ids key.  Replaced, rather than cleared, when the
+   * configuration is reloaded on the Zookeeper thread so that a lookup in progress on the
+   * executor thread can never repopulate it with stream ids from the old configuration.
+   */
+  private transient volatile ConcurrentMap<Object, BitSet> expectedStreams;
+  private transient JoinMetric metric;
 
   public JoinBolt(String zookeeperUrl) {
     super(zookeeperUrl);
@@ -89,37 +99,57 @@ public abstract class JoinBolt<V> extends ConfiguredEnrichmentBolt {
     if (this.maxTimeRetain == null) {
       throw new IllegalStateException("maxTimeRetain must be specified");
     }
-    loader = new CacheLoader<String, Map<String, Tuple>>() {
-      @Override
-      public Map<String, Tuple> load(String key) throws Exception {
-        return new HashMap<>();
-      }
-    };
-    cache = CacheBuilder.newBuilder().maximumSize(maxCacheSize)
-            .expireAfterWrite(maxTimeRetain, TimeUnit.MINUTES).removalListener(new JoinRemoveListener())
-            .build(loader);
+    metric = new JoinMetric();
+    buffer = new JoinBuffer(maxCacheSize, TimeUnit.MINUTES.toMillis(maxTimeRetain), this::onEviction);
+    expectedStreams = new ConcurrentHashMap<>();
+    if (topologyContext != null) {
+      topologyContext.registerMetric(JOIN_METRIC, metric, JOIN_METRIC_INTERVAL_SECS);
+    }
     prepare(map, topologyContext);
   }
 
-  class JoinRemoveListener implements RemovalListener<String, Map<String, Tuple>> {
+  private void onEviction(String key, Map<String, Tuple> parts, JoinBuffer.EvictionCause cause) {
+    metric.evicted(cause);
+    if (cause == JoinBuffer.EvictionCause.SIZE) {
+      String errorMessage = "Join cache reached max size limit. Increase the maxCacheSize setting or add more tasks to enrichment/threatintel join bolt.";
+      Exception exception = new Exception(errorMessage);
+      LOG.error(errorMessage, exception);
+      collector.reportError(exception);
+    }
+    if (cause == JoinBuffer.EvictionCause.EXPIRED) {
+      String errorMessage = "Message was in the join cache too long which may be caused by slow enrichments/threatintels.  Increase the maxTimeRetain setting.";
+      Exception exception = new Exception(errorMessage);
+      LOG.error(errorMessage, exception);
+      collector.reportError(exception);
+    }
+  }
 
-    @Override
-    public void onRemoval(RemovalNotification<String, Map<String, Tuple>> removalNotification) {
-      if (removalNotification.getCause() == RemovalCause.SIZE) {
-        String errorMessage = "Join cache reached max size limit. Increase the maxCacheSize setting or add more tasks to enrichment/threatintel join bolt.";
-        Exception exception = new Exception(errorMessage);
-        LOG.error(errorMessage, exception);
-        collector.reportError(exception);
-      }
-      if (removalNotification.getCause() == RemovalCause.EXPIRED) {
-        String errorMessage = "Message was in the join cache too long which may be caused by slow enrichments/threatintels.  Increase the maxTimeRetain setting.";
-        Exception exception = new Exception(errorMessage);
-        LOG.error(errorMessage, exception);
-        collector.reportError(exception);
-      }
+  @Override
+  public void reloadCallback(String name, ConfigurationType type) {
+    super.reloadCallback(name, type);
+    if (expectedStreams != null) {
+      expectedStreams = new ConcurrentHashMap<>();
     }
   }
 
+  /**
+   * The streams that a message expects depend only on the key returned here, which lets them be
+   * looked up once per key rather than once per message.
+   * @param value A part of a message.
+   * @return The key that determines the message's stream ids, or null if they must be computed for each message.
+   */
+  protected Object getStreamIdsKey(V value) {
+    return null;
+  }
+
+  private BitSet getExpectedStreams(V message) {
+    Object streamIdsKey = getStreamIdsKey(message);
+    if (streamIdsKey == null) {
+      return buffer.toBitSet(getStreamIds(message));
+    }
+    return expectedStreams.computeIfAbsent(streamIdsKey, k -> buffer.toBitSet(getStreamIds(message)));
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public void execute(Tuple tuple) {
@@ -127,20 +157,16 @@ public abstract class JoinBolt<V> extends ConfiguredEnrichmentBolt {
     String streamId = tuple.getSourceStreamId();
     String key = (String) keyGetStrategy.get(tuple);
     String subgroup = (String) subgroupGetStrategy.get(tuple);
-    streamId = Joiner.on(":").join("" + streamId, subgroup == null?"":subgroup);
+    streamId = ("" + streamId) + ":" + (subgroup == null?"":subgroup);
     V message = (V) messageGetStrategy.get(tuple);
     try {
-      Map<String, Tuple> streamMessageMap = cache.get(key);
-      if (streamMessageMap.containsKey(streamId)) {
+      JoinBuffer.Arrival arrival = buffer.add(key, streamId, tuple, getExpectedStreams(message), System.currentTimeMillis());
+      if (arrival.isDuplicate()) {
         LOG.warn("Received key {} twice for stream {}", key, streamId);
       }
-      streamMessageMap.put(streamId, tuple);
-      Set<String> streamIds = getStreamIds(message);
-      Set<String> streamMessageKeys = streamMessageMap.keySet();
-      if ( streamMessageKeys.size() == streamIds.size()
-        && Sets.symmetricDifference(streamMessageKeys, streamIds)
-               .isEmpty()
-         ) {
+      if (arrival.isComplete()) {
+        Map<String, Tuple> streamMessageMap = arrival.getJoined();
+        metric.joined(arrival.getLatency());
 
         perfLog.mark("join-message");
         V joinedMessages = joinMessages(streamMessageMap, this.messageGetStrategy);
@@ -152,17 +178,12 @@ public abstract class JoinBolt<V> extends ConfiguredEnrichmentBolt {
                        new Values(key, joinedMessages));
         perfLog.log("emit-message", "key={}, elapsed time to emit messages", key);
 
-        cache.invalidate(key);
         Tuple messageTuple = streamMessageMap.get("message:");
         collector.ack(messageTuple);
         LOG.trace("Emitted message for key: {}", key);
-      } else {
-        cache.put(key, streamMessageMap);
-        if(LOG.isDebugEnabled()) {
-          LOG.debug("{}: Missed joining portions for {}. Expected {} != {}",
-              getClass().getSimpleName(), key, Joiner.on(",").join(streamIds),
-              Joiner.on(",").join(streamMessageKeys));
-        }
+      } else if(LOG.isDebugEnabled()) {
+        LOG.debug("{}: Missed joining portions for {}. Expected {}, received {}",
+            getClass().getSimpleName(), key, Joiner.on(",").join(getStreamIds(message)), streamId);
       }
     } catch (Exception e) {
       LOG.error("[Metron] Unable to join messages: {}", message, e);
@@ -177,6 +198,49 @@ public abstract class JoinBolt<V> extends ConfiguredEnrichmentBolt {
     perfLog.log("execute", "key={}, elapsed time to run execute", key);
   }
 
+  /**
+   * Reports the number of messages joined, how long they took to join and how many were evicted
+   * before they could be.
+   */
+  private class JoinMetric implements IMetric {
+    private long joined;
+    private long totalLatency;
+    private long maxLatency;
+    private long evictedForSize;
+    private long expired;
+
+    void joined(long latency) {
+      joined++;
+      totalLatency += latency;
+      maxLatency = Math.max(maxLatency, latency);
+    }
+
+    void evicted(JoinBuffer.EvictionCause cause) {
+      if (cause == JoinBuffer.EvictionCause.SIZE) {
+        evictedForSize++;
+      } else {
+        expired++;
+      }
+    }
+
+    @Override
+    public Object getValueAndReset() {
+      Map<String, Object> ret = new HashMap<>();
+      ret.put("joined", joined);
+      ret.put("joinLatencyMeanMs", joined == 0 ? 0.0 : (double) totalLatency / joined);
+      ret.put("joinLatencyMaxMs", maxLatency);
+      ret.put("evictedForSize", evictedForSize);
+      ret.put("expired", expired);
+      ret.put("buffered", buffer.size());
+      joined = 0;
+      totalLatency = 0;
+      maxLatency = 0;
+      evictedForSize = 0;
+      expired = 0;
+      return ret;
+    }
+  }
+
   @Override
   public void declareOutputFields(OutputFieldsDeclarer declarer) {
     declarer.declareStream("message", new Fields("key", "message"));
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.bolt;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.storm.tuple.Tuple;
+
+/**
+ * Holds the parts of messages until all of them have arrived and the message can be joined.
+ *
+ * <p>Each stream that a part can arrive on is given a bit, so that the streams a message expects
+ * and the streams it has received are both bit sets and a message is complete when they are equal.
+ * Messages expire a fixed time after their first part arrived, so the buffer, which is ordered by
+ * first arrival, only ever needs to look at its oldest messages to find those that have expired.
+ * When the buffer is full, the oldest message is evicted to make room.
+ *
+ * <p>A join buffer is not thread safe.
+ */
+public class JoinBuffer {
+
+  public enum EvictionCause {
+    /**
+     * The buffer was full.
+     */
+    SIZE,
+    /**
+     * Not all of the parts of the message arrived in time.
+     */
+    EXPIRED
+  }
+
+  public interface EvictionListener {
+    void onEviction(String key, Map<String, Tuple> parts, EvictionCause cause);
+  }
+
+  private static class Entry {
+    private final long firstArrival;
+    private final BitSet expected;
+    private final BitSet arrived = new BitSet();
+    private final Map<String, Tuple> parts;
+
+    Entry(long firstArrival, BitSet expected) {
+      this.firstArrival = firstArrival;
+      this.expected = expected;
+      this.parts = new HashMap<>(2 * expected.cardinality());
+    }
+  }
+
+  /**
+   * The result of adding a part of a message to the buffer.
+   */
+  public static class Arrival {
+    private final boolean duplicate;
+    private final Map<String, Tuple> joined;
+    private final long latency;
+
+    Arrival(boolean duplicate, Map<String, Tuple> joined, long latency) {
+      this.duplicate = duplicate;
+      this.joined = joined;
+      this.latency = latency;
+    }
+
+    /**
+     * @return Whether a part had already arrived on the same stream.  The new part replaces it.
+     */
+    public boolean isDuplicate() {
+      return duplicate;
+    }
+
+    /**
+     * @return Whether all of the parts of the message have arrived.
+     */
+    public boolean isComplete() {
+      return joined != null;
+    }
+
+    /**
+     * @return The parts of the message by stream, once it is complete.  The message is no longer buffered.
+     */
+    public Map<String, Tuple> getJoined() {
+      return joined;
+    }
+
+    /**
+     * @return The milliseconds between the arrival of the first and last parts of a complete message.
+     */
+    public long getLatency() {
+      return latency;
+    }
+  }
+
+  private final long maxSize;
+  private final long timeToLive;
+  private final EvictionListener listener;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+  private final Map<String, Integer> streams = new HashMap<>();
+
+  /**
+   * @param maxSize The maximum number of messages buffered.
+   * @param timeToLive The milliseconds a message is buffered for after its first part arrives.
+   * @param listener Notified of the messages that are evicted before they are complete.
+   */
+  public JoinBuffer(long maxSize, long timeToLive, EvictionListener listener) {
+    this.maxSize = maxSize;
+    this.timeToLive = timeToLive;
+    this.listener = listener;
+  }
+
+  /**
+   * @param streamIds Stream ids.
+   * @return The bits of the streams.
+   */
+  public BitSet toBitSet(Set<String> streamIds) {
+    BitSet bits = new BitSet();
+    for (String streamId : streamIds) {
+      bits.set(indexOf(streamId));
+    }
+    return bits;
+  }
+
+  private int indexOf(String streamId) {
+    Integer index = streams.get(streamId);
+    if (index == null) {
+      index = streams.size();
+      streams.put(streamId, index);
+    }
+    return index;
+  }
+
+  /**
+   * Adds a part of a message.
+   * @param key The key of the message.
+   * @param streamId The stream the part arrived on.
+   * @param part The part.
+   * @param expected The streams the message expects parts on, used if this is the first part to arrive.
+   *                 The buffer keeps the bit set, which must not be modified afterwards.
+   * @param now The current time in milliseconds.
+   * @return The result of adding the part.
+   */
+  public Arrival add(String key, String streamId, Tuple part, BitSet expected, long now) {
+    expire(now);
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      if (entries.size() >= maxSize) {
+        evictEldest(EvictionCause.SIZE);
+      }
+      entry = new Entry(now, expected);
+      entries.put(key, entry);
+    }
+    boolean duplicate = entry.parts.put(streamId, part) != null;
+    entry.arrived.set(indexOf(streamId));
+    if (entry.arrived.equals(entry.expected)) {
+      entries.remove(key);
+      return new Arrival(duplicate, entry.parts, now - entry.firstArrival);
+    }
+    return new Arrival(duplicate, null, 0);
+  }
+
+  /**
+   * Evicts the messages that have been buffered for longer than the time to live.
+   * @param now The current time in milliseconds.
+   */
+  public void expire(long now) {
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, Entry> eldest = it.next();
+      if (now - eldest.getValue().firstArrival < timeToLive) {
+        break;
+      }
+      it.remove();
+      listener.onEviction(eldest.getKey(), eldest.getValue().parts, EvictionCause.EXPIRED);
+    }
+  }
+
+  private void evictEldest(EvictionCause cause) {
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    Map.Entry<String, Entry> eldest = it.next();
+    it.remove();
+    listener.onEviction(eldest.getKey(), eldest.getValue().parts, cause);
+  }
+
+  /**
+   * @return The number of messages buffered.
+   */
+  public int size() {
+    return entries.size();
+  }
+}
@@ -22,6 +22,7 @@ import java.lang.invoke.MethodHandles;
 import java.util.HashMap;
 import java.util.Map;
 import org.apache.metron.common.configuration.ConfigurationType;
+import org.apache.metron.common.configuration.EnrichmentConfigurations;
 import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
 import org.apache.metron.common.configuration.enrichment.handler.ConfigHandler;
 import org.apache.metron.common.configuration.enrichment.threatintel.RuleScore;
@@ -137,6 +138,19 @@ public class ThreatIntelJoinBolt extends EnrichmentJoinBolt {
   public JSONObject joinMessages(Map<String, Tuple> streamMessageMap, MessageGetStrategy messageGetStrategy) {
     JSONObject ret = super.joinMessages(streamMessageMap, messageGetStrategy);
     LOG.trace("Received joined messages: {}", ret);
+    return triage(ret, getConfigurations(), functionResolver, stellarContext);
+  }
+
+  /**
+   * Marks a message that has threat intel as an alert, and scores alerts with the threat triage
+   * rules of their sensor.
+   * @param ret The enriched message.
+   * @param configurations The enrichment configurations.
+   * @param functionResolver The Stellar function resolver.
+   * @param stellarContext The execution context for Stellar.
+   * @return The message.
+   */
+  static JSONObject triage(JSONObject ret, EnrichmentConfigurations configurations, FunctionResolver functionResolver, Context stellarContext) {
     boolean isAlert = ret.containsKey("is_alert");
     if(!isAlert) {
       for (Object key : ret.keySet()) {
@@ -156,7 +170,7 @@ public class ThreatIntelJoinBolt extends EnrichmentJoinBolt {
     if(isAlert) {
       ret.put("is_alert" , "true");
       String sourceType = MessageUtils.getSensorType(ret);
-      SensorEnrichmentConfig config = getConfigurations().getSensorEnrichmentConfig(sourceType);
+      SensorEnrichmentConfig config = configurations.getSensorEnrichmentConfig(sourceType);
       ThreatTriageConfig triageConfig = null;
       if(config != null) {
         triageConfig = config.getThreatIntel().getTriageConfig();
@@ -212,7 +226,7 @@ public class ThreatIntelJoinBolt extends EnrichmentJoinBolt {
    * @param threatScore The threat triage score
    * @param message The telemetry message being triaged.
    */
-  private void appendThreatScore(ThreatScore threatScore, JSONObject message) {
+  private static void appendThreatScore(ThreatScore threatScore, JSONObject message) {
 
     // append the overall threat score
     message.put(THREAT_TRIAGE_SCORE_KEY, threatScore.getScore());
@@ -0,0 +1,433 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.bolt;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.metron.common.Constants;
+import org.apache.metron.common.bolt.ConfiguredEnrichmentBolt;
+import org.apache.metron.common.configuration.ConfigurationType;
+import org.apache.metron.common.configuration.enrichment.EnrichmentConfig;
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.common.configuration.enrichment.handler.ConfigHandler;
+import org.apache.metron.common.error.MetronError;
+import org.apache.metron.common.message.MessageGetStrategy;
+import org.apache.metron.common.message.MessageGetters;
+import org.apache.metron.common.performance.PerformanceLogger;
+import org.apache.metron.common.utils.ErrorUtils;
+import org.apache.metron.common.utils.MessageUtils;
+import org.apache.metron.enrichment.adapters.geo.GeoLiteDatabase;
+import org.apache.metron.enrichment.configuration.Enrichment;
+import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
+import org.apache.metron.enrichment.utils.EnrichmentUtils;
+import org.apache.metron.enrichment.utils.ThreatIntelUtils;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Enriches, threat intels and triages a message within a single bolt.
+ * <p>
+ * This replaces the split, enrich and join bolts of the enrichment topology.  The enrichments
+ * of a message are looked up in parallel on a thread pool shared by all of the bolts in a worker,
+ * one task per enrichment type so that no adapter is used by more than one thread at a time.
+ * Once all of them are done, the threat intel enrichments are looked up in the same way, the
+ * message is triaged and it is emitted on the "message" stream.
+ * <p>
+ * As the message is not serialized between bolts and there is nothing to join, this suits
+ * deployments whose enrichments are cheap.  Slow enrichments hold up the whole message, and
+ * cannot be scaled independently of the others.
+ */
+@SuppressWarnings({"rawtypes", "serial"})
+public class UnifiedEnrichmentBolt extends ConfiguredEnrichmentBolt {
+  public static class Perf {} // used for performance logging
+  private PerformanceLogger perfLog; // not static bc multiple bolts may exist in same worker
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String ERROR_STREAM = "error";
+  private static ExecutorService threadPool;
+
+  private OutputCollector collector;
+  private List<Enrichment> enrichments = new ArrayList<>();
+  private List<Enrichment> threatIntels = new ArrayList<>();
+  protected String messageFieldName;
+  protected Long maxCacheSize;
+  protected Long maxTimeRetain;
+  protected int threadPoolSize = Runtime.getRuntime().availableProcessors();
+  private transient MessageGetStrategy messageGetStrategy;
+  private transient Map<Enrichment, LoadingCache<CacheKey, JSONObject>> caches;
+  private transient Context stellarContext;
+  private transient FunctionResolver functionResolver;
+
+  public UnifiedEnrichmentBolt(String zookeeperUrl) {
+    super(zookeeperUrl);
+  }
+
+  /**
+   * @param enrichments The enrichments to apply to each message
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withEnrichments(List<Enrichment> enrichments) {
+    this.enrichments = enrichments;
+    return this;
+  }
+
+  /**
+   * @param threatIntels The threat intel enrichments to apply to each message, after the enrichments
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withThreatIntels(List<Enrichment> threatIntels) {
+    this.threatIntels = threatIntels;
+    return this;
+  }
+
+  /**
+   * @param messageFieldName The field of the tuple holding the message, or null to parse the message from the first field
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withMessageFieldName(String messageFieldName) {
+    this.messageFieldName = messageFieldName;
+    return this;
+  }
+
+  /**
+   * @param maxCacheSize Maximum size of the cache of each enrichment before flushing
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withMaxCacheSize(long maxCacheSize) {
+    this.maxCacheSize = maxCacheSize;
+    return this;
+  }
+
+  /**
+   * @param maxTimeRetain Maximum time to retain cached entry before expiring
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withMaxTimeRetain(long maxTimeRetain) {
+    this.maxTimeRetain = maxTimeRetain;
+    return this;
+  }
+
+  /**
+   * @param threadPoolSize The number of threads looking up enrichments, shared by all the bolts of a worker.
+   *                       The first bolt of a worker to be prepared sets it.
+   * @return Instance of this class
+   */
+  public UnifiedEnrichmentBolt withThreadPoolSize(int threadPoolSize) {
+    this.threadPoolSize = threadPoolSize;
+    return this;
+  }
+
+  private static synchronized ExecutorService getThreadPool(int size) {
+    if (threadPool == null) {
+      AtomicInteger count = new AtomicInteger();
+      ThreadFactory threadFactory = r -> {
+        Thread thread = new Thread(r, "unified-enrichment-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      };
+      threadPool = Executors.newFixedThreadPool(size, threadFactory);
+    }
+    return threadPool;
+  }
+
+  @Override
+  public void prepare(Map conf, TopologyContext topologyContext, OutputCollector collector) {
+    super.prepare(conf, topologyContext, collector);
+    this.collector = collector;
+    if (this.maxCacheSize == null) {
+      throw new IllegalStateException("MAX_CACHE_SIZE_OBJECTS_NUM must be specified");
+    }
+    if (this.maxTimeRetain == null) {
+      throw new IllegalStateException("MAX_TIME_RETAIN_MINUTES must be specified");
+    }
+    messageGetStrategy = MessageGetters.DEFAULT_JSON_FROM_POSITION.get();
+    caches = new HashMap<>();
+    for (Enrichment enrichment : allEnrichments()) {
+      EnrichmentAdapter<CacheKey> adapter = enrichment.getAdapter();
+      if (!adapter.initializeAdapter(getConfigurations().getGlobalConfig())) {
+        LOG.error("[Metron] UnifiedEnrichmentBolt could not initialize adapter for {}", enrichment.getType());
+        throw new IllegalStateException("Could not initialize adapter...");
+      }
+      caches.put(enrichment, CacheBuilder.newBuilder().maximumSize(maxCacheSize)
+              .expireAfterWrite(maxTimeRetain, TimeUnit.MINUTES)
+              .build(new CacheLoader<CacheKey, JSONObject>() {
+                @Override
+                public JSONObject load(CacheKey key) throws Exception {
+                  return adapter.enrich(key);
+                }
+              }));
+    }
+    getThreadPool(threadPoolSize);
+    perfLog = new PerformanceLogger(() -> getConfigurations().getGlobalConfig(), Perf.class.getName());
+    GeoLiteDatabase.INSTANCE.update((String)getConfigurations().getGlobalConfig().get(GeoLiteDatabase.GEO_HDFS_FILE));
+    initializeStellar();
+  }
+
+  protected void initializeStellar() {
+    stellarContext = new Context.Builder()
+                         .with(Context.Capabilities.ZOOKEEPER_CLIENT, () -> client)
+                         .with(Context.Capabilities.GLOBAL_CONFIG, () -> getConfigurations().getGlobalConfig())
+                         .with(Context.Capabilities.STELLAR_CONFIG, () -> getConfigurations().getGlobalConfig())
+                         .build();
+    StellarFunctions.initialize(stellarContext);
+    functionResolver = StellarFunctions.FUNCTION_RESOLVER();
+  }
+
+  private List<Enrichment> allEnrichments() {
+    List<Enrichment> ret = new ArrayList<>(enrichments);
+    ret.addAll(threatIntels);
+    return ret;
+  }
+
+  @Override
+  public void reloadCallback(String name, ConfigurationType type) {
+    if (type == ConfigurationType.GLOBAL) {
+      for (Enrichment enrichment : allEnrichments()) {
+        enrichment.getAdapter().updateAdapter(getConfigurations().getGlobalConfig());
+      }
+      GeoLiteDatabase.INSTANCE.updateIfNecessary(getConfigurations().getGlobalConfig());
+    }
+  }
+
+  @Override
+  public void declareOutputFields(OutputFieldsDeclarer declarer) {
+    declarer.declareStream("message", new Fields("key", "message"));
+    declarer.declareStream(ERROR_STREAM, new Fields("message"));
+  }
+
+  @Override
+  public void execute(Tuple tuple) {
+    perfLog.mark("execute");
+    JSONObject message = null;
+    String key = null;
+    try {
+      message = getMessage(tuple);
+      key = getKey(tuple, message);
+      String sensorType = MessageUtils.getSensorType(message);
+      SensorEnrichmentConfig config = sensorType == null ? null : getConfigurations().getSensorEnrichmentConfig(sensorType);
+      if (config == null) {
+        LOG.info("Unable to retrieve a sensor enrichment config of {}", sensorType);
+      } else {
+        config.getConfiguration().putIfAbsent(GenericEnrichmentBolt.STELLAR_CONTEXT_CONF, stellarContext);
+
+        perfLog.mark("enrich");
+        enrich(message, config, config.getEnrichment(), enrichments, EnrichmentUtils::getEnrichmentKey);
+        perfLog.log("enrich", "key={}, elapsed time to enrich", key);
+
+        perfLog.mark("threat-intel");
+        enrich(message, config, config.getThreatIntel(), threatIntels, ThreatIntelUtils::getThreatIntelKey);
+        ThreatIntelJoinBolt.triage(message, getConfigurations(), functionResolver, stellarContext);
+        perfLog.log("threat-intel", "key={}, elapsed time to threat intel and triage", key);
+      }
+      message.put(getClass().getSimpleName().toLowerCase() + ".end.ts", "" + System.currentTimeMillis());
+      collector.emit("message", tuple, new Values(key, message));
+    } catch (Exception e) {
+      LOG.error("[Metron] Unable to enrich message: {}", message, e);
+      MetronError error = new MetronError()
+              .withErrorType(Constants.ErrorType.ENRICHMENT_ERROR)
+              .withThrowable(e);
+      if (message != null) {
+        error.addRawMessage(message);
+      }
+      ErrorUtils.handleError(collector, error);
+    }
+    collector.ack(tuple);
+    perfLog.log("execute", "key={}, elapsed time to run execute", key);
+  }
+
+  private JSONObject getMessage(Tuple tuple) {
+    JSONObject message;
+    if (messageFieldName == null) {
+      message = (JSONObject) messageGetStrategy.get(tuple);
+    } else {
+      message = (JSONObject) tuple.getValueByField(messageFieldName);
+    }
+    message.put(getClass().getSimpleName().toLowerCase() + ".begin.ts", "" + System.currentTimeMillis());
+    return message;
+  }
+
+  private String getKey(Tuple tuple, JSONObject message) {
+    String key = null, guid = null;
+    try {
+      key = tuple.getStringByField("key");
+      guid = (String)message.get(Constants.GUID);
+    }
+    catch(Throwable t) {
+      //swallowing this just in case.
+    }
+    if(key != null) {
+      return key;
+    }
+    else if(guid != null) {
+      return guid;
+    }
+    else {
+      return UUID.randomUUID().toString();
+    }
+  }
+
+  /**
+   * Looks up the enrichments of a message in parallel, one task per enrichment type, and adds them to it.
+   * @param message The message.
+   * @param config The sensor's configuration.
+   * @param enrichmentConfig The configuration of the enrichments, or of the threat intel enrichments.
+   * @param available The enrichments available.
+   * @param keyName The name under which an enrichment type is given a field.
+   */
+  private void enrich( JSONObject message
+                     , SensorEnrichmentConfig config
+                     , EnrichmentConfig enrichmentConfig
+                     , List<Enrichment> available
+                     , KeyName keyName
+                     ) throws InterruptedException {
+    Map<String, Object> fieldMap = enrichmentConfig.getFieldMap();
+    Map<String, ConfigHandler> fieldToHandler = enrichmentConfig.getEnrichmentConfigs();
+    List<Future<Lookup>> results = new ArrayList<>();
+    for (Enrichment enrichment : available) {
+      String enrichmentType = enrichment.getType();
+      ConfigHandler handler = fieldToHandler.get(enrichmentType);
+      if (handler == null) {
+        continue;
+      }
+      List<JSONObject> fragments = handler.getType().splitByFields( message
+                                                                   , fieldMap.get(enrichmentType)
+                                                                   , field -> keyName.apply(enrichmentType, field)
+                                                                   , handler
+                                                                   );
+      for (JSONObject fragment : fragments) {
+        fragment.put(Constants.SENSOR_TYPE, MessageUtils.getSensorType(message));
+      }
+      results.add(getThreadPool(threadPoolSize).submit(() -> enrich(config, enrichment, fragments)));
+    }
+    // wait for every lookup, so that none of them outlives the message
+    List<Lookup> lookups = new ArrayList<>();
+    Throwable failure = null;
+    for (Future<Lookup> result : results) {
+      try {
+        lookups.add(result.get());
+      } catch (ExecutionException e) {
+        failure = e.getCause();
+      }
+    }
+    if (failure != null) {
+      throw new IllegalStateException("Unable to enrich message: " + failure.getMessage(), failure);
+    }
+    for (Lookup lookup : lookups) {
+      message.putAll(lookup.enrichments);
+      for (MetronError error : lookup.errors) {
+        ErrorUtils.handleError(collector, error);
+      }
+    }
+    EnrichmentJoinBolt.removeEmptyFields(message);
+  }
+
+  /**
+   * The enrichments of one type, and the errors looking them up.
+   */
+  private static class Lookup {
+    private final JSONObject enrichments = new JSONObject();
+    private final List<MetronError> errors = new ArrayList<>();
+  }
+
+  /**
+   * Looks up the enrichments of one type.  Enrichments that cannot be looked up are reported as
+   * errors and left out, as they are by the {@link GenericEnrichmentBolt}.  Runs on the thread pool,
+   * so must not use the output collector.
+   * @return The enrichments.
+   */
+  @SuppressWarnings("unchecked")
+  private Lookup enrich(SensorEnrichmentConfig config, Enrichment enrichment, List<JSONObject> fragments) {
+    EnrichmentAdapter<CacheKey> adapter = enrichment.getAdapter();
+    LoadingCache<CacheKey, JSONObject> cache = caches.get(enrichment);
+    Lookup ret = new Lookup();
+    for (JSONObject fragment : fragments) {
+      for (Object o : fragment.keySet()) {
+        String field = (String) o;
+        Object value = fragment.get(field);
+        if (field.equals(Constants.SENSOR_TYPE) || value == null) {
+          continue;
+        }
+        CacheKey cacheKey = new CacheKey(field, value, config);
+        try {
+          adapter.logAccess(cacheKey);
+          String prefix = adapter.getOutputPrefix(cacheKey);
+          JSONObject enrichedField = cache.getUnchecked(cacheKey);
+          if (enrichedField == null) {
+            throw new Exception("[Metron] Could not enrich string: " + value);
+          }
+          for (Object enrichedKey : enrichedField.keySet()) {
+            if (!StringUtils.isEmpty(prefix)) {
+              ret.enrichments.put(field + "." + enrichedKey, enrichedField.get(enrichedKey));
+            } else {
+              ret.enrichments.put(enrichedKey, enrichedField.get(enrichedKey));
+            }
+          }
+        } catch (Exception e) {
+          LOG.error(e.getMessage(), e);
+          Set<String> errorFields = new HashSet<>();
+          errorFields.add(field);
+          MetronError metronError = new MetronError()
+                  .withErrorType(Constants.ErrorType.ENRICHMENT_ERROR)
+                  .withThrowable(e)
+                  .withErrorFields(errorFields)
+                  .addRawMessage(fragment);
+          ret.errors.add(metronError);
+        }
+      }
+    }
+    return ret;
+  }
+
+  @FunctionalInterface
+  private interface KeyName {
+    String apply(String enrichmentType, String field);
+  }
+
+  @Override
+  public void cleanup() {
+    for (Enrichment enrichment : allEnrichments()) {
+      enrichment.getAdapter().cleanup();
+    }
+  }
+}
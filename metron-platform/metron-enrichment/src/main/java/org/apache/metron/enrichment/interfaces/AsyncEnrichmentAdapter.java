@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.interfaces;
+
+import org.json.simple.JSONObject;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An enrichment adapter that can look values up without blocking the calling thread.
+ *
+ * <p>The returned future may be completed by another thread.  Callers must not assume on which
+ * thread it completes, nor call the blocking {@link #enrich(Object)} concurrently with outstanding
+ * asynchronous lookups unless the adapter documents that it is safe to do so.
+ * @param <T> The type of value to enrich.
+ */
+public interface AsyncEnrichmentAdapter<T> extends EnrichmentAdapter<T> {
+
+  /**
+   * Enriches a value asynchronously.
+   * @param value The value to enrich.
+   * @return A future completed with the enrichment of the value, or exceptionally if it could not be looked up.
+   */
+  CompletableFuture<JSONObject> enrichAsync(T value);
+}
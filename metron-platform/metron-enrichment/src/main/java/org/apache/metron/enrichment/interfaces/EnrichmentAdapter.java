@@ -20,12 +20,28 @@ package org.apache.metron.enrichment.interfaces;
 
 import org.json.simple.JSONObject;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
 public interface EnrichmentAdapter<T>
 {
 	void logAccess(T value);
 	JSONObject enrich(T value);
+
+	/**
+	 * Enriches several values at once, which allows an adapter to look them all up in a single request.
+	 * By default, each value is enriched in turn.
+	 * @param values The values to enrich.
+	 * @return The enrichment of each of the values.
+	 */
+	default Map<T, JSONObject> enrichAll(Collection<T> values) {
+		Map<T, JSONObject> ret = new HashMap<>();
+		for(T value : values) {
+			ret.put(value, enrich(value));
+		}
+		return ret;
+	}
 	boolean initializeAdapter(Map<String, Object> config);
 	void updateAdapter(Map<String, Object> config);
 	void cleanup();
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.utils;
+
+import org.json.simple.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Performs the blocking lookups of an enrichment adapter on a dedicated thread, so that the
+ * thread requesting them is free to carry on.
+ *
+ * <p>All lookups pending when the thread becomes free are performed together in a single call
+ * of the lookup function, which lets an adapter turn them into one multi-get.  As only the one
+ * thread ever calls the lookup function, it may use resources, like an HBase table or a JDBC
+ * statement, that are not safe for concurrent use.
+ * @param <T> The type of value to look up.
+ */
+public class AsyncLookupExecutor<T> implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final long CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  private static class Request<T> {
+    private final T value;
+    private final CompletableFuture<JSONObject> result = new CompletableFuture<>();
+
+    Request(T value) {
+      this.value = value;
+    }
+  }
+
+  private final Function<Collection<T>, Map<T, JSONObject>> lookup;
+  private final int maxBatchSize;
+  private final BlockingQueue<Request<T>> requests = new LinkedBlockingQueue<>();
+  private final Thread thread;
+  private volatile boolean closed = false;
+
+  /**
+   * @param name The name of the lookup thread.
+   * @param lookup Looks up a batch of values, returning the enrichment of each.
+   * @param maxBatchSize The maximum number of values looked up at once.
+   */
+  public AsyncLookupExecutor(String name, Function<Collection<T>, Map<T, JSONObject>> lookup, int maxBatchSize) {
+    this.lookup = lookup;
+    this.maxBatchSize = maxBatchSize;
+    this.thread = new Thread(this::run, name);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Requests a lookup.
+   * @param value The value to look up.
+   * @return A future completed with the enrichment of the value.
+   */
+  public CompletableFuture<JSONObject> submit(T value) {
+    Request<T> request = new Request<>(value);
+    requests.add(request);
+    if (closed) {
+      // the executor may have closed after the request was queued, in which case nothing else will complete it
+      failPending();
+    }
+    return request.result;
+  }
+
+  private void run() {
+    List<Request<T>> batch = new ArrayList<>();
+    while (!closed) {
+      try {
+        batch.add(requests.take());
+      } catch (InterruptedException e) {
+        break;
+      }
+      requests.drainTo(batch, maxBatchSize - 1);
+      execute(batch);
+      batch.clear();
+    }
+    failPending();
+  }
+
+  /**
+   * Fails each of the requests that are still queued.
+   */
+  private void failPending() {
+    List<Request<T>> pending = new ArrayList<>();
+    requests.drainTo(pending);
+    for (Request<T> request : pending) {
+      request.result.completeExceptionally(new IllegalStateException("The lookup executor is closed"));
+    }
+  }
+
+  private void execute(List<Request<T>> batch) {
+    Map<T, JSONObject> results;
+    try {
+      Map<T, List<Request<T>>> values = new LinkedHashMap<>();
+      for (Request<T> request : batch) {
+        values.computeIfAbsent(request.value, v -> new ArrayList<>()).add(request);
+      }
+      results = lookup.apply(values.keySet());
+    } catch (Throwable t) {
+      LOG.debug("Unable to look up a batch of {} values: {}", batch.size(), t.getMessage(), t);
+      for (Request<T> request : batch) {
+        request.result.completeExceptionally(t);
+      }
+      return;
+    }
+    for (Request<T> request : batch) {
+      JSONObject result = results.get(request.value);
+      if (result == null) {
+        request.result.completeExceptionally(new IllegalStateException("No enrichment returned for " + request.value));
+      } else {
+        request.result.complete(result);
+      }
+    }
+  }
+
+  /**
+   * Stops the lookup thread.  Lookups that have not started fail.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    thread.interrupt();
+    try {
+      thread.join(CLOSE_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    failPending();
+  }
+}
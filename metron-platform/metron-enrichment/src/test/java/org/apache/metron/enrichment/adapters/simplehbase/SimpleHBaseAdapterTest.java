@@ -18,6 +18,7 @@
 package org.apache.metron.enrichment.adapters.simplehbase;
 
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.adrianwalker.multilinestring.Multiline;
 import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
@@ -136,6 +137,21 @@ public class SimpleHBaseAdapterTest {
     Assert.assertEquals(expectedMessage, actualMessage);
   }
 
+  @Test
+  public void testEnrichAll() throws Exception {
+    SimpleHBaseAdapter sha = new SimpleHBaseAdapter();
+    sha.lookup = lookup;
+    SensorEnrichmentConfig broSc = JSONUtils.INSTANCE.load(sourceConfigWithCFStr, SensorEnrichmentConfig.class);
+    CacheKey unknown = new CacheKey("test", "test", broSc);
+    CacheKey playful = new CacheKey("ip_dst_addr", "10.0.2.3", broSc);
+    CacheKey cf1 = new CacheKey("ip_dst_addr", "10.0.2.4", broSc);
+    Map<CacheKey, JSONObject> actual = sha.enrichAll(ImmutableList.of(unknown, playful, cf1));
+    Assert.assertEquals(3, actual.size());
+    Assert.assertEquals(new JSONObject(), actual.get(unknown));
+    Assert.assertEquals(expectedMessage, actual.get(playful));
+    Assert.assertEquals(new JSONObject(ImmutableMap.of("cf1.key", "value")), actual.get(cf1));
+  }
+
   @Test
   public void testEnrichNonStringValue() throws Exception {
     SimpleHBaseAdapter sha = new SimpleHBaseAdapter();
@@ -28,15 +28,19 @@ import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
 import org.apache.metron.common.error.MetronError;
 import org.apache.metron.enrichment.adapters.geo.GeoLiteDatabase;
 import org.apache.metron.enrichment.configuration.Enrichment;
+import org.apache.metron.enrichment.interfaces.AsyncEnrichmentAdapter;
 import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
 import org.apache.metron.test.bolt.BaseEnrichmentBoltTest;
 import org.apache.metron.test.error.MetronErrorJSONMatcher;
 import org.apache.metron.test.utils.UnitTestHelper;
+import org.apache.storm.Config;
+import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
 import org.hamcrest.Description;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
@@ -48,11 +52,14 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -243,4 +250,138 @@ public class GenericEnrichmentBoltTest extends BaseEnrichmentBoltTest {
             .withThrowable(new CacheLoader.InvalidCacheLoadException("CacheLoader returned null for key CacheKey{field='field1', value='value1'}."));
     verify(outputCollector, times(1)).emit(eq(Constants.ERROR_STREAM), argThat(new MetronErrorJSONMatcher(error.getJSONObject())));
   }
+
+  @Test
+  public void testBatching() throws IOException {
+    Enrichment<EnrichmentAdapter<CacheKey>> testEnrichment = new Enrichment<>();
+    testEnrichment.setType("enrichmentType");
+    testEnrichment.setAdapter(enrichmentAdapter);
+    GenericEnrichmentBolt genericEnrichmentBolt = new GenericEnrichmentBolt("zookeeperUrl") {
+      @Override
+      protected void initializeStellar() {
+        //do not initialize stellar here.
+      }
+    };
+    genericEnrichmentBolt.setCuratorFramework(client);
+    genericEnrichmentBolt.setTreeCache(cache);
+    genericEnrichmentBolt.getConfigurations().updateSensorEnrichmentConfig(sensorType, new FileInputStream(sampleSensorEnrichmentConfigPath));
+    genericEnrichmentBolt.withEnrichment(testEnrichment)
+                         .withMaxCacheSize(100)
+                         .withMaxTimeRetain(10000)
+                         .withBatchSize(2)
+                         .withFlushIntervalSecs(5);
+    Assert.assertEquals(5, genericEnrichmentBolt.getComponentConfiguration().get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS));
+    when(enrichmentAdapter.initializeAdapter(any())).thenReturn(true);
+    genericEnrichmentBolt.prepare(new HashMap(), topologyContext, outputCollector);
+
+    SensorEnrichmentConfig sensorEnrichmentConfig = SensorEnrichmentConfig.
+            fromBytes(ConfigurationsUtils.readSensorEnrichmentConfigsFromFile(TestConstants.SAMPLE_CONFIG_PATH).get(sensorType));
+    sensorEnrichmentConfig.getConfiguration().put(GenericEnrichmentBolt.STELLAR_CONTEXT_CONF, genericEnrichmentBolt.getStellarContext());
+    CacheKey cacheKey1 = new CacheKey("field1", "value1", sensorEnrichmentConfig);
+    CacheKey cacheKey2 = new CacheKey("field2", "value2", sensorEnrichmentConfig);
+    when(enrichmentAdapter.getOutputPrefix(cacheKey1)).thenReturn("field1");
+    when(enrichmentAdapter.getOutputPrefix(cacheKey2)).thenReturn("field2");
+    when(enrichmentAdapter.enrichAll(any())).thenReturn(ImmutableMap.of(cacheKey1, enrichedField1, cacheKey2, enrichedField2));
+
+    Tuple first = mock(Tuple.class);
+    when(first.getStringByField("key")).thenReturn("first");
+    when(first.getValueByField("message")).thenReturn(originalMessage);
+    Tuple second = mock(Tuple.class);
+    when(second.getStringByField("key")).thenReturn("second");
+    when(second.getValueByField("message")).thenReturn(originalMessage);
+    Tuple tick = mock(Tuple.class);
+    when(tick.getSourceComponent()).thenReturn("__system");
+    when(tick.getSourceStreamId()).thenReturn("__tick");
+
+    // the batch is enriched once it is full, looking up the keys of both messages at once
+    genericEnrichmentBolt.execute(first);
+    verify(outputCollector, never()).emit(eq("enrichmentType"), any(Values.class));
+    genericEnrichmentBolt.execute(second);
+    verify(enrichmentAdapter, times(1)).enrichAll(any());
+    verify(enrichmentAdapter, never()).enrich(any());
+    verify(outputCollector, times(1)).emit(eq("enrichmentType"), argThat(new EnrichedMessageMatcher("first", enrichedMessage)));
+    verify(outputCollector, times(1)).emit(eq("enrichmentType"), argThat(new EnrichedMessageMatcher("second", enrichedMessage)));
+
+    // a partial batch is enriched on the next tick, from the cache
+    genericEnrichmentBolt.execute(first);
+    verify(outputCollector, times(1)).emit(eq("enrichmentType"), argThat(new EnrichedMessageMatcher("first", enrichedMessage)));
+    genericEnrichmentBolt.execute(tick);
+    verify(outputCollector, times(2)).emit(eq("enrichmentType"), argThat(new EnrichedMessageMatcher("first", enrichedMessage)));
+    verify(enrichmentAdapter, times(1)).enrichAll(any());
+    verify(enrichmentAdapter, never()).enrich(any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testAsync() throws IOException {
+    AsyncEnrichmentAdapter<CacheKey> asyncAdapter = mock(AsyncEnrichmentAdapter.class);
+    Enrichment<EnrichmentAdapter<CacheKey>> testEnrichment = new Enrichment<>();
+    testEnrichment.setType("enrichmentType");
+    testEnrichment.setAdapter(asyncAdapter);
+    GenericEnrichmentBolt genericEnrichmentBolt = new GenericEnrichmentBolt("zookeeperUrl") {
+      @Override
+      protected void initializeStellar() {
+        //do not initialize stellar here.
+      }
+    };
+    genericEnrichmentBolt.setCuratorFramework(client);
+    genericEnrichmentBolt.setTreeCache(cache);
+    genericEnrichmentBolt.getConfigurations().updateSensorEnrichmentConfig(sensorType, new FileInputStream(sampleSensorEnrichmentConfigPath));
+    genericEnrichmentBolt.withEnrichment(testEnrichment)
+                         .withMaxCacheSize(100)
+                         .withMaxTimeRetain(10000)
+                         .withMaxInFlight(2);
+    Assert.assertNotNull(genericEnrichmentBolt.getComponentConfiguration().get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS));
+    when(asyncAdapter.initializeAdapter(any())).thenReturn(true);
+    genericEnrichmentBolt.prepare(new HashMap(), topologyContext, outputCollector);
+
+    SensorEnrichmentConfig sensorEnrichmentConfig = SensorEnrichmentConfig.
+            fromBytes(ConfigurationsUtils.readSensorEnrichmentConfigsFromFile(TestConstants.SAMPLE_CONFIG_PATH).get(sensorType));
+    sensorEnrichmentConfig.getConfiguration().put(GenericEnrichmentBolt.STELLAR_CONTEXT_CONF, genericEnrichmentBolt.getStellarContext());
+    CacheKey cacheKey1 = new CacheKey("field1", "value1", sensorEnrichmentConfig);
+    CacheKey cacheKey2 = new CacheKey("field2", "value2", sensorEnrichmentConfig);
+    CompletableFuture<JSONObject> lookup1 = new CompletableFuture<>();
+    CompletableFuture<JSONObject> lookup2 = new CompletableFuture<>();
+    when(asyncAdapter.getOutputPrefix(cacheKey1)).thenReturn("field1");
+    when(asyncAdapter.getOutputPrefix(cacheKey2)).thenReturn("field2");
+    when(asyncAdapter.enrichAsync(cacheKey1)).thenReturn(lookup1);
+    when(asyncAdapter.enrichAsync(cacheKey2)).thenReturn(lookup2);
+
+    Tuple first = mock(Tuple.class);
+    when(first.getStringByField("key")).thenReturn("first");
+    when(first.getValueByField("message")).thenReturn(originalMessage);
+    Tuple second = mock(Tuple.class);
+    when(second.getStringByField("key")).thenReturn("second");
+    when(second.getValueByField("message")).thenReturn(originalMessage);
+    Tuple tick = mock(Tuple.class);
+    when(tick.getSourceComponent()).thenReturn("__system");
+    when(tick.getSourceStreamId()).thenReturn("__tick");
+
+    // the message is not emitted until its lookups have completed
+    genericEnrichmentBolt.execute(first);
+    verify(asyncAdapter, times(1)).enrichAsync(cacheKey1);
+    verify(asyncAdapter, times(1)).enrichAsync(cacheKey2);
+    verify(outputCollector, never()).emit(eq("enrichmentType"), any(Values.class));
+
+    // a message needing the same keys shares the lookups in flight
+    genericEnrichmentBolt.execute(second);
+    verify(asyncAdapter, times(1)).enrichAsync(cacheKey1);
+    verify(asyncAdapter, times(1)).enrichAsync(cacheKey2);
+    verify(outputCollector, never()).emit(eq("enrichmentType"), any(Values.class));
+
+    // both messages are emitted, on the bolt's thread, by the next tuple after the lookups complete
+    lookup1.complete(enrichedField1);
+    lookup2.complete(enrichedField2);
+    verify(outputCollector, never()).emit(eq("enrichmentType"), any(Values.class));
+    genericEnrichmentBolt.execute(tick);
+    verify(outputCollector, times(1)).emit(eq("enrichmentType"), argThat(new EnrichedMessageMatcher("first", enrichedMessage)));
+    verify(outputCollector, times(1)).emit(eq("enrichmentType"), argThat(new EnrichedMessageMatcher("second", enrichedMessage)));
+
+    // cached keys are not looked up again
+    genericEnrichmentBolt.execute(first);
+    verify(outputCollector, times(2)).emit(eq("enrichmentType"), argThat(new EnrichedMessageMatcher("first", enrichedMessage)));
+    verify(asyncAdapter, times(1)).enrichAsync(cacheKey1);
+    verify(asyncAdapter, times(1)).enrichAsync(cacheKey2);
+    verify(asyncAdapter, never()).enrich(any());
+  }
 }
@@ -17,7 +17,9 @@
  */
 package org.apache.metron.enrichment.bolt;
 
-import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.adrianwalker.multilinestring.Multiline;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.error.MetronError;
@@ -30,17 +32,21 @@ import org.apache.storm.tuple.Values;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -167,27 +173,57 @@ public class JoinBoltTest extends BaseEnrichmentBoltTest {
     verifyNoMoreInteractions(outputCollector);
   }
 
-  @SuppressWarnings("unchecked")
   @Test
-  public void testExecuteShouldReportError() throws ExecutionException {
+  public void testExecuteShouldReportError() {
     joinBolt.withMaxCacheSize(100);
     joinBolt.withMaxTimeRetain(10000);
     joinBolt.prepare(new HashMap(), topologyContext, outputCollector);
     when(tuple.getValueByField("key")).thenReturn(key);
     when(tuple.getValueByField("message")).thenReturn(new JSONObject());
-    joinBolt.cache = mock(LoadingCache.class);
-    when(joinBolt.cache.get(key)).thenThrow(new ExecutionException(new Exception("join exception")));
+    joinBolt.buffer = mock(JoinBuffer.class);
+    when(joinBolt.buffer.add(eq(key), any(), any(), any(), anyLong())).thenThrow(new IllegalStateException("join exception"));
 
     joinBolt.execute(tuple);
-    ExecutionException expectedExecutionException = new ExecutionException(new Exception("join exception"));
+    IllegalStateException expectedException = new IllegalStateException("join exception");
     MetronError error = new MetronError()
             .withErrorType(Constants.ErrorType.ENRICHMENT_ERROR)
             .withMessage("Joining problem: {}")
-            .withThrowable(expectedExecutionException)
+            .withThrowable(expectedException)
             .addRawMessage(new JSONObject());
     verify(outputCollector, times(1)).emit(eq(Constants.ERROR_STREAM), argThat(new MetronErrorJSONMatcher(error.getJSONObject())));
-    verify(outputCollector, times(1)).reportError(any(ExecutionException.class));
+    verify(outputCollector, times(1)).reportError(any(IllegalStateException.class));
     verify(outputCollector, times(1)).ack(eq(tuple));
     verifyNoMoreInteractions(outputCollector);
   }
+
+  @Test
+  public void testJoinBuffer() {
+    List<String> evicted = new ArrayList<>();
+    JoinBuffer buffer = new JoinBuffer(2, 1000, (key, parts, cause) -> evicted.add(key + ":" + cause));
+    BitSet expected = buffer.toBitSet(ImmutableSet.of("message:", "geo:"));
+    Tuple messageTuple = mock(Tuple.class);
+    Tuple geoTuple = mock(Tuple.class);
+
+    // a message is joined once all of its expected streams have arrived
+    Assert.assertFalse(buffer.add("first", "message:", messageTuple, expected, 0).isComplete());
+    Assert.assertTrue(buffer.add("first", "message:", messageTuple, expected, 10).isDuplicate());
+    JoinBuffer.Arrival arrival = buffer.add("first", "geo:", geoTuple, expected, 100);
+    Assert.assertTrue(arrival.isComplete());
+    Assert.assertEquals(100, arrival.getLatency());
+    Assert.assertEquals(ImmutableMap.of("message:", messageTuple, "geo:", geoTuple), arrival.getJoined());
+    Assert.assertEquals(0, buffer.size());
+
+    // the oldest message is evicted when the buffer is full
+    buffer.add("second", "message:", messageTuple, expected, 200);
+    buffer.add("third", "message:", messageTuple, expected, 300);
+    buffer.add("fourth", "message:", messageTuple, expected, 400);
+    Assert.assertEquals(ImmutableList.of("second:SIZE"), evicted);
+
+    // messages expire a fixed time after their first part arrived
+    Assert.assertFalse(buffer.add("third", "geo:", geoTuple, expected, 1300).isComplete());
+    Assert.assertEquals(ImmutableList.of("second:SIZE", "third:EXPIRED"), evicted);
+    buffer.expire(1400);
+    Assert.assertEquals(ImmutableList.of("second:SIZE", "third:EXPIRED", "fourth:EXPIRED"), evicted);
+    Assert.assertEquals(1, buffer.size());
+  }
 }
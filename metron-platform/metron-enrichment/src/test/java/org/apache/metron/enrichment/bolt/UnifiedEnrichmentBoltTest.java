@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.enrichment.bolt;
+
+import com.google.common.collect.ImmutableList;
+import org.adrianwalker.multilinestring.Multiline;
+import org.apache.metron.common.Constants;
+import org.apache.metron.common.configuration.enrichment.SensorEnrichmentConfig;
+import org.apache.metron.enrichment.adapters.geo.GeoLiteDatabase;
+import org.apache.metron.enrichment.configuration.Enrichment;
+import org.apache.metron.enrichment.interfaces.EnrichmentAdapter;
+import org.apache.metron.test.bolt.BaseEnrichmentBoltTest;
+import org.apache.metron.test.utils.UnitTestHelper;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UnifiedEnrichmentBoltTest extends BaseEnrichmentBoltTest {
+
+  /**
+   * {
+   *   "enrichment": {
+   *     "fieldMap": {
+   *       "geo": [ "ip_src_addr" ]
+   *     }
+   *   },
+   *   "threatIntel": {
+   *     "fieldMap": {
+   *       "hbaseThreatIntel": [ "ip_src_addr" ]
+   *     },
+   *     "triageConfig" : {
+   *       "riskLevelRules" : [
+   *         {
+   *           "name" : "rule",
+   *           "rule" : "ip_src_addr == '10.0.2.3'",
+   *           "score": 10
+   *         }
+   *       ],
+   *       "aggregator" : "MAX"
+   *     }
+   *   }
+   * }
+   */
+  @Multiline
+  private String sensorConfig;
+
+  /**
+   * {
+   *   "ip_src_addr": "10.0.2.3",
+   *   "source.type": "test"
+   * }
+   */
+  @Multiline
+  private String messageString;
+
+  private EnrichmentAdapter<CacheKey> geoAdapter;
+  private EnrichmentAdapter<CacheKey> threatIntelAdapter;
+  private UnifiedEnrichmentBolt bolt;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setup() throws IOException {
+    geoAdapter = mock(EnrichmentAdapter.class);
+    threatIntelAdapter = mock(EnrichmentAdapter.class);
+    when(geoAdapter.initializeAdapter(any())).thenReturn(true);
+    when(threatIntelAdapter.initializeAdapter(any())).thenReturn(true);
+    when(geoAdapter.getOutputPrefix(any())).thenReturn("geo");
+    when(threatIntelAdapter.getOutputPrefix(any())).thenReturn("hbaseThreatIntel");
+
+    bolt = new UnifiedEnrichmentBolt("zookeeperUrl");
+    bolt.setCuratorFramework(client);
+    bolt.setTreeCache(cache);
+    bolt.getConfigurations().updateSensorEnrichmentConfig(sensorType, SensorEnrichmentConfig.fromBytes(sensorConfig.getBytes()));
+    HashMap<String, Object> globalConfig = new HashMap<>();
+    String baseDir = UnitTestHelper.findDir("GeoLite");
+    File geoHdfsFile = new File(new File(baseDir), "GeoIP2-City-Test.mmdb.gz");
+    globalConfig.put(GeoLiteDatabase.GEO_HDFS_FILE, geoHdfsFile.getAbsolutePath());
+    bolt.getConfigurations().updateGlobalConfig(globalConfig);
+    bolt.withEnrichments(ImmutableList.<Enrichment>of(new Enrichment<>("geo", geoAdapter)))
+        .withThreatIntels(ImmutableList.<Enrichment>of(new Enrichment<>("hbaseThreatIntel", threatIntelAdapter)))
+        .withMessageFieldName("message")
+        .withMaxCacheSize(100)
+        .withMaxTimeRetain(10)
+        .withThreadPoolSize(2);
+    bolt.prepare(new HashMap<>(), topologyContext, outputCollector);
+  }
+
+  @Test
+  public void testExecute() throws Exception {
+    JSONObject geo = new JSONObject();
+    geo.put("city", "Paris");
+    JSONObject threatIntel = new JSONObject();
+    threatIntel.put("malicious_ip", "alert");
+    when(geoAdapter.enrich(any())).thenReturn(geo);
+    when(threatIntelAdapter.enrich(any())).thenReturn(threatIntel);
+    when(tuple.getValueByField("message")).thenReturn(new JSONParser().parse(messageString));
+    when(tuple.getStringByField("key")).thenReturn(key);
+
+    bolt.execute(tuple);
+
+    // the message is enriched, threat intelled and triaged before it is emitted once
+    ArgumentCaptor<Values> emitted = ArgumentCaptor.forClass(Values.class);
+    verify(outputCollector, times(1)).emit(eq("message"), eq(tuple), emitted.capture());
+    verify(outputCollector, times(1)).ack(tuple);
+    Assert.assertEquals(key, emitted.getValue().get(0));
+    JSONObject message = (JSONObject) emitted.getValue().get(1);
+    Assert.assertEquals("Paris", message.get("enrichments.geo.ip_src_addr.city"));
+    Assert.assertEquals("alert", message.get("threatintels.hbaseThreatIntel.ip_src_addr.malicious_ip"));
+    Assert.assertEquals("true", message.get("is_alert"));
+    Assert.assertEquals(10.0, ((Number) message.get(ThreatIntelJoinBolt.THREAT_TRIAGE_SCORE_KEY)).doubleValue(), 0.0);
+  }
+
+  @Test
+  public void testExecuteShouldReportEnrichmentErrors() throws Exception {
+    JSONObject threatIntel = new JSONObject();
+    when(geoAdapter.enrich(any())).thenThrow(new IllegalStateException("geo exception"));
+    when(threatIntelAdapter.enrich(any())).thenReturn(threatIntel);
+    when(tuple.getValueByField("message")).thenReturn(new JSONParser().parse(messageString));
+    when(tuple.getStringByField("key")).thenReturn(key);
+
+    bolt.execute(tuple);
+
+    // the failed enrichment is reported and the rest of the message is still emitted
+    ArgumentCaptor<Values> emitted = ArgumentCaptor.forClass(Values.class);
+    verify(outputCollector, times(1)).emit(eq(Constants.ERROR_STREAM), any(Values.class));
+    verify(outputCollector, times(1)).emit(eq("message"), eq(tuple), emitted.capture());
+    verify(outputCollector, times(1)).ack(tuple);
+    JSONObject message = (JSONObject) emitted.getValue().get(1);
+    Assert.assertEquals("10.0.2.3", message.get("ip_src_addr"));
+    Assert.assertFalse(message.containsKey("is_alert"));
+  }
+}
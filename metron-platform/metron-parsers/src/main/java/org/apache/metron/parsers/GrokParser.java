@@ -21,23 +21,25 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
-import oi.thekraken.grok.api.Grok;
 import oi.thekraken.grok.api.Match;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.metron.common.Constants;
+import org.apache.metron.parsers.grok.CompiledGrok;
+import org.apache.metron.parsers.grok.GrokCache;
 import org.apache.metron.parsers.interfaces.MessageParser;
+import org.apache.metron.parsers.utils.TimestampParser;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,12 +48,13 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
 
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-  protected transient Grok grok;
+  protected transient CompiledGrok grok;
   protected String grokPath;
   protected String patternLabel;
   protected List<String> timeFields = new ArrayList<>();
   protected String timestampField;
-  protected SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.S z");
+  protected List<String> dateFormats = Collections.singletonList("yyyy-MM-dd HH:mm:ss.S z");
+  protected TimestampParser timestampParser;
   protected String patternsCommonDir = "/patterns/common";
 
   @Override
@@ -63,18 +66,22 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
     if (timeFieldsParam != null) {
       this.timeFields = timeFieldsParam;
     }
-    String dateFormatParam = (String) parserConfig.get("dateFormat");
-    if (dateFormatParam != null) {
-      this.dateFormat = new SimpleDateFormat(dateFormatParam);
+    Object dateFormatParam = parserConfig.get("dateFormat");
+    if (dateFormatParam instanceof List) {
+      this.dateFormats = (List<String>) dateFormatParam;
+    } else if (dateFormatParam != null) {
+      this.dateFormats = Collections.singletonList(dateFormatParam.toString());
     }
+    ZoneId zone;
     String timeZoneParam = (String) parserConfig.get("timeZone");
     if (timeZoneParam != null) {
-      dateFormat.setTimeZone(TimeZone.getTimeZone(timeZoneParam));
+      zone = TimeZone.getTimeZone(timeZoneParam).toZoneId();
       LOG.debug("Grok Parser using provided TimeZone: {}", timeZoneParam);
     } else {
-      dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+      zone = ZoneOffset.UTC;
       LOG.debug("Grok Parser using default TimeZone (UTC)");
     }
+    this.timestampParser = new TimestampParser(dateFormats, zone);
   }
 
   public InputStream openInputStream(String streamName) throws IOException {
@@ -89,7 +96,6 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
 
   @Override
   public void init() {
-    grok = new Grok();
     try {
       InputStream commonInputStream = openInputStream(patternsCommonDir);
       LOG.debug("Grok parser loading common patterns from: {}", patternsCommonDir);
@@ -99,7 +105,7 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
                 "Unable to initialize grok parser: Unable to load " + patternsCommonDir + " from either classpath or HDFS");
       }
 
-      grok.addPatternFromReader(new InputStreamReader(commonInputStream));
+      String patternDefinitions = GrokCache.readDefinitions(commonInputStream);
       LOG.debug("Loading parser-specific patterns from: {}", grokPath);
 
       InputStream patterInputStream = openInputStream(grokPath);
@@ -107,16 +113,13 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
         throw new RuntimeException("Grok parser unable to initialize grok parser: Unable to load " + grokPath
                 + " from either classpath or HDFS");
       }
-      grok.addPatternFromReader(new InputStreamReader(patterInputStream));
-
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("Grok parser set the following grok expression: {}", grok.getNamedRegexCollectionById(patternLabel));
-      }
+      patternDefinitions += "\n" + GrokCache.readDefinitions(patterInputStream);
 
       String grokPattern = "%{" + patternLabel + "}";
 
-      grok.compile(grokPattern);
-      LOG.debug("Compiled grok pattern {}", grokPattern);
+      //parsers sharing the same patterns share the compiled expression
+      grok = GrokCache.INSTANCE.get(patternDefinitions, grokPattern);
+      LOG.debug("Compiled grok pattern {}, requiring the literals {}", grokPattern, grok.getRequiredLiterals());
 
     } catch (Throwable e) {
       LOG.error(e.getMessage(), e);
@@ -187,12 +190,12 @@ public class GrokParser implements MessageParser<JSONObject>, Serializable {
 
   protected long toEpoch(String datetime) throws ParseException {
     LOG.debug("Grok parser converting timestamp to epoch: {}", datetime);
-    LOG.debug("Grok parser's DateFormat has TimeZone: {}", dateFormat.getTimeZone());
+    LOG.debug("Grok parser's date formats {} have TimeZone: {}", timestampParser.getPatterns(), timestampParser.getZone());
 
-    Date date = dateFormat.parse(datetime);
-    LOG.debug("Grok parser converted timestamp to epoch: {}", date);
+    long epoch = timestampParser.parse(datetime);
+    LOG.debug("Grok parser converted timestamp to epoch: {}", epoch);
 
-    return date.getTime();
+    return epoch;
   }
 
   protected long formatTimestamp(Object value) {
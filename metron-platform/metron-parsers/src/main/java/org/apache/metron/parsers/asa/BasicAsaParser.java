@@ -18,8 +18,7 @@
 package org.apache.metron.parsers.asa;
 
 import com.google.common.collect.ImmutableMap;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.invoke.MethodHandles;
 import java.time.Clock;
@@ -29,12 +28,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import oi.thekraken.grok.api.Grok;
 import oi.thekraken.grok.api.Match;
 import oi.thekraken.grok.api.exception.GrokException;
 import org.apache.metron.common.Constants;
 import org.apache.metron.parsers.BasicParser;
 import org.apache.metron.parsers.ParseException;
+import org.apache.metron.parsers.grok.CompiledGrok;
+import org.apache.metron.parsers.grok.GrokCache;
 import org.apache.metron.parsers.utils.SyslogUtils;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
@@ -47,7 +47,7 @@ public class BasicAsaParser extends BasicParser {
   protected Clock deviceClock;
   private String syslogPattern = "%{CISCO_TAGGED_SYSLOG}";
 
-  private Grok syslogGrok;
+  private CompiledGrok syslogGrok;
 
   private static final Map<String, String> patternMap = ImmutableMap.<String, String> builder()
       .put("ASA-2-106001", "CISCOFW106001")
@@ -92,7 +92,7 @@ public class BasicAsaParser extends BasicParser {
       .put("ASA-5-713041", "CISCOFW713041")
       .build();
 
-  private Map<String, Grok> grokers = new HashMap<String, Grok>(patternMap.size());
+  private Map<String, CompiledGrok> grokers = new HashMap<String, CompiledGrok>(patternMap.size());
 
   @Override
   public void configure(Map<String, Object> parserConfig) {
@@ -105,29 +105,24 @@ public class BasicAsaParser extends BasicParser {
     }
   }
 
-  private void addGrok(String key, String pattern) throws GrokException {
-    Grok grok = new Grok();
-    InputStream patternStream = this.getClass().getResourceAsStream("/patterns/asa");
-    grok.addPatternFromReader(new InputStreamReader(patternStream));
-    grok.compile("%{" + pattern + "}");
-    grokers.put(key, grok);
+  private void addGrok(String patterns, String key, String pattern) throws GrokException {
+    grokers.put(key, GrokCache.INSTANCE.get(patterns, "%{" + pattern + "}"));
   }
 
   @Override
   public void init() {
-    syslogGrok = new Grok();
-    InputStream syslogStream = this.getClass().getResourceAsStream("/patterns/asa");
+    String patterns;
     try {
-      syslogGrok.addPatternFromReader(new InputStreamReader(syslogStream));
-      syslogGrok.compile(syslogPattern);
-    } catch (GrokException e) {
+      patterns = GrokCache.readDefinitions(this.getClass().getResourceAsStream("/patterns/asa"));
+      syslogGrok = GrokCache.INSTANCE.get(patterns, syslogPattern);
+    } catch (GrokException | IOException e) {
       LOG.error("[Metron] Failed to load grok patterns from jar", e);
       throw new RuntimeException(e.getMessage(), e);
     }
 
     for (Entry<String, String> pattern : patternMap.entrySet()) {
       try {
-        addGrok(pattern.getKey(), pattern.getValue());
+        addGrok(patterns, pattern.getKey(), pattern.getValue());
       } catch (GrokException e) {
         LOG.error("[Metron] Failed to load grok pattern {} for ASA tag {}", pattern.getValue(), pattern.getKey());
       }
@@ -186,7 +181,7 @@ public class BasicAsaParser extends BasicParser {
 
     try {
       messagePattern = (String) syslogJson.get("CISCOTAG");
-      Grok asaGrok = grokers.get(messagePattern);
+      CompiledGrok asaGrok = grokers.get(messagePattern);
 
       if (asaGrok == null)
 	LOG.info("[Metron] No pattern for ciscotag '{}'", syslogJson.get("CISCOTAG"));
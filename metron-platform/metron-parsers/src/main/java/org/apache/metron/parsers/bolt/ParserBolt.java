@@ -18,20 +18,33 @@
 package org.apache.metron.parsers.bolt;
 
 import static org.apache.metron.common.Constants.METADATA_PREFIX;
+import static org.apache.storm.utils.TupleUtils.isTick;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.metron.common.Constants;
 import org.apache.metron.common.bolt.ConfiguredParserBolt;
@@ -48,6 +61,8 @@ import org.apache.metron.parsers.interfaces.MessageFilter;
 import org.apache.metron.parsers.interfaces.MessageParser;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.storm.kafka.flux.SimpleStormKafkaBuilder.FieldsConfiguration;
+import org.apache.storm.Config;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -62,31 +77,104 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
   private static final int KEY_INDEX = 1;
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private OutputCollector collector;
-  private MessageParser<JSONObject> parser;
-  //default filter is noop, so pass everything through.
-  private MessageFilter<JSONObject> filter;
-  private WriterHandler writer;
+  private Map<String, ParserComponents> sensorToComponents;
   private Context stellarContext;
   private transient MessageGetStrategy messageGetStrategy;
+  private transient Map<String, String> topicToSensor;
+  private int parserThreads = 1;
+  private transient ExecutorService parserPool;
+  private transient Deque<Future<ParsedTuple>> parsing;
+  private transient Map<String, byte[]> serializedParsers;
+  private transient ThreadLocal<Map<String, MessageParser<JSONObject>>> threadParsers;
+
+  /**
+   * The separator used to join the sensor types handled by a multi-sensor bolt into its label.
+   */
+  public static final String SENSOR_TYPE_SEPARATOR = "__";
+
+  /**
+   * The number of tuples each parser thread may have in flight before the bolt waits for the oldest.
+   */
+  public static final int MAX_PENDING_PER_THREAD = 16;
+
+  /**
+   * How often tuples parsed in the background are completed when no new tuples arrive.
+   */
+  public static final int TICK_FREQ_SECS = 1;
+
+  /**
+   * The outcome of parsing a tuple: the messages to write and the errors of those failing
+   * validation, in the order the parser produced them, or the exception parsing failed with.
+   */
+  private static class ParsedTuple {
+    private final Tuple tuple;
+    private final byte[] originalMessage;
+    private String sensorType;
+    private final List<Object> messagesAndErrors = new ArrayList<>();
+    private Throwable failure;
+
+    private ParsedTuple(Tuple tuple, byte[] originalMessage, String sensorType) {
+      this.tuple = tuple;
+      this.originalMessage = originalMessage;
+      this.sensorType = sensorType;
+    }
+  }
+
   public ParserBolt( String zookeeperUrl
                    , String sensorType
                    , MessageParser<JSONObject> parser
                    , WriterHandler writer
   )
   {
-    super(zookeeperUrl, sensorType);
-    this.writer = writer;
-    this.parser = parser;
+    this(zookeeperUrl, Collections.singletonMap(sensorType, new ParserComponents(parser, null, writer)));
+  }
+
+  /**
+   * A parser bolt handling one or more sensors.  When more than one sensor is handled, each tuple
+   * is routed to its sensor by the kafka topic it was read from.
+   *
+   * @param zookeeperUrl Zookeeper URL
+   * @param sensorToComponents The parser, filter and writer for each sensor type
+   */
+  public ParserBolt(String zookeeperUrl, Map<String, ParserComponents> sensorToComponents) {
+    super(zookeeperUrl, String.join(SENSOR_TYPE_SEPARATOR, sensorToComponents.keySet()));
+    this.sensorToComponents = sensorToComponents;
   }
 
 
+  /**
+   * Parse on a pool of threads rather than on the executor thread.  Each thread parses with its own
+   * copy of the parsers, while writing, error reporting and acking stay on the executor thread,
+   * in the order the tuples arrived.
+   *
+   * @param parserThreads The number of threads to parse on, where 1 parses on the executor thread
+   * @return This bolt
+   */
+  public ParserBolt withParserThreads(int parserThreads) {
+    this.parserThreads = parserThreads;
+    return this;
+  }
+
+  public int getParserThreads() {
+    return parserThreads;
+  }
+
   public ParserBolt withMessageFilter(MessageFilter<JSONObject> filter) {
-    this.filter = filter;
+    for(ParserComponents components : sensorToComponents.values()) {
+      components.setFilter(filter);
+    }
     return this;
   }
 
+  /**
+   * @return The parser of the first, or only, sensor handled by this bolt.
+   */
   public MessageParser<JSONObject> getParser() {
-    return parser;
+    return sensorToComponents.values().iterator().next().getMessageParser();
+  }
+
+  public Map<String, ParserComponents> getSensorToComponents() {
+    return sensorToComponents;
   }
 
   @SuppressWarnings("unchecked")
@@ -95,28 +183,82 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
     super.prepare(stormConf, context, collector);
     messageGetStrategy = MessageGetters.DEFAULT_BYTES_FROM_POSITION.get();
     this.collector = collector;
+    topicToSensor = new ConcurrentHashMap<>();
     initializeStellar();
-    if(getSensorParserConfig() != null && filter == null) {
-      getSensorParserConfig().getParserConfig().putIfAbsent("stellarContext", stellarContext);
-      if (!StringUtils.isEmpty(getSensorParserConfig().getFilterClassName())) {
-        filter = Filters.get(getSensorParserConfig().getFilterClassName()
-                , getSensorParserConfig().getParserConfig()
-        );
-      }
+    if(parserThreads > 1) {
+      parserPool = Executors.newFixedThreadPool(parserThreads, new ThreadFactoryBuilder()
+              .setNameFormat("parser-" + getSensorType() + "-%d")
+              .setDaemon(true)
+              .build());
+      parsing = new ArrayDeque<>();
+      serializedParsers = new HashMap<>();
+      threadParsers = ThreadLocal.withInitial(HashMap::new);
     }
 
-    parser.init();
+    //sensors may share a writer, so make sure that each is only initialized once
+    Set<WriterHandler> initializedWriters = Collections.newSetFromMap(new IdentityHashMap<>());
+    for(Map.Entry<String, ParserComponents> entry : sensorToComponents.entrySet()) {
+      String sensorType = entry.getKey();
+      ParserComponents components = entry.getValue();
+      SensorParserConfig config = getSensorParserConfig(sensorType);
+      if(config != null && components.getFilter() == null) {
+        config.getParserConfig().putIfAbsent("stellarContext", stellarContext);
+        if (!StringUtils.isEmpty(config.getFilterClassName())) {
+          components.setFilter(Filters.get(config.getFilterClassName()
+                  , config.getParserConfig()
+          ));
+        }
+      }
 
-    writer.init(stormConf, context, collector, getConfigurations());
+      if(parserPool != null) {
+        //the parser threads copy the parser as it was before it was initialized
+        serializedParsers.put(sensorType, SerializationUtils.serialize(components.getMessageParser()));
+      }
+      components.getMessageParser().init();
 
-    SensorParserConfig config = getSensorParserConfig();
-    if(config != null) {
-      config.init();
+      if(initializedWriters.add(components.getWriter())) {
+        components.getWriter().init(stormConf, context, collector, getConfigurations());
+      }
+
+      if(config != null) {
+        config.init();
+      }
+      else {
+        throw new IllegalStateException("Unable to retrieve a parser config for " + sensorType);
+      }
+      components.getMessageParser().configure(config.getParserConfig());
     }
-    else {
-      throw new IllegalStateException("Unable to retrieve a parser config for " + getSensorType());
+  }
+
+  @Override
+  public Map<String, Object> getComponentConfiguration() {
+    Map<String, Object> conf = super.getComponentConfiguration();
+    if(parserThreads > 1) {
+      //tuples parsed in the background must be completed even when no new tuples arrive
+      conf = conf == null ? new HashMap<>() : new HashMap<>(conf);
+      conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, TICK_FREQ_SECS);
     }
-    parser.configure(config.getParserConfig());
+    return conf;
+  }
+
+  @Override
+  public void cleanup() {
+    if(parserPool != null) {
+      parserPool.shutdownNow();
+    }
+    super.cleanup();
+  }
+
+  /**
+   * @param sensorType The sensor type
+   * @return The parser config of the sensor
+   */
+  protected SensorParserConfig getSensorParserConfig(String sensorType) {
+    if(sensorToComponents.size() == 1) {
+      //the bolt handles only this sensor, whose config is that of the bolt itself
+      return getSensorParserConfig();
+    }
+    return getConfigurations().getSensorParserConfig(sensorType);
   }
 
   protected void initializeStellar() {
@@ -161,22 +303,76 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
     return ret;
   }
 
-  @SuppressWarnings("unchecked")
   @Override
   public void execute(Tuple tuple) {
-    byte[] originalMessage = (byte[]) messageGetStrategy.get(tuple);
-    SensorParserConfig sensorParserConfig = getSensorParserConfig();
+    if(parserPool == null) {
+      complete(parse(tuple, (byte[]) messageGetStrategy.get(tuple), this::getParser));
+      return;
+    }
+    if(!isTick(tuple)) {
+      byte[] originalMessage = (byte[]) messageGetStrategy.get(tuple);
+      parsing.add(parserPool.submit(() -> parse(tuple, originalMessage, this::getThreadParser)));
+    }
+    completeParsed();
+  }
+
+  /**
+   * Complete the tuples parsed in the background in the order they arrived, waiting for the
+   * oldest while too many are in flight.
+   */
+  private void completeParsed() {
+    int maxPending = parserThreads * MAX_PENDING_PER_THREAD;
+    while(!parsing.isEmpty() && (parsing.size() > maxPending || parsing.peek().isDone())) {
+      try {
+        complete(parsing.peek().get());
+      } catch (InterruptedException e) {
+        //the bolt is shutting down, the tuples not yet completed will be replayed
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Unable to parse a message", e.getCause());
+      }
+      parsing.remove();
+    }
+  }
+
+  private MessageParser<JSONObject> getParser(String sensorType) {
+    return sensorToComponents.get(sensorType).getMessageParser();
+  }
+
+  private MessageParser<JSONObject> getThreadParser(String sensorType) {
+    return threadParsers.get().computeIfAbsent(sensorType, sensor -> {
+      MessageParser<JSONObject> parser = SerializationUtils.deserialize(serializedParsers.get(sensor));
+      parser.init();
+      parser.configure(getSensorParserConfig(sensor).getParserConfig());
+      return parser;
+    });
+  }
+
+  /**
+   * Parse, transform, validate and filter the messages of a tuple.  This neither writes nor acks,
+   * so that it may run off the executor thread.
+   *
+   * @param tuple The tuple
+   * @param originalMessage The raw message of the tuple
+   * @param parsers The parser of each sensor type
+   * @return The messages to write and the errors to report
+   */
+  @SuppressWarnings("unchecked")
+  private ParsedTuple parse(Tuple tuple, byte[] originalMessage, Function<String, MessageParser<JSONObject>> parsers) {
+    ParsedTuple parsed = new ParsedTuple(tuple, originalMessage, getSensorType());
     try {
-      //we want to ack the tuple in the situation where we have are not doing a bulk write
-      //otherwise we want to defer to the writerComponent who will ack on bulk commit.
-      boolean ackTuple = !writer.handleAck();
-      int numWritten = 0;
+      String sensorType = getSensorType(tuple);
+      parsed.sensorType = sensorType;
+      SensorParserConfig sensorParserConfig = getSensorParserConfig(sensorType);
+      MessageParser<JSONObject> parser = parsers.apply(sensorType);
+      MessageFilter<JSONObject> filter = sensorToComponents.get(sensorType).getFilter();
       if(sensorParserConfig != null) {
         Map<String, Object> metadata = getMetadata(tuple, sensorParserConfig.getReadMetadata());
         List<FieldValidator> fieldValidations = getConfigurations().getFieldValidations();
         Optional<List<JSONObject>> messages = parser.parseOptional(originalMessage);
         for (JSONObject message : messages.orElse(Collections.emptyList())) {
-          message.put(Constants.SENSOR_TYPE, getSensorType());
+          message.put(Constants.SENSOR_TYPE, sensorType);
           if(sensorParserConfig.getMergeMetadata()) {
             message.putAll(metadata);
           }
@@ -196,12 +392,11 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
           }
 
           if (parser.validate(message) && (filter == null || filter.emitTuple(message, stellarContext))) {
-            numWritten++;
             List<FieldValidator> failedValidators = getFailedValidators(message, fieldValidations);
             if(failedValidators.size() > 0) {
               MetronError error = new MetronError()
                       .withErrorType(Constants.ErrorType.PARSER_INVALID)
-                      .withSensorType(getSensorType())
+                      .withSensorType(sensorType)
                       .addRawMessage(message);
               Set<String> errorFields = failedValidators.stream()
                       .flatMap(fieldValidator -> fieldValidator.getInput().stream())
@@ -209,30 +404,99 @@ public class ParserBolt extends ConfiguredParserBolt implements Serializable {
               if (!errorFields.isEmpty()) {
                 error.withErrorFields(errorFields);
               }
-              ErrorUtils.handleError(collector, error);
+              parsed.messagesAndErrors.add(error);
             }
             else {
-              writer.write(getSensorType(), tuple, message, getConfigurations(), messageGetStrategy);
+              parsed.messagesAndErrors.add(message);
             }
           }
         }
       }
+    } catch (Throwable ex) {
+      parsed.failure = ex;
+    }
+    return parsed;
+  }
+
+  /**
+   * Write the messages of a parsed tuple, report its errors and ack it.
+   *
+   * @param parsed The parsed tuple
+   */
+  private void complete(ParsedTuple parsed) {
+    if(parsed.failure != null) {
+      handleError(parsed.sensorType, parsed.originalMessage, parsed.tuple, parsed.failure, collector);
+      return;
+    }
+    try {
+      WriterHandler writer = sensorToComponents.get(parsed.sensorType).getWriter();
+      //we want to ack the tuple in the situation where we have are not doing a bulk write
+      //otherwise we want to defer to the writerComponent who will ack on bulk commit.
+      boolean ackTuple = !writer.handleAck();
+      for(Object messageOrError : parsed.messagesAndErrors) {
+        if(messageOrError instanceof MetronError) {
+          ErrorUtils.handleError(collector, (MetronError) messageOrError);
+        }
+        else {
+          writer.write(parsed.sensorType, parsed.tuple, (JSONObject) messageOrError, getConfigurations(), messageGetStrategy);
+        }
+      }
       //if we are supposed to ack the tuple OR if we've never passed this tuple to the bulk writer
       //(meaning that none of the messages are valid either globally or locally)
       //then we want to handle the ack ourselves.
-      if(ackTuple || numWritten == 0) {
-        collector.ack(tuple);
+      if(ackTuple || parsed.messagesAndErrors.isEmpty()) {
+        collector.ack(parsed.tuple);
       }
     } catch (Throwable ex) {
-      handleError(originalMessage, tuple, ex, collector);
+      handleError(parsed.sensorType, parsed.originalMessage, parsed.tuple, ex, collector);
     }
   }
 
+  /**
+   * Determine the sensor type of a tuple.  A bolt handling a single sensor treats every tuple as
+   * belonging to it; otherwise the tuple is routed by the kafka topic it was read from.
+   *
+   * @param tuple The tuple
+   * @return The sensor type
+   */
+  protected String getSensorType(Tuple tuple) {
+    if(sensorToComponents.size() == 1) {
+      return sensorToComponents.keySet().iterator().next();
+    }
+    String topic = tuple.getStringByField(FieldsConfiguration.TOPIC.getFieldName());
+    //the spout subscription is fixed when the topology is built, so the routing can be cached
+    String sensorType = topicToSensor.computeIfAbsent(topic, this::findSensorType);
+    if(sensorType == null) {
+      throw new IllegalStateException("Unable to find a sensor for kafka topic " + topic);
+    }
+    return sensorType;
+  }
+
+  private String findSensorType(String topic) {
+    for(String sensorType : sensorToComponents.keySet()) {
+      SensorParserConfig config = getSensorParserConfig(sensorType);
+      String sensorTopic = config == null || config.getSensorTopic() == null ? sensorType : config.getSensorTopic();
+      if(sensorTopic.length() > 1 && sensorTopic.startsWith("/") && sensorTopic.endsWith("/")) {
+        if(Pattern.matches(sensorTopic.substring(1, sensorTopic.length() - 1), topic)) {
+          return sensorType;
+        }
+      }
+      else if(sensorTopic.equals(topic)) {
+        return sensorType;
+      }
+    }
+    return null;
+  }
+
   protected void handleError(byte[] originalMessage, Tuple tuple, Throwable ex, OutputCollector collector) {
+    handleError(getSensorType(), originalMessage, tuple, ex, collector);
+  }
+
+  protected void handleError(String sensorType, byte[] originalMessage, Tuple tuple, Throwable ex, OutputCollector collector) {
     MetronError error = new MetronError()
             .withErrorType(Constants.ErrorType.PARSER_ERROR)
             .withThrowable(ex)
-            .withSensorType(getSensorType())
+            .withSensorType(sensorType)
             .addRawMessage(originalMessage);
     ErrorUtils.handleError(collector, error);
     collector.ack(tuple);
@@ -65,7 +65,7 @@ public class BasicBroParser extends BasicParser {
       rawMessage = new String(msg, "UTF-8");
       _LOG.trace("[Metron] Received message: {}", rawMessage);
 
-      JSONObject cleanedMessage = cleaner.clean(rawMessage);
+      JSONObject cleanedMessage = cleaner.clean(msg);
       _LOG.debug("[Metron] Cleaned message: {}", cleanedMessage);
 
       if (cleanedMessage == null || cleanedMessage.isEmpty()) {
@@ -17,11 +17,14 @@
  */
 package org.apache.metron.parsers.bro;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.regex.Pattern;
 
+import org.apache.metron.common.utils.JSONByteParser;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
@@ -34,6 +37,8 @@ public class JSONCleaner implements Serializable {
 	private static final long serialVersionUID = 1L;
 
 
+	private static final Pattern INVALID_KEY_CHARS = Pattern.compile("[^\\._a-zA-Z0-9]+");
+
 	/**
 	 * @param jsonString
 	 * @return
@@ -47,13 +52,31 @@ public class JSONCleaner implements Serializable {
 		
 		
 		Map json = (Map) parser.parse(jsonString);
+		return cleanKeys(json);
+	}
+
+	/**
+	 * @param jsonBytes
+	 * @return
+	 * @throws IOException
+	 * Takes the UTF-8 bytes of a json object as input, parsing them without first decoding them to a String, and
+	 * modifies the keys to remove any characters other than . _ a-z A-Z or 0-9
+	 */
+	public JSONObject clean(byte[] jsonBytes) throws IOException
+	{
+		return cleanKeys(JSONByteParser.JSON_SIMPLE.parseObject(jsonBytes));
+	}
+
+	@SuppressWarnings({"unchecked","rawtypes"})
+	private JSONObject cleanKeys(Map json)
+	{
 		JSONObject output = new JSONObject();
 	    Iterator iter = json.entrySet().iterator();
 
 		 while(iter.hasNext()){
 		      Map.Entry entry = (Map.Entry)iter.next();
 		      
-		      String key = ((String)entry.getKey()).replaceAll("[^\\._a-zA-Z0-9]+","");
+		      String key = INVALID_KEY_CHARS.matcher((String)entry.getKey()).replaceAll("");
 		      output.put(key, entry.getValue());
 		    }
 
@@ -21,6 +21,7 @@ package org.apache.metron.parsers.cef;
 import java.lang.invoke.MethodHandles;
 import java.nio.charset.Charset;
 import java.time.Clock;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +33,7 @@ import org.apache.metron.parsers.BasicParser;
 import org.apache.metron.parsers.ParseException;
 import org.apache.metron.parsers.utils.DateUtils;
 import org.apache.metron.parsers.utils.SyslogUtils;
+import org.apache.metron.parsers.utils.TimestampParser;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,9 +48,13 @@ public class CEFParser extends BasicParser {
 
 	private Pattern p;
 	private Pattern pext;
+	private TimestampParser rtParser;
 
 	public void init() {
 
+		// rt values without a zone are in the default zone of the worker
+		rtParser = new TimestampParser(DateUtils.PATTERNS_CEF, ZoneId.systemDefault());
+
 		// CEF Headers: Device Vendor|Device Product|Device Version|Device Event
 		// Class ID|Name|Severity
 
@@ -183,7 +189,7 @@ public class CEFParser extends BasicParser {
 			if (obj.containsKey("rt")) {
 				String rt = (String) obj.get("rt");
 				try {
-					obj.put("timestamp", DateUtils.parseMultiformat(rt, DateUtils.DATE_FORMATS_CEF));
+					obj.put("timestamp", DateUtils.parseMultiformat(rt, rtParser));
 				} catch (java.text.ParseException e) {
 					throw new IllegalStateException("rt field present in CEF but cannot be parsed", e);
 				}
@@ -20,13 +20,14 @@ package org.apache.metron.parsers.csv;
 
 import com.google.common.collect.ImmutableList;
 import java.lang.invoke.MethodHandles;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.apache.metron.common.csv.CSVConverter;
 import org.apache.metron.stellar.common.utils.ConversionUtils;
 import org.apache.metron.parsers.BasicParser;
+import org.apache.metron.parsers.utils.TimestampParser;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,14 +36,14 @@ public class CSVParser extends BasicParser {
   protected static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   public static final String TIMESTAMP_FORMAT_CONF = "timestampFormat";
   private transient CSVConverter converter;
-  private SimpleDateFormat timestampFormat;
+  private TimestampParser timestampFormat;
   @Override
   public void configure(Map<String, Object> parserConfig) {
     converter = new CSVConverter();
     converter.initialize(parserConfig);
     Object tsFormatObj = parserConfig.get(TIMESTAMP_FORMAT_CONF);
     if(tsFormatObj != null) {
-      timestampFormat = new SimpleDateFormat(tsFormatObj.toString());
+      timestampFormat = new TimestampParser(Collections.singletonList(tsFormatObj.toString()), ZoneId.systemDefault());
     }
   }
 
@@ -70,7 +71,7 @@ public class CSVParser extends BasicParser {
           }
           else {
             try {
-              timestamp = timestampFormat.parse(timestampObj.toString()).getTime();
+              timestamp = timestampFormat.parse(timestampObj.toString());
             }
             catch(Exception e) {
               LOG.error("Unable to format {}", timestampObj.toString());
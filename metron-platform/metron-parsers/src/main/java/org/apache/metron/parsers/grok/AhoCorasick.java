@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.grok;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * An Aho-Corasick automaton which finds which of a set of keywords occur in a text in a single pass.
+ */
+public class AhoCorasick {
+
+  private final int numKeywords;
+  private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+  private final List<BitSet> outputs = new ArrayList<>();
+  private int[] failures;
+
+  /**
+   * @param keywords The keywords to search for, identified by their index in the list
+   */
+  public AhoCorasick(List<String> keywords) {
+    this.numKeywords = keywords.size();
+    newState();
+    for(int i = 0;i < keywords.size();++i) {
+      int state = 0;
+      for(char c : keywords.get(i).toCharArray()) {
+        Integer next = transitions.get(state).get(c);
+        if(next == null) {
+          next = newState();
+          transitions.get(state).put(c, next);
+        }
+        state = next;
+      }
+      outputs.get(state).set(i);
+    }
+    buildFailures();
+  }
+
+  private int newState() {
+    transitions.add(new HashMap<>());
+    outputs.add(new BitSet());
+    return transitions.size() - 1;
+  }
+
+  private void buildFailures() {
+    failures = new int[transitions.size()];
+    Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+    while(!queue.isEmpty()) {
+      int state = queue.remove();
+      for(Map.Entry<Character, Integer> transition : transitions.get(state).entrySet()) {
+        int next = transition.getValue();
+        int failure = failures[state];
+        while(failure != 0 && !transitions.get(failure).containsKey(transition.getKey())) {
+          failure = failures[failure];
+        }
+        Integer target = transitions.get(failure).get(transition.getKey());
+        failures[next] = target == null || target == next ? 0 : target;
+        //a state also outputs every keyword that is a suffix of its own
+        outputs.get(next).or(outputs.get(failures[next]));
+        queue.add(next);
+      }
+    }
+  }
+
+  /**
+   * @param text The text to search
+   * @return The indices of the keywords occurring in the text
+   */
+  public BitSet find(CharSequence text) {
+    BitSet found = new BitSet(numKeywords);
+    int state = 0;
+    for(int i = 0;i < text.length();++i) {
+      char c = text.charAt(i);
+      Integer next = transitions.get(state).get(c);
+      while(next == null && state != 0) {
+        state = failures[state];
+        next = transitions.get(state).get(c);
+      }
+      state = next == null ? 0 : next;
+      BitSet output = outputs.get(state);
+      if(!output.isEmpty()) {
+        found.or(output);
+        if(found.cardinality() == numKeywords) {
+          break;
+        }
+      }
+    }
+    return found;
+  }
+}
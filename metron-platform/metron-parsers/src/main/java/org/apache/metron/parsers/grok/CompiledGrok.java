@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.grok;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import oi.thekraken.grok.api.Grok;
+import oi.thekraken.grok.api.Match;
+import oi.thekraken.grok.api.exception.GrokException;
+
+/**
+ * A compiled grok expression along with the literals any line it matches must contain.  Lines
+ * missing one of those literals are rejected without running the expression, which is where a
+ * grok expression spends most of its time on a line it does not match.
+ *
+ * <p>Instances are immutable once compiled and shared by every parser in a worker through the
+ * GrokCache, so the statistics kept on the time spent matching cover all of them.
+ */
+public class CompiledGrok {
+
+  private final String expression;
+  private final Grok grok;
+  private final List<String> requiredLiterals;
+  private final LongAdder attempts = new LongAdder();
+  private final LongAdder filtered = new LongAdder();
+  private final LongAdder matches = new LongAdder();
+  private final LongAdder matchNanos = new LongAdder();
+
+  private CompiledGrok(String expression, Grok grok) {
+    this.expression = expression;
+    this.grok = grok;
+    this.requiredLiterals = RegexLiterals.required(grok.getNamedRegex());
+  }
+
+  /**
+   * Compile a grok expression.  Prefer GrokCache.get, which compiles each expression only once per worker.
+   *
+   * @param patternDefinitions The grok pattern definitions, one per line
+   * @param expression The grok expression, e.g. %{SYSLOG}
+   * @return The compiled expression
+   * @throws GrokException If the expression cannot be compiled
+   */
+  public static CompiledGrok compile(String patternDefinitions, String expression) throws GrokException {
+    Grok grok = new Grok();
+    grok.addPatternFromReader(new StringReader(patternDefinitions));
+    grok.compile(expression);
+    return new CompiledGrok(expression, grok);
+  }
+
+  /**
+   * Match a line, skipping the expression entirely if the line lacks one of the required literals.
+   *
+   * @param text The line
+   * @return The match, which is null (see Match.isNull) if the line did not match
+   */
+  public Match match(String text) {
+    for(String literal : requiredLiterals) {
+      if(text == null || text.indexOf(literal) < 0) {
+        return filter();
+      }
+    }
+    return matchExpression(text);
+  }
+
+  /**
+   * Records a line rejected by the literal pre-filter.
+   */
+  Match filter() {
+    attempts.increment();
+    filtered.increment();
+    return Match.EMPTY;
+  }
+
+  /**
+   * Runs the expression itself, without the pre-filter.
+   */
+  Match matchExpression(String text) {
+    attempts.increment();
+    long start = System.nanoTime();
+    Match ret = grok.match(text);
+    matchNanos.add(System.nanoTime() - start);
+    if(!ret.isNull()) {
+      matches.increment();
+    }
+    return ret;
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  public Grok getGrok() {
+    return grok;
+  }
+
+  public List<String> getRequiredLiterals() {
+    return requiredLiterals;
+  }
+
+  /**
+   * @return The number of lines matched against this expression, the number of those rejected by the
+   * pre-filter, the number matched, and the total and mean milliseconds spent running the expression
+   */
+  public Map<String, Object> getStatistics() {
+    long tried = attempts.sum();
+    long skipped = filtered.sum();
+    double millis = matchNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    Map<String, Object> ret = new HashMap<>();
+    ret.put("expression", expression);
+    ret.put("attempts", tried);
+    ret.put("filtered", skipped);
+    ret.put("matches", matches.sum());
+    ret.put("matchMs", millis);
+    ret.put("meanMatchMs", tried == skipped ? 0.0 : millis / (tried - skipped));
+    return ret;
+  }
+}
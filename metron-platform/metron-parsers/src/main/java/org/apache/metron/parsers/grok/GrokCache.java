@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.grok;
+
+import com.google.common.io.CharStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import oi.thekraken.grok.api.exception.GrokException;
+
+/**
+ * Caches compiled grok expressions, so that every parser instance in a worker using the same
+ * pattern definitions and expression shares a single compiled expression.  Expanding and compiling
+ * a grok expression is costly, and parsers such as the ASA parser compile dozens of them.
+ */
+public enum GrokCache {
+  INSTANCE;
+
+  private final ConcurrentMap<String, ConcurrentMap<String, CompiledGrok>> cache = new ConcurrentHashMap<>();
+
+  /**
+   * Get a compiled grok expression, compiling it if it has not been already.
+   *
+   * @param patternDefinitions The grok pattern definitions, one per line
+   * @param expression The grok expression, e.g. %{SYSLOG}
+   * @return The compiled expression
+   * @throws GrokException If the expression cannot be compiled
+   */
+  public CompiledGrok get(String patternDefinitions, String expression) throws GrokException {
+    ConcurrentMap<String, CompiledGrok> expressions = cache.computeIfAbsent(patternDefinitions, k -> new ConcurrentHashMap<>());
+    CompiledGrok ret = expressions.get(expression);
+    if(ret == null) {
+      ret = CompiledGrok.compile(patternDefinitions, expression);
+      CompiledGrok existing = expressions.putIfAbsent(expression, ret);
+      if(existing != null) {
+        ret = existing;
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Read grok pattern definitions, closing the stream.
+   *
+   * @param patterns The UTF-8 encoded pattern definitions
+   * @return The pattern definitions
+   * @throws IOException If the definitions cannot be read
+   */
+  public static String readDefinitions(InputStream patterns) throws IOException {
+    try(Reader reader = new InputStreamReader(patterns, StandardCharsets.UTF_8)) {
+      return CharStreams.toString(reader);
+    }
+  }
+
+  /**
+   * @return The statistics of every cached expression
+   */
+  public List<Map<String, Object>> getStatistics() {
+    List<Map<String, Object>> ret = new ArrayList<>();
+    for(Map<String, CompiledGrok> expressions : cache.values()) {
+      for(CompiledGrok grok : expressions.values()) {
+        ret.add(grok.getStatistics());
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Drops every cached expression.
+   */
+  public void clear() {
+    cache.clear();
+  }
+}
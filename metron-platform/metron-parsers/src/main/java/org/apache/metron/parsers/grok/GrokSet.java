@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.grok;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import oi.thekraken.grok.api.Match;
+
+/**
+ * An ordered set of alternative grok expressions for the same kind of line, where the first that
+ * matches wins.  A single pass of an Aho-Corasick automaton over the line finds the literals it
+ * contains, and only the expressions whose required literals are all present are run.
+ */
+public class GrokSet {
+
+  private final List<CompiledGrok> groks;
+  private final AhoCorasick automaton;
+  private final List<BitSet> requiredLiterals = new ArrayList<>();
+
+  /**
+   * @param groks The expressions, in the order they should be tried
+   */
+  public GrokSet(List<CompiledGrok> groks) {
+    this.groks = new ArrayList<>(groks);
+    Map<String, Integer> literalIds = new HashMap<>();
+    List<String> literals = new ArrayList<>();
+    for(CompiledGrok grok : this.groks) {
+      BitSet required = new BitSet();
+      for(String literal : grok.getRequiredLiterals()) {
+        Integer id = literalIds.get(literal);
+        if(id == null) {
+          id = literals.size();
+          literalIds.put(literal, id);
+          literals.add(literal);
+        }
+        required.set(id);
+      }
+      requiredLiterals.add(required);
+    }
+    this.automaton = new AhoCorasick(literals);
+  }
+
+  /**
+   * @param text The line
+   * @return The match of the first expression matching the line, which is null (see Match.isNull) if none did
+   */
+  public Match match(String text) {
+    if(text == null) {
+      return Match.EMPTY;
+    }
+    BitSet present = automaton.find(text);
+    for(int i = 0;i < groks.size();++i) {
+      CompiledGrok grok = groks.get(i);
+      BitSet missing = (BitSet) requiredLiterals.get(i).clone();
+      missing.andNot(present);
+      if(!missing.isEmpty()) {
+        grok.filter();
+        continue;
+      }
+      Match match = grok.matchExpression(text);
+      if(!match.isNull()) {
+        return match;
+      }
+    }
+    return Match.EMPTY;
+  }
+
+  public List<CompiledGrok> getGroks() {
+    return groks;
+  }
+}
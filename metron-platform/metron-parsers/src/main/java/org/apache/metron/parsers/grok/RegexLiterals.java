@@ -0,0 +1,296 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.grok;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Extracts the literal strings that any text matched by a regular expression must contain.
+ *
+ * <p>The extraction is conservative: literals are only taken from parts of the expression that
+ * every match must pass through, so anything under an alternation, an optional quantifier or a
+ * lookaround is ignored.  Expressions using constructs that change the meaning of literals, such as
+ * inline flags, yield no literals at all.  A text lacking any of the literals cannot match, which
+ * makes them a cheap pre-filter before running the expression itself.
+ */
+public class RegexLiterals {
+
+  /**
+   * Literals shorter than this occur in nearly every line and are not worth checking.
+   */
+  public static final int MIN_LITERAL_LENGTH = 2;
+
+  private final String regex;
+  private int pos = 0;
+
+  private RegexLiterals(String regex) {
+    this.regex = regex;
+  }
+
+  /**
+   * @param regex A java regular expression
+   * @return The distinct literals of at least MIN_LITERAL_LENGTH characters that every match must contain
+   */
+  public static List<String> required(String regex) {
+    List<String> literals;
+    try {
+      RegexLiterals parser = new RegexLiterals(regex);
+      literals = parser.sequence();
+      if(parser.pos != regex.length()) {
+        //an unbalanced closing parenthesis; leave it to the regex engine to reject
+        return new ArrayList<>();
+      }
+    }
+    catch(UnsupportedOperationException | IndexOutOfBoundsException e) {
+      return new ArrayList<>();
+    }
+    LinkedHashSet<String> ret = new LinkedHashSet<>();
+    for(String literal : literals) {
+      if(literal.length() >= MIN_LITERAL_LENGTH) {
+        ret.add(literal);
+      }
+    }
+    return new ArrayList<>(ret);
+  }
+
+  /**
+   * Reads alternatives up to the closing parenthesis of the enclosing group, or the end of the expression.
+   */
+  private List<String> sequence() {
+    List<String> literals = new ArrayList<>();
+    StringBuilder run = new StringBuilder();
+    boolean alternatives = false;
+    while(pos < regex.length()) {
+      char c = regex.charAt(pos);
+      if(c == ')') {
+        break;
+      }
+      if(c == '|') {
+        alternatives = true;
+        pos++;
+        flush(run, literals);
+        continue;
+      }
+      if(c == '(') {
+        flush(run, literals);
+        List<String> group = group();
+        if(quantifier() != 0 && group != null) {
+          literals.addAll(group);
+        }
+        continue;
+      }
+      Character literal = null;
+      if(c == '\\') {
+        literal = escape();
+      }
+      else if(c == '[') {
+        charClass();
+      }
+      else if(c == '.' || c == '^' || c == '$') {
+        pos++;
+      }
+      else if(c == '*' || c == '+' || c == '?' || c == '{') {
+        throw new UnsupportedOperationException("Dangling quantifier at " + pos);
+      }
+      else {
+        literal = c;
+        pos++;
+      }
+
+      int min = quantifier();
+      if(literal != null && min != 0) {
+        run.append(literal);
+      }
+      if(literal == null || min >= 0) {
+        //the atom is not a literal or it may repeat, so the literal run cannot continue past it
+        flush(run, literals);
+      }
+    }
+    flush(run, literals);
+    //a literal only required by one alternative is not required by the whole
+    return alternatives ? new ArrayList<>() : literals;
+  }
+
+  /**
+   * Reads a group, returning the literals it requires or null if it is a lookaround.
+   */
+  private List<String> group() {
+    pos++;
+    boolean lookaround = false;
+    if(regex.startsWith("?", pos)) {
+      if(regex.startsWith("?:", pos) || regex.startsWith("?>", pos)) {
+        pos += 2;
+      }
+      else if(regex.startsWith("?=", pos) || regex.startsWith("?!", pos)) {
+        pos += 2;
+        lookaround = true;
+      }
+      else if(regex.startsWith("?<=", pos) || regex.startsWith("?<!", pos)) {
+        pos += 3;
+        lookaround = true;
+      }
+      else if(regex.startsWith("?<", pos)) {
+        pos = regex.indexOf('>', pos) + 1;
+        if(pos == 0) {
+          throw new UnsupportedOperationException("Unterminated group name");
+        }
+      }
+      else {
+        throw new UnsupportedOperationException("Inline flags are not supported");
+      }
+    }
+    List<String> literals = sequence();
+    if(regex.charAt(pos) != ')') {
+      throw new UnsupportedOperationException("Unterminated group");
+    }
+    pos++;
+    return lookaround ? null : literals;
+  }
+
+  /**
+   * Reads an escape sequence, returning the character it stands for or null if it is not a single literal.
+   */
+  private Character escape() {
+    char e = regex.charAt(pos + 1);
+    pos += 2;
+    switch(e) {
+      case 't': return '\t';
+      case 'n': return '\n';
+      case 'r': return '\r';
+      case 'f': return '\f';
+      case 'a': return '\u0007';
+      case 'e': return '\u001B';
+      case 'Q':
+        throw new UnsupportedOperationException("Quoted sequences are not supported");
+      case 'k':
+        pos = regex.indexOf('>', pos) + 1;
+        if(pos == 0) {
+          throw new UnsupportedOperationException("Unterminated back reference");
+        }
+        return null;
+      case 'p':
+      case 'P':
+      case 'x':
+        if(regex.charAt(pos) == '{') {
+          pos = regex.indexOf('}', pos) + 1;
+          if(pos == 0) {
+            throw new UnsupportedOperationException("Unterminated escape");
+          }
+        }
+        else {
+          pos += e == 'x' ? 2 : 1;
+        }
+        return null;
+      case 'u':
+        pos += 4;
+        return null;
+      case 'c':
+        pos += 1;
+        return null;
+      default:
+        if(Character.isDigit(e)) {
+          //a back reference or octal escape
+          while(pos < regex.length() && Character.isDigit(regex.charAt(pos))) {
+            pos++;
+          }
+          return null;
+        }
+        //letters are character classes or boundaries, anything else is an escaped literal
+        return Character.isLetter(e) ? null : e;
+    }
+  }
+
+  private void charClass() {
+    pos++;
+    if(regex.charAt(pos) == '^') {
+      pos++;
+    }
+    if(regex.charAt(pos) == ']') {
+      pos++;
+    }
+    while(true) {
+      char c = regex.charAt(pos);
+      if(c == '\\') {
+        pos += 2;
+      }
+      else if(c == '[') {
+        charClass();
+      }
+      else if(c == ']') {
+        pos++;
+        return;
+      }
+      else {
+        pos++;
+      }
+    }
+  }
+
+  /**
+   * Reads the quantifier following an atom, if any.
+   *
+   * @return -1 if there is no quantifier, otherwise the minimum number of repetitions
+   */
+  private int quantifier() {
+    if(pos >= regex.length()) {
+      return -1;
+    }
+    int min;
+    char c = regex.charAt(pos);
+    if(c == '?' || c == '*') {
+      min = 0;
+      pos++;
+    }
+    else if(c == '+') {
+      min = 1;
+      pos++;
+    }
+    else if(c == '{') {
+      int end = regex.indexOf('}', pos);
+      if(end < 0) {
+        throw new UnsupportedOperationException("Unterminated quantifier");
+      }
+      String bounds = regex.substring(pos + 1, end);
+      int comma = bounds.indexOf(',');
+      try {
+        min = Integer.parseInt((comma < 0 ? bounds : bounds.substring(0, comma)).trim());
+      }
+      catch(NumberFormatException nfe) {
+        throw new UnsupportedOperationException("Invalid quantifier " + bounds);
+      }
+      pos = end + 1;
+    }
+    else {
+      return -1;
+    }
+    //lazy and possessive modifiers do not change the minimum
+    if(pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+      pos++;
+    }
+    return min;
+  }
+
+  private static void flush(StringBuilder run, List<String> literals) {
+    if(run.length() > 0) {
+      literals.add(run.toString());
+      run.setLength(0);
+    }
+  }
+}
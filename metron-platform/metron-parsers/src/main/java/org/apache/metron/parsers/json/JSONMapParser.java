@@ -17,13 +17,13 @@
  */
 package org.apache.metron.parsers.json;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
-import org.apache.metron.common.utils.JSONUtils;
+import org.apache.metron.common.utils.JSONByteParser;
 import org.apache.metron.parsers.BasicParser;
 import org.json.simple.JSONObject;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -94,12 +94,9 @@ public class JSONMapParser extends BasicParser {
   @Override
   public List<JSONObject> parse(byte[] rawMessage) {
     try {
-      String originalString = new String(rawMessage);
-      //convert the JSON blob into a String -> Object map
-      Map<String, Object> rawMap = JSONUtils.INSTANCE.load(originalString, new TypeReference<Map<String, Object>>() {
-      });
-      JSONObject ret = normalizeJSON(rawMap);
-      ret.put("original_string", originalString );
+      //convert the JSON blob straight into a JSONObject, without decoding it to a String first
+      JSONObject ret = normalizeJSON(JSONByteParser.JACKSON.parseObject(rawMessage));
+      ret.put("original_string", new String(rawMessage));
       if(!ret.containsKey("timestamp")) {
         //we have to ensure that we have a timestamp.  This is one of the pre-requisites for the parser.
         ret.put("timestamp", System.currentTimeMillis());
@@ -114,21 +111,24 @@ public class JSONMapParser extends BasicParser {
 
   /**
    * Process all sub-maps via the MapHandler.  We have standardized on one-dimensional maps as our data model..
+   * The sub-maps are handled in place, so messages without any are returned as parsed.
    *
    * @param map
    * @return
    */
-  private JSONObject normalizeJSON(Map<String, Object> map) {
-    JSONObject ret = new JSONObject();
-    for(Map.Entry<String, Object> kv : map.entrySet()) {
-      if(kv.getValue() instanceof Map) {
-        mapStrategy.handle(kv.getKey(), (Map) kv.getValue(), ret);
-      }
-      else {
-        ret.put(kv.getKey(), kv.getValue());
+  @SuppressWarnings("unchecked")
+  private JSONObject normalizeJSON(JSONObject map) {
+    List<String> mapKeys = new ArrayList<>();
+    for(Object kv : map.entrySet()) {
+      Map.Entry<String, Object> entry = (Map.Entry<String, Object>) kv;
+      if(entry.getValue() instanceof Map) {
+        mapKeys.add(entry.getKey());
       }
     }
-    return ret;
+    for(String key : mapKeys) {
+      mapStrategy.handle(key, (Map) map.remove(key), map);
+    }
+    return map;
   }
 
 }
@@ -18,24 +18,24 @@
 package org.apache.metron.parsers.syslog;
 
 import com.google.common.collect.ImmutableMap;
-import oi.thekraken.grok.api.Grok;
 import oi.thekraken.grok.api.Match;
 import oi.thekraken.grok.api.exception.GrokException;
 import org.apache.commons.collections.MultiHashMap;
-import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
 import org.apache.storm.task.TopologyContext;
 
 import org.apache.metron.common.Constants;
 import org.apache.metron.parsers.BasicParser;
 import org.apache.metron.parsers.ParseException;
+import org.apache.metron.parsers.grok.CompiledGrok;
+import org.apache.metron.parsers.grok.GrokCache;
+import org.apache.metron.parsers.grok.GrokSet;
 import org.apache.metron.parsers.utils.SyslogUtils;
 import org.json.simple.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.commons.collections.MultiMap;
 
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.lang.invoke.MethodHandles;
 import java.time.Clock;
@@ -43,7 +43,6 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -54,7 +53,7 @@ public class BasicSyslogParser extends BasicParser {
   protected Clock deviceClock;
   private String syslogPattern = "%{GENERAL_SYSLOG}";
 
-  private Grok syslogGrok;
+  private CompiledGrok syslogGrok;
 
   private static final String[] suPatterns = {"SU1", "SU2", "SU3"};
   private static final String[] sudoPatterns = {"SUDO1", "SUDO2", "SUDO3"};
@@ -66,7 +65,7 @@ public class BasicSyslogParser extends BasicParser {
       .put("sshd", sshPatterns)
           .build();
 
-  private HashSetValuedHashMap grokers = new HashSetValuedHashMap();
+  private Map<String, GrokSet> grokers = new HashMap<>();
 
   @Override
   public void configure(Map<String, Object> parserConfig) {
@@ -80,30 +79,28 @@ public class BasicSyslogParser extends BasicParser {
 
   }
 
-  private void addGrok(String key, String pattern) throws GrokException {
-    Grok grok = new Grok();
-    InputStream patternStream = this.getClass().getResourceAsStream("/patterns/syslog");
-    grok.addPatternFromReader(new InputStreamReader(patternStream));
-    grok.compile("%{" + pattern + "}");
-    grokers.put(key,grok);
+  private void addGroks(String patterns, String key, String[] programPatterns) throws GrokException {
+    List<CompiledGrok> groks = new ArrayList<>();
+    for (String pattern : programPatterns) {
+      groks.add(GrokCache.INSTANCE.get(patterns, "%{" + pattern + "}"));
+    }
+    grokers.put(key, new GrokSet(groks));
   }
 
   @Override
   public void init() {
-    syslogGrok = new Grok();
-    InputStream syslogStream = this.getClass().getResourceAsStream("/patterns/syslog");
+    String patterns;
     try {
-      syslogGrok.addPatternFromReader(new InputStreamReader(syslogStream));
-      syslogGrok.compile(syslogPattern);
-    } catch (GrokException e) {
+      patterns = GrokCache.readDefinitions(this.getClass().getResourceAsStream("/patterns/syslog"));
+      syslogGrok = GrokCache.INSTANCE.get(patterns, syslogPattern);
+    } catch (GrokException | IOException e) {
       LOG.error("[Metron] Failed to load grok patterns from jar", e);
       throw new RuntimeException(e.getMessage(), e);
     }
 
       for (Entry<String, String[]> patternList : patternMap.entrySet()) {
           try {
-              for (String pattern: patternList.getValue()){
-                  addGrok(patternList.getKey(), pattern);}
+              addGroks(patterns, patternList.getKey(), patternList.getValue());
           } catch (GrokException e) {
               LOG.error("[Metron] Failed to load grok pattern {} for Syslog  {}", patternList.getValue(), patternList.getKey());
           }
@@ -161,19 +158,16 @@ public class BasicSyslogParser extends BasicParser {
 
     try {
       messagePattern = (String) syslogJson.get("syslog_program");
-      Collection<Grok> programGrok = (Collection<Grok>) grokers.get(messagePattern);
+      GrokSet programGrok = grokers.get(messagePattern);
 
       if (programGrok == null)
 	LOG.info("[Metron] No pattern for syslog '{}'", syslogJson.get("syslog_program"));
       else {
 
 	String messageContent = (String) syslogJson.get("syslog_message");
-	Match messageMatch=null;
-	for (Grok grokP : programGrok) {
-        messageMatch = grokP.match(messageContent);
-        messageMatch.captures();
-        if (!messageMatch.isNull()) break;
-    }
+	//only the patterns whose literals all occur in the message are tried
+	Match messageMatch = programGrok.match(messageContent);
+	messageMatch.captures();
 	if (!messageMatch.isNull()) {
 	  Map<String, Object> messageJson = messageMatch.toMap();
 	  LOG.trace("[Metron] Grok Syslog message matches: {}", messageMatch.toJson());
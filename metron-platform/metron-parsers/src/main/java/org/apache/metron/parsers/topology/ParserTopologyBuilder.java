@@ -36,6 +36,7 @@ import org.apache.metron.common.writer.BulkMessageWriter;
 import org.apache.metron.common.writer.MessageWriter;
 import org.apache.metron.common.utils.ReflectionUtils;
 import org.apache.metron.parsers.bolt.ParserBolt;
+import org.apache.metron.parsers.bolt.ParserComponents;
 import org.apache.metron.parsers.bolt.WriterBolt;
 import org.apache.metron.parsers.bolt.WriterHandler;
 import org.apache.metron.parsers.interfaces.MessageParser;
@@ -44,9 +45,10 @@ import org.apache.metron.writer.kafka.KafkaWriter;
 import org.json.simple.JSONObject;
 
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
- * Builds a Storm topology that parses telemetry data received from a sensor.
+ * Builds a Storm topology that parses telemetry data received from one or more sensors.
  */
 public class ParserTopologyBuilder {
 
@@ -72,9 +74,14 @@ public class ParserTopologyBuilder {
   /**
    * Builds a Storm topology that parses telemetry data received from an external sensor.
    *
+   * <p>Several sensors may share a single topology by passing a comma separated list of sensor types.
+   * The topology then has a single kafka spout subscribed to every sensor topic and a single parser bolt,
+   * which routes each message to its sensor's parser by the topic it was read from.  The parallelism,
+   * spout and storm configuration are taken from the first sensor's parser config, unless overridden.
+   *
    * @param zookeeperUrl             Zookeeper URL
    * @param brokerUrl                Kafka Broker URL
-   * @param sensorType               Type of sensor
+   * @param sensorType               Type of sensor, or a comma separated list of sensor types
    * @param spoutParallelismSupplier         Supplier for the parallelism hint for the spout
    * @param spoutNumTasksSupplier            Supplier for the number of tasks for the spout
    * @param parserParallelismSupplier        Supplier for the parallelism hint for the parser bolt
@@ -104,8 +111,10 @@ public class ParserTopologyBuilder {
   ) throws Exception {
 
     // fetch configuration from zookeeper
+    List<String> sensorTypes = getSensorTypes(sensorType);
     ParserConfigurations configs = new ParserConfigurations();
-    SensorParserConfig parserConfig = getSensorParserConfig(zookeeperUrl, sensorType, configs);
+    Map<String, SensorParserConfig> sensorToParserConfig = getSensorParserConfigs(zookeeperUrl, sensorTypes, configs);
+    SensorParserConfig parserConfig = sensorToParserConfig.get(sensorTypes.get(0));
     int spoutParallelism = spoutParallelismSupplier.get(parserConfig, Integer.class);
     int spoutNumTasks = spoutNumTasksSupplier.get(parserConfig, Integer.class);
     int parserParallelism = parserParallelismSupplier.get(parserConfig, Integer.class);
@@ -117,19 +126,19 @@ public class ParserTopologyBuilder {
 
     // create the spout
     TopologyBuilder builder = new TopologyBuilder();
-    KafkaSpout kafkaSpout = createKafkaSpout(zookeeperUrl, sensorType, securityProtocol, Optional.ofNullable(kafkaSpoutConfig) , parserConfig);
+    KafkaSpout kafkaSpout = createKafkaSpout(zookeeperUrl, securityProtocol, Optional.ofNullable(kafkaSpoutConfig) , sensorToParserConfig);
     builder.setSpout("kafkaSpout", kafkaSpout, spoutParallelism)
             .setNumTasks(spoutNumTasks);
 
     // create the parser bolt
-    ParserBolt parserBolt = createParserBolt(zookeeperUrl, brokerUrl, sensorType, securityProtocol, configs, parserConfig, outputTopic);
+    ParserBolt parserBolt = createParserBolt(zookeeperUrl, brokerUrl, securityProtocol, configs, sensorToParserConfig, outputTopic);
     builder.setBolt("parserBolt", parserBolt, parserParallelism)
             .setNumTasks(parserNumTasks)
             .shuffleGrouping("kafkaSpout");
 
     // create the error bolt, if needed
     if (errorWriterNumTasks > 0) {
-      WriterBolt errorBolt = createErrorBolt(zookeeperUrl, brokerUrl, sensorType, securityProtocol, configs, parserConfig);
+      WriterBolt errorBolt = createErrorBolt(zookeeperUrl, brokerUrl, sensorTypes.get(0), securityProtocol, configs, parserConfig);
       builder.setBolt("errorMessageWriter", errorBolt, errorWriterParallelism)
               .setNumTasks(errorWriterNumTasks)
               .shuffleGrouping("parserBolt", Constants.ERROR_STREAM);
@@ -139,23 +148,26 @@ public class ParserTopologyBuilder {
   }
 
   /**
-   * Create a spout that consumes tuples from a Kafka topic.
+   * Create a spout that consumes tuples from the Kafka topics of one or more sensors.
    *
    * @param zkQuorum Zookeeper URL
-   * @param sensorType              Type of sensor
    * @param kafkaConfigOptional     Configuration options for the kafka spout
-   * @param parserConfig            Configuration for the parser
+   * @param sensorToParserConfig    Configuration for the parser of each sensor
    * @return
    */
   private static StormKafkaSpout<Object, Object> createKafkaSpout( String zkQuorum
-                                                 , String sensorType
                                                  , Optional<String> securityProtocol
                                                  , Optional<Map<String, Object>> kafkaConfigOptional
-                                                 , SensorParserConfig parserConfig
+                                                 , Map<String, SensorParserConfig> sensorToParserConfig
                                                  )
   {
     Map<String, Object> kafkaSpoutConfigOptions = kafkaConfigOptional.orElse(new HashMap<>());
-    String inputTopic = parserConfig.getSensorTopic() != null ? parserConfig.getSensorTopic() : sensorType;
+    List<String> inputTopics = new ArrayList<>();
+    for(Map.Entry<String, SensorParserConfig> entry : sensorToParserConfig.entrySet()) {
+      SensorParserConfig parserConfig = entry.getValue();
+      inputTopics.add(parserConfig.getSensorTopic() != null ? parserConfig.getSensorTopic() : entry.getKey());
+    }
+    String inputTopic = String.join("_", inputTopics);
     kafkaSpoutConfigOptions.putIfAbsent( SpoutConfiguration.FIRST_POLL_OFFSET_STRATEGY.key
             , KafkaSpoutConfig.FirstPollOffsetStrategy.UNCOMMITTED_EARLIEST.toString()
     );
@@ -165,7 +177,7 @@ public class ParserTopologyBuilder {
     if(securityProtocol.isPresent()) {
       kafkaSpoutConfigOptions.putIfAbsent("security.protocol", securityProtocol.get());
     }
-    return SimpleStormKafkaBuilder.create( inputTopic
+    return SimpleStormKafkaBuilder.create( getSubscription(inputTopics)
                                          , zkQuorum
                                          , Arrays.asList( SimpleStormKafkaBuilder.FieldsConfiguration.VALUE.getFieldName()
                                                         , SimpleStormKafkaBuilder.FieldsConfiguration.KEY.getFieldName()
@@ -175,6 +187,33 @@ public class ParserTopologyBuilder {
                                          );
   }
 
+  /**
+   * The subscription for a set of input topics.  A single topic is subscribed to as is, while
+   * several topics are subscribed to with a regex matching any of them.
+   *
+   * @param inputTopics The topics, each either a name or a regex of the form /regex/
+   * @return The topic name or regex to subscribe to
+   */
+  static String getSubscription(List<String> inputTopics) {
+    if(inputTopics.size() == 1) {
+      return inputTopics.get(0);
+    }
+    List<String> regexes = new ArrayList<>();
+    for(String topic : inputTopics) {
+      if(isRegex(topic)) {
+        regexes.add("(?:" + topic.substring(1, topic.length() - 1) + ")");
+      }
+      else {
+        regexes.add(Pattern.quote(topic));
+      }
+    }
+    return "/" + String.join("|", regexes) + "/";
+  }
+
+  private static boolean isRegex(String topic) {
+    return topic.length() > 1 && topic.startsWith("/") && topic.endsWith("/");
+  }
+
   private static KafkaWriter createKafkaWriter( Optional<String> broker
                                               , String zkQuorum
                                               , Optional<String> securityProtocol
@@ -196,42 +235,78 @@ public class ParserTopologyBuilder {
   }
 
   /**
-   * Create a bolt that parses input from a sensor.
+   * Create a bolt that parses input from one or more sensors.
    *
    * @param zookeeperUrl Zookeeper URL
    * @param brokerUrl    Kafka Broker URL
-   * @param sensorType   Type of sensor that is being consumed.
    * @param configs
-   * @param parserConfig
-   * @return A Storm bolt that parses input from a sensor
+   * @param sensorToParserConfig Configuration for the parser of each sensor
+   * @return A Storm bolt that parses input from the sensors
    */
   private static ParserBolt createParserBolt( String zookeeperUrl
                                             , Optional<String> brokerUrl
-                                            , String sensorType
                                             , Optional<String> securityProtocol
                                             , ParserConfigurations configs
-                                            , SensorParserConfig parserConfig
+                                            , Map<String, SensorParserConfig> sensorToParserConfig
                                             , Optional<String> outputTopic
                                             )
   {
+    Map<String, ParserComponents> sensorToComponents = new LinkedHashMap<>();
+    // sensors using the default writer share it, so their messages are batched together
+    WriterHandler defaultWriterHandler = null;
+    // sensors share the parser threads of the bolt, so it gets as many as any of them asks for
+    int parserThreads = 1;
+    for(Map.Entry<String, SensorParserConfig> entry : sensorToParserConfig.entrySet()) {
+      String sensorType = entry.getKey();
+      SensorParserConfig parserConfig = entry.getValue();
+      if(parserConfig.getParserThreads() != null) {
+        parserThreads = Math.max(parserThreads, parserConfig.getParserThreads());
+      }
 
-    // create message parser
-    MessageParser<JSONObject> parser = ReflectionUtils.createInstance(parserConfig.getParserClassName());
-    parser.configure(parserConfig.getParserConfig());
+      // create message parser
+      MessageParser<JSONObject> parser = ReflectionUtils.createInstance(parserConfig.getParserClassName());
+      parser.configure(parserConfig.getParserConfig());
 
-    // create writer - if not configured uses a sensible default
-    AbstractWriter writer = parserConfig.getWriterClassName() == null ?
-            createKafkaWriter( brokerUrl
-                             , zookeeperUrl
-                             , securityProtocol
-                             ).withTopic(outputTopic.orElse(Constants.ENRICHMENT_TOPIC)) :
-            ReflectionUtils.createInstance(parserConfig.getWriterClassName());
-    writer.configure(sensorType, new ParserWriterConfiguration(configs));
+      // create writer - if not configured uses a sensible default
+      WriterHandler writerHandler;
+      if(usesDefaultWriter(parserConfig) && defaultWriterHandler != null) {
+        writerHandler = defaultWriterHandler;
+      }
+      else {
+        AbstractWriter writer = parserConfig.getWriterClassName() == null ?
+                createKafkaWriter( brokerUrl
+                                 , zookeeperUrl
+                                 , securityProtocol
+                                 ).withTopic(outputTopic.orElse(Constants.ENRICHMENT_TOPIC)) :
+                ReflectionUtils.createInstance(parserConfig.getWriterClassName());
+        writer.configure(sensorType, new ParserWriterConfiguration(configs));
 
-    // create a writer handler
-    WriterHandler writerHandler = createWriterHandler(writer);
+        // create a writer handler
+        writerHandler = createWriterHandler(writer);
+        if(usesDefaultWriter(parserConfig)) {
+          defaultWriterHandler = writerHandler;
+        }
+      }
+      sensorToComponents.put(sensorType, new ParserComponents(parser, null, writerHandler));
+    }
+
+    return new ParserBolt(zookeeperUrl, sensorToComponents).withParserThreads(parserThreads);
+  }
 
-    return new ParserBolt(zookeeperUrl, sensorType, parser, writerHandler);
+  /**
+   * A sensor uses the default writer if it configures neither a writer class nor any kafka writer
+   * options, in which case the writer it would get is identical to that of any other such sensor.
+   *
+   * @param parserConfig Configuration for the parser
+   * @return True if the sensor uses the default writer
+   */
+  private static boolean usesDefaultWriter(SensorParserConfig parserConfig) {
+    if(parserConfig.getWriterClassName() != null) {
+      return false;
+    }
+    Map<String, Object> config = parserConfig.getParserConfig();
+    return config == null || Arrays.stream(KafkaWriter.Configurations.values())
+                                   .noneMatch(c -> c.get(Optional.empty(), config) != null);
   }
 
   /**
@@ -271,24 +346,47 @@ public class ParserTopologyBuilder {
   }
 
   /**
-   * Fetch the parser configuration from Zookeeper.
+   * Split a comma separated list of sensor types.
+   *
+   * @param sensorType A sensor type or comma separated list of sensor types
+   * @return The distinct sensor types, in the order given
+   */
+  static List<String> getSensorTypes(String sensorType) {
+    Set<String> sensorTypes = new LinkedHashSet<>();
+    for(String s : sensorType.split(",")) {
+      if(!s.trim().isEmpty()) {
+        sensorTypes.add(s.trim());
+      }
+    }
+    if(sensorTypes.isEmpty()) {
+      throw new IllegalArgumentException("At least one sensor type must be specified.");
+    }
+    return new ArrayList<>(sensorTypes);
+  }
+
+  /**
+   * Fetch the parser configuration of each sensor from Zookeeper.
    *
    * @param zookeeperUrl Zookeeper URL
-   * @param sensorType   Type of sensor
+   * @param sensorTypes  Types of sensor
    * @param configs
-   * @return
+   * @return The parser configuration of each sensor, in the order given
    * @throws Exception
    */
-  private static SensorParserConfig getSensorParserConfig(String zookeeperUrl, String sensorType, ParserConfigurations configs) throws Exception {
+  private static Map<String, SensorParserConfig> getSensorParserConfigs(String zookeeperUrl, List<String> sensorTypes, ParserConfigurations configs) throws Exception {
     try(CuratorFramework client = ConfigurationsUtils.getClient(zookeeperUrl)) {
       client.start();
       ConfigurationsUtils.updateParserConfigsFromZookeeper(configs, client);
-      SensorParserConfig parserConfig = configs.getSensorParserConfig(sensorType);
-      if (parserConfig == null) {
-        throw new IllegalStateException("Cannot find the parser configuration in zookeeper for " + sensorType + "." +
-                "  Please check that it exists in zookeeper by using the 'zk_load_configs.sh -m DUMP' command.");
+      Map<String, SensorParserConfig> sensorToParserConfig = new LinkedHashMap<>();
+      for(String sensorType : sensorTypes) {
+        SensorParserConfig parserConfig = configs.getSensorParserConfig(sensorType);
+        if (parserConfig == null) {
+          throw new IllegalStateException("Cannot find the parser configuration in zookeeper for " + sensorType + "." +
+                  "  Please check that it exists in zookeeper by using the 'zk_load_configs.sh -m DUMP' command.");
+        }
+        sensorToParserConfig.put(sensorType, parserConfig);
       }
-      return parserConfig;
+      return sensorToParserConfig;
     }
   }
 
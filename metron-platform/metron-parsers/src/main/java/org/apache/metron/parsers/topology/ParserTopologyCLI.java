@@ -18,6 +18,7 @@
 package org.apache.metron.parsers.topology;
 
 import org.apache.metron.common.Constants;
+import org.apache.metron.parsers.bolt.ParserBolt;
 import org.apache.metron.parsers.topology.config.ValueSupplier;
 import org.apache.metron.storm.kafka.flux.SpoutConfiguration;
 import org.apache.storm.Config;
@@ -62,7 +63,7 @@ public class ParserTopologyCLI {
       return o;
     }),
     SENSOR_TYPE("s", code -> {
-      Option o = new Option(code, "sensor", true, "Sensor Type");
+      Option o = new Option(code, "sensor", true, "Sensor Type, or a comma separated list of sensor types to parse in a single topology");
       o.setArgName("SENSOR_TYPE");
       o.setRequired(true);
       return o;
@@ -442,14 +443,15 @@ public class ParserTopologyCLI {
       ParserTopologyCLI cli = new ParserTopologyCLI();
       ParserTopologyBuilder.ParserTopology topology = cli.createParserTopology(cmd);
       String sensorType= ParserOptions.SENSOR_TYPE.get(cmd);
+      String topologyName = String.join(ParserBolt.SENSOR_TYPE_SEPARATOR, ParserTopologyBuilder.getSensorTypes(sensorType));
       if (ParserOptions.TEST.has(cmd)) {
         topology.getTopologyConfig().put(Config.TOPOLOGY_DEBUG, true);
         LocalCluster cluster = new LocalCluster();
-        cluster.submitTopology(sensorType, topology.getTopologyConfig(), topology.getBuilder().createTopology());
+        cluster.submitTopology(topologyName, topology.getTopologyConfig(), topology.getBuilder().createTopology());
         Utils.sleep(300000);
         cluster.shutdown();
       } else {
-        StormSubmitter.submitTopology(sensorType, topology.getTopologyConfig(), topology.getBuilder().createTopology());
+        StormSubmitter.submitTopology(topologyName, topology.getTopologyConfig(), topology.getBuilder().createTopology());
       }
     } catch (Exception e) {
       e.printStackTrace();
@@ -22,7 +22,9 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
@@ -36,38 +38,45 @@ import org.apache.commons.lang.StringUtils;
  */
 public class DateUtils {
 
-	public static List<SimpleDateFormat> DATE_FORMATS_CEF = new ArrayList<SimpleDateFormat>() {
-		{
+	public static final List<String> PATTERNS_CEF = Collections.unmodifiableList(Arrays.asList(
 			// as per CEF Spec
-			add(new SimpleDateFormat("MMM dd HH:mm:ss.SSS zzz"));
-			add(new SimpleDateFormat("MMM dd HH:mm:ss.SSS"));
-			add(new SimpleDateFormat("MMM dd HH:mm:ss zzz"));
-			add(new SimpleDateFormat("MMM dd HH:mm:ss"));
-			add(new SimpleDateFormat("MMM dd yyyy HH:mm:ss.SSS zzz"));
-			add(new SimpleDateFormat("MMM dd yyyy HH:mm:ss.SSS"));
-			add(new SimpleDateFormat("MMM dd yyyy HH:mm:ss zzz"));
-			add(new SimpleDateFormat("MMM dd yyyy HH:mm:ss"));
+			"MMM dd HH:mm:ss.SSS zzz",
+			"MMM dd HH:mm:ss.SSS",
+			"MMM dd HH:mm:ss zzz",
+			"MMM dd HH:mm:ss",
+			"MMM dd yyyy HH:mm:ss.SSS zzz",
+			"MMM dd yyyy HH:mm:ss.SSS",
+			"MMM dd yyyy HH:mm:ss zzz",
+			"MMM dd yyyy HH:mm:ss",
 			// found in the wild
-			add(new SimpleDateFormat("dd MMMM yyyy HH:mm:ss"));
-		}
-	};
+			"dd MMMM yyyy HH:mm:ss"
+	));
 
-	public static List<SimpleDateFormat> DATE_FORMATS_SYSLOG = new ArrayList<SimpleDateFormat>() {
-		{
+	public static final List<String> PATTERNS_SYSLOG = Collections.unmodifiableList(Arrays.asList(
 			// As specified in https://tools.ietf.org/html/rfc5424
-			add(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ"));
+			"yyyy-MM-dd'T'HH:mm:ss.SSSZ",
 
 			// common format per rsyslog defaults e.g. Mar 21 14:05:02
-			add(new SimpleDateFormat("MMM dd HH:mm:ss"));
-			add(new SimpleDateFormat("MMM dd yyyy HH:mm:ss"));
+			"MMM dd HH:mm:ss",
+			"MMM dd yyyy HH:mm:ss",
 
 			// additional formats found in the wild
-			add(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss"));
-			add(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ"));
-			add(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS"));
+			"yyyy-MM-dd'T'HH:mm:ss",
+			"yyyy-MM-dd'T'HH:mm:ssZ",
+			"yyyy-MM-dd'T'HH:mm:ss.SSS"
+	));
 
-		}
-	};
+	/**
+	 * @deprecated SimpleDateFormat is not thread safe, use a {@link TimestampParser} of {@link #PATTERNS_CEF}
+	 */
+	@Deprecated
+	public static List<SimpleDateFormat> DATE_FORMATS_CEF = toSimpleDateFormats(PATTERNS_CEF);
+
+	/**
+	 * @deprecated SimpleDateFormat is not thread safe, use a {@link TimestampParser} of {@link #PATTERNS_SYSLOG}
+	 */
+	@Deprecated
+	public static List<SimpleDateFormat> DATE_FORMATS_SYSLOG = toSimpleDateFormats(PATTERNS_SYSLOG);
 
 	Pattern NUMERIC = Pattern.compile("\\b\\d+\\b");
 
@@ -112,4 +121,32 @@ public class DateUtils {
 			throw new ParseException("Failed to parse any of the given date formats", 0);
 		}
 	}
+
+	/**
+	 * Parse the data according to the date formats of a TimestampParser.
+	 * 
+	 * If the given date is entirely numeric, it is assumed to be a unix
+	 * timestamp.
+	 * 
+	 * @param candidate
+	 *            The possible date.
+	 * @param parser
+	 *            The TimestampParser of the possible date formats.
+	 * @return The date in milliseconds since the epoch
+	 * @throws ParseException
+	 */
+	public static long parseMultiformat(String candidate, TimestampParser parser) throws ParseException {
+		if (StringUtils.isNumeric(candidate)) {
+			return Long.valueOf(candidate);
+		}
+		return parser.parse(candidate);
+	}
+
+	private static List<SimpleDateFormat> toSimpleDateFormats(List<String> patterns) {
+		List<SimpleDateFormat> ret = new ArrayList<>();
+		for (String pattern : patterns) {
+			ret.add(new SimpleDateFormat(pattern));
+		}
+		return ret;
+	}
 }
@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.parsers.utils;
+
+import java.io.Serializable;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+/**
+ * Converts timestamps to epoch milliseconds using an ordered list of date formats.  It is safe to
+ * share between threads, so a parser holds a single instance however many threads run it.
+ *
+ * The formats are java.time patterns, parsed case insensitively in English and leniently, so that,
+ * as with SimpleDateFormat, numeric fields may be narrower than their pattern and 'z' also accepts
+ * offsets such as -0400.  A pattern without a year takes the current year, unless that puts the
+ * timestamp more than 4 days in the future, in which case the previous year.
+ *
+ * Each instance remembers the format that matched last and tries it first, and keeps the epoch of
+ * recently seen timestamps truncated to the second, so the many messages of a sensor stamped with
+ * the same second are converted without parsing them again.
+ */
+public class TimestampParser implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The number of recent timestamps remembered by each instance.
+   */
+  public static final int RECENT_SIZE = 1024;
+
+  private static final int MAX_FRACTION_DIGITS = 9;
+  private static final Pattern FRACTION_TAIL = Pattern.compile("s[.,]S+$");
+  private static final ConcurrentMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+  private final List<String> patterns;
+  private final ZoneId zone;
+  private final Clock clock;
+  private final transient DateTimeFormatter[] formatters;
+  private final transient boolean[] fractionTailed;
+  private final transient AtomicInteger lastMatched = new AtomicInteger();
+  private final transient AtomicReferenceArray<Recent> recent = new AtomicReferenceArray<>(RECENT_SIZE);
+
+  /**
+   * An epoch remembered for a timestamp, or for the part of it before its fraction of a second.
+   */
+  private static class Recent {
+    private final String text;
+    private final char separator;
+    private final long millis;
+
+    private Recent(String text, char separator, long millis) {
+      this.text = text;
+      this.separator = separator;
+      this.millis = millis;
+    }
+  }
+
+  /**
+   * @param patterns The date formats, in the order they should be tried
+   * @param zone The time zone of timestamps that do not state one
+   */
+  public TimestampParser(List<String> patterns, ZoneId zone) {
+    this(patterns, zone, Clock.systemUTC());
+  }
+
+  /**
+   * @param patterns The date formats, in the order they should be tried
+   * @param zone The time zone of timestamps that do not state one
+   * @param clock The clock giving the current year to timestamps that do not state one
+   */
+  public TimestampParser(List<String> patterns, ZoneId zone, Clock clock) {
+    if(patterns == null || patterns.isEmpty()) {
+      throw new IllegalArgumentException("At least one date format is required");
+    }
+    this.patterns = new ArrayList<>(patterns);
+    this.zone = zone;
+    this.clock = clock;
+    this.formatters = new DateTimeFormatter[patterns.size()];
+    this.fractionTailed = new boolean[patterns.size()];
+    for(int i = 0;i < formatters.length;++i) {
+      String pattern = this.patterns.get(i);
+      formatters[i] = FORMATTERS.computeIfAbsent(pattern, TimestampParser::compile).withZone(zone);
+      fractionTailed[i] = FRACTION_TAIL.matcher(pattern).find();
+    }
+  }
+
+  /**
+   * @param timestamp The timestamp
+   * @return The timestamp in milliseconds since the epoch
+   * @throws ParseException If none of the formats match the timestamp
+   */
+  public long parse(String timestamp) throws ParseException {
+    if(timestamp == null) {
+      throw new ParseException("Unable to parse a null timestamp", 0);
+    }
+    String text = timestamp.trim();
+    int fraction = fractionStart(text);
+    if(fraction > 0) {
+      Recent seen = recent(text.substring(0, fraction - 1));
+      if(seen != null && seen.separator == text.charAt(fraction - 1)) {
+        return seen.millis + fractionMillis(text, fraction);
+      }
+    }
+    Recent seen = recent(text);
+    if(seen != null && seen.separator == 0) {
+      return seen.millis;
+    }
+
+    int first = lastMatched.get();
+    for(int i = 0;i < formatters.length;++i) {
+      //the last format to match first, then the others in order
+      int index = i == 0 ? first : (i <= first ? i - 1 : i);
+      Long millis = parse(formatters[index], text);
+      if(millis != null) {
+        if(index != first) {
+          lastMatched.set(index);
+        }
+        if(fraction > 0 && fractionTailed[index]) {
+          remember(new Recent(text.substring(0, fraction - 1), text.charAt(fraction - 1), millis - fractionMillis(text, fraction)));
+        } else {
+          remember(new Recent(text, (char) 0, millis));
+        }
+        return millis;
+      }
+    }
+    throw new ParseException("Unable to parse '" + text + "' with any of the date formats " + patterns, 0);
+  }
+
+  public List<String> getPatterns() {
+    return patterns;
+  }
+
+  public ZoneId getZone() {
+    return zone;
+  }
+
+  private Long parse(DateTimeFormatter formatter, String text) {
+    //rejecting a timestamp that does not fit the format this way avoids throwing an exception
+    ParsePosition position = new ParsePosition(0);
+    if(formatter.parseUnresolved(text, position) == null || position.getIndex() != text.length()) {
+      return null;
+    }
+    try {
+      return toEpochMilli(formatter.parse(text));
+    } catch(DateTimeException e) {
+      return null;
+    }
+  }
+
+  private long toEpochMilli(TemporalAccessor parsed) {
+    if(parsed.isSupported(ChronoField.INSTANT_SECONDS)) {
+      return Instant.from(parsed).toEpochMilli();
+    }
+    ZoneId parsedZone = parsed.query(TemporalQueries.zone());
+    ZonedDateTime now = ZonedDateTime.now(clock).withZoneSameInstant(parsedZone);
+    LocalTime time = LocalTime.from(parsed);
+    int month = parsed.get(ChronoField.MONTH_OF_YEAR);
+    int day = parsed.get(ChronoField.DAY_OF_MONTH);
+    ZonedDateTime date = ZonedDateTime.of(LocalDate.of(now.getYear(), month, day), time, parsedZone);
+    if(date.isAfter(now.plusDays(4))) {
+      date = ZonedDateTime.of(LocalDate.of(now.getYear() - 1, month, day), time, parsedZone);
+    }
+    return date.toInstant().toEpochMilli();
+  }
+
+  private Recent recent(String text) {
+    Recent seen = recent.get(slot(text));
+    return seen != null && seen.text.equals(text) ? seen : null;
+  }
+
+  private void remember(Recent seen) {
+    recent.set(slot(seen.text), seen);
+  }
+
+  private static int slot(String text) {
+    int hash = text.hashCode();
+    return (hash ^ (hash >>> 16)) & (RECENT_SIZE - 1);
+  }
+
+  /**
+   * @return The index of the first digit of the fraction of a second ending the text, or -1 if it does not end in one
+   */
+  private static int fractionStart(String text) {
+    int start = text.length();
+    while(start > 0 && isDigit(text.charAt(start - 1))) {
+      start--;
+    }
+    int digits = text.length() - start;
+    if(digits == 0 || digits > MAX_FRACTION_DIGITS || start < 2) {
+      return -1;
+    }
+    char separator = text.charAt(start - 1);
+    return (separator == '.' || separator == ',') && isDigit(text.charAt(start - 2)) ? start : -1;
+  }
+
+  private static long fractionMillis(String text, int start) {
+    long millis = 0;
+    for(int i = start;i < start + 3;++i) {
+      millis = 10 * millis + (i < text.length() ? text.charAt(i) - '0' : 0);
+    }
+    return millis;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * SimpleDateFormat's 'z' accepts both zone names and offsets, so an unquoted run of 'z' becomes
+   * optional offsets, with or without a colon, followed by an optional zone name.  The offsets are
+   * parsed strictly, as leniently each would stop at the other's colon.
+   */
+  private static DateTimeFormatter compile(String pattern) {
+    DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .parseLenient();
+    boolean quoted = false;
+    int segment = 0;
+    for(int i = 0;i < pattern.length();++i) {
+      char c = pattern.charAt(i);
+      if(c == '\'') {
+        quoted = !quoted;
+      }
+      if(quoted || c != 'z') {
+        continue;
+      }
+      int end = i;
+      while(end < pattern.length() && pattern.charAt(end) == 'z') {
+        end++;
+      }
+      builder.appendPattern(pattern.substring(segment, i))
+             .parseStrict()
+             .optionalStart().appendOffset("+HH:MM", "+00:00").optionalEnd()
+             .optionalStart().appendOffset("+HHMM", "+0000").optionalEnd()
+             .parseLenient()
+             .optionalStart().appendPattern(pattern.substring(i, end)).optionalEnd();
+      segment = end;
+      i = end - 1;
+    }
+    return builder.appendPattern(pattern.substring(segment)).toFormatter(Locale.ENGLISH);
+  }
+
+  private Object readResolve() {
+    return new TimestampParser(patterns, zone, clock);
+  }
+}
@@ -588,6 +588,148 @@ public void testImplicitBatchOfOne() throws Exception {
 
   }
 
+  @Test
+  public void testMultipleSensorsRoutedByTopic() throws Exception {
+    RecordingWriter recordingWriter = new RecordingWriter();
+    WriterHandler writerHandler = new WriterHandler(recordingWriter);
+    Map<String, ParserComponents> sensorToComponents = new LinkedHashMap<>();
+    sensorToComponents.put("bro", new ParserComponents(createNamedParser("bro"), null, writerHandler));
+    sensorToComponents.put("snort", new ParserComponents(createNamedParser("snort"), null, writerHandler));
+    Map<String, SensorParserConfig> sensorToConfig = new HashMap<>();
+    SensorParserConfig broConfig = new SensorParserConfig();
+    broConfig.setSensorTopic("/bro_.*/");
+    sensorToConfig.put("bro", broConfig);
+    sensorToConfig.put("snort", new SensorParserConfig());
+    ParserBolt parserBolt = new ParserBolt("zookeeperUrl", sensorToComponents) {
+      @Override
+      protected ParserConfigurations defaultConfigurations() {
+        return new ParserConfigurations() {
+          @Override
+          public SensorParserConfig getSensorParserConfig(String sensorType) {
+            return sensorToConfig.get(sensorType);
+          }
+        };
+      }
+    };
+
+    parserBolt.setCuratorFramework(client);
+    parserBolt.setTreeCache(cache);
+    parserBolt.prepare(new HashMap(), topologyContext, outputCollector);
+    Assert.assertEquals("bro" + ParserBolt.SENSOR_TYPE_SEPARATOR + "snort", parserBolt.getSensorType());
+
+    when(t1.getBinary(0)).thenReturn(new byte[] {});
+    when(t1.getStringByField("topic")).thenReturn("bro_cust0");
+    when(t2.getBinary(0)).thenReturn(new byte[] {});
+    when(t2.getStringByField("topic")).thenReturn("snort");
+    when(t3.getBinary(0)).thenReturn(new byte[] {});
+    when(t3.getStringByField("topic")).thenReturn("yaf");
+    parserBolt.execute(t1);
+    parserBolt.execute(t2);
+    parserBolt.execute(t3);
+
+    List<JSONObject> records = recordingWriter.getRecords();
+    Assert.assertEquals(2, records.size());
+    Assert.assertEquals("bro", records.get(0).get(Constants.SENSOR_TYPE));
+    Assert.assertEquals("bro", records.get(0).get("parser"));
+    Assert.assertEquals("snort", records.get(1).get(Constants.SENSOR_TYPE));
+    Assert.assertEquals("snort", records.get(1).get("parser"));
+    verify(outputCollector, times(1)).ack(t1);
+    verify(outputCollector, times(1)).ack(t2);
+    verify(outputCollector, times(1)).ack(t3);
+    verify(outputCollector, times(1)).emit(eq(Constants.ERROR_STREAM), any());
+  }
+
+  @Test
+  public void testParallelParsingCompletesInOrder() throws Exception {
+    RecordingWriter recordingWriter = new RecordingWriter();
+    ParserBolt parserBolt = new ParserBolt("zookeeperUrl", "echo", createEchoParser(), new WriterHandler(recordingWriter)) {
+      @Override
+      protected ParserConfigurations defaultConfigurations() {
+        return new ParserConfigurations() {
+          @Override
+          public SensorParserConfig getSensorParserConfig(String sensorType) {
+            return new SensorParserConfig();
+          }
+        };
+      }
+    }.withParserThreads(4);
+    Assert.assertEquals(ParserBolt.TICK_FREQ_SECS, parserBolt.getComponentConfiguration().get(org.apache.storm.Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS));
+
+    parserBolt.setCuratorFramework(client);
+    parserBolt.setTreeCache(cache);
+    parserBolt.prepare(new HashMap(), topologyContext, outputCollector);
+
+    List<Tuple> tuples = new ArrayList<>();
+    for(int i = 0;i < 100;++i) {
+      Tuple t = mock(Tuple.class);
+      when(t.getBinary(0)).thenReturn(("message " + i).getBytes());
+      tuples.add(t);
+      parserBolt.execute(t);
+    }
+    Tuple tick = mock(Tuple.class);
+    when(tick.getSourceComponent()).thenReturn(org.apache.storm.Constants.SYSTEM_COMPONENT_ID);
+    when(tick.getSourceStreamId()).thenReturn(org.apache.storm.Constants.SYSTEM_TICK_STREAM_ID);
+    for(int i = 0;i < 100 && recordingWriter.getRecords().size() < tuples.size();++i) {
+      Thread.sleep(50);
+      parserBolt.execute(tick);
+    }
+    parserBolt.cleanup();
+
+    List<JSONObject> records = recordingWriter.getRecords();
+    Assert.assertEquals(tuples.size(), records.size());
+    for(int i = 0;i < tuples.size();++i) {
+      Assert.assertEquals("message " + i, records.get(i).get("value"));
+      verify(outputCollector, times(1)).ack(tuples.get(i));
+    }
+    verify(outputCollector, never()).ack(tick);
+  }
+
+  private static MessageParser<JSONObject> createEchoParser() {
+    return new BasicParser() {
+      @Override
+      public void init() {
+
+      }
+
+      @Override
+      public List<JSONObject> parse(byte[] rawMessage) {
+        return ImmutableList.of(new JSONObject() {{
+          put("value", new String(rawMessage));
+          put("timestamp", 1452013350000L);
+          put("original_string", "blah");
+        }});
+      }
+
+      @Override
+      public void configure(Map<String, Object> config) {
+
+      }
+    };
+  }
+
+  private static MessageParser<JSONObject> createNamedParser(String name) {
+    return new BasicParser() {
+      @Override
+      public void init() {
+
+      }
+
+      @Override
+      public List<JSONObject> parse(byte[] rawMessage) {
+        return ImmutableList.of(new JSONObject() {{
+          put("parser", name);
+          put("timestamp", 1452013350000L);
+          put("original_string", "blah");
+        }});
+      }
+
+      @Override
+      public void configure(Map<String, Object> config) {
+
+      }
+    };
+  }
+
   protected void buildGlobalConfig(ParserBolt parserBolt) {
     HashMap<String, Object> globalConfig = new HashMap<>();
     Map<String, Object> fieldValidation = new HashMap<>();
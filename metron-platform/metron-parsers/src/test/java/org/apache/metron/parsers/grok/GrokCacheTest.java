@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.grok;
+
+import java.util.Arrays;
+import oi.thekraken.grok.api.Match;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GrokCacheTest {
+
+  private String patterns;
+
+  @Before
+  public void setup() throws Exception {
+    GrokCache.INSTANCE.clear();
+    patterns = GrokCache.readDefinitions(getClass().getResourceAsStream("/patterns/syslog"));
+  }
+
+  @Test
+  public void compilesEachExpressionOnce() throws Exception {
+    CompiledGrok grok = GrokCache.INSTANCE.get(patterns, "%{SSH1}");
+    Assert.assertSame(grok, GrokCache.INSTANCE.get(new String(patterns), "%{SSH1}"));
+    Assert.assertNotSame(grok, GrokCache.INSTANCE.get(patterns, "%{SSH3}"));
+    Assert.assertEquals(2, GrokCache.INSTANCE.getStatistics().size());
+  }
+
+  @Test
+  public void skipsLinesMissingRequiredLiterals() throws Exception {
+    CompiledGrok grok = GrokCache.INSTANCE.get(patterns, "%{SSH1}");
+    Assert.assertTrue(grok.getRequiredLiterals().stream().anyMatch(literal -> literal.contains(" for ")));
+
+    Match match = grok.match("Disconnected from 172.24.4.1 port 50978");
+    Assert.assertTrue(match.isNull());
+    match = grok.match("Accepted publickey for centos from 172.24.4.1 port 43326 ssh2: RSA SHA256:abc");
+    Assert.assertFalse(match.isNull());
+    match.captures();
+    Assert.assertEquals("centos", match.toMap().get("user"));
+
+    Assert.assertEquals(2L, grok.getStatistics().get("attempts"));
+    Assert.assertEquals(1L, grok.getStatistics().get("filtered"));
+    Assert.assertEquals(1L, grok.getStatistics().get("matches"));
+  }
+
+  @Test
+  public void setTriesOnlyCandidatesInOrder() throws Exception {
+    CompiledGrok ssh1 = GrokCache.INSTANCE.get(patterns, "%{SSH1}");
+    CompiledGrok ssh3 = GrokCache.INSTANCE.get(patterns, "%{SSH3}");
+    CompiledGrok ssh6 = GrokCache.INSTANCE.get(patterns, "%{SSH6}");
+    GrokSet set = new GrokSet(Arrays.asList(ssh1, ssh6, ssh3));
+
+    Match match = set.match("Disconnected from 172.24.4.1 port 50978");
+    Assert.assertFalse(match.isNull());
+    match.captures();
+    Assert.assertEquals("Disconnected", match.toMap().get("action"));
+    Assert.assertEquals(1L, ssh1.getStatistics().get("filtered"));
+    Assert.assertEquals(1L, ssh6.getStatistics().get("filtered"));
+    Assert.assertEquals(1L, ssh3.getStatistics().get("matches"));
+
+    Assert.assertTrue(set.match("-- MARK --").isNull());
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.parsers.grok;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RegexLiteralsTest {
+
+  @Test
+  public void extractsMandatoryLiterals() {
+    Assert.assertEquals(Arrays.asList(" for ", " from ", " port "),
+            RegexLiterals.required("(?<name0>(?<name1>.*?) for (?<name2>.*?) from (?<name3>\\d+) port (?<name4>\\d+))"));
+    Assert.assertEquals(Arrays.asList("): session ", " for user "),
+            RegexLiterals.required("\\(.*?\\): session (?<action>\\w+) for user (?<user>.*?)$"));
+  }
+
+  @Test
+  public void ignoresOptionalAndAlternativeParts() {
+    Assert.assertEquals(Collections.singletonList("abc"), RegexLiterals.required("abc(?:def)?(?:ghi)*(?:jk|lm)"));
+    Assert.assertEquals(Collections.emptyList(), RegexLiterals.required("abc|def"));
+    Assert.assertEquals(Arrays.asList("ab", "ef"), RegexLiterals.required("abc?d*ef"));
+    Assert.assertEquals(Collections.singletonList("ab"), RegexLiterals.required("(?<![0-9])ab(?=cd)"));
+  }
+
+  @Test
+  public void handlesEscapesAndClasses() {
+    Assert.assertEquals(Collections.singletonList("a.b [preauth]"), RegexLiterals.required("a\\.b \\[preauth\\]\\s+"));
+    Assert.assertEquals(Arrays.asList("ab", "cd"), RegexLiterals.required("ab[^\\]x-z]cd"));
+    Assert.assertEquals(Arrays.asList("ab", "cd"), RegexLiterals.required("ab\\bcd"));
+  }
+
+  @Test
+  public void givesUpOnUnsupportedConstructs() {
+    Assert.assertEquals(Collections.emptyList(), RegexLiterals.required("(?i)abc"));
+    Assert.assertEquals(Collections.emptyList(), RegexLiterals.required("ab\\Qcd\\E"));
+  }
+
+  @Test
+  public void literalsOccurInEveryMatch() {
+    String regex = "^<(?<pri>\\b(?:[1-9][0-9]*)\\b)>(?<ts>\\w+ +\\d+ [0-9:]+) (?<host>\\S+) (?<prog>.*?)(?:\\[(?<pid>\\d+)\\])?: (?<msg>.*)$";
+    List<String> literals = RegexLiterals.required(regex);
+    Assert.assertFalse(literals.isEmpty());
+    Pattern pattern = Pattern.compile(regex);
+    for(String line : Arrays.asList( "<164>Nov 22 20:39:23 metron su: pam_unix(su:session): session closed for user root"
+                                   , "<162>Nov  2 20:39:23 metron sshd[7727]: Accepted publickey"
+                                   , "-- MARK --"
+                                   )) {
+      if(pattern.matcher(line).find()) {
+        for(String literal : literals) {
+          Assert.assertTrue(literal + " missing from " + line, line.contains(literal));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void automatonFindsKeywords() {
+    AhoCorasick automaton = new AhoCorasick(Arrays.asList("he", "she", "his", "hers", " port "));
+    BitSet expected = new BitSet();
+    expected.set(0);
+    expected.set(1);
+    expected.set(3);
+    expected.set(4);
+    Assert.assertEquals(expected, automaton.find("ushers at port 22"));
+    Assert.assertTrue(automaton.find("nothing to see").isEmpty());
+  }
+}
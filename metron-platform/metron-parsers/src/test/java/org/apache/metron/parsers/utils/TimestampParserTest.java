@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.metron.parsers.utils;
+
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimestampParserTest {
+
+  private static long epoch(int year, int month, int day, int hour, int minute, int second, int millis, ZoneId zone) {
+    return ZonedDateTime.of(year, month, day, hour, minute, second, millis * 1000000, zone).toInstant().toEpochMilli();
+  }
+
+  @Test
+  public void parsesWithTheFirstMatchingFormat() throws Exception {
+    TimestampParser parser = new TimestampParser(Arrays.asList("yyyy-MM-dd HH:mm:ss", "MM/dd/yyyy HH:mm:ss"), ZoneOffset.UTC);
+    Assert.assertEquals(epoch(2016, 1, 28, 15, 29, 48, 0, ZoneOffset.UTC), parser.parse("2016-01-28 15:29:48"));
+    Assert.assertEquals(epoch(2016, 1, 29, 15, 29, 48, 0, ZoneOffset.UTC), parser.parse("01/29/2016 15:29:48"));
+    //the last format to match is tried first, the others are still tried
+    Assert.assertEquals(epoch(2016, 1, 30, 15, 29, 48, 0, ZoneOffset.UTC), parser.parse("2016-01-30 15:29:48"));
+  }
+
+  @Test(expected = ParseException.class)
+  public void failsWhenNoFormatMatches() throws Exception {
+    new TimestampParser(Collections.singletonList("yyyy-MM-dd HH:mm:ss"), ZoneOffset.UTC).parse("not a timestamp");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void requiresAFormat() {
+    new TimestampParser(Collections.emptyList(), ZoneOffset.UTC);
+  }
+
+  @Test
+  public void parsesFractionsOfTheSameSecond() throws Exception {
+    TimestampParser parser = new TimestampParser(Collections.singletonList("yyyy-MM-dd HH:mm:ss.S"), ZoneOffset.UTC);
+    Assert.assertEquals(epoch(2016, 1, 28, 15, 29, 48, 512, ZoneOffset.UTC), parser.parse("2016-01-28 15:29:48.512"));
+    Assert.assertEquals(epoch(2016, 1, 28, 15, 29, 48, 513, ZoneOffset.UTC), parser.parse("2016-01-28 15:29:48.513"));
+    Assert.assertEquals(epoch(2016, 1, 28, 15, 29, 48, 900, ZoneOffset.UTC), parser.parse("2016-01-28 15:29:48.9"));
+    Assert.assertEquals(epoch(2016, 1, 28, 15, 29, 48, 123, ZoneOffset.UTC), parser.parse("2016-01-28 15:29:48.123456"));
+    Assert.assertEquals(epoch(2016, 1, 28, 15, 29, 49, 1, ZoneOffset.UTC), parser.parse("2016-01-28 15:29:49.001"));
+  }
+
+  @Test
+  public void acceptsZoneNamesAndOffsets() throws Exception {
+    TimestampParser parser = new TimestampParser(Collections.singletonList("MMM dd yyyy HH:mm:ss.SSS zzz"), ZoneOffset.UTC);
+    Assert.assertEquals(epoch(2016, 5, 1, 9, 29, 11, 356, ZoneOffset.ofHours(-4)), parser.parse("May 1 2016 09:29:11.356 -0400"));
+    Assert.assertEquals(epoch(2016, 5, 1, 9, 29, 11, 356, ZoneOffset.ofHours(-4)), parser.parse("May 1 2016 09:29:11.356 -04:00"));
+    Assert.assertEquals(epoch(2015, 2, 9, 0, 27, 43, 0, ZoneOffset.UTC), parser.parse("feb 09 2015 00:27:43.000 UTC"));
+  }
+
+  @Test
+  public void usesTheZoneWhenNoneIsGiven() throws Exception {
+    ZoneId zone = ZoneId.of("America/New_York");
+    TimestampParser parser = new TimestampParser(Collections.singletonList("yyyy-MM-dd HH:mm:ss"), zone);
+    Assert.assertEquals(epoch(2016, 7, 4, 12, 0, 0, 0, zone), parser.parse("2016-07-04 12:00:00"));
+  }
+
+  @Test
+  public void derivesMissingYears() throws Exception {
+    ZonedDateTime now = ZonedDateTime.of(2016, 10, 8, 18, 30, 30, 0, ZoneOffset.UTC);
+    Clock clock = Clock.fixed(now.toInstant(), ZoneOffset.UTC);
+    TimestampParser parser = new TimestampParser(Collections.singletonList("MMM dd HH:mm:ss"), ZoneOffset.UTC, clock);
+    //less than 4 days ahead of the clock is this year
+    Assert.assertEquals(epoch(2016, 10, 9, 13, 42, 11, 0, ZoneOffset.UTC), parser.parse("Oct 09 13:42:11"));
+    //more than 4 days ahead of the clock is last year
+    Assert.assertEquals(epoch(2015, 10, 19, 13, 42, 11, 0, ZoneOffset.UTC), parser.parse("Oct 19 13:42:11"));
+  }
+
+  @Test
+  public void isSafeToShareBetweenThreads() throws Exception {
+    final TimestampParser parser = new TimestampParser(Arrays.asList("yyyy-MM-dd'T'HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss.SSS"), ZoneOffset.UTC);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for(int t = 0;t < 4;++t) {
+        final String separator = t % 2 == 0 ? "T" : " ";
+        results.add(executor.submit(() -> {
+          for(int i = 0;i < 10000;++i) {
+            int second = i % 60;
+            int millis = i % 1000;
+            String timestamp = String.format("2016-01-28%s15:29:%02d.%03d", separator, second, millis);
+            if(parser.parse(timestamp) != epoch(2016, 1, 28, 15, 29, second, millis, ZoneOffset.UTC)) {
+              return false;
+            }
+          }
+          return true;
+        }));
+      }
+      for(Future<Boolean> result : results) {
+        Assert.assertTrue(result.get());
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -18,18 +18,16 @@
 
 package org.apache.metron.stellar.common;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.TokenStream;
 
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.metron.stellar.common.cache.ExpressionCache;
+import org.apache.metron.stellar.common.cache.ExpressionCaches;
+import org.apache.metron.stellar.common.cache.GuavaExpressionCache;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.Context.ActivityType;
 import org.apache.metron.stellar.dsl.DefaultVariableResolver;
@@ -58,53 +56,62 @@ public class BaseStellarProcessor<T> {
   public static final int DEFAULT_EXPIRY_TIME = 10;
   public static final TimeUnit DEFAULT_EXPIRY_TIME_UNITS = TimeUnit.MINUTES;
 
-  /**
-   * The default expression cache.  This is used when the expression cache is not otherwise specified.
-   */
-  private static Cache<String, StellarCompiler.Expression> defaultExpressionCache;
-  static {
-    defaultExpressionCache = createCache(DEFAULT_CACHE_SIZE, DEFAULT_EXPIRY_TIME, DEFAULT_EXPIRY_TIME_UNITS);
-  }
   /**
    * The class containing the type that the Stellar expression being processed will evaluate to.
    */
   private Class<T> clazz;
 
   /**
-   * @param clazz The class containing the type that the Stellar expression being processed will evaluate to.
+   * The expression cache of this processor, or null if it uses the shared expression cache.
+   */
+  private final ExpressionCache expressionCache;
+
+  /**
+   * Whether expressions are evaluated by the interpreter or by their compiled form.
    */
-  Cache<String, StellarCompiler.Expression> expressionCache;
+  private StellarEvaluationMode evaluationMode = StellarEvaluationMode.getDefault();
 
   /**
-   * Create a default stellar processor.  This processor uses the static expression cache.
+   * Create a default stellar processor.  This processor uses the shared expression cache.
+   *
+   * @see ExpressionCaches#getShared()
    */
   BaseStellarProcessor(final Class<T> clazz) {
-    this(clazz, defaultExpressionCache);
+    this(clazz, (ExpressionCache) null);
   }
 
   BaseStellarProcessor(final Class<T> clazz, int cacheSize, int expiryTime, TimeUnit expiryUnit) {
-    this(clazz, createCache(cacheSize, expiryTime, expiryUnit));
+    this(clazz, new GuavaExpressionCache(cacheSize, expiryTime, expiryUnit));
   }
 
-  BaseStellarProcessor(final Class<T> clazz, Cache<String, StellarCompiler.Expression> expressionCache) {
+  /**
+   * @param clazz The class containing the type that the Stellar expression being processed will evaluate to.
+   * @param expressionCache The expression cache, or null to use the shared expression cache.
+   */
+  BaseStellarProcessor(final Class<T> clazz, ExpressionCache expressionCache) {
     this.clazz = clazz;
     this.expressionCache = expressionCache;
   }
 
-  static Cache<String, StellarCompiler.Expression> createCache( int cacheSize
-                                                       , int expiryTime
-                                                       , TimeUnit expiryUnit
-                                                       ) {
-    CacheLoader<String, StellarCompiler.Expression> loader = new CacheLoader<String, StellarCompiler.Expression>() {
-      @Override
-      public StellarCompiler.Expression load(String key) throws Exception {
-        return compile(key);
-      }
-    };
-    return CacheBuilder.newBuilder()
-                       .maximumSize(cacheSize)
-                       .expireAfterAccess(expiryTime, expiryUnit)
-                       .build(loader);
+  /**
+   * @return The cache of compiled expressions used by this processor.
+   */
+  public ExpressionCache getExpressionCache() {
+    return expressionCache == null ? ExpressionCaches.getShared() : expressionCache;
+  }
+
+  /**
+   * @return How this processor evaluates Stellar expressions.
+   */
+  public StellarEvaluationMode getEvaluationMode() {
+    return evaluationMode;
+  }
+
+  /**
+   * @param evaluationMode How this processor should evaluate Stellar expressions.
+   */
+  public void setEvaluationMode(StellarEvaluationMode evaluationMode) {
+    this.evaluationMode = evaluationMode;
   }
 
   /**
@@ -117,12 +124,7 @@ public class BaseStellarProcessor<T> {
     if (rule == null || isEmpty(rule.trim())) {
       return null;
     }
-    StellarCompiler.Expression expression = null;
-    try {
-      expression = expressionCache.get(rule, () -> compile(rule));
-    } catch (ExecutionException e) {
-      throw new ParseException("Unable to parse: " + rule + " due to: " + e.getMessage(), e);
-    }
+    StellarCompiler.Expression expression = getExpressionCache().get(rule);
     return expression.variablesUsed;
   }
 
@@ -142,14 +144,13 @@ public class BaseStellarProcessor<T> {
     if(context.getActivityType() == null) {
       context.setActivityType(ActivityType.PARSE_ACTIVITY);
     }
+    expression = getExpressionCache().get(rule);
     try {
-      expression = expressionCache.get(rule, () -> compile(rule));
-    } catch (ExecutionException|UncheckedExecutionException e) {
-      throw new ParseException("Unable to parse: " + rule + " due to: " + e.getMessage(), e);
-    }
-    try {
-      return clazz.cast(expression
-          .apply(new StellarCompiler.ExpressionState(context, functionResolver, variableResolver)));
+      StellarCompiler.ExpressionState state = new StellarCompiler.ExpressionState(context, functionResolver, variableResolver);
+      if (evaluationMode == StellarEvaluationMode.COMPILED) {
+        return clazz.cast(expression.applyCompiled(state));
+      }
+      return clazz.cast(expression.apply(state));
     }finally {
         // always reset the activity type
         context.setActivityType(null);
@@ -166,23 +167,40 @@ public class BaseStellarProcessor<T> {
       return null;
     }
 
-    ANTLRInputStream input = new ANTLRInputStream(rule);
-    StellarLexer lexer = new StellarLexer(input);
-    lexer.removeErrorListeners();
-    lexer.addErrorListener(new ErrorListener());
-    TokenStream tokens = new CommonTokenStream(lexer);
-    StellarParser parser = new StellarParser(tokens);
-
+    StellarParser parser = createParser(rule);
     StellarCompiler treeBuilder = new StellarCompiler(
         ArithmeticEvaluator.INSTANCE,
         NumberLiteralEvaluator.INSTANCE,
         ComparisonExpressionWithOperatorEvaluator.INSTANCE
     );
     parser.addParseListener(treeBuilder);
+    StellarParser.TransformationContext tree = parser.transformation();
+    StellarCompiler.Expression expression = treeBuilder.getExpression();
+    expression.source = rule;
+    expression.setCompiledRoot(StellarTreeCompiler.tryCompile(tree));
+    return expression;
+  }
+
+  /**
+   * Compiles the given Stellar expression, {@code rule}, into a tree of evaluation nodes.  This is
+   * only needed for an expression that was deserialized, as its evaluation nodes are not serialized.
+   * @param rule The Stellar expression to compile.
+   * @return The root evaluation node or null if the expression cannot be compiled.
+   */
+  static StellarTreeCompiler.Node compileTree(final String rule) {
+    return StellarTreeCompiler.tryCompile(createParser(rule).transformation());
+  }
+
+  private static StellarParser createParser(final String rule) {
+    ANTLRInputStream input = new ANTLRInputStream(rule);
+    StellarLexer lexer = new StellarLexer(input);
+    lexer.removeErrorListeners();
+    lexer.addErrorListener(new ErrorListener());
+    TokenStream tokens = new CommonTokenStream(lexer);
+    StellarParser parser = new StellarParser(tokens);
     parser.removeErrorListeners();
     parser.addErrorListener(new ErrorListener());
-    parser.transformation();
-    return treeBuilder.getExpression();
+    return parser;
   }
 
   /**
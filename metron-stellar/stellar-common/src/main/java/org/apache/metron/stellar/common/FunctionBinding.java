@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import org.apache.metron.stellar.dsl.Stellar;
+import org.apache.metron.stellar.dsl.StellarFunction;
+import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A call site of a Stellar function.  The function is resolved the first time the call site is
+ * evaluated and is then reused for as long as it is evaluated with the same {@link FunctionResolver},
+ * rather than being resolved on every call.
+ *
+ * <p>When a function is marked as {@link Stellar#deterministic()} and its arguments are constant, the
+ * result of the first call is also reused.
+ */
+class FunctionBinding implements Serializable {
+  private static final Object UNCOMPUTED = new Object();
+
+  private final String name;
+  private final boolean constantArgs;
+  private transient volatile Bound bound;
+
+  /**
+   * A function bound to the resolver that it was resolved with.
+   */
+  private static class Bound {
+    private final FunctionResolver resolver;
+    private final StellarFunction function;
+    private final boolean memoize;
+    private volatile Object result = UNCOMPUTED;
+
+    Bound(FunctionResolver resolver, StellarFunction function, boolean memoize) {
+      this.resolver = resolver;
+      this.function = function;
+      this.memoize = memoize;
+    }
+  }
+
+  /**
+   * @param name The name of the function.
+   * @param constantArgs True if the arguments of the function are the same on every call.
+   */
+  FunctionBinding(String name, boolean constantArgs) {
+    this.name = name;
+    this.constantArgs = constantArgs;
+  }
+
+  /**
+   * Resolves, initializes and applies the function.
+   * @param args The arguments of the function.
+   * @param state The state of the evaluation.
+   * @return The result of the function.
+   */
+  Object apply(List<Object> args, StellarCompiler.ExpressionState state) {
+    Bound b = bind(state.functionResolver);
+    if (b.memoize) {
+      Object result = b.result;
+      if (result != UNCOMPUTED) {
+        return result;
+      }
+    }
+    StellarCompiler.initializeFunction(state.context, b.function, name);
+    Object result = b.function.apply(args, state.context);
+    if (b.memoize && isImmutable(result)) {
+      b.result = result;
+    }
+    return result;
+  }
+
+  private Bound bind(FunctionResolver functionResolver) {
+    Bound b = bound;
+    if (b == null || b.resolver != functionResolver) {
+      StellarFunction function = StellarCompiler.resolveFunction(functionResolver, name);
+      b = new Bound(functionResolver, function, constantArgs && isDeterministic(function));
+      bound = b;
+    }
+    return b;
+  }
+
+  /**
+   * @param function The function.
+   * @return True if the function is marked as deterministic.
+   */
+  static boolean isDeterministic(StellarFunction function) {
+    Stellar annotation = function.getClass().getAnnotation(Stellar.class);
+    return annotation != null && annotation.deterministic();
+  }
+
+  /**
+   * @param value A value.
+   * @return True if the value can be shared between evaluations without being copied.
+   */
+  static boolean isImmutable(Object value) {
+    return value == null
+        || value instanceof String
+        || value instanceof Number
+        || value instanceof Boolean
+        || value instanceof Character;
+  }
+}
@@ -76,6 +76,14 @@ public class StellarCompiler extends StellarBaseListener {
     final Deque<Token<?>> tokenDeque;
     final Deque<FrameContext.Context> multiArgumentState;
     final Set<String> variablesUsed;
+    /**
+     * The source of the expression.  The evaluation nodes are built from the parse tree when the
+     * expression is parsed, but are not serialized, so a deserialized expression is compiled again from
+     * its source the first time it is evaluated in {@link StellarEvaluationMode#COMPILED} mode.
+     */
+    String source;
+    transient volatile StellarTreeCompiler.Node compiledRoot;
+    private transient volatile boolean compileAttempted;
     public Expression(Deque<Token<?>> tokenDeque) {
       this.tokenDeque = tokenDeque;
       this.variablesUsed = new HashSet<>();
@@ -86,12 +94,60 @@ public class StellarCompiler extends StellarBaseListener {
       tokenDeque.clear();
       variablesUsed.clear();
       multiArgumentState.clear();
+      source = null;
+      compiledRoot = null;
+      compileAttempted = false;
+    }
+
+    /**
+     * Sets the evaluation nodes that were compiled from the parse tree of this expression.
+     * @param root The root evaluation node or null if the expression cannot be compiled.
+     */
+    void setCompiledRoot(StellarTreeCompiler.Node root) {
+      compiledRoot = root;
+      compileAttempted = true;
     }
 
     public Deque<Token<?>> getTokenDeque() {
       return tokenDeque;
     }
 
+    /**
+     * @return True if this expression was also compiled into a tree of evaluation nodes, false if only the
+     * interpreter is able to evaluate it.
+     */
+    public boolean isCompiled() {
+      return compiled() != null;
+    }
+
+    /**
+     * @return The compiled evaluation nodes, compiling them if this has not been attempted yet, or null
+     * if the expression cannot be compiled.
+     */
+    private StellarTreeCompiler.Node compiled() {
+      if (!compileAttempted) {
+        if (compiledRoot == null && source != null) {
+          compiledRoot = BaseStellarProcessor.compileTree(source);
+        }
+        compileAttempted = true;
+      }
+      return compiledRoot;
+    }
+
+    /**
+     * Evaluates the expression using the compiled evaluation nodes, falling back to the interpreter
+     * if the expression could not be compiled.
+     * @param state The state to evaluate the expression against.
+     * @return The value of the expression.
+     */
+    public Object applyCompiled(ExpressionState state) {
+      StellarTreeCompiler.Node root = compiled();
+      if (root == null) {
+        return apply(state);
+      }
+      return root.apply(state);
+    }
+
     public Object apply(ExpressionState state) {
       Deque<Token<?>> instanceDeque = new ArrayDeque<>();
       {
@@ -224,25 +280,26 @@ public class StellarCompiler extends StellarBaseListener {
   }
 
   private boolean handleIn(final Token<?> left, final Token<?> right) {
-    Object key = right.getValue();
-
+    return handleIn(left.getValue(), right.getValue());
+  }
 
-    if (left.getValue() != null) {
-      if (left.getValue() instanceof String && key instanceof String) {
-        return ((String) left.getValue()).contains(key.toString());
+  static boolean handleIn(final Object container, final Object key) {
+    if (container != null) {
+      if (container instanceof String && key instanceof String) {
+        return ((String) container).contains(key.toString());
       }
-      else if (left.getValue() instanceof Collection) {
-        return ((Collection) left.getValue()).contains(key);
+      else if (container instanceof Collection) {
+        return ((Collection) container).contains(key);
       }
-      else if (left.getValue() instanceof Map) {
-        return ((Map) left.getValue()).containsKey(key);
+      else if (container instanceof Map) {
+        return ((Map) container).containsKey(key);
       }
       else {
         if (key == null) {
-          return key == left.getValue();
+          return key == container;
         }
         else {
-          return key.equals(left.getValue());
+          return key.equals(container);
         }
       }
     } else {
@@ -457,10 +514,14 @@ public class StellarCompiler extends StellarBaseListener {
   }
 
   private boolean booleanOp(final Token<?> left, final Token<?> right, final BooleanOp op, final String opName) {
-    Boolean l = ConversionUtils.convert(left.getValue(), Boolean.class);
-    Boolean r = ConversionUtils.convert(right.getValue(), Boolean.class);
+    return booleanOp(left.getValue(), right.getValue(), op, opName);
+  }
+
+  static boolean booleanOp(final Object left, final Object right, final BooleanOp op, final String opName) {
+    Boolean l = ConversionUtils.convert(left, Boolean.class);
+    Boolean r = ConversionUtils.convert(right, Boolean.class);
     if (l == null || r == null) {
-      throw new ParseException("Unable to operate on " + left.getValue() + " " + opName + " " + right.getValue() + ", null value");
+      throw new ParseException("Unable to operate on " + left + " " + opName + " " + right + ", null value");
     }
     return op.op(l, r);
   }
@@ -545,15 +606,12 @@ public class StellarCompiler extends StellarBaseListener {
   @Override
   public void exitTransformationFunc(StellarParser.TransformationFuncContext ctx) {
     final FrameContext.Context context = getArgContext();
+    // the function is resolved once per call site rather than on every call
+    final FunctionBinding binding = new FunctionBinding(ctx.getChild(0).getText(), false);
     expression.tokenDeque.push(new Token<>( (tokenDeque, state) -> {
-      // resolve and initialize the function
-      String functionName = ctx.getChild(0).getText();
-      StellarFunction function = resolveFunction(state.functionResolver, functionName);
-      initializeFunction(state.context, function, functionName);
-
       // fetch the args, execute, and push result onto the stack
       List<Object> args = getFunctionArguments(popDeque(tokenDeque));
-      Object result = function.apply(args, state.context);
+      Object result = binding.apply(args, state);
       tokenDeque.push(new Token<>(result, Object.class, context));
     }, DeferredFunction.class, context));
   }
@@ -578,7 +636,7 @@ public class StellarCompiler extends StellarBaseListener {
    * @param funcName
    * @return
    */
-  private StellarFunction resolveFunction(FunctionResolver functionResolver, String funcName) {
+  static StellarFunction resolveFunction(FunctionResolver functionResolver, String funcName) {
     try {
       return functionResolver.apply(funcName);
 
@@ -594,7 +652,7 @@ public class StellarCompiler extends StellarBaseListener {
    * @param function The function to initialize.
    * @param functionName The name of the functions.
    */
-  private void initializeFunction(Context context, StellarFunction function, String functionName) {
+  static void initializeFunction(Context context, StellarFunction function, String functionName) {
     try {
       if (!function.isInitialized()) {
         function.initialize(context);
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+/**
+ * How a {@link BaseStellarProcessor} evaluates a parsed Stellar expression.
+ */
+public enum StellarEvaluationMode {
+  /**
+   * Replay the expression's token deque through the interpreter.
+   */
+  INTERPRETED,
+  /**
+   * Evaluate the tree of nodes built by the {@link StellarTreeCompiler}.  Expressions that
+   * could not be compiled are evaluated by the interpreter.
+   */
+  COMPILED;
+
+  /**
+   * The system property used to choose the evaluation mode of processors that do not specify one.
+   */
+  public static final String SYSTEM_PROPERTY = "stellar.evaluation.mode";
+
+  /**
+   * @return The evaluation mode specified by the {@link #SYSTEM_PROPERTY} system property, or
+   * {@link #INTERPRETED} if it is not set.
+   */
+  public static StellarEvaluationMode getDefault() {
+    String mode = System.getProperty(SYSTEM_PROPERTY);
+    if (mode == null || mode.trim().isEmpty()) {
+      return INTERPRETED;
+    }
+    return StellarEvaluationMode.valueOf(mode.trim().toUpperCase());
+  }
+}
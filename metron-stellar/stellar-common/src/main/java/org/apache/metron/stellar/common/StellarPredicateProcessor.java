@@ -19,6 +19,7 @@
 package org.apache.metron.stellar.common;
 
 
+import org.apache.metron.stellar.common.cache.ExpressionCache;
 import org.apache.metron.stellar.dsl.Context;
 import org.apache.metron.stellar.dsl.functions.resolver.FunctionResolver;
 import org.apache.metron.stellar.dsl.VariableResolver;
@@ -37,7 +38,7 @@ import static org.apache.commons.lang3.StringUtils.isEmpty;
 public class StellarPredicateProcessor extends BaseStellarProcessor<Boolean> {
 
   /**
-   * Create a default stellar processor.  This processor uses the static expression cache.
+   * Create a default stellar processor.  This processor uses the shared expression cache.
    */
   public StellarPredicateProcessor() {
     super(Boolean.class);
@@ -46,6 +47,15 @@ public class StellarPredicateProcessor extends BaseStellarProcessor<Boolean> {
   public StellarPredicateProcessor(int cacheSize, int expiryTime, TimeUnit expiryUnit) {
     super(Boolean.class, cacheSize, expiryTime, expiryUnit);
   }
+
+  /**
+   * Create a stellar processor backed by the given expression cache.
+   * @param expressionCache
+   */
+  public StellarPredicateProcessor(ExpressionCache expressionCache) {
+    super(Boolean.class, expressionCache);
+  }
+
   @Override
   public Boolean parse( String rule
                       , VariableResolver variableResolver
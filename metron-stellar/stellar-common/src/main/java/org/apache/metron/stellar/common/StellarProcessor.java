@@ -18,6 +18,8 @@
 
 package org.apache.metron.stellar.common;
 
+import org.apache.metron.stellar.common.cache.ExpressionCache;
+
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -30,7 +32,7 @@ import java.util.concurrent.TimeUnit;
 public class StellarProcessor extends BaseStellarProcessor<Object> {
 
   /**
-   * Create a default stellar processor.  This processor uses the static expression cache.
+   * Create a default stellar processor.  This processor uses the shared expression cache.
    */
   public StellarProcessor() {
     super(Object.class);
@@ -46,4 +48,12 @@ public class StellarProcessor extends BaseStellarProcessor<Object> {
   public StellarProcessor(int cacheSize, int expiryTime, TimeUnit expiryUnit) {
     super(Object.class, cacheSize, expiryTime, expiryUnit);
   }
+
+  /**
+   * Create a stellar processor backed by the given expression cache.
+   * @param expressionCache
+   */
+  public StellarProcessor(ExpressionCache expressionCache) {
+    super(Object.class, expressionCache);
+  }
 }
@@ -0,0 +1,711 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.apache.metron.stellar.common.evaluators.ComparisonExpressionWithOperatorEvaluator;
+import org.apache.metron.stellar.common.evaluators.NumberLiteralEvaluator;
+import org.antlr.v4.runtime.CommonToken;
+import org.apache.metron.stellar.common.generated.StellarParser;
+import org.apache.metron.stellar.dsl.Context.ActivityType;
+import org.apache.metron.stellar.dsl.ParseException;
+import org.apache.metron.stellar.dsl.Token;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles a Stellar parse tree into a tree of evaluation nodes.
+ *
+ * <p>The interpreter in {@link StellarCompiler.Expression} replays a deque of tokens through a fresh stack
+ * on every evaluation.  The nodes produced here call each other directly instead, so an evaluation
+ * does not allocate any tokens, short circuits by simply not evaluating a branch, performs arithmetic
+ * on primitives and binds a function to its resolver once rather than on every call.
+ *
+ * <p>Subexpressions whose operands are all constant, like {@code 60 * 60 * 24}, are folded into a
+ * constant when they are compiled.  A call to a function marked as {@link org.apache.metron.stellar.dsl.Stellar#deterministic()}
+ * with constant arguments is evaluated once per function resolver.  Membership in a list of constants
+ * is tested with a hash set.
+ *
+ * <p>The nodes must evaluate to exactly what the interpreter evaluates to.  Any construct
+ * that cannot be compiled leaves the expression uncompiled, in which case the interpreter is used.
+ */
+public class StellarTreeCompiler {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /**
+   * A compiled node of a Stellar expression.
+   */
+  public interface Node extends Serializable {
+    Object apply(StellarCompiler.ExpressionState state);
+  }
+
+  private StellarTreeCompiler() {}
+
+  /**
+   * Compiles a parsed Stellar expression.
+   * @param ctx The parsed Stellar expression.
+   * @return The root evaluation node or null if the expression cannot be compiled.
+   */
+  public static Node tryCompile(StellarParser.TransformationContext ctx) {
+    try {
+      return compile(ctx.transformation_expr());
+    } catch (Throwable t) {
+      LOG.debug("Unable to compile {}, falling back to the interpreter: {}", ctx.getText(), t.getMessage());
+      return null;
+    }
+  }
+
+  private static Node compile(StellarParser.Transformation_exprContext ctx) {
+    if (ctx instanceof StellarParser.ConditionalExprContext) {
+      return compile(((StellarParser.ConditionalExprContext) ctx).conditional_expr());
+    } else if (ctx instanceof StellarParser.TransformationExprContext) {
+      return compile(((StellarParser.TransformationExprContext) ctx).transformation_expr());
+    } else if (ctx instanceof StellarParser.ArithExpressionContext) {
+      return compile(((StellarParser.ArithExpressionContext) ctx).arithmetic_expr());
+    } else if (ctx instanceof StellarParser.TransformationEntityContext) {
+      return compile(((StellarParser.TransformationEntityContext) ctx).transformation_entity().identifier_operand());
+    } else if (ctx instanceof StellarParser.ComparisonExpressionContext) {
+      return compile(((StellarParser.ComparisonExpressionContext) ctx).comparison_expr());
+    } else if (ctx instanceof StellarParser.LogicalExpressionContext) {
+      return compile(((StellarParser.LogicalExpressionContext) ctx).logical_expr());
+    } else if (ctx instanceof StellarParser.InExpressionContext) {
+      return compile(((StellarParser.InExpressionContext) ctx).in_expr());
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.Conditional_exprContext ctx) {
+    if (ctx instanceof StellarParser.TernaryFuncWithoutIfContext) {
+      StellarParser.TernaryFuncWithoutIfContext ternary = (StellarParser.TernaryFuncWithoutIfContext) ctx;
+      return conditional(compile(ternary.if_expr().logical_expr())
+                        , compile(ternary.then_expr().transformation_expr())
+                        , compile(ternary.else_expr().transformation_expr())
+                        );
+    } else if (ctx instanceof StellarParser.TernaryFuncWithIfContext) {
+      StellarParser.TernaryFuncWithIfContext ternary = (StellarParser.TernaryFuncWithIfContext) ctx;
+      return conditional(compile(ternary.if_expr().logical_expr())
+                        , compile(ternary.then_expr().transformation_expr())
+                        , compile(ternary.else_expr().transformation_expr())
+                        );
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.Logical_exprContext ctx) {
+    if (ctx instanceof StellarParser.LogicalExpressionAndContext) {
+      StellarParser.LogicalExpressionAndContext and = (StellarParser.LogicalExpressionAndContext) ctx;
+      return logical(compile(and.b_expr()), compile(and.logical_expr()), false);
+    } else if (ctx instanceof StellarParser.LogicalExpressionOrContext) {
+      StellarParser.LogicalExpressionOrContext or = (StellarParser.LogicalExpressionOrContext) ctx;
+      return logical(compile(or.b_expr()), compile(or.logical_expr()), true);
+    } else if (ctx instanceof StellarParser.BoleanExpressionContext) {
+      return compile(((StellarParser.BoleanExpressionContext) ctx).b_expr());
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.B_exprContext ctx) {
+    if (ctx.comparison_expr() != null) {
+      return compile(ctx.comparison_expr());
+    } else if (ctx.in_expr() != null) {
+      return compile(ctx.in_expr());
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.In_exprContext ctx) {
+    if (ctx instanceof StellarParser.InExpressionStatementContext) {
+      StellarParser.InExpressionStatementContext in = (StellarParser.InExpressionStatementContext) ctx;
+      return in(compile(in.identifier_operand()), compile(in.b_expr()), false);
+    } else if (ctx instanceof StellarParser.NInExpressionStatementContext) {
+      StellarParser.NInExpressionStatementContext nin = (StellarParser.NInExpressionStatementContext) ctx;
+      return in(compile(nin.identifier_operand()), compile(nin.b_expr()), true);
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.Comparison_exprContext ctx) {
+    if (ctx instanceof StellarParser.ComparisonExpressionWithOperatorContext) {
+      StellarParser.ComparisonExpressionWithOperatorContext comparison = (StellarParser.ComparisonExpressionWithOperatorContext) ctx;
+      Node left = compile(comparison.comparison_expr(0));
+      Node right = compile(comparison.comparison_expr(1));
+      return fold(new ComparisonNode(left, right, (StellarParser.ComparisonOpContext) comparison.comp_operator())
+                 , left, right
+                 );
+    } else if (ctx instanceof StellarParser.NotFuncContext) {
+      Node arg = compile(((StellarParser.NotFuncContext) ctx).logical_expr());
+      return fold(new NotNode(arg), arg);
+    } else if (ctx instanceof StellarParser.ComparisonExpressionParensContext) {
+      return compile(((StellarParser.ComparisonExpressionParensContext) ctx).logical_expr());
+    } else if (ctx instanceof StellarParser.OperandContext) {
+      return compile(((StellarParser.OperandContext) ctx).identifier_operand());
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.Identifier_operandContext ctx) {
+    if (ctx instanceof StellarParser.LogicalConstContext) {
+      switch (ctx.getText().toUpperCase()) {
+        case "TRUE":
+          return new ConstantNode(true);
+        case "FALSE":
+          return new ConstantNode(false);
+        default:
+          throw new ParseException("Unable to process " + ctx.getText() + " as a boolean constant");
+      }
+    } else if (ctx instanceof StellarParser.LambdaWithArgsExprContext) {
+      StellarParser.Lambda_with_argsContext lambda = ((StellarParser.LambdaWithArgsExprContext) ctx).lambda_with_args();
+      List<String> variables = new ArrayList<>();
+      if (lambda.single_lambda_variable() != null) {
+        variables.add(lambda.single_lambda_variable().lambda_variable().getText());
+      } else {
+        for (StellarParser.Lambda_variableContext variable : lambda.lambda_variables().lambda_variable()) {
+          variables.add(variable.getText());
+        }
+      }
+      return new LambdaNode(variables, compile(lambda.transformation_expr()));
+    } else if (ctx instanceof StellarParser.LambdaWithoutArgsExprContext) {
+      StellarParser.Lambda_without_argsContext lambda = ((StellarParser.LambdaWithoutArgsExprContext) ctx).lambda_without_args();
+      return new LambdaNode(new ArrayList<>(), compile(lambda.transformation_expr()));
+    } else if (ctx instanceof StellarParser.ArithmeticOperandsContext) {
+      return compile(((StellarParser.ArithmeticOperandsContext) ctx).arithmetic_expr());
+    } else if (ctx instanceof StellarParser.StringLiteralContext) {
+      String literal = StringEscapeUtils.UNESCAPE_JSON.translate(ctx.getText());
+      return new ConstantNode(literal.substring(1, literal.length() - 1));
+    } else if (ctx instanceof StellarParser.ListContext) {
+      return new ListNode(compile(((StellarParser.ListContext) ctx).list_entity().op_list()));
+    } else if (ctx instanceof StellarParser.MapConstContext) {
+      return compile(((StellarParser.MapConstContext) ctx).map_entity());
+    } else if (ctx instanceof StellarParser.NullConstContext) {
+      return new ConstantNode(null);
+    } else if (ctx instanceof StellarParser.ExistsFuncContext) {
+      return new ExistsNode(((StellarParser.ExistsFuncContext) ctx).IDENTIFIER().getText());
+    } else if (ctx instanceof StellarParser.CondExpr_parenContext) {
+      return compile(((StellarParser.CondExpr_parenContext) ctx).conditional_expr());
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.Arithmetic_exprContext ctx) {
+    if (ctx instanceof StellarParser.ArithExpr_soloContext) {
+      return compile(((StellarParser.ArithExpr_soloContext) ctx).arithmetic_expr_mul());
+    } else if (ctx instanceof StellarParser.ArithExpr_plusContext) {
+      StellarParser.ArithExpr_plusContext plus = (StellarParser.ArithExpr_plusContext) ctx;
+      return arithmetic(compile(plus.arithmetic_expr()), compile(plus.arithmetic_expr_mul()), ArithmeticOp.ADD);
+    } else if (ctx instanceof StellarParser.ArithExpr_minusContext) {
+      StellarParser.ArithExpr_minusContext minus = (StellarParser.ArithExpr_minusContext) ctx;
+      return arithmetic(compile(minus.arithmetic_expr()), compile(minus.arithmetic_expr_mul()), ArithmeticOp.SUBTRACT);
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.Arithmetic_expr_mulContext ctx) {
+    if (ctx instanceof StellarParser.ArithExpr_mul_soloContext) {
+      return compile(((StellarParser.ArithExpr_mul_soloContext) ctx).arithmetic_operands());
+    } else if (ctx instanceof StellarParser.ArithExpr_mulContext) {
+      StellarParser.ArithExpr_mulContext mul = (StellarParser.ArithExpr_mulContext) ctx;
+      return arithmetic(compile(mul.arithmetic_expr_mul(0)), compile(mul.arithmetic_expr_mul(1)), ArithmeticOp.MULTIPLY);
+    } else if (ctx instanceof StellarParser.ArithExpr_divContext) {
+      StellarParser.ArithExpr_divContext div = (StellarParser.ArithExpr_divContext) ctx;
+      return arithmetic(compile(div.arithmetic_expr_mul(0)), compile(div.arithmetic_expr_mul(1)), ArithmeticOp.DIVIDE);
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.Arithmetic_operandsContext ctx) {
+    if (ctx instanceof StellarParser.NumericFunctionsContext) {
+      return compile(((StellarParser.NumericFunctionsContext) ctx).functions());
+    } else if (ctx instanceof StellarParser.DoubleLiteralContext
+            || ctx instanceof StellarParser.IntLiteralContext
+            || ctx instanceof StellarParser.LongLiteralContext
+            || ctx instanceof StellarParser.FloatLiteralContext
+            ) {
+      return new ConstantNode(NumberLiteralEvaluator.INSTANCE.evaluate(ctx, null).getValue());
+    } else if (ctx instanceof StellarParser.VariableContext) {
+      return new VariableNode(ctx.getText());
+    } else if (ctx instanceof StellarParser.ParenArithContext) {
+      return compile(((StellarParser.ParenArithContext) ctx).arithmetic_expr());
+    } else if (ctx instanceof StellarParser.CondExprContext) {
+      return compile(((StellarParser.CondExprContext) ctx).conditional_expr());
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.FunctionsContext ctx) {
+    if (ctx instanceof StellarParser.TransformationFuncContext) {
+      StellarParser.TransformationFuncContext func = (StellarParser.TransformationFuncContext) ctx;
+      return new FunctionNode(func.IDENTIFIER().getText(), compile(func.func_args().op_list()));
+    }
+    throw unsupported(ctx);
+  }
+
+  private static Node compile(StellarParser.Map_entityContext ctx) {
+    List<Node> keys = new ArrayList<>();
+    List<Node> values = new ArrayList<>();
+    LinkedList<StellarParser.Kv_listContext> entries = new LinkedList<>();
+    for (StellarParser.Kv_listContext kv = ctx.kv_list(); kv != null; kv = kv.kv_list()) {
+      entries.addFirst(kv);
+    }
+    for (StellarParser.Kv_listContext kv : entries) {
+      keys.add(compile(kv.identifier_operand()));
+      values.add(compile(kv.transformation_expr()));
+    }
+    return new MapNode(keys.toArray(new Node[0]), values.toArray(new Node[0]));
+  }
+
+  /**
+   * Flattens a (left recursive) op_list into the nodes of its elements, in order.
+   */
+  private static Node[] compile(StellarParser.Op_listContext ctx) {
+    LinkedList<Node> elements = new LinkedList<>();
+    for (StellarParser.Op_listContext op = ctx; op != null; op = op.op_list()) {
+      if (op.identifier_operand() != null) {
+        elements.addFirst(compile(op.identifier_operand()));
+      } else if (op.conditional_expr() != null) {
+        elements.addFirst(compile(op.conditional_expr()));
+      } else {
+        throw unsupported(op);
+      }
+    }
+    return elements.toArray(new Node[0]);
+  }
+
+  private static UnsupportedOperationException unsupported(Object ctx) {
+    return new UnsupportedOperationException("Unable to compile " + ctx.getClass().getSimpleName());
+  }
+
+  private static boolean isConstant(Node... nodes) {
+    for (Node node : nodes) {
+      if (!(node instanceof ConstantNode)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Replaces a node by its value when all of its operands are constant.
+   *
+   * <p>A node that fails to evaluate is kept, so that the error is raised when the expression is
+   * evaluated, exactly as the interpreter would raise it.
+   * @param node The node to fold.
+   * @param operands The operands of the node.
+   * @return A constant node or the node itself.
+   */
+  private static Node fold(Node node, Node... operands) {
+    if (!isConstant(operands)) {
+      return node;
+    }
+    try {
+      Object value = node.apply(null);
+      if (FunctionBinding.isImmutable(value)) {
+        return new ConstantNode(value);
+      }
+    } catch (Throwable t) {
+      LOG.debug("Unable to fold a constant subexpression: {}", t.getMessage());
+    }
+    return node;
+  }
+
+  private static Node arithmetic(Node left, Node right, ArithmeticOp op) {
+    return fold(new ArithmeticNode(left, right, op), left, right);
+  }
+
+  private static Node logical(Node left, Node right, boolean or) {
+    if (isConstant(left)) {
+      Object l = ((ConstantNode) left).value;
+      if (l instanceof Boolean && (Boolean) l == or) {
+        // the right side is never evaluated
+        return left;
+      }
+    }
+    return fold(new LogicalNode(left, right, or), left, right);
+  }
+
+  private static Node conditional(Node condition, Node thenNode, Node elseNode) {
+    if (isConstant(condition)) {
+      Object value = ((ConstantNode) condition).value;
+      if (value instanceof Boolean) {
+        return (Boolean) value ? thenNode : elseNode;
+      }
+    }
+    return new ConditionalNode(condition, thenNode, elseNode);
+  }
+
+  private static Node in(Node key, Node container, boolean negate) {
+    if (container instanceof ListNode && isConstant(((ListNode) container).elements)) {
+      Set<Object> elements = new HashSet<>();
+      for (Node element : ((ListNode) container).elements) {
+        elements.add(((ConstantNode) element).value);
+      }
+      return fold(new ConstantSetInNode(key, elements, negate), key);
+    }
+    return fold(new InNode(key, container, negate), key, container);
+  }
+
+  static class ConstantNode implements Node {
+    private final Object value;
+
+    ConstantNode(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      return value;
+    }
+  }
+
+  static class VariableNode implements Node {
+    private final String name;
+
+    VariableNode(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      if(state.context.getActivityType().equals(ActivityType.PARSE_ACTIVITY) && !state.variableResolver.exists(name)) {
+        // when parsing, missing variables are an error!
+        throw new ParseException(String.format("variable: %s is not defined", name));
+      }
+      return state.variableResolver.resolve(name);
+    }
+  }
+
+  static class ExistsNode implements Node {
+    private final String name;
+
+    ExistsNode(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      return state.variableResolver.resolve(name) != null;
+    }
+  }
+
+  static class ConditionalNode implements Node {
+    private final Node condition;
+    private final Node thenNode;
+    private final Node elseNode;
+
+    ConditionalNode(Node condition, Node thenNode, Node elseNode) {
+      this.condition = condition;
+      this.thenNode = thenNode;
+      this.elseNode = elseNode;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      Object value = condition.apply(state);
+      if (!(value instanceof Boolean)) {
+        throw new ParseException("Unable to evaluate conditional, " + value + " is not a boolean");
+      }
+      return (Boolean) value ? thenNode.apply(state) : elseNode.apply(state);
+    }
+  }
+
+  static class LogicalNode implements Node {
+    private final Node left;
+    private final Node right;
+    private final boolean or;
+
+    LogicalNode(Node left, Node right, boolean or) {
+      this.left = left;
+      this.right = right;
+      this.or = or;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      Object l = left.apply(state);
+      if (l instanceof Boolean && (Boolean) l == or) {
+        // short circuit: true or ..., false and ...
+        return l;
+      }
+      Object r = right.apply(state);
+      return or ? StellarCompiler.booleanOp(l, r, (x, y) -> x || y, "||")
+                : StellarCompiler.booleanOp(l, r, (x, y) -> x && y, "&&");
+    }
+  }
+
+  static class NotNode implements Node {
+    private final Node arg;
+
+    NotNode(Node arg) {
+      this.arg = arg;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      return !(Boolean) arg.apply(state);
+    }
+  }
+
+  static class InNode implements Node {
+    private final Node key;
+    private final Node container;
+    private final boolean negate;
+
+    InNode(Node key, Node container, boolean negate) {
+      this.key = key;
+      this.container = container;
+      this.negate = negate;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      Object k = key.apply(state);
+      Object c = container.apply(state);
+      return negate != StellarCompiler.handleIn(c, k);
+    }
+  }
+
+  /**
+   * Membership in a list whose elements are all constant.
+   */
+  static class ConstantSetInNode implements Node {
+    private final Node key;
+    private final Set<Object> elements;
+    private final boolean negate;
+
+    ConstantSetInNode(Node key, Set<Object> elements, boolean negate) {
+      this.key = key;
+      this.elements = elements;
+      this.negate = negate;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      return negate != elements.contains(key.apply(state));
+    }
+  }
+
+  /**
+   * A comparison.  The parse tree is not serializable, so only the operator's token is kept
+   * and the context expected by the evaluator is rebuilt from it when needed.
+   */
+  static class ComparisonNode implements Node {
+    private final Node left;
+    private final Node right;
+    private final int opType;
+    private final String opText;
+    private transient StellarParser.ComparisonOpContext op;
+
+    ComparisonNode(Node left, Node right, StellarParser.ComparisonOpContext op) {
+      this.left = left;
+      this.right = right;
+      this.opType = op.getStart().getType();
+      this.opText = op.getText();
+    }
+
+    private StellarParser.ComparisonOpContext op() {
+      if (op == null) {
+        StellarParser.ComparisonOpContext ctx = new StellarParser.ComparisonOpContext(new StellarParser.Comp_operatorContext());
+        ctx.addChild(new CommonToken(opType, opText));
+        op = ctx;
+      }
+      return op;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      Object l = left.apply(state);
+      Object r = right.apply(state);
+      return ComparisonExpressionWithOperatorEvaluator.INSTANCE.evaluate( new Token<>(l, Object.class)
+                                                                        , new Token<>(r, Object.class)
+                                                                        , op()
+                                                                        , null
+                                                                        ).getValue();
+    }
+  }
+
+  /**
+   * Arithmetic following the binary numeric promotion of the Java spec, exactly as
+   * {@link org.apache.metron.stellar.common.evaluators.ArithmeticEvaluator} does.
+   */
+  enum ArithmeticOp {
+    ADD {
+      @Override int apply(int l, int r) { return l + r; }
+      @Override long apply(long l, long r) { return l + r; }
+      @Override float apply(float l, float r) { return l + r; }
+      @Override double apply(double l, double r) { return l + r; }
+    },
+    SUBTRACT {
+      @Override int apply(int l, int r) { return l - r; }
+      @Override long apply(long l, long r) { return l - r; }
+      @Override float apply(float l, float r) { return l - r; }
+      @Override double apply(double l, double r) { return l - r; }
+    },
+    MULTIPLY {
+      @Override int apply(int l, int r) { return l * r; }
+      @Override long apply(long l, long r) { return l * r; }
+      @Override float apply(float l, float r) { return l * r; }
+      @Override double apply(double l, double r) { return l * r; }
+    },
+    DIVIDE {
+      @Override int apply(int l, int r) { return l / r; }
+      @Override long apply(long l, long r) { return l / r; }
+      @Override float apply(float l, float r) { return l / r; }
+      @Override double apply(double l, double r) { return l / r; }
+    };
+
+    abstract int apply(int l, int r);
+    abstract long apply(long l, long r);
+    abstract float apply(float l, float r);
+    abstract double apply(double l, double r);
+
+    Number apply(Number l, Number r) {
+      if (l instanceof Double || r instanceof Double) {
+        return apply(l.doubleValue(), r.doubleValue());
+      } else if (l instanceof Float || r instanceof Float) {
+        return apply(l.floatValue(), r.floatValue());
+      } else if (l instanceof Long || r instanceof Long) {
+        return apply(l.longValue(), r.longValue());
+      } else {
+        return apply(l.intValue(), r.intValue());
+      }
+    }
+  }
+
+  static class ArithmeticNode implements Node {
+    private final Node left;
+    private final Node right;
+    private final ArithmeticOp op;
+
+    ArithmeticNode(Node left, Node right, ArithmeticOp op) {
+      this.left = left;
+      this.right = right;
+      this.op = op;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      Number l = (Number) left.apply(state);
+      Number r = (Number) right.apply(state);
+      return op.apply(l == null ? 0 : l, r == null ? 0 : r);
+    }
+  }
+
+  static class ListNode implements Node {
+    private final Node[] elements;
+
+    ListNode(Node[] elements) {
+      this.elements = elements;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      LinkedList<Object> ret = new LinkedList<>();
+      for (Node element : elements) {
+        ret.add(element.apply(state));
+      }
+      return ret;
+    }
+  }
+
+  static class MapNode implements Node {
+    private final Node[] keys;
+    private final Node[] values;
+
+    MapNode(Node[] keys, Node[] values) {
+      this.keys = keys;
+      this.values = values;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      Object[] k = new Object[keys.length];
+      Object[] v = new Object[values.length];
+      for (int i = 0; i < keys.length; ++i) {
+        k[i] = keys[i].apply(state);
+        v[i] = values[i].apply(state);
+      }
+      // when a key is repeated, the first occurrence wins
+      Map<String, Object> ret = new HashMap<>();
+      for (int i = keys.length - 1; i >= 0; --i) {
+        ret.put(k[i] + "", v[i]);
+      }
+      return ret;
+    }
+  }
+
+  static class FunctionNode implements Node {
+    private final Node[] args;
+    private final FunctionBinding binding;
+
+    FunctionNode(String name, Node[] args) {
+      this.args = args;
+      this.binding = new FunctionBinding(name, isConstant(args));
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      List<Object> argValues = new ArrayList<>(args.length);
+      for (Node arg : args) {
+        argValues.add(arg.apply(state));
+      }
+      return binding.apply(argValues, state);
+    }
+  }
+
+  static class LambdaNode implements Node {
+    private final List<String> variables;
+    private final Node body;
+
+    LambdaNode(List<String> variables, Node body) {
+      this.variables = variables;
+      this.body = body;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      return new CompiledLambdaExpression(variables, body, state);
+    }
+  }
+
+  /**
+   * A lambda expression whose body is evaluated using compiled nodes rather than the interpreter.
+   */
+  static class CompiledLambdaExpression extends LambdaExpression {
+    private final Node body;
+
+    CompiledLambdaExpression(List<String> variables, Node body, StellarCompiler.ExpressionState state) {
+      super(variables, new ArrayDeque<>(), state);
+      this.body = body;
+    }
+
+    @Override
+    public Object apply(StellarCompiler.ExpressionState state) {
+      return body.apply(state);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common.cache;
+
+import org.apache.metron.stellar.common.StellarCompiler;
+import org.apache.metron.stellar.dsl.ParseException;
+
+/**
+ * A cache of compiled Stellar expressions keyed by the expression's text.  Compiling an expression
+ * means running it through the ANTLR parser, which is far more expensive than evaluating it, so
+ * every processor should be backed by a cache that is large enough to hold its working set.
+ *
+ * @see ExpressionCaches
+ */
+public interface ExpressionCache {
+
+  /**
+   * Returns the compiled form of a Stellar expression, compiling and caching it if necessary.
+   *
+   * @param rule The Stellar expression.
+   * @return The compiled expression.
+   * @throws ParseException If the expression cannot be compiled.
+   */
+  StellarCompiler.Expression get(String rule);
+
+  /**
+   * Compiles and caches expressions ahead of their first use.  Expressions that cannot be compiled
+   * are skipped; they will fail when they are used.
+   *
+   * @param rules The Stellar expressions.
+   */
+  void prewarm(Iterable<String> rules);
+
+  /**
+   * Discards the compiled form of some expressions.
+   *
+   * @param rules The Stellar expressions.
+   */
+  void invalidate(Iterable<String> rules);
+
+  /**
+   * Discards every compiled expression.
+   */
+  void invalidateAll();
+
+  /**
+   * @return The cumulative statistics of the cache.
+   */
+  ExpressionCacheStats getStats();
+}
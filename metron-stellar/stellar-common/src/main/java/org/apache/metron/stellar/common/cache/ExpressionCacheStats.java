@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A snapshot of the cumulative statistics of an {@link ExpressionCache}.
+ */
+public class ExpressionCacheStats {
+  private final long hitCount;
+  private final long missCount;
+  private final long compileCount;
+  private final long compileFailureCount;
+  private final long totalCompileTimeNanos;
+  private final long evictionCount;
+  private final long size;
+
+  public ExpressionCacheStats( long hitCount
+                             , long missCount
+                             , long compileCount
+                             , long compileFailureCount
+                             , long totalCompileTimeNanos
+                             , long evictionCount
+                             , long size
+                             )
+  {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.compileCount = compileCount;
+    this.compileFailureCount = compileFailureCount;
+    this.totalCompileTimeNanos = totalCompileTimeNanos;
+    this.evictionCount = evictionCount;
+    this.size = size;
+  }
+
+  /**
+   * @return The number of lookups that found a compiled expression.
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return The number of lookups that had to compile the expression.
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return The number of expressions compiled successfully.
+   */
+  public long getCompileCount() {
+    return compileCount;
+  }
+
+  /**
+   * @return The number of expressions that failed to compile.
+   */
+  public long getCompileFailureCount() {
+    return compileFailureCount;
+  }
+
+  /**
+   * @return The total time spent compiling expressions, in nanoseconds.
+   */
+  public long getTotalCompileTimeNanos() {
+    return totalCompileTimeNanos;
+  }
+
+  /**
+   * @return The number of compiled expressions evicted because of the size or expiry of the cache.
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return The approximate number of compiled expressions in the cache.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return The fraction of lookups that were hits, or 1.0 if there were no lookups.
+   */
+  public double getHitRate() {
+    long requests = hitCount + missCount;
+    return requests == 0 ? 1.0 : (double) hitCount / requests;
+  }
+
+  /**
+   * @return The average time spent compiling an expression, in nanoseconds.
+   */
+  public double getAverageCompileTimeNanos() {
+    long compiles = compileCount + compileFailureCount;
+    return compiles == 0 ? 0.0 : (double) totalCompileTimeNanos / compiles;
+  }
+
+  /**
+   * @return The statistics as a map, suitable for reporting as a metric.
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> ret = new LinkedHashMap<>();
+    ret.put("hitCount", hitCount);
+    ret.put("missCount", missCount);
+    ret.put("hitRate", getHitRate());
+    ret.put("compileCount", compileCount);
+    ret.put("compileFailureCount", compileFailureCount);
+    ret.put("totalCompileTimeNanos", totalCompileTimeNanos);
+    ret.put("averageCompileTimeNanos", getAverageCompileTimeNanos());
+    ret.put("evictionCount", evictionCount);
+    ret.put("size", size);
+    return ret;
+  }
+
+  @Override
+  public String toString() {
+    return "ExpressionCacheStats" + toMap();
+  }
+}
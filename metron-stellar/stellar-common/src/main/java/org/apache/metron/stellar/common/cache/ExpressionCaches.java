@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common.cache;
+
+import org.apache.metron.stellar.common.BaseStellarProcessor;
+import org.apache.metron.stellar.common.utils.ConversionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates {@link ExpressionCache}s from the global configuration and holds the cache shared by
+ * every Stellar processor that was not given its own.
+ * <p>
+ * The cache is configured with the following global configuration properties
+ * <ul>
+ *   <li>{@value #CACHE_SIZE_CONF} - The maximum number of compiled expressions.  Default: {@value BaseStellarProcessor#DEFAULT_CACHE_SIZE}</li>
+ *   <li>{@value #CACHE_EXPIRY_CONF} - The minutes a compiled expression is kept after it was last used.  Default: {@value BaseStellarProcessor#DEFAULT_EXPIRY_TIME}</li>
+ *   <li>{@value #CACHE_CLASS_CONF} - The {@link ExpressionCache} implementation.  It must have a public
+ *   constructor taking the global configuration {@code Map}.  Default: {@link GuavaExpressionCache}</li>
+ * </ul>
+ */
+public class ExpressionCaches {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final String CACHE_SIZE_CONF = "stellar.cache.size";
+  public static final String CACHE_EXPIRY_CONF = "stellar.cache.expiry.minutes";
+  public static final String CACHE_CLASS_CONF = "stellar.cache.class";
+
+  private static volatile ExpressionCache shared = create(Collections.emptyMap());
+  private static List<Object> sharedSettings = settings(Collections.emptyMap());
+
+  /**
+   * @return The expression cache shared by the Stellar processors of this JVM.
+   */
+  public static ExpressionCache getShared() {
+    return shared;
+  }
+
+  /**
+   * Replaces the shared expression cache if the global configuration asks for a cache that differs
+   * from the current one.  The replacement starts empty.
+   *
+   * @param globalConfig The global configuration.
+   * @return True if the shared expression cache was replaced.
+   */
+  public static synchronized boolean configureShared(Map<String, Object> globalConfig) {
+    List<Object> settings = settings(globalConfig);
+    if (settings.equals(sharedSettings)) {
+      return false;
+    }
+    LOG.info("Reconfiguring the shared Stellar expression cache: size={}, expiry={} minutes, class={}"
+            , settings.get(0), settings.get(1), settings.get(2));
+    shared = create(globalConfig);
+    sharedSettings = settings;
+    return true;
+  }
+
+  /**
+   * Creates an expression cache as described by the global configuration.
+   *
+   * @param globalConfig The global configuration.
+   * @return A new, empty expression cache.
+   */
+  public static ExpressionCache create(Map<String, Object> globalConfig) {
+    String className = getClassName(globalConfig);
+    if (className.equals(GuavaExpressionCache.class.getName())) {
+      return new GuavaExpressionCache(getSize(globalConfig), getExpiryMinutes(globalConfig), TimeUnit.MINUTES);
+    }
+    try {
+      Class<? extends ExpressionCache> clazz = Class.forName(className).asSubclass(ExpressionCache.class);
+      return clazz.getConstructor(Map.class).newInstance(globalConfig);
+    } catch (Exception e) {
+      throw new IllegalStateException("Unable to create the Stellar expression cache " + className + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @return The maximum number of compiled expressions requested by the global configuration.
+   */
+  public static int getSize(Map<String, Object> globalConfig) {
+    Object size = globalConfig.get(CACHE_SIZE_CONF);
+    return size == null ? BaseStellarProcessor.DEFAULT_CACHE_SIZE : ConversionUtils.convert(size, Integer.class);
+  }
+
+  /**
+   * @return The minutes a compiled expression is kept after it was last used, as requested by the global configuration.
+   */
+  public static int getExpiryMinutes(Map<String, Object> globalConfig) {
+    Object expiry = globalConfig.get(CACHE_EXPIRY_CONF);
+    return expiry == null
+            ? (int) BaseStellarProcessor.DEFAULT_EXPIRY_TIME_UNITS.toMinutes(BaseStellarProcessor.DEFAULT_EXPIRY_TIME)
+            : ConversionUtils.convert(expiry, Integer.class);
+  }
+
+  private static String getClassName(Map<String, Object> globalConfig) {
+    Object className = globalConfig.get(CACHE_CLASS_CONF);
+    return className == null ? GuavaExpressionCache.class.getName() : className.toString().trim();
+  }
+
+  private static List<Object> settings(Map<String, Object> globalConfig) {
+    return Arrays.asList(getSize(globalConfig), getExpiryMinutes(globalConfig), getClassName(globalConfig));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.metron.stellar.common.BaseStellarProcessor;
+import org.apache.metron.stellar.common.StellarCompiler;
+import org.apache.metron.stellar.dsl.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+/**
+ * An {@link ExpressionCache} backed by a size bounded Guava cache whose entries expire after they
+ * have not been accessed for a while.  Lookups of cached expressions do not lock.
+ */
+public class GuavaExpressionCache implements ExpressionCache {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final Cache<String, StellarCompiler.Expression> cache;
+
+  /**
+   * @param maximumSize The maximum number of compiled expressions to keep.
+   * @param expiryTime How long an expression is kept after it was last used.
+   * @param expiryUnit The unit of {@code expiryTime}.
+   */
+  public GuavaExpressionCache(long maximumSize, long expiryTime, TimeUnit expiryUnit) {
+    cache = CacheBuilder.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterAccess(expiryTime, expiryUnit)
+                        .recordStats()
+                        .build();
+  }
+
+  @Override
+  public StellarCompiler.Expression get(String rule) {
+    try {
+      return cache.get(rule, () -> BaseStellarProcessor.compile(rule));
+    } catch (ExecutionException|UncheckedExecutionException e) {
+      throw new ParseException("Unable to parse: " + rule + " due to: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void prewarm(Iterable<String> rules) {
+    for (String rule : rules) {
+      if (rule == null || isEmpty(rule.trim())) {
+        continue;
+      }
+      try {
+        get(rule);
+      } catch (ParseException e) {
+        LOG.debug("Unable to prewarm the expression cache with {}", rule, e);
+      }
+    }
+  }
+
+  @Override
+  public void invalidate(Iterable<String> rules) {
+    cache.invalidateAll(rules);
+  }
+
+  @Override
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  @Override
+  public ExpressionCacheStats getStats() {
+    CacheStats stats = cache.stats();
+    return new ExpressionCacheStats( stats.hitCount()
+                                   , stats.missCount()
+                                   , stats.loadSuccessCount()
+                                   , stats.loadExceptionCount()
+                                   , stats.totalLoadTime()
+                                   , stats.evictionCount()
+                                   , cache.size()
+                                   );
+  }
+}
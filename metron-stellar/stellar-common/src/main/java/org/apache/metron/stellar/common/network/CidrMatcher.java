@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common.network;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.net.InetAddresses;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Tests whether an IP address falls within any of a list of IPv4 and IPv6 ranges in CIDR notation.
+ *
+ * <p>The ranges are compiled into one binary prefix trie per address family, so a lookup walks at
+ * most 32 (or 128) nodes no matter how many ranges there are and does not allocate anything beyond
+ * the parsed address.  A matcher is immutable and can be shared between threads.
+ *
+ * <p>To remain consistent with commons-net's {@code SubnetUtils}, which {@code IN_SUBNET} originally
+ * used, the network and broadcast addresses of an IPv4 range of /30 or wider are not considered to
+ * be in the range.
+ */
+public class CidrMatcher {
+
+  /**
+   * The number of distinct lists of ranges whose matchers are kept by {@link #of(Iterable)}.
+   */
+  public static final int CACHE_SIZE = 1000;
+
+  private static final Cache<List<String>, CidrMatcher> CACHE = CacheBuilder.newBuilder()
+          .maximumSize(CACHE_SIZE)
+          .build();
+
+  private static final byte NONE = 0;
+  private static final byte WHOLE_RANGE = 1;
+  private static final byte HOST_RANGE = 2;
+
+  private final List<String> cidrs;
+  private final long fingerprint;
+  private final Trie ipv4;
+  private final Trie ipv6;
+
+  private CidrMatcher(List<String> cidrs) {
+    this.cidrs = Collections.unmodifiableList(cidrs);
+    this.fingerprint = fingerprint(cidrs);
+    Trie.Builder ipv4Builder = new Trie.Builder();
+    Trie.Builder ipv6Builder = new Trie.Builder();
+    for (String cidr : cidrs) {
+      int slash = cidr.indexOf('/');
+      if (slash < 0) {
+        throw new IllegalArgumentException("Could not parse [" + cidr + "]");
+      }
+      byte[] address = parseAddress(cidr.substring(0, slash));
+      int prefixLength;
+      try {
+        prefixLength = Integer.parseInt(cidr.substring(slash + 1).trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Could not parse [" + cidr + "]", e);
+      }
+      if (address == null || prefixLength < 0 || prefixLength > address.length * 8) {
+        throw new IllegalArgumentException("Could not parse [" + cidr + "]");
+      }
+      if (address.length == 4) {
+        ipv4Builder.add(address, prefixLength, prefixLength <= 30 ? HOST_RANGE : WHOLE_RANGE);
+      } else {
+        ipv6Builder.add(address, prefixLength, WHOLE_RANGE);
+      }
+    }
+    this.ipv4 = ipv4Builder.build();
+    this.ipv6 = ipv6Builder.build();
+  }
+
+  /**
+   * Compiles a list of ranges, without caching the result.
+   * @param cidrs The ranges in CIDR notation, for example 192.168.0.0/24 or 2001:db8::/32.  Nulls are ignored.
+   * @return The matcher.
+   * @throws IllegalArgumentException If a range cannot be parsed.
+   */
+  public static CidrMatcher compile(Iterable<?> cidrs) {
+    return new CidrMatcher(toList(cidrs));
+  }
+
+  /**
+   * Returns the matcher of a list of ranges.  Matchers are compiled once per distinct list and
+   * shared by all threads.
+   * @param cidrs The ranges in CIDR notation, for example 192.168.0.0/24 or 2001:db8::/32.  Nulls are ignored.
+   * @return The matcher.
+   * @throws IllegalArgumentException If a range cannot be parsed.
+   */
+  public static CidrMatcher of(Iterable<?> cidrs) {
+    List<String> key = toList(cidrs);
+    try {
+      return CACHE.get(key, () -> new CidrMatcher(key));
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to compile " + key, e.getCause());
+    } catch (RuntimeException e) {
+      // unchecked exceptions thrown while compiling are wrapped by the cache
+      if (e.getCause() instanceof IllegalArgumentException) {
+        throw (IllegalArgumentException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * @return The ranges this matcher was compiled from.
+   */
+  public List<String> getCidrs() {
+    return cidrs;
+  }
+
+  /**
+   * Computes a cheap fingerprint of a list of ranges; the number of ranges and the hash of the list.
+   * Lists of the same ranges in the same order have the same fingerprint.  As the hash of a string is
+   * cached, this does not look at the characters of ranges that have been seen before.
+   * @param cidrs The ranges.  Nulls are ignored.
+   * @return The fingerprint.
+   */
+  public static long fingerprint(Iterable<?> cidrs) {
+    int size = 0;
+    int hash = 1;
+    for (Object cidr : cidrs) {
+      if (cidr != null) {
+        size++;
+        hash = 31 * hash + cidr.hashCode();
+      }
+    }
+    return ((long) size << 32) | (hash & 0xffffffffL);
+  }
+
+  /**
+   * @return The fingerprint of the ranges this matcher was compiled from.
+   */
+  public long getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * Checks whether this matcher was compiled from a list of ranges, comparing the ranges in order only
+   * if the fingerprints match.
+   * @param cidrs The ranges.  Nulls are ignored.
+   * @param fingerprint The fingerprint of the ranges, as computed by {@link #fingerprint(Iterable)}.
+   * @return True if this matcher was compiled from the same ranges.
+   */
+  public boolean isCompiledFrom(Iterable<?> cidrs, long fingerprint) {
+    return this.fingerprint == fingerprint && isCompiledFrom(cidrs);
+  }
+
+  /**
+   * Checks whether this matcher was compiled from a list of ranges, comparing the ranges in order.
+   * This is far cheaper than looking the matcher up again when the same list is passed on every call.
+   * @param cidrs The ranges.  Nulls are ignored.
+   * @return True if this matcher was compiled from the same ranges.
+   */
+  public boolean isCompiledFrom(Iterable<?> cidrs) {
+    Iterator<String> it = this.cidrs.iterator();
+    for (Object cidr : cidrs) {
+      if (cidr == null) {
+        continue;
+      }
+      if (!it.hasNext() || !it.next().equals(cidr)) {
+        return false;
+      }
+    }
+    return !it.hasNext();
+  }
+
+  /**
+   * @return True if there are no ranges.
+   */
+  public boolean isEmpty() {
+    return cidrs.isEmpty();
+  }
+
+  /**
+   * @param ip An IPv4 or IPv6 address.
+   * @return True if the address falls within at least one of the ranges.
+   * @throws IllegalArgumentException If the address cannot be parsed.
+   */
+  public boolean matches(String ip) {
+    byte[] address = parseAddress(ip);
+    if (address == null) {
+      throw new IllegalArgumentException("Could not parse [" + ip + "]");
+    }
+    return address.length == 4 ? ipv4.matches(address) : ipv6.matches(address);
+  }
+
+  private static List<String> toList(Iterable<?> cidrs) {
+    List<String> ret = new ArrayList<>();
+    for (Object cidr : cidrs) {
+      if (cidr != null) {
+        ret.add((String) cidr);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Parses an IP address literal, never resolving a host name.
+   * @param ip The address.
+   * @return The 4 or 16 bytes of the address or null if it cannot be parsed.
+   */
+  static byte[] parseAddress(String ip) {
+    byte[] ipv4 = parseIPv4(ip);
+    if (ipv4 != null) {
+      return ipv4;
+    }
+    if (ip.indexOf(':') < 0) {
+      return null;
+    }
+    try {
+      InetAddress address = InetAddresses.forString(ip.trim());
+      return address.getAddress();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * A fast path for the common case of a dotted quad.
+   */
+  private static byte[] parseIPv4(String ip) {
+    byte[] ret = new byte[4];
+    int octet = 0;
+    int value = 0;
+    int digits = 0;
+    for (int i = 0; i < ip.length(); ++i) {
+      char c = ip.charAt(i);
+      if (c >= '0' && c <= '9') {
+        value = value * 10 + (c - '0');
+        if (++digits > 3 || value > 255) {
+          return null;
+        }
+      } else if (c == '.' && digits > 0 && octet < 3) {
+        ret[octet++] = (byte) value;
+        value = 0;
+        digits = 0;
+      } else {
+        return null;
+      }
+    }
+    if (octet != 3 || digits == 0) {
+      return null;
+    }
+    ret[3] = (byte) value;
+    return ret;
+  }
+
+  /**
+   * An immutable binary trie of address prefixes.  Node {@code n} has its children at
+   * {@code children[2n]} and {@code children[2n + 1]}, with 0 meaning no child, and marks the end of
+   * a range when {@code ranges[n]} is not {@link #NONE}.
+   */
+  private static class Trie {
+    private final int[] children;
+    private final byte[] ranges;
+
+    private Trie(int[] children, byte[] ranges) {
+      this.children = children;
+      this.ranges = ranges;
+    }
+
+    boolean matches(byte[] address) {
+      int node = 0;
+      int bits = address.length * 8;
+      for (int depth = 0; ; ++depth) {
+        byte range = ranges[node];
+        if (range == WHOLE_RANGE || (range == HOST_RANGE && isHost(address, depth))) {
+          return true;
+        }
+        if (depth == bits) {
+          return false;
+        }
+        node = children[2 * node + bit(address, depth)];
+        if (node == 0) {
+          return false;
+        }
+      }
+    }
+
+    /**
+     * @return True unless the host bits of the address, those after the prefix, are all zeros or all ones.
+     */
+    private static boolean isHost(byte[] address, int prefixLength) {
+      boolean zeros = true;
+      boolean ones = true;
+      for (int i = prefixLength; i < address.length * 8 && (zeros || ones); ++i) {
+        if (bit(address, i) == 0) {
+          ones = false;
+        } else {
+          zeros = false;
+        }
+      }
+      return !zeros && !ones;
+    }
+
+    private static int bit(byte[] address, int i) {
+      return (address[i >>> 3] >>> (7 - (i & 7))) & 1;
+    }
+
+    private static class Builder {
+      private int[] children = new int[64];
+      private byte[] ranges = new byte[32];
+      private int size = 1;
+
+      void add(byte[] address, int prefixLength, byte range) {
+        int node = 0;
+        for (int depth = 0; depth < prefixLength; ++depth) {
+          int slot = 2 * node + bit(address, depth);
+          if (children[slot] == 0) {
+            // allocate first, as newNode() may replace the children array
+            int child = newNode();
+            children[slot] = child;
+          }
+          node = children[slot];
+        }
+        // a range that includes its network and broadcast addresses wins over one that does not
+        if (ranges[node] != WHOLE_RANGE) {
+          ranges[node] = range;
+        }
+      }
+
+      private int newNode() {
+        if (size == ranges.length) {
+          ranges = Arrays.copyOf(ranges, size * 2);
+          children = Arrays.copyOf(children, size * 4);
+        }
+        return size++;
+      }
+
+      Trie build() {
+        return new Trie(Arrays.copyOf(children, 2 * size), Arrays.copyOf(ranges, size));
+      }
+    }
+  }
+}
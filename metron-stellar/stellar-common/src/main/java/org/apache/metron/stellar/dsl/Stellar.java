@@ -30,4 +30,11 @@ public @interface Stellar {
   String description() default "";
   String returns() default "";
   String[] params() default {};
+
+  /**
+   * A function is deterministic when it always returns the same value given the same arguments
+   * and has no side effects.  A call to a deterministic function with constant arguments may be
+   * evaluated once and its result reused.
+   */
+  boolean deterministic() default false;
 }
@@ -38,6 +38,7 @@ public class ConversionFunctions {
   }
 
   @Stellar(name="TO_INTEGER"
+          , deterministic=true
           , description="Transforms the first argument to an integer"
           , params = { "input - Object of string or numeric type"}
           , returns = "Integer version of the first argument"
@@ -50,6 +51,7 @@ public class ConversionFunctions {
   }
 
   @Stellar(name="TO_DOUBLE"
+          , deterministic=true
           , description="Transforms the first argument to a double precision number"
           , params = { "input - Object of string or numeric type"}
           , returns = "Double version of the first argument"
@@ -62,6 +64,7 @@ public class ConversionFunctions {
   }
 
   @Stellar(name="TO_LONG"
+          , deterministic=true
           , description="Transforms the first argument to a long integer"
           , params = { "input - Object of string or numeric type"}
           , returns = "Long version of the first argument"
@@ -72,6 +75,7 @@ public class ConversionFunctions {
   }
 
   @Stellar(name="TO_FLOAT"
+      , deterministic=true
       , description="Transforms the first argument to a float"
       , params = { "input - Object of string or numeric type"}
       , returns = "Float version of the first argument"
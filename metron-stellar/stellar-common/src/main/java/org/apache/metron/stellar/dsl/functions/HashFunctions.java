@@ -50,6 +50,7 @@ public class HashFunctions {
 
   @Stellar(
     name = "HASH",
+    deterministic = true,
     description = "Hashes a given value using the given hashing algorithm and returns a hex encoded string.",
     params = {
       "toHash - value to hash.",
@@ -33,6 +33,7 @@ public class MathFunctions {
 
 
   @Stellar(name="ABS"
+          ,deterministic=true
           ,description="Returns the absolute value of a number."
           ,params = {
                 "number - The number to take the absolute value of"
@@ -48,6 +49,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="LOG10"
+          ,deterministic=true
           ,description="Returns the log (base 10) of a number."
           ,params = {
                 "number - The number to take the log (base 10) value of"
@@ -62,6 +64,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="LOG2"
+          ,deterministic=true
           ,description="Returns the log (base 2) of a number."
           ,params = {
                 "number - The number to take the log (base 2) value of"
@@ -76,6 +79,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="LN"
+          ,deterministic=true
           ,description="Returns the natural log of a number."
           ,params = {
                 "number - The number to take the natural log value of"
@@ -90,6 +94,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="SQRT"
+          ,deterministic=true
           ,description="Returns the square root of a number."
           ,params = {
                 "number - The number to take the square root of"
@@ -104,6 +109,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="CEILING"
+          ,deterministic=true
           ,description="Returns the ceiling of a number."
           ,params = {
                 "number - The number to take the ceiling of"
@@ -118,6 +124,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="FLOOR"
+          ,deterministic=true
           ,description="Returns the floor of a number."
           ,params = {
                 "number - The number to take the floor of"
@@ -131,6 +138,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="SIN"
+          ,deterministic=true
           ,description="Returns the sine of a number."
           ,params = {
                 "number - The number to take the sine of"
@@ -144,6 +152,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="COS"
+          ,deterministic=true
           ,description="Returns the cosine of a number."
           ,params = {
                 "number - The number to take the cosine of"
@@ -157,6 +166,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="TAN"
+          ,deterministic=true
           ,description="Returns the tangent of a number."
           ,params = {
                 "number - The number to take the tangent of"
@@ -170,6 +180,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="EXP"
+          ,deterministic=true
           ,description="Returns Euler's number raised to the power of the argument"
           ,params = {
                 "number - The power to which e is raised."
@@ -183,6 +194,7 @@ public class MathFunctions {
   }
 
   @Stellar(name="ROUND"
+          ,deterministic=true
           ,description="Rounds a number to the nearest integer. This is half-up rounding."
           ,params = {
                 "number - The number to round"
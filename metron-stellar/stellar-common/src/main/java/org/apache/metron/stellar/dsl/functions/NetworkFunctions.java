@@ -22,7 +22,7 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
 import com.google.common.net.InternetDomainName;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.net.util.SubnetUtils;
+import org.apache.metron.stellar.common.network.CidrMatcher;
 import org.apache.metron.stellar.dsl.BaseStellarFunction;
 import org.apache.metron.stellar.dsl.Stellar;
 
@@ -31,7 +31,70 @@ import java.net.URL;
 import java.util.List;
 
 public class NetworkFunctions {
+  /**
+   * The base of the functions testing whether an IP address is within a list of ranges.  The ranges
+   * are compiled into a {@link CidrMatcher} once.  The matchers of the few lists of ranges used most
+   * recently are kept, so that several call sites passing different ranges do not keep replacing
+   * each other's matcher.  A kept matcher is found by the fingerprint of the ranges.  The ranges are
+   * only compared one by one if the fingerprint matches and the list is not the one the matcher was
+   * found for before.
+   */
+  public abstract static class SubnetFunction extends BaseStellarFunction {
+    /**
+     * The number of recently used matchers that are kept.
+     */
+    static final int RECENT_MATCHERS = 8;
+
+    /**
+     * The recently used matchers, most recent first.  Replaced rather than modified, so it can be read without locking.
+     */
+    private transient volatile Recent[] recent;
+
+    protected boolean inSubnet(String ip, Iterable<?> cidrs) {
+      if(ip == null) {
+        return false;
+      }
+      CidrMatcher m = matcher(cidrs);
+      return !m.isEmpty() && m.matches(ip);
+    }
+
+    private CidrMatcher matcher(Iterable<?> cidrs) {
+      long fingerprint = CidrMatcher.fingerprint(cidrs);
+      Recent[] r = recent;
+      if(r != null) {
+        for(Recent e : r) {
+          if(e != null && e.matcher.getFingerprint() == fingerprint
+                  && (e.cidrs == cidrs || e.matcher.isCompiledFrom(cidrs))) {
+            return e.matcher;
+          }
+        }
+      }
+      CidrMatcher m = CidrMatcher.of(cidrs);
+      Recent[] next = new Recent[RECENT_MATCHERS];
+      next[0] = new Recent(cidrs, m);
+      if(r != null) {
+        System.arraycopy(r, 0, next, 1, RECENT_MATCHERS - 1);
+      }
+      recent = next;
+      return m;
+    }
+
+    /**
+     * A recently used matcher and the list of ranges it was found for.
+     */
+    private static class Recent {
+      private final Iterable<?> cidrs;
+      private final CidrMatcher matcher;
+
+      private Recent(Iterable<?> cidrs, CidrMatcher matcher) {
+        this.cidrs = cidrs;
+        this.matcher = matcher;
+      }
+    }
+  }
+
   @Stellar(name="IN_SUBNET"
+          ,deterministic = true
           ,description = "Returns true if an IP is within a subnet range."
           ,params = {
                      "ip - The IP address in string form"
@@ -39,7 +102,7 @@ public class NetworkFunctions {
                     }
           ,returns = "True if the IP address is within at least one of the network ranges and false if otherwise"
           )
-  public static class InSubnet extends BaseStellarFunction {
+  public static class InSubnet extends SubnetFunction {
 
     @Override
     public Object apply(List<Object> list) {
@@ -48,24 +111,41 @@ public class NetworkFunctions {
                 + " where cidr is the subnet mask in cidr form"
         );
       }
-      String ip = (String) list.get(0);
-      if(ip == null) {
+      return inSubnet((String) list.get(0), list.subList(1, list.size()));
+    }
+  }
+
+  @Stellar(name="IN_SUBNETS"
+          ,deterministic = true
+          ,description = "Returns true if an IP is within any of a list of subnet ranges.  Suited to long lists of ranges, which are only compiled once."
+          ,params = {
+                     "ip - The IP address in string form"
+                    ,"cidrs - A list or set of IP ranges specified in CIDR notation (for example [ '192.168.0.0/24', '2001:db8::/32' ])"
+                    }
+          ,returns = "True if the IP address is within at least one of the network ranges and false if otherwise"
+          )
+  public static class InSubnets extends SubnetFunction {
+
+    @Override
+    public Object apply(List<Object> list) {
+      if(list.size() != 2) {
+        throw new IllegalStateException("IN_SUBNETS expects two args: [ip, cidrs]"
+                + " where cidrs is a list of subnet masks in cidr form"
+        );
+      }
+      Object cidrs = list.get(1);
+      if(cidrs == null) {
         return false;
       }
-      boolean inSubnet = false;
-      for(int i = 1;i < list.size() && !inSubnet;++i) {
-        String cidr = (String) list.get(i);
-        if(cidr == null) {
-          continue;
-        }
-        inSubnet |= new SubnetUtils(cidr).getInfo().isInRange(ip);
+      if(!(cidrs instanceof Iterable)) {
+        throw new IllegalArgumentException("IN_SUBNETS expects a list of cidrs, but got " + cidrs);
       }
-
-      return inSubnet;
+      return inSubnet((String) list.get(0), (Iterable<?>) cidrs);
     }
   }
 
   @Stellar(name="REMOVE_SUBDOMAINS"
+          ,deterministic = true
           ,namespace = "DOMAIN"
           ,description = "Removes the subdomains from a domain."
           , params = {
@@ -104,6 +184,7 @@ public class NetworkFunctions {
   }
 
   @Stellar(name="REMOVE_TLD"
+          ,deterministic = true
           ,namespace = "DOMAIN"
           ,description = "Removes the top level domain (TLD) suffix from a domain."
           , params = {
@@ -133,6 +214,7 @@ public class NetworkFunctions {
   }
 
   @Stellar(name="TO_TLD"
+          ,deterministic = true
           ,namespace = "DOMAIN"
           ,description = "Extracts the top level domain from a domain"
           , params = {
@@ -151,6 +233,7 @@ public class NetworkFunctions {
   }
 
   @Stellar(name="TO_PORT"
+          ,deterministic=true
           ,namespace="URL"
           ,description = "Extract the port from a URL.  " +
                           "If the port is not explicitly stated in the URL, then an implicit port is inferred based on the protocol."
@@ -172,6 +255,7 @@ public class NetworkFunctions {
   }
 
   @Stellar(name="TO_PATH"
+          ,deterministic=true
           ,namespace="URL"
           ,description = "Extract the path from a URL."
           , params = {
@@ -187,6 +271,7 @@ public class NetworkFunctions {
   }
 
   @Stellar(name="TO_HOST"
+          ,deterministic=true
           ,namespace="URL"
           ,description = "Extract the hostname from a URL."
           , params = {
@@ -204,6 +289,7 @@ public class NetworkFunctions {
   }
 
   @Stellar(name="TO_PROTOCOL"
+          ,deterministic=true
           ,namespace="URL"
           ,description = "Extract the protocol from a URL."
           , params = {
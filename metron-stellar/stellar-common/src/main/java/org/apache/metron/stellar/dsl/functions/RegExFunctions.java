@@ -29,6 +29,7 @@ import org.apache.metron.stellar.dsl.Stellar;
 public class RegExFunctions {
 
   @Stellar(name = "REGEXP_MATCH",
+      deterministic = true,
       description = "Determines whether a regex matches a string",
       params = {
           "string - The string to test",
@@ -53,6 +54,7 @@ public class RegExFunctions {
   }
 
   @Stellar(name = "REGEXP_GROUP_VAL",
+      deterministic = true,
       description = "Returns the value of a group in a regex against a string",
       params = {
           "string - The string to test",
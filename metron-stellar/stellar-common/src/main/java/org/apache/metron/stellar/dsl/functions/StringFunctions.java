@@ -40,6 +40,7 @@ import java.util.Map;
 public class StringFunctions {
 
   @Stellar(name="ENDS_WITH"
+          ,deterministic = true
           ,description = "Determines whether a string ends with a specified suffix"
           , params = {
              "string - The string to test"
@@ -62,6 +63,7 @@ public class StringFunctions {
   }
 
   @Stellar(name="STARTS_WITH"
+          ,deterministic = true
           ,description = "Determines whether a string starts with a prefix"
           , params = {
              "string - The string to test"
@@ -86,6 +88,7 @@ public class StringFunctions {
   }
 
   @Stellar( name="TO_LOWER"
+          , deterministic = true
           , description = "Transforms the first argument to a lowercase string"
           , params = { "input - String" }
           , returns = "Lowercase string"
@@ -98,6 +101,7 @@ public class StringFunctions {
   }
 
   @Stellar( name="TO_UPPER"
+          , deterministic = true
           , description = "Transforms the first argument to an uppercase string"
           , params = { "input - String" }
           , returns = "Uppercase string"
@@ -110,6 +114,7 @@ public class StringFunctions {
   }
 
   @Stellar(name="TO_STRING"
+          , deterministic = true
           , description = "Transforms the first argument to a string"
           , params = { "input - Object" }
           , returns = "String"
@@ -122,6 +127,7 @@ public class StringFunctions {
   }
 
   @Stellar(name="TRIM"
+          , deterministic = true
           , description = "Trims whitespace from both sides of a string."
           , params = { "input - String" }
           , returns = "String"
@@ -215,6 +221,7 @@ public class StringFunctions {
   }
 
   @Stellar(name="FILL_LEFT"
+          , deterministic=true
           , description="Fills or pads a given string with a given character, to a given length on the left"
           , params = { "input - string", "fill - the fill character", "len - the required length"}
           , returns = "Filled String"
@@ -230,6 +237,7 @@ public class StringFunctions {
   }
 
   @Stellar(name="FILL_RIGHT"
+          , deterministic=true
           , description="Fills or pads a given string with a given character, to a given length on the right"
           , params = { "input - string", "fill - the fill character", "len - the required length"}
           , returns = "Filled String"
@@ -272,6 +280,7 @@ public class StringFunctions {
 
   @Stellar( namespace="STRING"
           , name="ENTROPY"
+          , deterministic = true
           , description = "Computes the base-2 shannon entropy of a string"
           , params = { "input - String" }
           , returns = "The base-2 shannon entropy of the string (https://en.wikipedia.org/wiki/Entropy_(information_theory)#Definition).  The unit of this is bits."
@@ -327,6 +336,7 @@ public class StringFunctions {
   }
 
   @Stellar( name="SUBSTRING"
+          , deterministic = true
           , description = "Returns a substring of a string"
           , params = {
                 "input - The string to take the substring of",
@@ -379,6 +389,7 @@ public class StringFunctions {
   }
 
   @Stellar( name="CHOMP"
+          , deterministic = true
           , description = "Removes one newline from end of a String if it's there, otherwise leave it alone. A newline is \"\\n\", \"\\r\", or \"\\r\\n\""
           , params = { "the String to chomp a newline from, may be null"}
           , returns = "String without newline, null if null String input"
@@ -404,6 +415,7 @@ public class StringFunctions {
     }
   }
   @Stellar( name="CHOP"
+          , deterministic = true
           , description = "Remove the last character from a String"
           , params = { "the String to chop last character from, may be null"}
           , returns = "String without last character, null if null String input"
@@ -430,6 +442,7 @@ public class StringFunctions {
   }
 
   @Stellar( name = "PREPEND_IF_MISSING"
+          , deterministic = true
           , description = "Prepends the prefix to the start of the string if the string does not already start with any of the prefixes"
           , params = {
           "str - The string."
@@ -456,6 +469,7 @@ public class StringFunctions {
   }
 
   @Stellar( name = "APPEND_IF_MISSING"
+          , deterministic = true
           , description = "Appends the suffix to the end of the string if the string does not already end with any of the suffixes"
           , params = {
           "str - The string."
@@ -485,6 +499,7 @@ public class StringFunctions {
   }
 
   @Stellar( name = "COUNT_MATCHES"
+          , deterministic = true
           , description = "Counts how many times the substring appears in the larger string"
           , params = {
           "str - the CharSequence to check, may be null"
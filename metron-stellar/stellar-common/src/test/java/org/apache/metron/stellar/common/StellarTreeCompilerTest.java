@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.stellar.dsl.BaseStellarFunction;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.DefaultVariableResolver;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.Stellar;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.apache.metron.stellar.dsl.functions.resolver.SimpleFunctionResolver;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StellarTreeCompilerTest {
+
+  private static final Map<String, Object> VARIABLES = new HashMap<String, Object>() {{
+    put("foo", "casey");
+    put("one", 1);
+    put("two_long", 2L);
+    put("half", 0.5);
+    put("quarter", 0.25f);
+    put("empty", "");
+    put("nothing", null);
+    put("ip_src_addr", "192.168.0.1");
+    put("list", ImmutableList.of(1, 2, 3));
+    put("map", ImmutableMap.of("casey", "apple"));
+    put("true_var", true);
+  }};
+
+  private static final String[] EXPRESSIONS = {
+          "'casey'"
+        , "\"'bar'\""
+        , "'bar\\nfoo'"
+        , "1 + 2"
+        , "1 + 2 * 3 - 4 / 2"
+        , "(1 + 2) * 3"
+        , "one + two_long"
+        , "one + half"
+        , "one + quarter"
+        , "quarter + half"
+        , "7 / 2"
+        , "7.0 / 2"
+        , "1.2f + 3.7"
+        , "nothing + 1"
+        , "1 < 2"
+        , "one >= two_long"
+        , "half <= quarter"
+        , "foo == 'casey'"
+        , "foo != 'casey'"
+        , "nothing == null"
+        , "'a' < 'b'"
+        , "1 == 1.0"
+        , "true and false"
+        , "true && (false || true)"
+        , "(false && true) || true"
+        , "(true || true) && false"
+        , "true or THROW('exception')"
+        , "false and THROW('exception')"
+        , "exists(foo) or true"
+        , "exists(bar)"
+        , "not(foo == 'casey' and true)"
+        , "foo in [ 'casey', 'david' ]"
+        , "foo not in [ 'casey', 'david' ]"
+        , "'case' in foo"
+        , "'casey' in map"
+        , "null in [ null, 'something' ]"
+        , "null in foo"
+        , "'grok' not in ('foobar' == true)"
+        , "('foo' in ['foo']) AND ('bar' in ['bar'])"
+        , "if true then 'foo' else THROW('expression')"
+        , "false ? THROW('exception') : 'foo'"
+        , "50 + (true == false ? 10 : 20)"
+        , "if true then 'foo' else (if false then 'bar' else 'grok')"
+        , "if true_var != null && true_var then 'foo' else 'bar'"
+        , "[]"
+        , "[ foo, one, nothing, [1, 2] ]"
+        , "{}"
+        , "{ 'foo' : 1, 'bar' : one + 1, foo : [ 1 ] }"
+        , "{ 'foo' : 1, 'foo' : 2 }"
+        , "TO_UPPER(TRIM(foo))"
+        , "JOIN( [ TO_UPPER(TRIM(foo)), 'bar' ], ',')"
+        , "MAP_GET('casey', map)"
+        , "LENGTH(list)"
+        , "IN_SUBNET(ip_src_addr, '192.168.0.0/24', '11.0.0.0/24')"
+        , "RET_TRUE(if true then 'foo' else THROW('expression'))"
+        , "MAP(list, x -> x * 2)"
+        , "MAP(list, (x) -> x + one)"
+        , "FILTER(list, x -> x > 1)"
+        , "REDUCE(list, (sum, x) -> sum + x, 0)"
+        , "REDUCE(list, (s, x) -> s + (x == 2 ? 10 : x), one)"
+        , "60 * 60 * 24 + one"
+        , "foo in [ 'casey', 1, null ]"
+        , "one not in [ 1.0, 2 ]"
+        , "nothing in [ 'casey', null ]"
+        , "TO_UPPER('casey')"
+        , "if 1 < 2 then foo else THROW('expression')"
+        , "false or (1 < 2)"
+  };
+
+  private static final String[] FAILURES = {
+          "undefined_variable"
+        , "if nothing then 1 else 2"
+        , "nothing and true"
+        , "one + foo"
+        , "THROW('expression')"
+        , "UNKNOWN_FUNCTION(1)"
+        , "1 < foo"
+        , "1 / 0"
+        , "true and null"
+  };
+
+  private static Object evaluate(String expression, StellarEvaluationMode mode) {
+    StellarProcessor processor = new StellarProcessor();
+    processor.setEvaluationMode(mode);
+    return processor.parse(expression
+                          , new DefaultVariableResolver(VARIABLES::get, VARIABLES::containsKey)
+                          , StellarFunctions.FUNCTION_RESOLVER()
+                          , Context.EMPTY_CONTEXT()
+                          );
+  }
+
+  @Test
+  public void expressionsAreCompiled() {
+    for (String expression : EXPRESSIONS) {
+      Assert.assertTrue(expression + " was not compiled", BaseStellarProcessor.compile(expression).isCompiled());
+    }
+  }
+
+  @Test
+  public void compiledEvaluationMatchesInterpreter() {
+    for (String expression : EXPRESSIONS) {
+      Object interpreted = evaluate(expression, StellarEvaluationMode.INTERPRETED);
+      Object compiled = evaluate(expression, StellarEvaluationMode.COMPILED);
+      Assert.assertEquals(expression, interpreted, compiled);
+      if (interpreted != null) {
+        Assert.assertEquals(expression, interpreted.getClass(), compiled.getClass());
+      }
+    }
+  }
+
+  @Test
+  public void compiledFailuresMatchInterpreter() {
+    for (String expression : FAILURES) {
+      Class<?> interpreted = null;
+      Class<?> compiled = null;
+      try {
+        evaluate(expression, StellarEvaluationMode.INTERPRETED);
+      } catch (Exception e) {
+        interpreted = e.getClass();
+      }
+      try {
+        evaluate(expression, StellarEvaluationMode.COMPILED);
+      } catch (Exception e) {
+        compiled = e.getClass();
+      }
+      Assert.assertNotNull(expression + " did not fail when interpreted", interpreted);
+      Assert.assertEquals(expression, interpreted, compiled);
+    }
+  }
+
+  @Test
+  public void compiledExpressionsAreReusable() {
+    StellarProcessor processor = new StellarProcessor();
+    processor.setEvaluationMode(StellarEvaluationMode.COMPILED);
+    Object first = processor.parse("TO_UPPER(foo)", new MapVariableResolver(ImmutableMap.of("foo", "casey")), StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT());
+    Object second = processor.parse("TO_UPPER(foo)", new MapVariableResolver(ImmutableMap.of("foo", "david")), StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT());
+    Assert.assertEquals("CASEY", first);
+    Assert.assertEquals("DAVID", second);
+  }
+
+  private static StellarTreeCompiler.Node compile(String expression) {
+    StellarCompiler.Expression compiled = BaseStellarProcessor.compile(expression);
+    Assert.assertTrue(expression + " was not compiled", compiled.isCompiled());
+    return compiled.compiledRoot;
+  }
+
+  @Test
+  public void constantSubexpressionsAreFolded() {
+    Assert.assertEquals(86400, compile("60 * 60 * 24").apply(null));
+    Assert.assertTrue(compile("60 * 60 * 24").getClass() == StellarTreeCompiler.ConstantNode.class);
+    Assert.assertTrue(compile("(1 + 2) * 3 > 8 and not(false)").getClass() == StellarTreeCompiler.ConstantNode.class);
+    Assert.assertTrue(compile("'case' in 'casey'").getClass() == StellarTreeCompiler.ConstantNode.class);
+    Assert.assertTrue(compile("true or foo").getClass() == StellarTreeCompiler.ConstantNode.class);
+    Assert.assertTrue(compile("if 1 < 2 then foo else THROW('expression')").getClass() == StellarTreeCompiler.VariableNode.class);
+    Assert.assertTrue(compile("foo in [ 'casey', 'david' ]").getClass() == StellarTreeCompiler.ConstantSetInNode.class);
+  }
+
+  @Test
+  public void expressionsAreCompiledFromTheirParseTree() {
+    StellarCompiler.Expression expression = BaseStellarProcessor.compile("one < 2");
+    Assert.assertNotNull(expression.compiledRoot);
+    Assert.assertTrue(expression.isCompiled());
+  }
+
+  @Test
+  public void expressionsWithoutNodesAreCompiledFromTheirSource() {
+    // as when an expression is deserialized, since its evaluation nodes are not
+    StellarCompiler.Expression expression = new StellarCompiler.Expression(new ArrayDeque<>());
+    expression.source = "one < 2";
+    Assert.assertNull(expression.compiledRoot);
+    Assert.assertTrue(expression.isCompiled());
+    Assert.assertNotNull(expression.compiledRoot);
+
+    // a cleared expression is compiled again
+    expression.clear();
+    Assert.assertFalse(expression.isCompiled());
+    expression.clear();
+    expression.source = "one < 3";
+    Assert.assertTrue(expression.isCompiled());
+  }
+
+  @Test
+  public void compiledExpressionsAreSerializable() throws Exception {
+    StellarTreeCompiler.Node node = compile("one < 2 and foo != 'david'");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(node);
+    }
+    StellarTreeCompiler.Node copy;
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      copy = (StellarTreeCompiler.Node) in.readObject();
+    }
+    StellarCompiler.ExpressionState state = new StellarCompiler.ExpressionState( Context.EMPTY_CONTEXT()
+                                                                               , StellarFunctions.FUNCTION_RESOLVER()
+                                                                               , new MapVariableResolver(VARIABLES)
+                                                                               );
+    Assert.assertEquals(true, copy.apply(state));
+  }
+
+  @Test
+  public void failingSubexpressionsAreNotFolded() {
+    Assert.assertTrue(compile("1 / 0").getClass() == StellarTreeCompiler.ArithmeticNode.class);
+    Assert.assertTrue(compile("true and null").getClass() == StellarTreeCompiler.LogicalNode.class);
+  }
+
+  @Stellar(name = "COUNTING", deterministic = true)
+  public static class DeterministicFunction extends BaseStellarFunction {
+    static final AtomicInteger CALLS = new AtomicInteger();
+
+    @Override
+    public Object apply(List<Object> args) {
+      CALLS.incrementAndGet();
+      return args.get(0) + "!";
+    }
+  }
+
+  @Stellar(name = "NOT_COUNTING")
+  public static class NondeterministicFunction extends BaseStellarFunction {
+    static final AtomicInteger CALLS = new AtomicInteger();
+
+    @Override
+    public Object apply(List<Object> args) {
+      CALLS.incrementAndGet();
+      return args.get(0) + "!";
+    }
+  }
+
+  @Test
+  public void deterministicFunctionsWithConstantArgumentsAreEvaluatedOnce() {
+    SimpleFunctionResolver resolver = new SimpleFunctionResolver();
+    resolver.withClass(DeterministicFunction.class);
+    resolver.withClass(NondeterministicFunction.class);
+    StellarProcessor processor = new StellarProcessor();
+    processor.setEvaluationMode(StellarEvaluationMode.COMPILED);
+    MapVariableResolver variables = new MapVariableResolver(ImmutableMap.of("foo", "casey"));
+    DeterministicFunction.CALLS.set(0);
+    NondeterministicFunction.CALLS.set(0);
+    for (int i = 0; i < 3; ++i) {
+      Assert.assertEquals("casey!", processor.parse("COUNTING('casey')", variables, resolver, Context.EMPTY_CONTEXT()));
+      Assert.assertEquals("casey!", processor.parse("COUNTING(foo)", variables, resolver, Context.EMPTY_CONTEXT()));
+      Assert.assertEquals("casey!", processor.parse("NOT_COUNTING('casey')", variables, resolver, Context.EMPTY_CONTEXT()));
+    }
+    // once for the constant argument and once per evaluation for the variable
+    Assert.assertEquals(4, DeterministicFunction.CALLS.get());
+    Assert.assertEquals(3, NondeterministicFunction.CALLS.get());
+  }
+}
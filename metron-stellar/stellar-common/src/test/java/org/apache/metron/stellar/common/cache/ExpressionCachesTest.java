@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common.cache;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.metron.stellar.common.StellarProcessor;
+import org.apache.metron.stellar.dsl.Context;
+import org.apache.metron.stellar.dsl.MapVariableResolver;
+import org.apache.metron.stellar.dsl.ParseException;
+import org.apache.metron.stellar.dsl.StellarFunctions;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class ExpressionCachesTest {
+
+  @After
+  public void resetSharedCache() {
+    ExpressionCaches.configureShared(Collections.emptyMap());
+  }
+
+  @Test
+  public void statisticsAreRecorded() {
+    ExpressionCache cache = new GuavaExpressionCache(10, 10, TimeUnit.MINUTES);
+    StellarProcessor processor = new StellarProcessor(cache);
+    Map<String, Object> variables = ImmutableMap.of("foo", "casey");
+    for (int i = 0; i < 3; ++i) {
+      Assert.assertEquals("CASEY", processor.parse("TO_UPPER(foo)", new MapVariableResolver(variables), StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT()));
+    }
+    try {
+      processor.parse("TO_UPPER(", new MapVariableResolver(variables), StellarFunctions.FUNCTION_RESOLVER(), Context.EMPTY_CONTEXT());
+      Assert.fail("Expected a ParseException");
+    } catch (ParseException e) {
+      // expected
+    }
+    ExpressionCacheStats stats = cache.getStats();
+    Assert.assertEquals(2, stats.getHitCount());
+    Assert.assertEquals(2, stats.getMissCount());
+    Assert.assertEquals(1, stats.getCompileCount());
+    Assert.assertEquals(1, stats.getCompileFailureCount());
+    Assert.assertEquals(1, stats.getSize());
+    Assert.assertEquals(0.5, stats.getHitRate(), 1e-6);
+    Assert.assertTrue(stats.getTotalCompileTimeNanos() > 0);
+  }
+
+  @Test
+  public void prewarmCompilesValidExpressions() {
+    ExpressionCache cache = new GuavaExpressionCache(10, 10, TimeUnit.MINUTES);
+    cache.prewarm(ImmutableList.of("1 + 1", "TO_UPPER(foo)", "TO_UPPER(", " "));
+    Assert.assertEquals(2, cache.getStats().getSize());
+    Assert.assertEquals(2, cache.getStats().getCompileCount());
+    Assert.assertEquals(1, cache.getStats().getCompileFailureCount());
+
+    cache.get("1 + 1");
+    Assert.assertEquals(1, cache.getStats().getHitCount());
+  }
+
+  @Test
+  public void invalidationIsSelective() {
+    ExpressionCache cache = new GuavaExpressionCache(10, 10, TimeUnit.MINUTES);
+    cache.prewarm(ImmutableList.of("1 + 1", "2 + 2", "3 + 3"));
+    cache.invalidate(ImmutableList.of("2 + 2", "4 + 4"));
+    Assert.assertEquals(2, cache.getStats().getSize());
+
+    cache.get("1 + 1");
+    cache.get("2 + 2");
+    Assert.assertEquals(1, cache.getStats().getHitCount());
+
+    cache.invalidateAll();
+    Assert.assertEquals(0, cache.getStats().getSize());
+  }
+
+  @Test
+  public void sharedCacheIsSizedFromGlobalConfig() {
+    ExpressionCache original = ExpressionCaches.getShared();
+    Assert.assertFalse(ExpressionCaches.configureShared(Collections.emptyMap()));
+    Assert.assertSame(original, ExpressionCaches.getShared());
+
+    Map<String, Object> globalConfig = ImmutableMap.of(ExpressionCaches.CACHE_SIZE_CONF, "2");
+    Assert.assertTrue(ExpressionCaches.configureShared(globalConfig));
+    ExpressionCache resized = ExpressionCaches.getShared();
+    Assert.assertNotSame(original, resized);
+    Assert.assertSame(resized, new StellarProcessor().getExpressionCache());
+
+    // the same settings do not replace the cache
+    Assert.assertFalse(ExpressionCaches.configureShared(ImmutableMap.of(ExpressionCaches.CACHE_SIZE_CONF, 2)));
+    Assert.assertSame(resized, ExpressionCaches.getShared());
+
+    resized.prewarm(ImmutableList.of("1 + 1", "2 + 2", "3 + 3"));
+    Assert.assertTrue(resized.getStats().getSize() <= 2);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void unknownCacheClassFails() {
+    ExpressionCaches.create(ImmutableMap.of(ExpressionCaches.CACHE_CLASS_CONF, "org.apache.metron.DoesNotExist"));
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.metron.stellar.common.network;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.net.util.SubnetUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class CidrMatcherTest {
+
+  @Test
+  public void testIPv4() {
+    CidrMatcher matcher = CidrMatcher.compile(ImmutableList.of("192.168.0.0/24", "10.0.0.0/8"));
+    Assert.assertTrue(matcher.matches("192.168.0.1"));
+    Assert.assertTrue(matcher.matches("10.200.3.4"));
+    Assert.assertFalse(matcher.matches("192.168.1.1"));
+    Assert.assertFalse(matcher.matches("11.0.0.1"));
+  }
+
+  @Test
+  public void testIPv6() {
+    CidrMatcher matcher = CidrMatcher.compile(ImmutableList.of("2001:db8::/32", "192.168.0.0/24"));
+    Assert.assertTrue(matcher.matches("2001:db8::1"));
+    Assert.assertTrue(matcher.matches("2001:0db8:ffff:0000:0000:0000:0000:0000"));
+    Assert.assertFalse(matcher.matches("2001:db9::1"));
+    Assert.assertFalse(matcher.matches("::1"));
+  }
+
+  @Test
+  public void testNetworkAndBroadcastAddresses() {
+    CidrMatcher matcher = CidrMatcher.compile(ImmutableList.of("192.168.0.0/24", "10.0.0.1/32"));
+    Assert.assertFalse(matcher.matches("192.168.0.0"));
+    Assert.assertFalse(matcher.matches("192.168.0.255"));
+    Assert.assertTrue(matcher.matches("10.0.0.1"));
+    Assert.assertFalse(matcher.matches("10.0.0.2"));
+    // a wider range does include the network address of a narrower one
+    Assert.assertTrue(CidrMatcher.compile(ImmutableList.of("192.168.0.0/24", "192.168.0.0/16")).matches("192.168.0.0"));
+  }
+
+  @Test
+  public void testNullsAreIgnored() {
+    CidrMatcher matcher = CidrMatcher.compile(Arrays.asList(null, "192.168.0.0/24", null));
+    Assert.assertEquals(ImmutableList.of("192.168.0.0/24"), matcher.getCidrs());
+    Assert.assertTrue(matcher.isCompiledFrom(Arrays.asList("192.168.0.0/24", null)));
+    Assert.assertFalse(matcher.isCompiledFrom(Arrays.asList("192.168.0.0/24", "10.0.0.0/8")));
+    Assert.assertFalse(matcher.isCompiledFrom(new ArrayList<>()));
+    Assert.assertTrue(CidrMatcher.compile(Arrays.asList((Object) null)).isEmpty());
+  }
+
+  @Test
+  public void testFingerprint() {
+    List<String> cidrs = ImmutableList.of("192.168.0.0/24", "10.0.0.0/8");
+    CidrMatcher matcher = CidrMatcher.compile(cidrs);
+    long fingerprint = CidrMatcher.fingerprint(Arrays.asList("192.168.0.0/24", null, "10.0.0.0/8"));
+    Assert.assertEquals(matcher.getFingerprint(), fingerprint);
+    Assert.assertTrue(matcher.isCompiledFrom(new ArrayList<>(cidrs), fingerprint));
+    // the same ranges in another order are another list
+    List<String> reversed = ImmutableList.of("10.0.0.0/8", "192.168.0.0/24");
+    Assert.assertNotEquals(fingerprint, CidrMatcher.fingerprint(reversed));
+    Assert.assertFalse(matcher.isCompiledFrom(reversed, CidrMatcher.fingerprint(reversed)));
+    Assert.assertNotEquals(fingerprint, CidrMatcher.fingerprint(cidrs.subList(0, 1)));
+  }
+
+  @Test
+  public void testMatchersAreShared() {
+    List<String> cidrs = ImmutableList.of("192.168.0.0/24", "10.0.0.0/8");
+    Assert.assertSame(CidrMatcher.of(cidrs), CidrMatcher.of(new ArrayList<>(cidrs)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCidr() {
+    CidrMatcher.of(ImmutableList.of("192.168.0.0"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPrefixLength() {
+    CidrMatcher.compile(ImmutableList.of("192.168.0.0/33"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidAddress() {
+    CidrMatcher.compile(ImmutableList.of("192.168.0.0/24")).matches("192.168.0.256");
+  }
+
+  @Test
+  public void testMatchesSubnetUtils() {
+    Random random = new Random(0);
+    List<String> cidrs = new ArrayList<>();
+    for (int i = 0; i < 200; ++i) {
+      cidrs.add(randomIp(random) + "/" + (8 + random.nextInt(23)));
+    }
+    CidrMatcher matcher = CidrMatcher.compile(cidrs);
+    for (int i = 0; i < 10000; ++i) {
+      String ip = randomIp(random);
+      boolean expected = false;
+      for (String cidr : cidrs) {
+        expected |= new SubnetUtils(cidr).getInfo().isInRange(ip);
+      }
+      Assert.assertEquals(ip, expected, matcher.matches(ip));
+    }
+  }
+
+  private static String randomIp(Random random) {
+    // keep the addresses within a few networks so that they often fall within the ranges
+    return (10 + random.nextInt(3)) + "." + random.nextInt(4) + "." + random.nextInt(256) + "." + random.nextInt(256);
+  }
+}
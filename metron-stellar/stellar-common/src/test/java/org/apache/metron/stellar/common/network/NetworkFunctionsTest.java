@@ -18,6 +18,9 @@
 package org.apache.metron.stellar.common.network;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.metron.stellar.dsl.functions.NetworkFunctions;
+import org.junit.Assert;
 import org.junit.Test;
 
 
@@ -40,6 +43,31 @@ public class NetworkFunctionsTest {
     runWithArguments("IN_SUBNET", ImmutableList.of("192.168.1.1", "192.168.0.0/24", "192.168.1.0/24"), true);
   }
 
+  @Test
+  public void inSubnetTest_ipv6() {
+    runWithArguments("IN_SUBNET", ImmutableList.of("2001:db8::1", "192.168.0.0/24", "2001:db8::/32"), true);
+    runWithArguments("IN_SUBNET", ImmutableList.of("2001:db9::1", "192.168.0.0/24", "2001:db8::/32"), false);
+  }
+
+  @Test
+  public void inSubnetsTest() {
+    runWithArguments("IN_SUBNETS", ImmutableList.of("192.168.1.1", ImmutableList.of("192.168.0.0/24", "192.168.1.0/24")), true);
+    runWithArguments("IN_SUBNETS", ImmutableList.of("192.168.2.1", ImmutableList.of("192.168.0.0/24", "192.168.1.0/24")), false);
+    runWithArguments("IN_SUBNETS", ImmutableList.of("192.168.1.1", ImmutableSet.of("192.168.1.0/24")), true);
+  }
+
+  @Test
+  public void inSubnetsTest_alternatingRanges() {
+    NetworkFunctions.InSubnets inSubnets = new NetworkFunctions.InSubnets();
+    for(int i = 0;i < 3;++i) {
+      for(int j = 0;j < 10;++j) {
+        Object ranges = ImmutableList.of("10." + j + ".0.0/16");
+        Assert.assertEquals(true, inSubnets.apply(ImmutableList.of("10." + j + ".1.1", ranges)));
+        Assert.assertEquals(false, inSubnets.apply(ImmutableList.of("10." + (j + 1) + ".1.1", ranges)));
+      }
+    }
+  }
+
   @Test
   public void removeSubdomainsTest() {
     runWithArguments("DOMAIN_REMOVE_SUBDOMAINS", "www.google.co.uk", "google.co.uk");